@@ -0,0 +1,30 @@
+package com.forestpest.config;
+
+import com.forestpest.util.RandomProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 随机数配置
+ * 配置simulation.random.seed后使用确定性随机序列，未配置时使用线程本地随机数
+ */
+@Configuration
+public class RandomConfig {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RandomConfig.class);
+    
+    @Value("${simulation.random.seed:#{null}}")
+    private Long seed;
+    
+    @Bean
+    public RandomProvider randomProvider() {
+        if (seed != null) {
+            logger.info("模拟计算使用确定性随机序列，种子: {}", seed);
+            return RandomProvider.seeded(seed);
+        }
+        return RandomProvider.threadLocal();
+    }
+}
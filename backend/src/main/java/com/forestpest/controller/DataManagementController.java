@@ -2,7 +2,9 @@ package com.forestpest.controller;
 
 import com.forestpest.service.DataInitializationService;
 import com.forestpest.data.manager.DataRelationshipManager;
+import com.forestpest.data.index.ReferenceIndex;
 import com.forestpest.util.DataExportUtil;
+import com.forestpest.util.StreamingExportUtil;
 import com.forestpest.common.Result;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -10,6 +12,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * 数据管理控制器
  * 提供数据初始化、重置和统计的API接口
@@ -119,25 +124,82 @@ public class DataManagementController {
         }
     }
     
+    /**
+     * 查询指向实体的全部引用
+     */
+    @GetMapping("/references/{entityType}/{id}")
+    public Result<List<ReferenceIndex.Reference>> getReferences(@PathVariable String entityType,
+                                                                @PathVariable String id) {
+        try {
+            ReferenceIndex.EntityType type = ReferenceIndex.EntityType.valueOf(entityType.toUpperCase());
+            return Result.success(relationshipManager.findReferencesTo(type, id));
+        } catch (IllegalArgumentException e) {
+            return Result.error("不支持的实体类型: " + entityType);
+        } catch (Exception e) {
+            return Result.error("查询实体引用失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询用户创建的全部实体
+     */
+    @GetMapping("/users/{userId}/created")
+    public Result<List<ReferenceIndex.EntityRef>> getEntitiesCreatedBy(@PathVariable String userId) {
+        try {
+            return Result.success(relationshipManager.findEntitiesCreatedBy(userId));
+        } catch (Exception e) {
+            return Result.error("查询用户创建的数据失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 级联删除病虫害及引用它的方案、任务和预测
+     */
+    @DeleteMapping("/pests/{pestId}/cascade")
+    public Result<Map<String, Integer>> deletePestCascade(@PathVariable String pestId) {
+        try {
+            return Result.success(relationshipManager.deletePestCascade(pestId));
+        } catch (Exception e) {
+            return Result.error("级联删除病虫害失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 导出指定类型的数据为JSON
      */
     @GetMapping("/export/{dataType}")
-    public ResponseEntity<String> exportData(@PathVariable String dataType) {
+    public ResponseEntity<?> exportData(@PathVariable String dataType,
+                                        @RequestParam(defaultValue = "false") boolean gzip) {
+        StreamingExportUtil.ExportWriter writer;
         try {
-            String jsonData = dataExportUtil.getDataAsJsonString(dataType);
-            
+            writer = dataExportUtil.streamDataAsJson(dataType);
+        } catch (Exception e) {
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setContentDispositionFormData("attachment", dataType + ".json");
-            
-            return ResponseEntity.ok()
+            return ResponseEntity.badRequest()
                     .headers(headers)
-                    .body(jsonData);
+                    .body("{\"error\": \"导出数据失败: " + e.getMessage() + "\"}");
+        }
+        return StreamingExportUtil.response(dataType, StreamingExportUtil.FORMAT_JSON, gzip, writer);
+    }
+    
+    /**
+     * 以列式二进制格式导出分析数据（predictions、pesticide_usage、effect_evaluations）
+     */
+    @GetMapping("/export/{dataType}/columnar")
+    public ResponseEntity<?> exportColumnarData(@PathVariable String dataType,
+                                                @RequestParam(defaultValue = "true") boolean gzip) {
+        StreamingExportUtil.ExportWriter writer;
+        try {
+            writer = dataExportUtil.streamDataAsColumnar(dataType);
         } catch (Exception e) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
             return ResponseEntity.badRequest()
+                    .headers(headers)
                     .body("{\"error\": \"导出数据失败: " + e.getMessage() + "\"}");
         }
+        return StreamingExportUtil.response(dataType, StreamingExportUtil.FORMAT_COLUMNAR, gzip, writer);
     }
     
     /**
@@ -3,19 +3,43 @@ package com.forestpest.controller;
 import com.forestpest.common.ApiResponse;
 import com.forestpest.entity.IdentificationResult;
 import com.forestpest.entity.Pest;
+import com.forestpest.exception.BusinessException;
 import com.forestpest.service.PestIdentificationService;
+import com.forestpest.service.identification.BatchIdentificationJob;
+import com.forestpest.service.identification.BatchImage;
 import com.forestpest.util.ImageProcessingUtil;
+import com.forestpest.util.StreamingExportUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 病虫害识别控制器
@@ -25,9 +49,22 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class PestIdentificationController {
     
+    private static final Logger logger = LoggerFactory.getLogger(PestIdentificationController.class);
+    
+    // 批量识别结果推送的轮询间隔和连接超时
+    private static final long STREAM_INTERVAL_MILLIS = 500;
+    private static final long STREAM_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+    private static final int MAX_WAIT_SECONDS = 30;
+    
     @Autowired
     private PestIdentificationService pestIdentificationService;
     
+    private final ScheduledExecutorService streamScheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "batch-identify-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
     /**
      * 基于图片识别病虫
      */
@@ -221,6 +258,178 @@ public class PestIdentificationController {
         return ApiResponse.success(results);
     }
     
+    /**
+     * 提交异步批量识别任务，返回202和任务ID，结果通过results或stream接口获取
+     */
+    @PostMapping(value = "/batch/jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse<Map<String, Object>>> submitBatchIdentification(
+            @RequestParam("images") List<MultipartFile> imageFiles,
+            @RequestParam("userId") @NotBlank String userId) {
+        
+        BatchIdentificationJob job = pestIdentificationService.submitBatchIdentification(imageFiles, userId);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{jobId}").buildAndExpand(job.getId()).toUri())
+                .body(ApiResponse.success("批量识别任务已提交", job.toSummary()));
+    }
+    
+    /**
+     * 查询批量识别任务进度
+     */
+    @GetMapping("/batch/jobs/{jobId}")
+    public ApiResponse<Map<String, Object>> getBatchIdentificationJob(@PathVariable @NotBlank String jobId) {
+        BatchIdentificationJob job = pestIdentificationService.getBatchIdentificationJob(jobId);
+        return ApiResponse.success(job.toSummary());
+    }
+    
+    /**
+     * 按游标获取新完成的识别结果；waitSeconds大于0时没有新结果会等待（长轮询），
+     * 等待期间以异步请求挂起，不占用Servlet线程
+     */
+    @GetMapping("/batch/jobs/{jobId}/results")
+    public DeferredResult<ApiResponse<Map<String, Object>>> getBatchIdentificationResults(
+            @PathVariable @NotBlank String jobId,
+            @RequestParam(defaultValue = "0") int cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "0") int waitSeconds) {
+        
+        BatchIdentificationJob job = pestIdentificationService.getBatchIdentificationJob(jobId);
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(Math.min(Math.max(waitSeconds, 1), MAX_WAIT_SECONDS));
+        DeferredResult<ApiResponse<Map<String, Object>>> deferred = new DeferredResult<>(timeoutMillis);
+        Runnable reply = () -> deferred.setResult(batchResultsPage(job, cursor, limit));
+        if (waitSeconds <= 0) {
+            reply.run();
+            return deferred;
+        }
+        deferred.onTimeout(reply);
+        deferred.onCompletion(() -> job.removeProgressListener(reply));
+        job.onProgress(cursor, reply);
+        return deferred;
+    }
+    
+    private ApiResponse<Map<String, Object>> batchResultsPage(BatchIdentificationJob job, int cursor, int limit) {
+        List<Map<String, Object>> items = job.getResultsSince(cursor, Math.min(Math.max(limit, 1), 1000));
+        Map<String, Object> response = new HashMap<>(job.toSummary());
+        response.put("items", items);
+        response.put("nextCursor", Math.max(cursor, 0) + items.size());
+        return ApiResponse.success(response);
+    }
+    
+    /**
+     * 以服务器推送事件（SSE）流式返回识别结果，每张图片一个item事件，结束时发送complete事件
+     */
+    @GetMapping(value = "/batch/jobs/{jobId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBatchIdentificationResults(
+            @PathVariable @NotBlank String jobId,
+            @RequestParam(defaultValue = "0") int cursor) {
+        
+        BatchIdentificationJob job = pestIdentificationService.getBatchIdentificationJob(jobId);
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        AtomicInteger position = new AtomicInteger(Math.max(cursor, 0));
+        AtomicReference<ScheduledFuture<?>> future = new AtomicReference<>();
+        
+        Runnable push = () -> {
+            try {
+                boolean finished = job.isFinished();
+                for (Map<String, Object> item : job.getResultsSince(position.get(), 1000)) {
+                    emitter.send(SseEmitter.event().name("item").id(String.valueOf(position.incrementAndGet())).data(item));
+                }
+                if (finished && position.get() >= job.getCompletedCount()) {
+                    emitter.send(SseEmitter.event().name("complete").data(job.toSummary()));
+                    emitter.complete();
+                    cancelStream(future);
+                }
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("批量识别结果推送中断: {}", jobId);
+                cancelStream(future);
+            }
+        };
+        future.set(streamScheduler.scheduleWithFixedDelay(push, 0, STREAM_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+        emitter.onCompletion(() -> cancelStream(future));
+        emitter.onTimeout(() -> cancelStream(future));
+        emitter.onError(e -> cancelStream(future));
+        return emitter;
+    }
+    
+    private void cancelStream(AtomicReference<ScheduledFuture<?>> future) {
+        ScheduledFuture<?> scheduled = future.get();
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+    }
+    
+    /**
+     * 获取批量识别中单张图片的缩略图
+     */
+    @GetMapping(value = "/batch/jobs/{jobId}/images/{index}/thumbnail", produces = MediaType.IMAGE_JPEG_VALUE)
+    public ResponseEntity<byte[]> getBatchImageThumbnail(
+            @PathVariable @NotBlank String jobId,
+            @PathVariable int index) {
+        
+        BatchImage image = pestIdentificationService.getBatchIdentificationJob(jobId).getImage(index);
+        if (image == null || image.getThumbnail() == null) {
+            throw new BusinessException("缩略图不存在");
+        }
+        return ResponseEntity.ok().contentType(MediaType.IMAGE_JPEG).body(image.getThumbnail());
+    }
+    
+    /**
+     * 取消批量识别任务
+     */
+    @DeleteMapping("/batch/jobs/{jobId}")
+    public ApiResponse<Boolean> cancelBatchIdentification(
+            @PathVariable @NotBlank String jobId,
+            @RequestParam @NotBlank String userId) {
+        
+        boolean cancelled = pestIdentificationService.cancelBatchIdentification(jobId, userId);
+        return ApiResponse.success(cancelled ? "批量识别任务已取消" : "批量识别任务已结束", cancelled);
+    }
+    
+    /**
+     * 获取识别模型统计
+     */
+    @GetMapping("/model/statistics")
+    public ApiResponse<Map<String, Object>> getModelStatistics() {
+        return ApiResponse.success(pestIdentificationService.getModelStatistics());
+    }
+    
+    /**
+     * 按内容摘要获取已保存的图片
+     */
+    @GetMapping("/images/{imageHash}")
+    public ResponseEntity<Resource> getImage(@PathVariable @NotBlank String imageHash) throws IOException {
+        return imageResponse(pestIdentificationService.getImageFile(imageHash));
+    }
+    
+    /**
+     * 获取图片缩略图
+     */
+    @GetMapping("/images/{imageHash}/thumbnail")
+    public ResponseEntity<Resource> getImageThumbnail(
+            @PathVariable @NotBlank String imageHash,
+            @RequestParam(defaultValue = "200") int size) throws IOException {
+        return imageResponse(pestIdentificationService.getImageThumbnail(imageHash, size));
+    }
+    
+    /**
+     * 图片内容不变，允许客户端长期缓存
+     */
+    private ResponseEntity<Resource> imageResponse(Path path) throws IOException {
+        String contentType = Files.probeContentType(path);
+        return ResponseEntity.ok()
+                .contentType(contentType != null ? MediaType.parseMediaType(contentType) : MediaType.APPLICATION_OCTET_STREAM)
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .eTag("\"" + path.getFileName() + "\"")
+                .body(new FileSystemResource(path));
+    }
+    
+    /**
+     * 获取批量识别流水线统计
+     */
+    @GetMapping("/batch/statistics")
+    public ApiResponse<Map<String, Object>> getBatchIdentificationStatistics() {
+        return ApiResponse.success(pestIdentificationService.getBatchIdentificationStatistics());
+    }
+    
     /**
      * 获取识别建议
      */
@@ -244,6 +453,19 @@ public class PestIdentificationController {
         return ApiResponse.success(exportData);
     }
     
+    /**
+     * 流式下载识别历史
+     */
+    @GetMapping("/export/{userId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamIdentificationHistory(
+            @PathVariable @NotBlank String userId,
+            @RequestParam(defaultValue = "json") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        StreamingExportUtil.ExportWriter writer = pestIdentificationService.streamIdentificationHistory(userId, format);
+        return StreamingExportUtil.response("identification_history_" + userId, format, gzip, writer);
+    }
+    
     /**
      * 获取热门识别病虫害
      */
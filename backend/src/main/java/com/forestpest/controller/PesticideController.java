@@ -4,9 +4,12 @@ import com.forestpest.common.ApiResponse;
 import com.forestpest.entity.Pesticide;
 import com.forestpest.entity.PesticideUsageRecord;
 import com.forestpest.service.PesticideManagementService;
+import com.forestpest.util.StreamingExportUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
@@ -423,6 +426,32 @@ public class PesticideController {
         return ApiResponse.success(exportData);
     }
     
+    /**
+     * 流式下载库存数据
+     */
+    @GetMapping("/export/inventory/stream")
+    public ResponseEntity<StreamingResponseBody> streamInventoryData(
+            @RequestParam(defaultValue = "json") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        StreamingExportUtil.ExportWriter writer = pesticideManagementService.streamInventoryData(format);
+        return StreamingExportUtil.response("pesticide_inventory", format, gzip, writer);
+    }
+    
+    /**
+     * 流式下载使用记录
+     */
+    @GetMapping("/export/usage/stream")
+    public ResponseEntity<StreamingResponseBody> streamUsageRecords(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "json") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        StreamingExportUtil.ExportWriter writer = pesticideManagementService.streamUsageRecords(startDate, endDate, format);
+        return StreamingExportUtil.response("pesticide_usage", format, gzip, writer);
+    }
+    
     /**
      * 批量更新库存
      */
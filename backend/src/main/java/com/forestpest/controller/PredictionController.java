@@ -4,8 +4,11 @@ import com.forestpest.common.ApiResponse;
 import com.forestpest.entity.PestPrediction;
 import com.forestpest.entity.PestAlert;
 import com.forestpest.service.PredictionService;
+import com.forestpest.util.StreamingExportUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
@@ -1093,6 +1096,25 @@ public class PredictionController extends BaseController {
         }
     }
     
+    /**
+     * 回滚预测模型
+     */
+    @PostMapping("/model/{modelId}/rollback")
+    public ApiResponse<Boolean> rollbackPredictionModel(
+            @PathVariable @NotBlank String modelId) {
+        
+        try {
+            boolean rolledBack = predictionService.rollbackPredictionModel(modelId);
+            if (!rolledBack) {
+                return error("回滚失败，模型不存在或没有可回滚的版本");
+            }
+            return success("回滚预测模型成功", true);
+        } catch (Exception e) {
+            logger.error("回滚预测模型失败", e);
+            return error("回滚预测模型失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 获取模型性能指标
      */
@@ -1162,6 +1184,32 @@ public class PredictionController extends BaseController {
         }
     }
     
+    /**
+     * 流式下载预测数据，格式错误由全局异常处理返回
+     */
+    @GetMapping("/export/data/stream")
+    public ResponseEntity<StreamingResponseBody> streamPredictionData(
+            @RequestParam(defaultValue = "json") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) Map<String, Object> filters) {
+        
+        StreamingExportUtil.ExportWriter writer = predictionService.streamPredictionData(format, filters);
+        return StreamingExportUtil.response("predictions", format, gzip, writer);
+    }
+    
+    /**
+     * 流式下载预警数据，格式错误由全局异常处理返回
+     */
+    @GetMapping("/alert/export/data/stream")
+    public ResponseEntity<StreamingResponseBody> streamAlertData(
+            @RequestParam(defaultValue = "json") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) Map<String, Object> filters) {
+        
+        StreamingExportUtil.ExportWriter writer = predictionService.streamAlertData(format, filters);
+        return StreamingExportUtil.response("alerts", format, gzip, writer);
+    }
+    
     /**
      * 导出预测报告
      */
@@ -1260,6 +1308,172 @@ public class PredictionController extends BaseController {
         }
     }
     
+    /**
+     * 归档历史数据
+     */
+    @PostMapping("/archive")
+    public ApiResponse<Boolean> archiveHistoricalData(@RequestParam String beforeDate) {
+        
+        try {
+            boolean archived = predictionService.archiveHistoricalData(LocalDate.parse(beforeDate));
+            return success("归档历史数据成功", archived);
+        } catch (Exception e) {
+            logger.error("归档历史数据失败", e);
+            return error("归档历史数据失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询归档的预测记录
+     */
+    @GetMapping("/archive")
+    public ApiResponse<List<PestPrediction>> getArchivedPredictions(
+            @RequestParam(required = false) String pestId,
+            @RequestParam(required = false) String targetArea,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate) {
+        
+        try {
+            LocalDate start = startDate != null ? LocalDate.parse(startDate) : null;
+            LocalDate end = endDate != null ? LocalDate.parse(endDate) : null;
+            List<PestPrediction> predictions = predictionService.getArchivedPredictions(pestId, targetArea, start, end);
+            return success(predictions);
+        } catch (Exception e) {
+            logger.error("查询归档预测失败", e);
+            return error("查询归档预测失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询归档的预警记录
+     */
+    @GetMapping("/alert/archive")
+    public ApiResponse<List<PestAlert>> getArchivedAlerts(
+            @RequestParam(required = false) String predictionId) {
+        
+        try {
+            List<PestAlert> alerts = predictionService.getArchivedAlerts(predictionId);
+            return success(alerts);
+        } catch (Exception e) {
+            logger.error("查询归档预警失败", e);
+            return error("查询归档预警失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询指定区域周边半径内的预测记录
+     */
+    @GetMapping("/spatial/near")
+    public ApiResponse<List<PestPrediction>> getPredictionsNearArea(
+            @RequestParam String areaId,
+            @RequestParam(defaultValue = "10") double radiusKm) {
+        
+        try {
+            List<PestPrediction> result = predictionService.getPredictionsNearArea(areaId, radiusKm);
+            return success(result);
+        } catch (Exception e) {
+            logger.error("空间查询预测失败", e);
+            return error("空间查询预测失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询多边形范围内的预测记录
+     */
+    @GetMapping("/spatial/polygon")
+    public ApiResponse<List<PestPrediction>> getPredictionsWithinPolygon(
+            @RequestParam String polygon) {
+        
+        try {
+            List<PestPrediction> result = predictionService.getPredictionsWithinPolygon(polygon);
+            return success(result);
+        } catch (Exception e) {
+            logger.error("空间查询预测失败", e);
+            return error("空间查询预测失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询区域及其下级区域的预测记录
+     */
+    @GetMapping("/spatial/area/{areaId}")
+    public ApiResponse<List<PestPrediction>> getPredictionsInArea(
+            @PathVariable String areaId) {
+        
+        try {
+            List<PestPrediction> result = predictionService.getPredictionsInArea(areaId);
+            return success(result);
+        } catch (Exception e) {
+            logger.error("空间查询预测失败", e);
+            return error("空间查询预测失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 按下级区域汇总预测和活跃预警数量
+     */
+    @GetMapping("/spatial/area/{areaId}/summary")
+    public ApiResponse<Map<String, Object>> getSpatialRiskSummary(
+            @PathVariable String areaId) {
+        
+        try {
+            Map<String, Object> result = predictionService.getSpatialRiskSummary(areaId);
+            return success(result);
+        } catch (Exception e) {
+            logger.error("获取区域风险汇总失败", e);
+            return error("获取区域风险汇总失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询指定区域周边半径内的预警记录
+     */
+    @GetMapping("/alert/spatial/near")
+    public ApiResponse<List<PestAlert>> getAlertsNearArea(
+            @RequestParam String areaId,
+            @RequestParam(defaultValue = "10") double radiusKm) {
+        
+        try {
+            List<PestAlert> result = predictionService.getAlertsNearArea(areaId, radiusKm);
+            return success(result);
+        } catch (Exception e) {
+            logger.error("空间查询预警失败", e);
+            return error("空间查询预警失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询多边形范围内的预警记录
+     */
+    @GetMapping("/alert/spatial/polygon")
+    public ApiResponse<List<PestAlert>> getAlertsWithinPolygon(
+            @RequestParam String polygon) {
+        
+        try {
+            List<PestAlert> result = predictionService.getAlertsWithinPolygon(polygon);
+            return success(result);
+        } catch (Exception e) {
+            logger.error("空间查询预警失败", e);
+            return error("空间查询预警失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询区域及其下级区域的预警记录
+     */
+    @GetMapping("/alert/spatial/area/{areaId}")
+    public ApiResponse<List<PestAlert>> getAlertsInArea(
+            @PathVariable String areaId) {
+        
+        try {
+            List<PestAlert> result = predictionService.getAlertsInArea(areaId);
+            return success(result);
+        } catch (Exception e) {
+            logger.error("空间查询预警失败", e);
+            return error("空间查询预警失败: " + e.getMessage());
+        }
+    }
+    
 
     @GetMapping("/health")
     public ApiResponse<Map<String, Object>> performHealthCheck() {
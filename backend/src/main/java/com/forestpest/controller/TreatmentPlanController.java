@@ -1,16 +1,26 @@
 package com.forestpest.controller;
 
 import com.forestpest.common.ApiResponse;
+import com.forestpest.dto.TaskBatchResultDTO;
 import com.forestpest.entity.TreatmentPlan;
 import com.forestpest.entity.TreatmentTask;
 import com.forestpest.entity.TreatmentMethod;
 import com.forestpest.service.TreatmentPlanService;
+import com.forestpest.service.scheduling.SprayWindowPlanner;
+import com.forestpest.service.scheduling.SprayWindowService;
+import com.forestpest.service.scheduling.TreatmentScheduleService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +35,12 @@ public class TreatmentPlanController {
     @Autowired
     private TreatmentPlanService treatmentPlanService;
     
+    @Autowired
+    private TreatmentScheduleService treatmentScheduleService;
+    
+    @Autowired
+    private SprayWindowService sprayWindowService;
+    
     /**
      * 生成防治方案
      */
@@ -129,7 +145,7 @@ public class TreatmentPlanController {
             @RequestBody @Valid AssignTaskRequest request) {
         
         TreatmentTask task = treatmentPlanService.assignTreatmentTask(
-            taskId, request.getAssigneeId(), request.getAssignerId());
+            taskId, request.getAssigneeId(), request.getAssignerId(), request.getExpectedVersion());
         return ApiResponse.success(task);
     }
     
@@ -142,7 +158,7 @@ public class TreatmentPlanController {
             @RequestBody @Valid UpdateTaskStatusRequest request) {
         
         TreatmentTask task = treatmentPlanService.updateTaskStatus(
-            taskId, request.getStatus(), request.getUserId());
+            taskId, request.getStatus(), request.getUserId(), request.getExpectedVersion());
         return ApiResponse.success(task);
     }
     
@@ -188,10 +204,84 @@ public class TreatmentPlanController {
             @RequestBody @Valid CompleteTaskRequest request) {
         
         TreatmentTask task = treatmentPlanService.completeTreatmentTask(
-            taskId, request.getUserId(), request.getCompletionData());
+            taskId, request.getUserId(), request.getCompletionData(), request.getExpectedVersion());
+        return ApiResponse.success(task);
+    }
+    
+    /**
+     * 重新排程全部未开始的防治任务
+     */
+    @PostMapping("/schedule")
+    public ApiResponse<Map<String, Object>> scheduleTreatmentTasks(
+            @RequestParam @NotBlank String assignerId) {
+        
+        Map<String, Object> summary = treatmentScheduleService.scheduleAll(assignerId);
+        return ApiResponse.success(summary);
+    }
+    
+    /**
+     * 将单个防治任务插入当前排程
+     */
+    @PostMapping("/schedule/task/{taskId}")
+    public ApiResponse<TreatmentTask> scheduleTreatmentTask(
+            @PathVariable @NotBlank String taskId,
+            @RequestParam @NotBlank String assignerId) {
+        
+        TreatmentTask task = treatmentScheduleService.scheduleTask(taskId, assignerId);
         return ApiResponse.success(task);
     }
     
+    /**
+     * 获取班组的任务排程
+     */
+    @GetMapping("/schedule/crew/{crewId}")
+    public ApiResponse<List<Map<String, Object>>> getCrewSchedule(
+            @PathVariable @NotBlank String crewId) {
+        
+        List<Map<String, Object>> schedule = treatmentScheduleService.getCrewSchedule(crewId);
+        return ApiResponse.success(schedule);
+    }
+    
+    /**
+     * 导入逐小时天气预报，重新评估受影响任务的作业窗口
+     */
+    @PostMapping(value = "/spray-window/forecast", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ApiResponse<Map<String, Object>> importWeatherForecast(
+            @RequestParam("file") MultipartFile file) throws IOException {
+        
+        try (InputStream input = file.getInputStream()) {
+            Map<String, Object> summary = sprayWindowService.ingestForecast(input);
+            return ApiResponse.success(summary);
+        }
+    }
+    
+    /**
+     * 获取防治任务的作业窗口
+     */
+    @GetMapping("/spray-window/task/{taskId}")
+    public ApiResponse<SprayWindowPlanner.TaskWindow> getTaskSprayWindow(
+            @PathVariable @NotBlank String taskId) {
+        
+        SprayWindowPlanner.TaskWindow window = sprayWindowService.findTaskWindow(taskId);
+        if (window == null) {
+            return ApiResponse.error("预报范围内没有适合作业的窗口");
+        }
+        return ApiResponse.success(window);
+    }
+    
+    /**
+     * 获取区域在时间范围内的作业窗口
+     */
+    @GetMapping("/spray-window/area/{areaKey}")
+    public ApiResponse<List<Map<String, Object>>> getAreaSprayWindows(
+            @PathVariable @NotBlank String areaKey,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        
+        List<Map<String, Object>> windows = sprayWindowService.getAreaWindows(areaKey, from, to);
+        return ApiResponse.success(windows);
+    }
+    
     /**
      * 获取防治进度统计
      */
@@ -346,6 +436,18 @@ public class TreatmentPlanController {
         return ApiResponse.success(tasks);
     }
     
+    /**
+     * 大批量创建防治任务，返回逐项处理状态
+     */
+    @PostMapping("/task/bulk")
+    public ApiResponse<TaskBatchResultDTO> bulkCreateTreatmentTasks(
+            @RequestBody @Valid BatchCreateTasksRequest request) {
+        
+        TaskBatchResultDTO result = treatmentPlanService.bulkCreateTreatmentTasks(
+            request.getPlanId(), request.getTasks(), request.getUserId(), request.isAutoAssign());
+        return ApiResponse.success(result);
+    }
+    
     /**
      * 获取防治任务统计
      */
@@ -576,6 +678,9 @@ public class TreatmentPlanController {
         @NotBlank(message = "分配人ID不能为空")
         private String assignerId;
         
+        // 客户端读取到的任务版本，为空时不做版本校验
+        private Long expectedVersion;
+        
         // Getters and Setters
         public String getAssigneeId() {
             return assigneeId;
@@ -592,6 +697,14 @@ public class TreatmentPlanController {
         public void setAssignerId(String assignerId) {
             this.assignerId = assignerId;
         }
+        
+        public Long getExpectedVersion() {
+            return expectedVersion;
+        }
+        
+        public void setExpectedVersion(Long expectedVersion) {
+            this.expectedVersion = expectedVersion;
+        }
     }
     
     /**
@@ -604,6 +717,9 @@ public class TreatmentPlanController {
         @NotBlank(message = "用户ID不能为空")
         private String userId;
         
+        // 客户端读取到的任务版本，为空时不做版本校验
+        private Long expectedVersion;
+        
         // Getters and Setters
         public String getStatus() {
             return status;
@@ -620,6 +736,14 @@ public class TreatmentPlanController {
         public void setUserId(String userId) {
             this.userId = userId;
         }
+        
+        public Long getExpectedVersion() {
+            return expectedVersion;
+        }
+        
+        public void setExpectedVersion(Long expectedVersion) {
+            this.expectedVersion = expectedVersion;
+        }
     }
     
     /**
@@ -631,6 +755,9 @@ public class TreatmentPlanController {
         
         private Map<String, Object> completionData;
         
+        // 客户端读取到的任务版本，为空时不做版本校验
+        private Long expectedVersion;
+        
         // Getters and Setters
         public String getUserId() {
             return userId;
@@ -647,6 +774,14 @@ public class TreatmentPlanController {
         public void setCompletionData(Map<String, Object> completionData) {
             this.completionData = completionData;
         }
+        
+        public Long getExpectedVersion() {
+            return expectedVersion;
+        }
+        
+        public void setExpectedVersion(Long expectedVersion) {
+            this.expectedVersion = expectedVersion;
+        }
     }
     
     /**
@@ -711,6 +846,9 @@ public class TreatmentPlanController {
         @NotBlank(message = "用户ID不能为空")
         private String userId;
         
+        // 仅大批量创建使用：创建后为未指定执行人的任务排程
+        private boolean autoAssign;
+        
         // Getters and Setters
         public String getPlanId() {
             return planId;
@@ -735,6 +873,14 @@ public class TreatmentPlanController {
         public void setUserId(String userId) {
             this.userId = userId;
         }
+        
+        public boolean isAutoAssign() {
+            return autoAssign;
+        }
+        
+        public void setAutoAssign(boolean autoAssign) {
+            this.autoAssign = autoAssign;
+        }
     }
     
     /**
@@ -2,11 +2,20 @@ package com.forestpest.data.factory;
 
 import com.forestpest.data.storage.DataStorage;
 import com.forestpest.data.manager.DataRelationshipManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
 /**
  * 主数据工厂类
  * 负责协调各个数据生成器，初始化系统演示数据
@@ -14,6 +23,8 @@ import org.springframework.stereotype.Component;
 @Component
 public class DataFactory {
     
+    private static final Logger logger = LoggerFactory.getLogger(DataFactory.class);
+    
     @Autowired
     private DataStorage dataStorage;
     
@@ -38,12 +49,18 @@ public class DataFactory {
     @Autowired
     private DataRelationshipManager relationshipManager;
     
+    // 并行加载线程数，0表示使用CPU核数
+    @Value("${data.init.parallelism:0}")
+    private int parallelism;
+    
+    private volatile Map<String, Long> lastLoadTimings = Collections.emptyMap();
+    
     /**
      * 应用启动后自动初始化数据
      */
     @EventListener(ApplicationReadyEvent.class)
     public void initializeData() {
-        System.out.println("开始初始化模拟数据...");
+        logger.info("开始初始化模拟数据...");
         
         // 重置所有数据
         dataStorage.resetAllData();
@@ -51,40 +68,65 @@ public class DataFactory {
         // 按依赖顺序生成数据
         generateAllData();
         
-        System.out.println("模拟数据初始化完成！");
+        logger.info("模拟数据初始化完成！");
         printDataSummary();
     }
     
     /**
      * 生成所有模拟数据
+     * 按依赖图加载，相互独立的数据并行生成，完成后记录各阶段耗时
      */
     public void generateAllData() {
-        // 1. 生成基础数据（无依赖）
-        userDataFactory.generateUsers();
-        pestDataFactory.generatePests();
-        pesticideDataFactory.generatePesticides();
-        forestResourceDataFactory.generateForestResources();
-        knowledgeDataFactory.generateKnowledgeBase();
+        long start = System.nanoTime();
+        
+        // 1. 基础数据无依赖，依赖数据在其依赖的阶段完成后生成
+        DataLoadGraph graph = new DataLoadGraph()
+                .phase("users", userDataFactory::generateUsers)
+                .phase("pests", pestDataFactory::generatePests)
+                .phase("pesticides", pesticideDataFactory::generatePesticides)
+                .phase("forestResources", forestResourceDataFactory::generateForestResources)
+                .phase("knowledge", knowledgeDataFactory::generateKnowledgeBase, "users", "pests")
+                .phase("treatmentPlans", treatmentDataFactory::generateTreatmentPlans,
+                        "users", "pests", "pesticides")
+                .phase("treatmentTasks", treatmentDataFactory::generateTreatmentTasks,
+                        "treatmentPlans", "users");
         
-        // 2. 生成依赖数据
-        treatmentDataFactory.generateTreatmentPlans();
-        treatmentDataFactory.generateTreatmentTasks();
+        ForkJoinPool pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        Map<String, Long> timings = new LinkedHashMap<>();
+        try {
+            timings.putAll(graph.run(pool));
+        } finally {
+            pool.shutdown();
+        }
         
-        // 3. 生成关联数据
+        // 2. 生成关联数据
         generateIdentificationResults();
         generateUsageRecords();
         generateEvaluations();
         generatePredictions();
         
-        // 4. 验证和修复数据关联关系
+        // 3. 验证和修复数据关联关系
+        long validationStart = System.nanoTime();
         validateAndFixRelationships();
+        timings.put("relationships", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - validationStart));
+        
+        lastLoadTimings = Collections.unmodifiableMap(timings);
+        logger.info("模拟数据加载耗时{}ms，各阶段耗时(ms): {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), timings);
+    }
+    
+    /**
+     * 最近一次数据加载的各阶段耗时（毫秒）
+     */
+    public Map<String, Long> getLastLoadTimings() {
+        return lastLoadTimings;
     }
     
     /**
      * 重新生成所有数据
      */
     public void regenerateAllData() {
-        System.out.println("重新生成模拟数据...");
+        logger.info("重新生成模拟数据...");
         initializeData();
     }
     
@@ -124,37 +166,37 @@ public class DataFactory {
      * 验证和修复数据关联关系
      */
     private void validateAndFixRelationships() {
-        System.out.println("开始验证数据关联关系...");
+        logger.info("开始验证数据关联关系...");
         
         DataRelationshipManager.ValidationResult result = relationshipManager.validateAllRelationships();
         
         if (result.hasErrors()) {
-            System.out.println("发现数据关联错误，开始修复...");
+            logger.warn("发现数据关联错误，开始修复...");
             relationshipManager.fixRelationships();
-            System.out.println("数据关联修复完成");
+            logger.info("数据关联修复完成");
         } else {
-            System.out.println("数据关联关系验证通过");
+            logger.info("数据关联关系验证通过");
         }
         
         // 打印验证结果摘要
-        System.out.println("验证结果: 错误" + result.getErrors().size() + "个, 警告" + result.getWarnings().size() + "个");
+        logger.info("验证结果: 错误{}个, 警告{}个", result.getErrors().size(), result.getWarnings().size());
     }
     
     /**
      * 打印数据统计摘要
      */
     private void printDataSummary() {
-        System.out.println("=== 数据统计摘要 ===");
-        System.out.println("用户数量: " + dataStorage.getUserStorage().count());
-        System.out.println("病虫害数量: " + dataStorage.getPestStorage().count());
-        System.out.println("药剂数量: " + dataStorage.getPesticideStorage().count());
-        System.out.println("防治方案数量: " + dataStorage.getTreatmentStorage().planCount());
-        System.out.println("防治任务数量: " + dataStorage.getTreatmentStorage().taskCount());
-        System.out.println("森林资源数量: " + dataStorage.getForestResourceStorage().count());
-        System.out.println("知识库条目数量: " + dataStorage.getKnowledgeStorage().count());
-        System.out.println("效果评估数量: " + dataStorage.getEvaluationStorage().count());
-        System.out.println("预测数量: " + dataStorage.getPredictionStorage().predictionCount());
-        System.out.println("预警数量: " + dataStorage.getPredictionStorage().alertCount());
-        System.out.println("==================");
+        logger.info("数据统计摘要: 用户{}个, 病虫害{}个, 药剂{}个, 防治方案{}个, 防治任务{}个, 森林资源{}个, "
+                        + "知识库条目{}个, 效果评估{}个, 预测{}个, 预警{}个",
+                dataStorage.getUserStorage().count(),
+                dataStorage.getPestStorage().count(),
+                dataStorage.getPesticideStorage().count(),
+                dataStorage.getTreatmentStorage().planCount(),
+                dataStorage.getTreatmentStorage().taskCount(),
+                dataStorage.getForestResourceStorage().count(),
+                dataStorage.getKnowledgeStorage().count(),
+                dataStorage.getEvaluationStorage().count(),
+                dataStorage.getPredictionStorage().predictionCount(),
+                dataStorage.getPredictionStorage().alertCount());
     }
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.forestpest.data.factory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据加载依赖图
+ * 每个阶段声明它依赖的阶段，依赖全部完成后才提交执行，相互独立的阶段在线程池中并行运行，
+ * 执行结束后给出各阶段耗时。
+ */
+public class DataLoadGraph {
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    /**
+     * 添加一个阶段，依赖的阶段可以在之后添加
+     */
+    public DataLoadGraph phase(String name, Runnable action, String... dependsOn) {
+        if (phases.containsKey(name)) {
+            throw new IllegalArgumentException("重复的数据加载阶段: " + name);
+        }
+        phases.put(name, new Phase(name, action, Arrays.asList(dependsOn)));
+        return this;
+    }
+
+    /**
+     * 按依赖关系排序，依赖不存在或存在环时抛出异常
+     */
+    public List<String> topologicalOrder() {
+        Map<String, Integer> pending = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (Phase phase : phases.values()) {
+            pending.put(phase.name, phase.dependsOn.size());
+            for (String dependency : phase.dependsOn) {
+                if (!phases.containsKey(dependency)) {
+                    throw new IllegalStateException("数据加载阶段" + phase.name + "依赖的阶段不存在: " + dependency);
+                }
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(phase.name);
+            }
+        }
+
+        Deque<String> ready = new ArrayDeque<>();
+        phases.keySet().stream().filter(name -> pending.get(name) == 0).forEach(ready::add);
+        List<String> order = new ArrayList<>(phases.size());
+        while (!ready.isEmpty()) {
+            String name = ready.poll();
+            order.add(name);
+            for (String dependent : dependents.getOrDefault(name, List.of())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (order.size() != phases.size()) {
+            List<String> cyclic = new ArrayList<>(phases.keySet());
+            cyclic.removeAll(order);
+            throw new IllegalStateException("数据加载阶段存在循环依赖: " + cyclic);
+        }
+        return order;
+    }
+
+    /**
+     * 执行全部阶段，返回各阶段耗时（毫秒），按拓扑顺序排列；
+     * 任一阶段失败时依赖它的阶段不再执行，异常在全部已提交阶段结束后抛出
+     */
+    public Map<String, Long> run(Executor executor) {
+        List<String> order = topologicalOrder();
+        Map<String, Long> durations = new ConcurrentHashMap<>();
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+
+        for (String name : order) {
+            Phase phase = phases.get(name);
+            CompletableFuture<?>[] dependencies = phase.dependsOn.stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new);
+            futures.put(name, CompletableFuture.allOf(dependencies)
+                    .thenRunAsync(() -> durations.put(name, phase.execute()), executor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+
+        Map<String, Long> ordered = new LinkedHashMap<>();
+        order.forEach(name -> ordered.put(name, durations.get(name)));
+        return ordered;
+    }
+
+    private static final class Phase {
+        private final String name;
+        private final Runnable action;
+        private final List<String> dependsOn;
+
+        private Phase(String name, Runnable action, List<String> dependsOn) {
+            this.name = name;
+            this.action = action;
+            this.dependsOn = dependsOn;
+        }
+
+        private long execute() {
+            long start = System.nanoTime();
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("数据加载阶段" + name + "失败: " + e.getMessage(), e);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+}
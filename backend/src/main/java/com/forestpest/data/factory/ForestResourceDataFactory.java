@@ -1,6 +1,7 @@
 package com.forestpest.data.factory;
 
 import com.forestpest.entity.ForestResource;
+import com.forestpest.data.index.GeoPoint;
 import com.forestpest.data.storage.DataStorage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -61,25 +62,31 @@ public class ForestResourceDataFactory {
      * 生成森林资源数据
      */
     public void generateForestResources() {
+        // 逐层批量保存，下级生成时需要读取已保存的上级区域
         // 生成林场（顶级）
-        List<String> forestFarmIds = generateForestFarms();
+        List<ForestResource> farms = generateForestFarms();
+        dataStorage.getForestResourceStorage().saveAll(farms);
         
         // 为每个林场生成林区
-        for (String farmId : forestFarmIds) {
-            List<String> forestAreaIds = generateForestAreas(farmId);
-            
-            // 为每个林区生成小班
-            for (String areaId : forestAreaIds) {
-                generateForestPlots(areaId);
-            }
+        List<ForestResource> areas = new ArrayList<>();
+        for (ForestResource farm : farms) {
+            areas.addAll(generateForestAreas(farm.getId()));
+        }
+        dataStorage.getForestResourceStorage().saveAll(areas);
+        
+        // 为每个林区生成小班
+        List<ForestResource> plots = new ArrayList<>();
+        for (ForestResource area : areas) {
+            plots.addAll(generateForestPlots(area.getId()));
         }
+        dataStorage.getForestResourceStorage().saveAll(plots);
     }
     
     /**
      * 生成林场数据
      */
-    private List<String> generateForestFarms() {
-        List<String> farmIds = new ArrayList<>();
+    private List<ForestResource> generateForestFarms() {
+        List<ForestResource> farms = new ArrayList<>();
         String[] farmNames = {"东山林场", "西山林场", "南山林场"};
         
         for (int i = 0; i < farmNames.length; i++) {
@@ -106,22 +113,21 @@ public class ForestResourceDataFactory {
             farm.setManagementLevel(managementLevels.get(random.nextInt(managementLevels.size())));
             farm.setAccessibility(accessibilities.get(random.nextInt(accessibilities.size())));
             farm.setCoordinates(generateCoordinates());
-            farm.setBoundary(generateBoundary());
+            farm.setBoundary(generateBoundary(farm.getCoordinates(), farm.getArea()));
             farm.setNotes(generateNotes("林场"));
             farm.setCreatedBy("system");
             
-            dataStorage.getForestResourceStorage().save(farm);
-            farmIds.add(farm.getId());
+            farms.add(farm);
         }
         
-        return farmIds;
+        return farms;
     }
     
     /**
      * 生成林区数据
      */
-    private List<String> generateForestAreas(String parentFarmId) {
-        List<String> areaIds = new ArrayList<>();
+    private List<ForestResource> generateForestAreas(String parentFarmId) {
+        List<ForestResource> areas = new ArrayList<>();
         
         for (int i = 0; i < 4; i++) { // 每个林场4个林区
             ForestResource area = new ForestResource();
@@ -150,22 +156,22 @@ public class ForestResourceDataFactory {
             area.setHealthStatus(healthStatuses.get(random.nextInt(healthStatuses.size())));
             area.setManagementLevel(managementLevels.get(random.nextInt(managementLevels.size())));
             area.setAccessibility(accessibilities.get(random.nextInt(accessibilities.size())));
-            area.setCoordinates(generateCoordinates());
-            area.setBoundary(generateBoundary());
+            area.setCoordinates(generateCoordinates(parentFarmId, 0.05));
+            area.setBoundary(generateBoundary(area.getCoordinates(), area.getArea()));
             area.setNotes(generateNotes("林区"));
             area.setCreatedBy("system");
             
-            dataStorage.getForestResourceStorage().save(area);
-            areaIds.add(area.getId());
+            areas.add(area);
         }
         
-        return areaIds;
+        return areas;
     }
     
     /**
      * 生成小班数据
      */
-    private void generateForestPlots(String parentAreaId) {
+    private List<ForestResource> generateForestPlots(String parentAreaId) {
+        List<ForestResource> plots = new ArrayList<>();
         for (int i = 0; i < 6; i++) { // 每个林区6个小班
             ForestResource plot = new ForestResource();
             plot.setId(dataStorage.generateId());
@@ -200,13 +206,14 @@ public class ForestResourceDataFactory {
             plot.setHealthStatus(healthStatuses.get(random.nextInt(healthStatuses.size())));
             plot.setManagementLevel(managementLevels.get(random.nextInt(managementLevels.size())));
             plot.setAccessibility(accessibilities.get(random.nextInt(accessibilities.size())));
-            plot.setCoordinates(generateCoordinates());
-            plot.setBoundary(generateBoundary());
+            plot.setCoordinates(generateCoordinates(parentAreaId, 0.02));
+            plot.setBoundary(generateBoundary(plot.getCoordinates(), plot.getArea()));
             plot.setNotes(generateNotes("小班"));
             plot.setCreatedBy("system");
             
-            dataStorage.getForestResourceStorage().save(plot);
+            plots.add(plot);
         }
+        return plots;
     }
     
     /**
@@ -286,16 +293,37 @@ public class ForestResourceDataFactory {
     }
     
     /**
-     * 生成边界描述
+     * 在上级区域坐标附近生成坐标，偏移范围为±spread度
+     */
+    private String generateCoordinates(String parentId, double spread) {
+        GeoPoint parent = dataStorage.getForestResourceStorage().findById(parentId)
+                .map(resource -> GeoPoint.parse(resource.getCoordinates()))
+                .orElse(null);
+        if (parent == null) {
+            return generateCoordinates();
+        }
+        double lat = parent.getLatitude() + (random.nextDouble() * 2 - 1) * spread;
+        double lng = parent.getLongitude() + (random.nextDouble() * 2 - 1) * spread;
+        return String.format("%.6f,%.6f", lat, lng);
+    }
+    
+    /**
+     * 生成边界多边形：以中心坐标为中心、面积与区域面积相当的正方形，格式为"纬度,经度;..."
      */
-    private String generateBoundary() {
-        String[] boundaries = {
-            "东至山脊线，南至河流，西至公路，北至村界",
-            "以自然地形为界，四周有明显标识",
-            "东西长约2公里，南北宽约1.5公里",
-            "边界清晰，有界桩标识"
-        };
-        return boundaries[random.nextInt(boundaries.length)];
+    private String generateBoundary(String coordinates, Double areaHectares) {
+        GeoPoint center = GeoPoint.parse(coordinates);
+        if (center == null || areaHectares == null) {
+            return null;
+        }
+        // 1公顷 = 0.01平方公里
+        double halfSideKm = Math.sqrt(areaHectares * 0.01) / 2;
+        double dLat = Math.toDegrees(halfSideKm / GeoPoint.EARTH_RADIUS_KM);
+        double dLng = dLat / Math.max(0.01, Math.cos(Math.toRadians(center.getLatitude())));
+        return String.format("%.6f,%.6f;%.6f,%.6f;%.6f,%.6f;%.6f,%.6f",
+                center.getLatitude() - dLat, center.getLongitude() - dLng,
+                center.getLatitude() - dLat, center.getLongitude() + dLng,
+                center.getLatitude() + dLat, center.getLongitude() + dLng,
+                center.getLatitude() + dLat, center.getLongitude() - dLng);
     }
     
     /**
@@ -93,6 +93,8 @@ public class KnowledgeDataFactory {
      * 生成知识库数据
      */
     public void generateKnowledgeBase() {
+        List<KnowledgeBase> entries = new ArrayList<>();
+        
         // 生成预定义的知识条目
         for (int i = 0; i < knowledgeData.length; i++) {
             String[] data = knowledgeData[i];
@@ -151,17 +153,19 @@ public class KnowledgeDataFactory {
             
             knowledge.setCreatedBy("system");
             
-            dataStorage.getKnowledgeStorage().save(knowledge);
+            entries.add(knowledge);
         }
         
         // 生成额外的随机知识条目
-        generateAdditionalKnowledge();
+        generateAdditionalKnowledge(entries);
+        
+        dataStorage.getKnowledgeStorage().bulkLoad(entries);
     }
     
     /**
      * 生成额外的知识条目
      */
-    private void generateAdditionalKnowledge() {
+    private void generateAdditionalKnowledge(List<KnowledgeBase> entries) {
         String[] additionalTitles = {
             "春季病虫害预防要点", "夏季高温期防治注意事项", "秋季病虫害综合治理",
             "冬季清园技术措施", "新型生物农药研究进展", "智能监测技术应用",
@@ -202,7 +206,7 @@ public class KnowledgeDataFactory {
             knowledge.setReviewedBy(userDataFactory.getRandomAdminUserId());
             knowledge.setCreatedBy("system");
             
-            dataStorage.getKnowledgeStorage().save(knowledge);
+            entries.add(knowledge);
         }
     }
     
@@ -5,6 +5,7 @@ import com.forestpest.data.storage.DataStorage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
@@ -54,6 +55,7 @@ public class PestDataFactory {
      * 生成病虫害数据
      */
     public void generatePests() {
+        List<Pest> pests = new ArrayList<>(pestData.length);
         for (int i = 0; i < pestData.length; i++) {
             String[] data = pestData[i];
             
@@ -94,8 +96,9 @@ public class PestDataFactory {
             
             pest.setCreatedBy("system");
             
-            dataStorage.getPestStorage().save(pest);
+            pests.add(pest);
         }
+        dataStorage.getPestStorage().bulkLoad(pests);
     }
     
     /**
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
@@ -69,6 +70,7 @@ public class PesticideDataFactory {
      * 生成药剂数据
      */
     public void generatePesticides() {
+        List<Pesticide> pesticides = new ArrayList<>(pesticideData.length);
         for (int i = 0; i < pesticideData.length; i++) {
             String[] data = pesticideData[i];
             
@@ -112,8 +114,9 @@ public class PesticideDataFactory {
             pesticide.setStatus("ACTIVE");
             pesticide.setCreatedBy("system");
             
-            dataStorage.getPesticideStorage().save(pesticide);
+            pesticides.add(pesticide);
         }
+        dataStorage.getPesticideStorage().bulkLoad(pesticides);
     }
     
     /**
@@ -52,6 +52,7 @@ public class TreatmentDataFactory {
      * 生成防治方案数据
      */
     public void generateTreatmentPlans() {
+        List<TreatmentPlan> plans = new ArrayList<>();
         for (int i = 0; i < 12; i++) {
             String pestId = pestDataFactory.getRandomPestId();
             if (pestId == null) continue;
@@ -92,8 +93,9 @@ public class TreatmentDataFactory {
             plan.setNotes(generatePlanNotes());
             plan.setCreatedBy(userDataFactory.getRandomUserId());
             
-            dataStorage.getTreatmentStorage().savePlan(plan);
+            plans.add(plan);
         }
+        dataStorage.getTreatmentStorage().bulkLoadPlans(plans);
     }
     
     /**
@@ -101,6 +103,7 @@ public class TreatmentDataFactory {
      */
     public void generateTreatmentTasks() {
         List<TreatmentPlan> plans = dataStorage.getTreatmentStorage().findAllPlans();
+        List<TreatmentTask> tasks = new ArrayList<>();
         
         for (TreatmentPlan plan : plans) {
             // 为每个方案生成1-3个任务
@@ -166,9 +169,10 @@ public class TreatmentDataFactory {
                 
                 task.setCreatedBy(userDataFactory.getRandomUserId());
                 
-                dataStorage.getTreatmentStorage().saveTask(task);
+                tasks.add(task);
             }
         }
+        dataStorage.getTreatmentStorage().bulkLoadTasks(tasks);
     }
     
     /**
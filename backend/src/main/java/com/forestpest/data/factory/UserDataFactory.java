@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
@@ -37,17 +38,21 @@ public class UserDataFactory {
      * 生成用户数据
      */
     public void generateUsers() {
+        List<User> users = new ArrayList<>();
+        
         // 生成管理员用户
-        generateAdminUsers();
+        generateAdminUsers(users);
         
         // 生成普通用户
-        generateNormalUsers();
+        generateNormalUsers(users);
+        
+        dataStorage.getUserStorage().bulkLoad(users);
     }
     
     /**
      * 生成管理员用户
      */
-    private void generateAdminUsers() {
+    private void generateAdminUsers(List<User> users) {
         for (int i = 0; i < 2; i++) {
             User admin = new User();
             admin.setId(dataStorage.generateId());
@@ -62,14 +67,14 @@ public class UserDataFactory {
             admin.setCreatedBy("system");
             admin.setLastLoginTime(LocalDateTime.now().minusDays(random.nextInt(7)));
             
-            dataStorage.getUserStorage().save(admin);
+            users.add(admin);
         }
     }
     
     /**
      * 生成普通用户
      */
-    private void generateNormalUsers() {
+    private void generateNormalUsers(List<User> users) {
         for (int i = 0; i < 8; i++) {
             User user = new User();
             user.setId(dataStorage.generateId());
@@ -84,7 +89,7 @@ public class UserDataFactory {
             user.setCreatedBy("admin1");
             user.setLastLoginTime(LocalDateTime.now().minusDays(random.nextInt(30)));
             
-            dataStorage.getUserStorage().save(user);
+            users.add(user);
         }
     }
     
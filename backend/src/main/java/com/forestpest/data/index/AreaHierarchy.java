@@ -0,0 +1,399 @@
+package com.forestpest.data.index;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 森林区域层级树
+ * 节点按先序遍历编号，每个节点的子树对应编号区间[enter, exit]，子树成员判断为O(1)。
+ * 子树汇总（面积、区域数、不健康小班数、活跃预警数）在节点变化时沿祖先链增量更新，查询为O(1)。
+ * 层级结构变化后编号区间延迟到下一次使用时重建。
+ *
+ * 下级区域可以先于上级区域登记，此时上级以占位节点存在，不计入区域数和查询结果。
+ */
+public class AreaHierarchy {
+
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final Set<String> tops = new LinkedHashSet<>();
+
+    // 活跃预警按目标区域键计数，键为区域ID或编码
+    private final Map<String, Integer> alertsByKey = new HashMap<>();
+    private final Map<String, String> keyOwners = new HashMap<>();
+
+    private String[] order = new String[0];
+    private boolean dirty;
+
+    /**
+     * 新增或更新区域节点
+     */
+    public synchronized void upsert(String id, String parentId, double area, boolean unhealthyPlot, Collection<String> keys) {
+        Node node = nodes.get(id);
+        if (parentId != null && (id.equals(parentId) || (node != null && isAncestorOrSelf(node, parentId)))) {
+            throw new IllegalArgumentException("区域层级不能形成环: " + id + " -> " + parentId);
+        }
+        if (node == null) {
+            node = new Node(id);
+            nodes.put(id, node);
+            tops.add(id);
+            dirty = true;
+        }
+
+        // 先更新自身数据，再处理层级变化，新上级一次性获得完整的子树汇总
+        int presentDelta = node.present ? 0 : 1;
+        node.present = true;
+        double areaDelta = area - node.ownArea;
+        int unhealthyDelta = (unhealthyPlot ? 1 : 0) - node.ownUnhealthy;
+        node.ownArea = area;
+        node.ownUnhealthy = unhealthyPlot ? 1 : 0;
+        propagate(node, areaDelta, presentDelta, unhealthyDelta, 0);
+
+        rebindKeys(node, keys);
+        moveTo(node, parentId);
+    }
+
+    /**
+     * 删除区域节点；仍有下级区域时保留为占位节点并从原上级摘下
+     */
+    public synchronized void remove(String id) {
+        Node node = nodes.get(id);
+        if (node == null || !node.present) {
+            return;
+        }
+        propagate(node, -node.ownArea, -1, -node.ownUnhealthy, 0);
+        node.present = false;
+        node.ownArea = 0;
+        node.ownUnhealthy = 0;
+        rebindKeys(node, List.of());
+        moveTo(node, null);
+
+        if (node.children.isEmpty()) {
+            nodes.remove(id);
+            tops.remove(id);
+            dirty = true;
+        }
+    }
+
+    /**
+     * 调整目标区域的活跃预警数量
+     */
+    public synchronized void adjustAlerts(String key, int delta) {
+        if (key == null || delta == 0) {
+            return;
+        }
+        alertsByKey.merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+        String owner = keyOwners.get(key);
+        if (owner != null) {
+            Node node = nodes.get(owner);
+            node.ownAlerts += delta;
+            propagate(node, 0, 0, 0, delta);
+        }
+    }
+
+    /**
+     * 沿用另一棵层级树的活跃预警计数，重建层级时在登记区域之前调用
+     */
+    public void inheritAlerts(AreaHierarchy source) {
+        Map<String, Integer> alerts;
+        synchronized (source) {
+            alerts = new HashMap<>(source.alertsByKey);
+        }
+        alerts.forEach(this::adjustAlerts);
+    }
+
+    /**
+     * 按区域ID或编码查找区域ID，未登记时返回null
+     */
+    public synchronized String resolve(String key) {
+        return key != null ? keyOwners.get(key) : null;
+    }
+
+    /**
+     * 判断区域是否位于祖先区域的子树内（含自身）
+     */
+    public synchronized boolean isInSubtree(String ancestorId, String id) {
+        Node ancestor = nodes.get(ancestorId);
+        Node node = nodes.get(id);
+        if (ancestor == null || node == null || !ancestor.present || !node.present) {
+            return false;
+        }
+        ensureOrder();
+        return ancestor.enter <= node.enter && node.enter <= ancestor.exit;
+    }
+
+    /**
+     * 获取区域自身及全部下级区域的ID，按先序排列
+     */
+    public synchronized List<String> subtreeIds(String id) {
+        List<String> result = new ArrayList<>();
+        Node node = nodes.get(id);
+        if (node == null || !node.present) {
+            return result;
+        }
+        ensureOrder();
+        for (int i = node.enter; i <= node.exit; i++) {
+            if (nodes.get(order[i]).present) {
+                result.add(order[i]);
+            }
+        }
+        return result;
+    }
+
+    public synchronized List<String> children(String id) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            return new ArrayList<>();
+        }
+        List<String> result = new ArrayList<>();
+        for (String childId : node.children) {
+            if (nodes.get(childId).present) {
+                result.add(childId);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取没有上级区域的区域ID
+     */
+    public synchronized List<String> roots() {
+        List<String> result = new ArrayList<>();
+        for (String id : tops) {
+            if (nodes.get(id).present) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取区域的子树汇总，区域不存在时返回null
+     */
+    public synchronized Aggregate aggregate(String id) {
+        Node node = nodes.get(id);
+        if (node == null || !node.present) {
+            return null;
+        }
+        return new Aggregate(node.subtreeAreas, node.subtreeArea, node.subtreeUnhealthy, node.subtreeAlerts, node.ownAlerts);
+    }
+
+    public synchronized int size() {
+        int count = 0;
+        for (Node node : nodes.values()) {
+            if (node.present) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 清空区域节点；预警计数来自预警数据，予以保留，区域重新登记后自动归属
+     */
+    public synchronized void clear() {
+        nodes.clear();
+        tops.clear();
+        keyOwners.clear();
+        order = new String[0];
+        dirty = false;
+    }
+
+    private void moveTo(Node node, String parentId) {
+        if (parentId != null && parentId.equals(node.parentId)) {
+            return;
+        }
+        if (parentId == null && node.parentId == null) {
+            return;
+        }
+        if (node.parentId != null) {
+            Node oldParent = nodes.get(node.parentId);
+            oldParent.children.remove(node.id);
+            addToAncestors(oldParent, -node.subtreeArea, -node.subtreeAreas, -node.subtreeUnhealthy, -node.subtreeAlerts);
+            if (!oldParent.present && oldParent.children.isEmpty() && oldParent.parentId == null) {
+                nodes.remove(oldParent.id);
+                tops.remove(oldParent.id);
+            }
+        } else {
+            tops.remove(node.id);
+        }
+
+        node.parentId = parentId;
+        if (parentId != null) {
+            Node newParent = nodes.computeIfAbsent(parentId, k -> {
+                tops.add(k);
+                return new Node(k);
+            });
+            newParent.children.add(node.id);
+            addToAncestors(newParent, node.subtreeArea, node.subtreeAreas, node.subtreeUnhealthy, node.subtreeAlerts);
+        } else {
+            tops.add(node.id);
+        }
+        dirty = true;
+    }
+
+    private boolean isAncestorOrSelf(Node node, String id) {
+        String current = id;
+        while (current != null) {
+            if (current.equals(node.id)) {
+                return true;
+            }
+            Node ancestor = nodes.get(current);
+            current = ancestor != null ? ancestor.parentId : null;
+        }
+        return false;
+    }
+
+    private void rebindKeys(Node node, Collection<String> keys) {
+        int alertDelta = 0;
+        for (String key : node.keys) {
+            if (node.id.equals(keyOwners.get(key))) {
+                keyOwners.remove(key);
+                alertDelta -= alertsByKey.getOrDefault(key, 0);
+            }
+        }
+        node.keys.clear();
+
+        for (String key : keys) {
+            if (key == null || !node.keys.add(key)) {
+                continue;
+            }
+            String previousOwner = keyOwners.put(key, node.id);
+            int count = alertsByKey.getOrDefault(key, 0);
+            if (previousOwner != null && !previousOwner.equals(node.id)) {
+                // 同名区域以最后登记的为准
+                Node previous = nodes.get(previousOwner);
+                previous.keys.remove(key);
+                previous.ownAlerts -= count;
+                propagate(previous, 0, 0, 0, -count);
+            }
+            alertDelta += count;
+        }
+
+        node.ownAlerts += alertDelta;
+        propagate(node, 0, 0, 0, alertDelta);
+    }
+
+    private void propagate(Node node, double area, int areas, int unhealthy, int alerts) {
+        if (area == 0 && areas == 0 && unhealthy == 0 && alerts == 0) {
+            return;
+        }
+        addToAncestors(node, area, areas, unhealthy, alerts);
+    }
+
+    private void addToAncestors(Node node, double area, int areas, int unhealthy, int alerts) {
+        Node current = node;
+        while (current != null) {
+            current.subtreeArea += area;
+            current.subtreeAreas += areas;
+            current.subtreeUnhealthy += unhealthy;
+            current.subtreeAlerts += alerts;
+            current = current.parentId != null ? nodes.get(current.parentId) : null;
+        }
+    }
+
+    /**
+     * 重建先序编号，使用显式栈避免深层级时栈溢出
+     */
+    private void ensureOrder() {
+        if (!dirty) {
+            return;
+        }
+        for (Node node : nodes.values()) {
+            node.exit = Node.PENDING;
+        }
+        String[] rebuilt = new String[nodes.size()];
+        int next = 0;
+        Deque<Node> stack = new ArrayDeque<>();
+        for (String topId : tops) {
+            stack.push(nodes.get(topId));
+            while (!stack.isEmpty()) {
+                Node node = stack.peek();
+                if (node.exit == Node.PENDING) {
+                    node.exit = Node.VISITING;
+                    node.enter = next;
+                    rebuilt[next++] = node.id;
+                    for (String childId : node.children) {
+                        stack.push(nodes.get(childId));
+                    }
+                } else {
+                    stack.pop();
+                    node.exit = next - 1;
+                }
+            }
+        }
+        order = rebuilt;
+        dirty = false;
+    }
+
+    private static final class Node {
+        private static final int PENDING = -1;
+        private static final int VISITING = -2;
+
+        private final String id;
+        private String parentId;
+        private final Set<String> children = new LinkedHashSet<>();
+        private final Set<String> keys = new LinkedHashSet<>();
+        private boolean present;
+
+        private double ownArea;
+        private int ownUnhealthy;
+        private int ownAlerts;
+
+        private double subtreeArea;
+        private int subtreeAreas;
+        private int subtreeUnhealthy;
+        private int subtreeAlerts;
+
+        private int enter;
+        private int exit = PENDING;
+
+        private Node(String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * 子树汇总快照
+     */
+    public static final class Aggregate {
+        private final int areaCount;
+        private final double totalArea;
+        private final int unhealthyPlotCount;
+        private final int activeAlertCount;
+        private final int ownActiveAlertCount;
+
+        private Aggregate(int areaCount, double totalArea, int unhealthyPlotCount, int activeAlertCount, int ownActiveAlertCount) {
+            this.areaCount = areaCount;
+            this.totalArea = totalArea;
+            this.unhealthyPlotCount = unhealthyPlotCount;
+            this.activeAlertCount = activeAlertCount;
+            this.ownActiveAlertCount = ownActiveAlertCount;
+        }
+
+        public int getAreaCount() {
+            return areaCount;
+        }
+
+        public double getTotalArea() {
+            return totalArea;
+        }
+
+        public int getUnhealthyPlotCount() {
+            return unhealthyPlotCount;
+        }
+
+        public int getActiveAlertCount() {
+            return activeAlertCount;
+        }
+
+        public int getOwnActiveAlertCount() {
+            return ownActiveAlertCount;
+        }
+    }
+}
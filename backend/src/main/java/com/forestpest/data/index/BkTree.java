@@ -0,0 +1,161 @@
+package com.forestpest.data.index;
+
+import com.forestpest.util.PerceptualHash;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 按64位哈希汉明距离组织的BK树
+ * 每个子节点按与父节点的距离挂载，查询时利用三角不等式只访问距离区间内的子树，
+ * 小半径查询只需访问很少的节点。相同哈希的多个值共用一个节点。
+ */
+public class BkTree<V> {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node<V> root;
+    private int size;
+
+    /**
+     * 添加哈希与对应的值
+     */
+    public void add(long hash, V value) {
+        lock.writeLock().lock();
+        try {
+            size++;
+            if (root == null) {
+                root = new Node<>(hash);
+                root.values.add(value);
+                return;
+            }
+            Node<V> node = root;
+            while (true) {
+                int distance = PerceptualHash.distance(hash, node.hash);
+                if (distance == 0) {
+                    node.values.add(value);
+                    return;
+                }
+                Node<V> child = node.children != null ? node.children.get(distance) : null;
+                if (child == null) {
+                    if (node.children == null) {
+                        node.children = new HashMap<>(4);
+                    }
+                    child = new Node<>(hash);
+                    child.values.add(value);
+                    node.children.put(distance, child);
+                    return;
+                }
+                node = child;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 移除值，节点保留用于后续查询的路由
+     */
+    public boolean remove(long hash, V value) {
+        lock.writeLock().lock();
+        try {
+            Node<V> node = root;
+            while (node != null) {
+                int distance = PerceptualHash.distance(hash, node.hash);
+                if (distance == 0) {
+                    boolean removed = node.values.remove(value);
+                    if (removed) {
+                        size--;
+                    }
+                    return removed;
+                }
+                node = node.children != null ? node.children.get(distance) : null;
+            }
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查找距离不超过maxDistance的所有值，按距离从近到远排列
+     */
+    public List<Match<V>> search(long hash, int maxDistance) {
+        List<Match<V>> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (root == null) {
+                return matches;
+            }
+            Deque<Node<V>> pending = new ArrayDeque<>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                Node<V> node = pending.pop();
+                int distance = PerceptualHash.distance(hash, node.hash);
+                if (distance <= maxDistance) {
+                    for (V value : node.values) {
+                        matches.add(new Match<>(value, distance));
+                    }
+                }
+                if (node.children == null) {
+                    continue;
+                }
+                for (Map.Entry<Integer, Node<V>> entry : node.children.entrySet()) {
+                    if (Math.abs(entry.getKey() - distance) <= maxDistance) {
+                        pending.push(entry.getValue());
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingInt(Match::getDistance));
+        return matches;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class Node<V> {
+        private final long hash;
+        private final List<V> values = new ArrayList<>(1);
+        private Map<Integer, Node<V>> children;
+
+        private Node(long hash) {
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * 查询命中的值及其距离
+     */
+    public static final class Match<V> {
+        private final V value;
+        private final int distance;
+
+        private Match(V value, int distance) {
+            this.value = value;
+            this.distance = distance;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+    }
+}
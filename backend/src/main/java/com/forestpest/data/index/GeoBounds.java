@@ -0,0 +1,73 @@
+package com.forestpest.data.index;
+
+/**
+ * 经纬度外包矩形
+ */
+public final class GeoBounds {
+
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double maxLatitude;
+    private final double maxLongitude;
+
+    public GeoBounds(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLatitude = maxLatitude;
+        this.maxLongitude = maxLongitude;
+    }
+
+    public static GeoBounds of(GeoPoint point) {
+        return new GeoBounds(point.getLatitude(), point.getLongitude(), point.getLatitude(), point.getLongitude());
+    }
+
+    /**
+     * 以某点为中心、指定半径的外包矩形
+     */
+    public static GeoBounds around(GeoPoint center, double radiusKm) {
+        double latDelta = Math.toDegrees(radiusKm / GeoPoint.EARTH_RADIUS_KM);
+        double cos = Math.cos(Math.toRadians(center.getLatitude()));
+        double lngDelta = cos > 1e-9 ? Math.min(180.0, latDelta / cos) : 180.0;
+        return new GeoBounds(
+            Math.max(-90.0, center.getLatitude() - latDelta),
+            Math.max(-180.0, center.getLongitude() - lngDelta),
+            Math.min(90.0, center.getLatitude() + latDelta),
+            Math.min(180.0, center.getLongitude() + lngDelta));
+    }
+
+    public GeoBounds union(GeoBounds other) {
+        if (other == null) {
+            return this;
+        }
+        return new GeoBounds(
+            Math.min(minLatitude, other.minLatitude),
+            Math.min(minLongitude, other.minLongitude),
+            Math.max(maxLatitude, other.maxLatitude),
+            Math.max(maxLongitude, other.maxLongitude));
+    }
+
+    public boolean contains(GeoPoint point) {
+        return point.getLatitude() >= minLatitude && point.getLatitude() <= maxLatitude &&
+               point.getLongitude() >= minLongitude && point.getLongitude() <= maxLongitude;
+    }
+
+    public GeoPoint center() {
+        return new GeoPoint((minLatitude + maxLatitude) / 2, (minLongitude + maxLongitude) / 2);
+    }
+
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+}
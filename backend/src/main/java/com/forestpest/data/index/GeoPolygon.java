@@ -0,0 +1,77 @@
+package com.forestpest.data.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 经纬度多边形（单环）
+ */
+public final class GeoPolygon {
+
+    private final List<GeoPoint> vertices;
+    private final GeoBounds bounds;
+
+    public GeoPolygon(List<GeoPoint> vertices) {
+        if (vertices == null || vertices.size() < 3) {
+            throw new IllegalArgumentException("多边形至少需要3个顶点");
+        }
+        this.vertices = Collections.unmodifiableList(new ArrayList<>(vertices));
+        GeoBounds box = GeoBounds.of(vertices.get(0));
+        for (GeoPoint vertex : vertices) {
+            box = box.union(GeoBounds.of(vertex));
+        }
+        this.bounds = box;
+    }
+
+    /**
+     * 解析 "纬度,经度;纬度,经度;..." 格式的多边形，格式不正确时返回null
+     */
+    public static GeoPolygon parse(String text) {
+        if (text == null || text.indexOf(';') < 0) {
+            return null;
+        }
+        List<GeoPoint> vertices = new ArrayList<>();
+        for (String part : text.split(";")) {
+            if (part.trim().isEmpty()) {
+                continue;
+            }
+            GeoPoint point = GeoPoint.parse(part);
+            if (point == null) {
+                return null;
+            }
+            vertices.add(point);
+        }
+        return vertices.size() >= 3 ? new GeoPolygon(vertices) : null;
+    }
+
+    /**
+     * 射线法判断点是否在多边形内
+     */
+    public boolean contains(GeoPoint point) {
+        if (!bounds.contains(point)) {
+            return false;
+        }
+        boolean inside = false;
+        double x = point.getLongitude();
+        double y = point.getLatitude();
+        for (int i = 0, j = vertices.size() - 1; i < vertices.size(); j = i++) {
+            double xi = vertices.get(i).getLongitude();
+            double yi = vertices.get(i).getLatitude();
+            double xj = vertices.get(j).getLongitude();
+            double yj = vertices.get(j).getLatitude();
+            if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    public GeoBounds getBounds() {
+        return bounds;
+    }
+
+    public List<GeoPoint> getVertices() {
+        return vertices;
+    }
+}
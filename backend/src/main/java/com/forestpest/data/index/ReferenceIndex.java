@@ -0,0 +1,376 @@
+package com.forestpest.data.index;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * 实体引用反向索引
+ * 每个实体登记它引用的其他实体，同时维护被引用方到引用方的反向映射，写入时增量更新。
+ * 目标实体不存在的强引用记入悬空集合，完整性检查只读取悬空集合，级联处理只访问目标的反向引用，
+ * 代价与引用数量成正比，与实体总数无关。
+ *
+ * 引用可以先于目标实体登记，目标登记后自动解除悬空；目标删除后其反向引用保留并重新变为悬空。
+ *
+ * 按实体分段加锁：写入时按序锁住来源和新旧引用目标所在的分段，不同实体的写入可以并行；
+ * 实体集合按类型分开并发维护，存在性、悬空数量等读取不加锁。
+ */
+public class ReferenceIndex {
+
+    /**
+     * 参与引用检查的实体类型
+     */
+    public enum EntityType {
+        USER("用户"),
+        PEST("病虫害"),
+        PESTICIDE("药剂"),
+        TREATMENT_PLAN("防治方案"),
+        TREATMENT_TASK("防治任务"),
+        KNOWLEDGE("知识库"),
+        PREDICTION("预测"),
+        FOREST_RESOURCE("森林资源"),
+        EVALUATION("效果评估");
+
+        private final String label;
+
+        EntityType(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // 锁分段数，必须是2的幂
+    private static final int STRIPES = 64;
+
+    // 发出的引用列表登记后不再修改，整体替换
+    private final Map<EntityRef, List<Reference>> outgoing = new ConcurrentHashMap<>();
+    private final Map<EntityRef, Set<Reference>> incoming = new ConcurrentHashMap<>();
+    private final Map<EntityType, Set<String>> present = new EnumMap<>(EntityType.class);
+    // 悬空引用 -> 变为悬空时的序号，用于按出现顺序排列
+    private final Map<Reference, Long> dangling = new ConcurrentHashMap<>();
+    private final AtomicLong danglingSequence = new AtomicLong();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public ReferenceIndex() {
+        for (EntityType type : EntityType.values()) {
+            present.put(type, ConcurrentHashMap.newKeySet());
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 登记或更新实体及其引用，替换该实体之前登记的全部引用
+     */
+    public void register(EntityRef source, Collection<Reference> references) {
+        List<Reference> links = List.copyOf(new LinkedHashSet<>(references));
+        while (true) {
+            List<Reference> previous = outgoing.get(source);
+            int[] stripes = stripes(source, previous, links);
+            lock(stripes);
+            try {
+                // 加锁前发出的引用已被其他写入替换，按新的目标重新加锁
+                if (outgoing.get(source) != previous) {
+                    continue;
+                }
+                removeOutgoing(source);
+                present.get(source.getType()).add(source.getId());
+                Set<Reference> referencing = incoming.get(source);
+                if (referencing != null) {
+                    referencing.forEach(dangling::remove);
+                }
+                if (!links.isEmpty()) {
+                    outgoing.put(source, links);
+                }
+                for (Reference reference : links) {
+                    incoming.computeIfAbsent(reference.getTarget(), k -> new LinkedHashSet<>()).add(reference);
+                    if (reference.isStrict() && !isPresent(reference.getTarget())) {
+                        markDangling(reference);
+                    }
+                }
+                return;
+            } finally {
+                unlock(stripes);
+            }
+        }
+    }
+
+    /**
+     * 删除实体，移除它发出的引用，指向它的强引用变为悬空
+     */
+    public void unregister(EntityRef source) {
+        while (true) {
+            List<Reference> previous = outgoing.get(source);
+            int[] stripes = stripes(source, previous, List.of());
+            lock(stripes);
+            try {
+                if (outgoing.get(source) != previous) {
+                    continue;
+                }
+                if (!present.get(source.getType()).remove(source.getId())) {
+                    return;
+                }
+                removeOutgoing(source);
+                Set<Reference> referencing = incoming.get(source);
+                if (referencing != null) {
+                    referencing.stream().filter(Reference::isStrict).forEach(this::markDangling);
+                }
+                return;
+            } finally {
+                unlock(stripes);
+            }
+        }
+    }
+
+    /**
+     * 删除某一类型的全部实体
+     */
+    public void unregisterAll(EntityType type) {
+        new ArrayList<>(present.get(type)).forEach(id -> unregister(new EntityRef(type, id)));
+    }
+
+    public boolean isPresent(EntityRef ref) {
+        return present.get(ref.getType()).contains(ref.getId());
+    }
+
+    /**
+     * 指向目标实体的全部引用
+     */
+    public List<Reference> referencesTo(EntityRef target) {
+        return referencesTo(target, null);
+    }
+
+    /**
+     * 指向目标实体、来自指定类型实体的引用
+     */
+    public List<Reference> referencesTo(EntityRef target, EntityType sourceType) {
+        List<Reference> result = new ArrayList<>();
+        ReentrantLock lock = locks[stripe(target)];
+        lock.lock();
+        try {
+            Set<Reference> referencing = incoming.get(target);
+            if (referencing != null) {
+                for (Reference reference : referencing) {
+                    if (sourceType == null || reference.getSource().getType() == sourceType) {
+                        result.add(reference);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    /**
+     * 实体发出的全部引用
+     */
+    public List<Reference> referencesFrom(EntityRef source) {
+        List<Reference> links = outgoing.get(source);
+        return links != null ? new ArrayList<>(links) : new ArrayList<>();
+    }
+
+    /**
+     * 目标实体不存在的强引用，按出现顺序排列
+     */
+    public List<Reference> danglingReferences() {
+        return dangling.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    public int danglingCount() {
+        return dangling.size();
+    }
+
+    public int size(EntityType type) {
+        return present.get(type).size();
+    }
+
+    /**
+     * 清空索引，持有全部分段锁
+     */
+    public void clear() {
+        int[] all = new int[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            all[i] = i;
+        }
+        lock(all);
+        try {
+            outgoing.clear();
+            incoming.clear();
+            present.values().forEach(Set::clear);
+            dangling.clear();
+        } finally {
+            unlock(all);
+        }
+    }
+
+    /**
+     * 调用方持有来源及其全部目标所在分段的锁
+     */
+    private void removeOutgoing(EntityRef source) {
+        List<Reference> links = outgoing.remove(source);
+        if (links == null) {
+            return;
+        }
+        for (Reference reference : links) {
+            dangling.remove(reference);
+            Set<Reference> referencing = incoming.get(reference.getTarget());
+            if (referencing != null) {
+                referencing.remove(reference);
+                if (referencing.isEmpty()) {
+                    incoming.remove(reference.getTarget());
+                }
+            }
+        }
+    }
+
+    private void markDangling(Reference reference) {
+        dangling.putIfAbsent(reference, danglingSequence.incrementAndGet());
+    }
+
+    private static int stripe(EntityRef ref) {
+        int hash = ref.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * 来源和新旧引用目标所在的分段，升序去重，按序加锁避免死锁
+     */
+    private static int[] stripes(EntityRef source, List<Reference> previous, List<Reference> links) {
+        BitSet stripes = new BitSet(STRIPES);
+        stripes.set(stripe(source));
+        if (previous != null) {
+            previous.forEach(reference -> stripes.set(stripe(reference.getTarget())));
+        }
+        links.forEach(reference -> stripes.set(stripe(reference.getTarget())));
+        return stripes.stream().toArray();
+    }
+
+    private void lock(int[] stripes) {
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+    }
+
+    private void unlock(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            locks[stripes[i]].unlock();
+        }
+    }
+
+    /**
+     * 实体标识：类型和ID
+     */
+    public static final class EntityRef {
+        private final EntityType type;
+        private final String id;
+
+        public EntityRef(EntityType type, String id) {
+            this.type = Objects.requireNonNull(type);
+            this.id = Objects.requireNonNull(id);
+        }
+
+        public EntityType getType() {
+            return type;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EntityRef)) {
+                return false;
+            }
+            EntityRef other = (EntityRef) o;
+            return type == other.type && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + id.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return type.getLabel() + ":" + id;
+        }
+    }
+
+    /**
+     * 一条引用：来源实体的某个字段指向目标实体；
+     * 强引用要求目标存在，弱引用（如创建人可能是系统账号）只用于反向查询
+     */
+    public static final class Reference {
+        private final EntityRef source;
+        private final String field;
+        private final EntityRef target;
+        private final boolean strict;
+
+        public Reference(EntityRef source, String field, EntityRef target, boolean strict) {
+            this.source = source;
+            this.field = field;
+            this.target = target;
+            this.strict = strict;
+        }
+
+        public EntityRef getSource() {
+            return source;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public EntityRef getTarget() {
+            return target;
+        }
+
+        public boolean isStrict() {
+            return strict;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Reference)) {
+                return false;
+            }
+            Reference other = (Reference) o;
+            return source.equals(other.source) && field.equals(other.field) && target.equals(other.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, field, target);
+        }
+
+        @Override
+        public String toString() {
+            return source + "." + field + " -> " + target;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.forestpest.data.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+/**
+ * 网格空间索引
+ * 坐标按固定经纬度网格分桶，桶按行优先编号存放在跳表中。
+ * 范围查询对覆盖的每一行做一次区间查找，复杂度为O(行数·log n + 结果数)。
+ */
+public class SpatialGridIndex {
+
+    // 默认网格大小0.01度，约1公里
+    public static final double DEFAULT_CELL_DEGREES = 0.01;
+
+    private final double cellDegrees;
+    private final long columns;
+    private final NavigableMap<Long, Set<String>> cells = new ConcurrentSkipListMap<>();
+    private final Map<String, GeoPoint> points = new ConcurrentHashMap<>();
+
+    public SpatialGridIndex() {
+        this(DEFAULT_CELL_DEGREES);
+    }
+
+    public SpatialGridIndex(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+        this.columns = (long) Math.ceil(360.0 / cellDegrees) + 1;
+    }
+
+    /**
+     * 登记或更新坐标，point为null时移除
+     */
+    public void put(String id, GeoPoint point) {
+        if (point == null) {
+            remove(id);
+            return;
+        }
+        GeoPoint previous = points.put(id, point);
+        if (previous != null) {
+            long previousCell = cellOf(previous);
+            if (previousCell == cellOf(point)) {
+                return;
+            }
+            removeFromCell(previousCell, id);
+        }
+        cells.compute(cellOf(point), (k, ids) -> {
+            Set<String> bucket = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            bucket.add(id);
+            return bucket;
+        });
+    }
+
+    public void remove(String id) {
+        GeoPoint previous = points.remove(id);
+        if (previous != null) {
+            removeFromCell(cellOf(previous), id);
+        }
+    }
+
+    public GeoPoint get(String id) {
+        return points.get(id);
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    public void clear() {
+        cells.clear();
+        points.clear();
+    }
+
+    /**
+     * 查找外包矩形内的坐标
+     */
+    public List<String> withinBounds(GeoBounds bounds) {
+        return scan(bounds, point -> bounds.contains(point));
+    }
+
+    /**
+     * 查找距中心点指定半径内的坐标，按距离由近到远排序
+     */
+    public List<String> withinRadius(GeoPoint center, double radiusKm) {
+        List<String> ids = scan(GeoBounds.around(center, radiusKm), point -> center.distanceKm(point) <= radiusKm);
+        ids.sort(Comparator.comparingDouble(id -> center.distanceKm(points.getOrDefault(id, center))));
+        return ids;
+    }
+
+    /**
+     * 查找多边形内的坐标
+     */
+    public List<String> withinPolygon(GeoPolygon polygon) {
+        return scan(polygon.getBounds(), polygon::contains);
+    }
+
+    private List<String> scan(GeoBounds bounds, Predicate<GeoPoint> filter) {
+        List<String> result = new ArrayList<>();
+        long minRow = row(bounds.getMinLatitude());
+        long maxRow = row(bounds.getMaxLatitude());
+        long minCol = column(bounds.getMinLongitude());
+        long maxCol = column(bounds.getMaxLongitude());
+
+        for (long r = minRow; r <= maxRow; r++) {
+            long from = r * columns + minCol;
+            long to = r * columns + maxCol;
+            for (Set<String> bucket : cells.subMap(from, true, to, true).values()) {
+                for (String id : bucket) {
+                    GeoPoint point = points.get(id);
+                    if (point != null && filter.test(point)) {
+                        result.add(id);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void removeFromCell(long cell, String id) {
+        cells.computeIfPresent(cell, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private long cellOf(GeoPoint point) {
+        return row(point.getLatitude()) * columns + column(point.getLongitude());
+    }
+
+    private long row(double latitude) {
+        return (long) Math.floor((latitude + 90.0) / cellDegrees);
+    }
+
+    private long column(double longitude) {
+        return (long) Math.floor((longitude + 180.0) / cellDegrees);
+    }
+}
@@ -1,11 +1,23 @@
 package com.forestpest.data.manager;
 
+import com.forestpest.data.index.ReferenceIndex;
+import com.forestpest.data.index.ReferenceIndex.EntityRef;
+import com.forestpest.data.index.ReferenceIndex.EntityType;
+import com.forestpest.data.index.ReferenceIndex.Reference;
 import com.forestpest.data.storage.DataStorage;
+import com.forestpest.data.storage.EntityReferences;
+import com.forestpest.data.storage.IdentificationStorage;
 import com.forestpest.entity.*;
+import com.forestpest.exception.BusinessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.stream.Collectors;
@@ -17,14 +29,35 @@ import java.util.stream.Collectors;
 @Component
 public class DataRelationshipManager {
     
+    private static final Logger logger = LoggerFactory.getLogger(DataRelationshipManager.class);
+    
+    // 引用字段的显示名称
+    private static final Map<String, String> FIELD_LABELS = Map.of(
+            "pestId", "关联的病虫害ID",
+            "requiredPesticides", "关联的药剂ID",
+            "approvedBy", "的审批人ID",
+            "planId", "关联的方案ID",
+            "assignedTo", "的分配人员ID",
+            "supervisedBy", "的监督人ID",
+            "usedPesticides", "使用的药剂ID",
+            "relatedPests", "关联的病虫害ID",
+            "reviewedBy", "的审核人ID",
+            "parentAreaId", "的父区域ID");
+    
     @Autowired
     private DataStorage dataStorage;
     
+    // 识别结果存储，未注入时级联删除不处理识别结果
+    @Autowired(required = false)
+    private IdentificationStorage identificationStorage;
+    
     /**
      * 验证所有数据的关联关系
+     * 实体被直接修改而未重新保存时增量维护的悬空集合可能过期，验证前先按当前数据重建引用索引
      */
     public ValidationResult validateAllRelationships() {
         ValidationResult result = new ValidationResult();
+        rebuildIndexes();
         
         // 验证用户关联
         result.addResults(validateUserRelationships());
@@ -32,17 +65,11 @@ public class DataRelationshipManager {
         // 验证病虫害关联
         result.addResults(validatePestRelationships());
         
-        // 验证防治方案关联
-        result.addResults(validateTreatmentPlanRelationships());
-        
-        // 验证防治任务关联
-        result.addResults(validateTreatmentTaskRelationships());
-        
         // 验证森林资源关联
         result.addResults(validateForestResourceRelationships());
         
-        // 验证知识库关联
-        result.addResults(validateKnowledgeBaseRelationships());
+        // 验证方案、任务、知识库、预测等实体间引用
+        result.addResults(validateReferences());
         
         return result;
     }
@@ -91,89 +118,27 @@ public class DataRelationshipManager {
     }
     
     /**
-     * 验证防治方案关联关系
-     */
-    private ValidationResult validateTreatmentPlanRelationships() {
-        ValidationResult result = new ValidationResult();
-        List<TreatmentPlan> plans = dataStorage.getTreatmentStorage().findAllPlans();
-        
-        for (TreatmentPlan plan : plans) {
-            // 验证病虫害ID存在性
-            if (!dataStorage.getPestStorage().findById(plan.getPestId()).isPresent()) {
-                result.addError("防治方案 " + plan.getPlanName() + " 关联的病虫害ID不存在: " + plan.getPestId());
-            }
-            
-            // 验证所需药剂存在性
-            if (plan.getRequiredPesticides() != null) {
-                for (String pesticideId : plan.getRequiredPesticides()) {
-                    if (!dataStorage.getPesticideStorage().findById(pesticideId).isPresent()) {
-                        result.addError("防治方案 " + plan.getPlanName() + " 关联的药剂ID不存在: " + pesticideId);
-                    }
-                }
-            }
-            
-            // 验证审批人存在性
-            if (plan.getApprovedBy() != null && !dataStorage.getUserStorage().findById(plan.getApprovedBy()).isPresent()) {
-                result.addError("防治方案 " + plan.getPlanName() + " 的审批人ID不存在: " + plan.getApprovedBy());
-            }
-        }
-        
-        result.addInfo("防治方案数据验证完成，共" + plans.size() + "个方案");
-        return result;
-    }
-    
-    /**
-     * 验证防治任务关联关系
+     * 验证实体间引用：直接读取引用索引维护的悬空引用，代价与悬空引用数量成正比
      */
-    private ValidationResult validateTreatmentTaskRelationships() {
+    private ValidationResult validateReferences() {
         ValidationResult result = new ValidationResult();
-        List<TreatmentTask> tasks = dataStorage.getTreatmentStorage().findAllTasks();
-        
-        for (TreatmentTask task : tasks) {
-            // 验证方案ID存在性
-            if (!dataStorage.getTreatmentStorage().findPlanById(task.getPlanId()).isPresent()) {
-                result.addError("防治任务 " + task.getTaskName() + " 关联的方案ID不存在: " + task.getPlanId());
-            }
-            
-            // 验证分配人员存在性
-            if (!dataStorage.getUserStorage().findById(task.getAssignedTo()).isPresent()) {
-                result.addError("防治任务 " + task.getTaskName() + " 的分配人员ID不存在: " + task.getAssignedTo());
-            }
-            
-            // 验证监督人存在性
-            if (task.getSupervisedBy() != null && !dataStorage.getUserStorage().findById(task.getSupervisedBy()).isPresent()) {
-                result.addError("防治任务 " + task.getTaskName() + " 的监督人ID不存在: " + task.getSupervisedBy());
-            }
-            
-            // 验证使用药剂存在性
-            if (task.getUsedPesticides() != null) {
-                for (String pesticideId : task.getUsedPesticides()) {
-                    if (!dataStorage.getPesticideStorage().findById(pesticideId).isPresent()) {
-                        result.addError("防治任务 " + task.getTaskName() + " 使用的药剂ID不存在: " + pesticideId);
-                    }
-                }
-            }
+        List<Reference> dangling = dataStorage.getReferenceIndex().danglingReferences();
+        for (Reference reference : dangling) {
+            result.addError(reference.getSource().getType().getLabel() + " " + describe(reference.getSource())
+                    + " " + FIELD_LABELS.getOrDefault(reference.getField(), reference.getField())
+                    + "不存在: " + reference.getTarget().getId());
         }
-        
-        result.addInfo("防治任务数据验证完成，共" + tasks.size() + "个任务");
+        result.addInfo("实体引用验证完成，悬空引用" + dangling.size() + "个");
         return result;
     }
     
     /**
-     * 验证森林资源关联关系
+     * 验证森林资源关联关系，父区域引用由引用索引检查
      */
     private ValidationResult validateForestResourceRelationships() {
         ValidationResult result = new ValidationResult();
         List<ForestResource> resources = dataStorage.getForestResourceStorage().findAll();
         
-        for (ForestResource resource : resources) {
-            // 验证父区域存在性
-            if (resource.getParentAreaId() != null && 
-                !dataStorage.getForestResourceStorage().findById(resource.getParentAreaId()).isPresent()) {
-                result.addError("森林资源 " + resource.getAreaName() + " 的父区域ID不存在: " + resource.getParentAreaId());
-            }
-        }
-        
         // 验证区域代码唯一性
         Set<String> areaCodes = new HashSet<>();
         for (ForestResource resource : resources) {
@@ -186,76 +151,133 @@ public class DataRelationshipManager {
         return result;
     }
     
-    /**
-     * 验证知识库关联关系
-     */
-    private ValidationResult validateKnowledgeBaseRelationships() {
-        ValidationResult result = new ValidationResult();
-        List<KnowledgeBase> knowledgeList = dataStorage.getKnowledgeStorage().findAll();
-        
-        for (KnowledgeBase knowledge : knowledgeList) {
-            // 验证相关病虫害存在性
-            if (knowledge.getRelatedPests() != null) {
-                for (String pestId : knowledge.getRelatedPests()) {
-                    if (!dataStorage.getPestStorage().findById(pestId).isPresent()) {
-                        result.addError("知识库 " + knowledge.getTitle() + " 关联的病虫害ID不存在: " + pestId);
-                    }
-                }
-            }
-            
-            // 验证审核人存在性
-            if (knowledge.getReviewedBy() != null && 
-                !dataStorage.getUserStorage().findById(knowledge.getReviewedBy()).isPresent()) {
-                result.addError("知识库 " + knowledge.getTitle() + " 的审核人ID不存在: " + knowledge.getReviewedBy());
-            }
-        }
-        
-        result.addInfo("知识库数据验证完成，共" + knowledgeList.size() + "个条目");
-        return result;
-    }
-    
     /**
      * 修复数据关联关系
      */
     public void fixRelationships() {
+        // 重建索引，修复期间对实体的直接修改也纳入索引
+        rebuildIndexes();
+        
         // 清理无效的关联关系
         cleanupInvalidReferences();
-        
-        // 重建索引
-        rebuildIndexes();
     }
     
     /**
-     * 清理无效的关联引用
+     * 清理无效的关联引用，只处理悬空引用
      */
     private void cleanupInvalidReferences() {
-        // 清理防治方案中无效的病虫害引用
-        List<TreatmentPlan> plans = dataStorage.getTreatmentStorage().findAllPlans();
-        for (TreatmentPlan plan : plans) {
-            if (!dataStorage.getPestStorage().findById(plan.getPestId()).isPresent()) {
+        ReferenceIndex index = dataStorage.getReferenceIndex();
+        Map<String, Set<String>> missingPestsByKnowledge = new HashMap<>();
+        for (Reference reference : index.danglingReferences()) {
+            EntityRef source = reference.getSource();
+            if (source.getType() == EntityType.KNOWLEDGE && "relatedPests".equals(reference.getField())) {
+                missingPestsByKnowledge.computeIfAbsent(source.getId(), k -> new HashSet<>())
+                        .add(reference.getTarget().getId());
+            } else if (source.getType() == EntityType.TREATMENT_PLAN && "pestId".equals(reference.getField())) {
                 // 如果病虫害不存在，可以选择删除方案或分配一个默认的病虫害
-                System.out.println("警告: 防治方案 " + plan.getPlanName() + " 关联的病虫害不存在");
+                logger.warn("防治方案 {} 关联的病虫害不存在: {}", describe(source), reference.getTarget().getId());
             }
         }
         
         // 清理知识库中无效的病虫害引用
-        List<KnowledgeBase> knowledgeList = dataStorage.getKnowledgeStorage().findAll();
-        for (KnowledgeBase knowledge : knowledgeList) {
-            if (knowledge.getRelatedPests() != null) {
-                List<String> validPestIds = knowledge.getRelatedPests().stream()
-                        .filter(pestId -> dataStorage.getPestStorage().findById(pestId).isPresent())
-                        .collect(Collectors.toList());
-                knowledge.setRelatedPests(validPestIds);
-            }
-        }
+        missingPestsByKnowledge.forEach((knowledgeId, missingPests) ->
+                dataStorage.getKnowledgeStorage().findById(knowledgeId).ifPresent(knowledge -> {
+                    knowledge.setRelatedPests(knowledge.getRelatedPests().stream()
+                            .filter(pestId -> !missingPests.contains(pestId))
+                            .collect(Collectors.toList()));
+                    EntityReferences.register(index, knowledge);
+                }));
     }
     
     /**
      * 重建索引
      */
     private void rebuildIndexes() {
-        // 这里可以添加重建各种索引的逻辑
-        System.out.println("重建数据索引完成");
+        dataStorage.rebuildReferenceIndex();
+        logger.info("重建数据引用索引完成，悬空引用{}个", dataStorage.getReferenceIndex().danglingCount());
+    }
+    
+    /**
+     * 查询指向实体的全部引用
+     */
+    public List<Reference> findReferencesTo(EntityType type, String id) {
+        return dataStorage.getReferenceIndex().referencesTo(EntityReferences.ref(type, id));
+    }
+    
+    /**
+     * 查询用户创建的全部实体
+     */
+    public List<EntityRef> findEntitiesCreatedBy(String userId) {
+        return dataStorage.getReferenceIndex().referencesTo(EntityReferences.ref(EntityType.USER, userId)).stream()
+                .filter(reference -> "createdBy".equals(reference.getField()))
+                .map(Reference::getSource)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 级联删除病虫害：删除引用它的防治方案（连同任务）、预测和识别结果，并从知识条目的相关病虫害中移除。
+     * 只访问该病虫害的反向引用和识别结果的病虫害索引，返回各类实体的处理数量
+     */
+    public Map<String, Integer> deletePestCascade(String pestId) {
+        if (!dataStorage.getPestStorage().findById(pestId).isPresent()) {
+            throw new BusinessException("PEST_NOT_FOUND", "病虫害不存在: " + pestId);
+        }
+        EntityRef pest = EntityReferences.ref(EntityType.PEST, pestId);
+        ReferenceIndex index = dataStorage.getReferenceIndex();
+        Map<String, Integer> affected = new LinkedHashMap<>();
+        
+        List<Reference> plans = index.referencesTo(pest, EntityType.TREATMENT_PLAN);
+        int taskCount = 0;
+        for (Reference reference : plans) {
+            String planId = reference.getSource().getId();
+            taskCount += dataStorage.getTreatmentStorage().findTasksByPlanId(planId).size();
+            dataStorage.getTreatmentStorage().deletePlanById(planId);
+        }
+        affected.put("treatmentPlans", plans.size());
+        affected.put("treatmentTasks", taskCount);
+        
+        List<Reference> predictions = index.referencesTo(pest, EntityType.PREDICTION);
+        predictions.forEach(reference -> dataStorage.getPredictionStorage().deletePredictionById(reference.getSource().getId()));
+        affected.put("predictions", predictions.size());
+        
+        List<Reference> knowledgeRefs = index.referencesTo(pest, EntityType.KNOWLEDGE);
+        for (Reference reference : knowledgeRefs) {
+            dataStorage.getKnowledgeStorage().findById(reference.getSource().getId()).ifPresent(knowledge -> {
+                knowledge.setRelatedPests(knowledge.getRelatedPests().stream()
+                        .filter(id -> !pestId.equals(id))
+                        .collect(Collectors.toList()));
+                EntityReferences.register(index, knowledge);
+            });
+        }
+        affected.put("knowledge", knowledgeRefs.size());
+        
+        List<IdentificationResult> results = identificationStorage != null
+                ? identificationStorage.findByPestId(pestId) : List.of();
+        results.forEach(result -> identificationStorage.deleteById(result.getId()));
+        affected.put("identificationResults", results.size());
+        
+        dataStorage.getPestStorage().deleteById(pestId);
+        logger.info("级联删除病虫害{}: {}", pestId, affected);
+        return affected;
+    }
+    
+    private String describe(EntityRef ref) {
+        switch (ref.getType()) {
+            case TREATMENT_PLAN:
+                return dataStorage.getTreatmentStorage().findPlanById(ref.getId())
+                        .map(TreatmentPlan::getPlanName).orElse(ref.getId());
+            case TREATMENT_TASK:
+                return dataStorage.getTreatmentStorage().findTaskById(ref.getId())
+                        .map(TreatmentTask::getTaskName).orElse(ref.getId());
+            case KNOWLEDGE:
+                return dataStorage.getKnowledgeStorage().findById(ref.getId())
+                        .map(KnowledgeBase::getTitle).orElse(ref.getId());
+            case FOREST_RESOURCE:
+                return dataStorage.getForestResourceStorage().findById(ref.getId())
+                        .map(ForestResource::getAreaName).orElse(ref.getId());
+            default:
+                return ref.getId();
+        }
     }
     
     /**
@@ -1,5 +1,6 @@
 package com.forestpest.data.storage;
 
+import com.forestpest.data.index.ReferenceIndex;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.ConcurrentHashMap;
@@ -28,6 +29,23 @@ public class DataStorage {
     private final ForestResourceStorage forestResourceStorage = new ForestResourceStorage();
     private final KnowledgeStorage knowledgeStorage = new KnowledgeStorage();
     
+    // 实体间引用的反向索引，各存储写入时同步维护
+    private final ReferenceIndex referenceIndex = new ReferenceIndex();
+    
+    public DataStorage() {
+        // 活跃预警数量变化同步到区域层级汇总
+        predictionStorage.setActiveAlertListener(forestResourceStorage::adjustActiveAlerts);
+        
+        userStorage.setReferenceIndex(referenceIndex);
+        pestStorage.setReferenceIndex(referenceIndex);
+        pesticideStorage.setReferenceIndex(referenceIndex);
+        treatmentStorage.setReferenceIndex(referenceIndex);
+        evaluationStorage.setReferenceIndex(referenceIndex);
+        predictionStorage.setReferenceIndex(referenceIndex);
+        forestResourceStorage.setReferenceIndex(referenceIndex);
+        knowledgeStorage.setReferenceIndex(referenceIndex);
+    }
+    
     /**
      * 生成唯一ID
      */
@@ -47,9 +65,26 @@ public class DataStorage {
         predictionStorage.clear();
         forestResourceStorage.clear();
         knowledgeStorage.clear();
+        referenceIndex.clear();
         idGenerator.set(1);
     }
     
+    /**
+     * 按各存储的当前数据重建引用索引
+     */
+    public void rebuildReferenceIndex() {
+        referenceIndex.clear();
+        userStorage.findAll().forEach(user -> EntityReferences.register(referenceIndex, user));
+        pestStorage.findAll().forEach(pest -> EntityReferences.register(referenceIndex, pest));
+        pesticideStorage.findAll().forEach(pesticide -> EntityReferences.register(referenceIndex, pesticide));
+        treatmentStorage.findAllPlans().forEach(plan -> EntityReferences.register(referenceIndex, plan));
+        treatmentStorage.findAllTasks().forEach(task -> EntityReferences.register(referenceIndex, task));
+        evaluationStorage.findAll().forEach(evaluation -> EntityReferences.register(referenceIndex, evaluation));
+        predictionStorage.findAllPredictions().forEach(prediction -> EntityReferences.register(referenceIndex, prediction));
+        forestResourceStorage.findAll().forEach(resource -> EntityReferences.register(referenceIndex, resource));
+        knowledgeStorage.findAll().forEach(knowledge -> EntityReferences.register(referenceIndex, knowledge));
+    }
+    
     // Getters for storage instances
     public UserStorage getUserStorage() {
         return userStorage;
@@ -82,4 +117,8 @@ public class DataStorage {
     public KnowledgeStorage getKnowledgeStorage() {
         return knowledgeStorage;
     }
+    
+    public ReferenceIndex getReferenceIndex() {
+        return referenceIndex;
+    }
 }
\ No newline at end of file
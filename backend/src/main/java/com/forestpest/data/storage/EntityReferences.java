@@ -0,0 +1,163 @@
+package com.forestpest.data.storage;
+
+import com.forestpest.data.index.ReferenceIndex;
+import com.forestpest.data.index.ReferenceIndex.EntityRef;
+import com.forestpest.data.index.ReferenceIndex.EntityType;
+import com.forestpest.data.index.ReferenceIndex.Reference;
+import com.forestpest.entity.BaseEntity;
+import com.forestpest.entity.EffectEvaluation;
+import com.forestpest.entity.ForestResource;
+import com.forestpest.entity.KnowledgeBase;
+import com.forestpest.entity.Pest;
+import com.forestpest.entity.PestPrediction;
+import com.forestpest.entity.Pesticide;
+import com.forestpest.entity.TreatmentPlan;
+import com.forestpest.entity.TreatmentTask;
+import com.forestpest.entity.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 实体引用提取
+ * 定义各实体的哪些字段引用了哪类实体，供存储写入时维护引用索引。
+ * 创建人可能是系统账号或用户名，登记为弱引用；效果评估是历史记录，引用的任务和病虫害删除后仍保留，同样为弱引用。
+ */
+public final class EntityReferences {
+
+    private EntityReferences() {
+    }
+
+    public static void register(ReferenceIndex index, User user) {
+        if (index != null) {
+            index.register(ref(EntityType.USER, user.getId()), builder(EntityType.USER, user).build());
+        }
+    }
+
+    public static void register(ReferenceIndex index, Pest pest) {
+        if (index != null) {
+            index.register(ref(EntityType.PEST, pest.getId()), builder(EntityType.PEST, pest).build());
+        }
+    }
+
+    public static void register(ReferenceIndex index, Pesticide pesticide) {
+        if (index != null) {
+            index.register(ref(EntityType.PESTICIDE, pesticide.getId()), builder(EntityType.PESTICIDE, pesticide).build());
+        }
+    }
+
+    public static void register(ReferenceIndex index, TreatmentPlan plan) {
+        if (index != null) {
+            index.register(ref(EntityType.TREATMENT_PLAN, plan.getId()), builder(EntityType.TREATMENT_PLAN, plan)
+                    .strict("pestId", EntityType.PEST, plan.getPestId())
+                    .strict("requiredPesticides", EntityType.PESTICIDE, plan.getRequiredPesticides())
+                    .strict("approvedBy", EntityType.USER, plan.getApprovedBy())
+                    .build());
+        }
+    }
+
+    public static void register(ReferenceIndex index, TreatmentTask task) {
+        if (index != null) {
+            index.register(ref(EntityType.TREATMENT_TASK, task.getId()), builder(EntityType.TREATMENT_TASK, task)
+                    .strict("planId", EntityType.TREATMENT_PLAN, task.getPlanId())
+                    .strict("assignedTo", EntityType.USER, task.getAssignedTo())
+                    .strict("supervisedBy", EntityType.USER, task.getSupervisedBy())
+                    .strict("usedPesticides", EntityType.PESTICIDE, task.getUsedPesticides())
+                    .build());
+        }
+    }
+
+    public static void register(ReferenceIndex index, KnowledgeBase knowledge) {
+        if (index != null) {
+            index.register(ref(EntityType.KNOWLEDGE, knowledge.getId()), builder(EntityType.KNOWLEDGE, knowledge)
+                    .strict("relatedPests", EntityType.PEST, knowledge.getRelatedPests())
+                    .strict("reviewedBy", EntityType.USER, knowledge.getReviewedBy())
+                    .build());
+        }
+    }
+
+    public static void register(ReferenceIndex index, PestPrediction prediction) {
+        if (index != null) {
+            index.register(ref(EntityType.PREDICTION, prediction.getId()), builder(EntityType.PREDICTION, prediction)
+                    .strict("pestId", EntityType.PEST, prediction.getPestId())
+                    .build());
+        }
+    }
+
+    public static void register(ReferenceIndex index, ForestResource resource) {
+        if (index != null) {
+            index.register(ref(EntityType.FOREST_RESOURCE, resource.getId()), builder(EntityType.FOREST_RESOURCE, resource)
+                    .strict("parentAreaId", EntityType.FOREST_RESOURCE, resource.getParentAreaId())
+                    .build());
+        }
+    }
+
+    public static void register(ReferenceIndex index, EffectEvaluation evaluation) {
+        if (index != null) {
+            index.register(ref(EntityType.EVALUATION, evaluation.getId()), builder(EntityType.EVALUATION, evaluation)
+                    .weak("taskId", EntityType.TREATMENT_TASK, evaluation.getTaskId())
+                    .weak("pestId", EntityType.PEST, evaluation.getPestId())
+                    .weak("evaluatedBy", EntityType.USER, evaluation.getEvaluatedBy())
+                    .build());
+        }
+    }
+
+    public static void unregister(ReferenceIndex index, EntityType type, String id) {
+        if (index != null && id != null) {
+            index.unregister(ref(type, id));
+        }
+    }
+
+    /**
+     * 批量装载时先移除该类型的全部实体再逐条登记
+     */
+    public static void unregisterAll(ReferenceIndex index, EntityType type) {
+        if (index != null) {
+            index.unregisterAll(type);
+        }
+    }
+
+    public static EntityRef ref(EntityType type, String id) {
+        return new EntityRef(type, id);
+    }
+
+    private static Builder builder(EntityType type, BaseEntity entity) {
+        return new Builder(ref(type, entity.getId())).weak("createdBy", EntityType.USER, entity.getCreatedBy());
+    }
+
+    private static final class Builder {
+        private final EntityRef source;
+        private final List<Reference> references = new ArrayList<>();
+
+        private Builder(EntityRef source) {
+            this.source = source;
+        }
+
+        private Builder strict(String field, EntityType type, String id) {
+            return add(field, type, id, true);
+        }
+
+        private Builder strict(String field, EntityType type, Collection<String> ids) {
+            if (ids != null) {
+                ids.forEach(id -> add(field, type, id, true));
+            }
+            return this;
+        }
+
+        private Builder weak(String field, EntityType type, String id) {
+            return add(field, type, id, false);
+        }
+
+        private Builder add(String field, EntityType type, String id, boolean strict) {
+            if (id != null && !id.isEmpty()) {
+                references.add(new Reference(source, field, ref(type, id), strict));
+            }
+            return this;
+        }
+
+        private List<Reference> build() {
+            return references;
+        }
+    }
+}
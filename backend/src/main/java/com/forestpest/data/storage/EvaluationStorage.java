@@ -1,12 +1,16 @@
 package com.forestpest.data.storage;
 
 import com.forestpest.entity.EffectEvaluation;
+import com.forestpest.data.index.ReferenceIndex;
+import com.forestpest.data.index.ReferenceIndex.EntityType;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -16,62 +20,97 @@ import java.util.stream.Collectors;
 @Component
 public class EvaluationStorage {
     
-    private final Map<String, EffectEvaluation> evaluations = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> taskIdIndex = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> pestIdIndex = new ConcurrentHashMap<>();
+    // 主表和索引，批量装载时整体替换
+    private volatile Tables tables = new Tables();
+    
+    private volatile ReferenceIndex references;
+    
+    public void setReferenceIndex(ReferenceIndex references) {
+        this.references = references;
+    }
     
     public void save(EffectEvaluation evaluation) {
-        evaluations.put(evaluation.getId(), evaluation);
+        Tables t = tables;
+        t.evaluations.put(evaluation.getId(), evaluation);
         
         // 更新任务ID索引
         if (evaluation.getTaskId() != null) {
-            taskIdIndex.computeIfAbsent(evaluation.getTaskId(), k -> new ArrayList<>()).add(evaluation.getId());
+            t.taskIdIndex.computeIfAbsent(evaluation.getTaskId(), k -> new ArrayList<>()).add(evaluation.getId());
         }
         
         // 更新病虫害ID索引
         if (evaluation.getPestId() != null) {
-            pestIdIndex.computeIfAbsent(evaluation.getPestId(), k -> new ArrayList<>()).add(evaluation.getId());
+            t.pestIdIndex.computeIfAbsent(evaluation.getPestId(), k -> new ArrayList<>()).add(evaluation.getId());
         }
+        
+        EntityReferences.register(references, evaluation);
+    }
+    
+    /**
+     * 批量保存，索引按键分组后一次合并
+     */
+    public void saveAll(Collection<EffectEvaluation> batch) {
+        Tables t = tables;
+        Map<String, EffectEvaluation> byId = new HashMap<>(batch.size() * 2);
+        batch.forEach(evaluation -> byId.put(evaluation.getId(), evaluation));
+        t.evaluations.putAll(byId);
+        StorageIndexes.appendAll(t.taskIdIndex, batch, EffectEvaluation::getTaskId, EffectEvaluation::getId);
+        StorageIndexes.appendAll(t.pestIdIndex, batch, EffectEvaluation::getPestId, EffectEvaluation::getId);
+        batch.forEach(evaluation -> EntityReferences.register(references, evaluation));
+    }
+    
+    /**
+     * 批量装载，整体替换全部评估
+     */
+    public void bulkLoad(Collection<EffectEvaluation> batch) {
+        Map<String, EffectEvaluation> loaded = StorageIndexes.primary(batch, EffectEvaluation::getId);
+        tables = new Tables(loaded,
+                StorageIndexes.group(loaded, batch, EffectEvaluation::getTaskId, EffectEvaluation::getId),
+                StorageIndexes.group(loaded, batch, EffectEvaluation::getPestId, EffectEvaluation::getId));
+        EntityReferences.unregisterAll(references, EntityType.EVALUATION);
+        loaded.values().forEach(evaluation -> EntityReferences.register(references, evaluation));
     }
     
     public Optional<EffectEvaluation> findById(String id) {
-        return Optional.ofNullable(evaluations.get(id));
+        return Optional.ofNullable(tables.evaluations.get(id));
     }
     
     public List<EffectEvaluation> findAll() {
-        return new ArrayList<>(evaluations.values());
+        return new ArrayList<>(tables.evaluations.values());
     }
     
     public List<EffectEvaluation> findByTaskId(String taskId) {
-        List<String> ids = taskIdIndex.get(taskId);
+        Tables t = tables;
+        List<String> ids = t.taskIdIndex.get(taskId);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(evaluations::get)
+                .map(t.evaluations::get)
                 .filter(evaluation -> evaluation != null)
                 .collect(Collectors.toList());
     }
     
     public List<EffectEvaluation> findByPestId(String pestId) {
-        List<String> ids = pestIdIndex.get(pestId);
+        Tables t = tables;
+        List<String> ids = t.pestIdIndex.get(pestId);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(evaluations::get)
+                .map(t.evaluations::get)
                 .filter(evaluation -> evaluation != null)
                 .collect(Collectors.toList());
     }
     
     public List<EffectEvaluation> findByEvaluatedBy(String evaluatedBy) {
-        return evaluations.values().stream()
+        return tables.evaluations.values().stream()
                 .filter(evaluation -> evaluatedBy.equals(evaluation.getEvaluatedBy()))
                 .collect(Collectors.toList());
     }
     
     public List<EffectEvaluation> findByEffectivenessRateRange(double minRate, double maxRate) {
-        return evaluations.values().stream()
+        return tables.evaluations.values().stream()
                 .filter(evaluation -> evaluation.getEffectivenessRate() != null &&
                                     evaluation.getEffectivenessRate() >= minRate &&
                                     evaluation.getEffectivenessRate() <= maxRate)
@@ -79,18 +118,20 @@ public class EvaluationStorage {
     }
     
     public void deleteById(String id) {
-        EffectEvaluation evaluation = evaluations.remove(id);
+        Tables t = tables;
+        EffectEvaluation evaluation = t.evaluations.remove(id);
         if (evaluation != null) {
+            EntityReferences.unregister(references, EntityType.EVALUATION, id);
             // 清理索引
             if (evaluation.getTaskId() != null) {
-                List<String> taskIds = taskIdIndex.get(evaluation.getTaskId());
+                List<String> taskIds = t.taskIdIndex.get(evaluation.getTaskId());
                 if (taskIds != null) {
                     taskIds.remove(id);
                 }
             }
             
             if (evaluation.getPestId() != null) {
-                List<String> pestIds = pestIdIndex.get(evaluation.getPestId());
+                List<String> pestIds = t.pestIdIndex.get(evaluation.getPestId());
                 if (pestIds != null) {
                     pestIds.remove(id);
                 }
@@ -99,12 +140,31 @@ public class EvaluationStorage {
     }
     
     public void clear() {
-        evaluations.clear();
-        taskIdIndex.clear();
-        pestIdIndex.clear();
+        EntityReferences.unregisterAll(references, EntityType.EVALUATION);
+        tables = new Tables();
     }
     
     public int count() {
-        return evaluations.size();
+        return tables.evaluations.size();
+    }
+    
+    /**
+     * 效果评估主表和任务、病虫害索引
+     */
+    private static final class Tables {
+        private final Map<String, EffectEvaluation> evaluations;
+        private final Map<String, List<String>> taskIdIndex;
+        private final Map<String, List<String>> pestIdIndex;
+        
+        private Tables() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+        
+        private Tables(Map<String, EffectEvaluation> evaluations,
+                       Map<String, List<String>> taskIdIndex, Map<String, List<String>> pestIdIndex) {
+            this.evaluations = evaluations;
+            this.taskIdIndex = taskIdIndex;
+            this.pestIdIndex = pestIdIndex;
+        }
     }
 }
\ No newline at end of file
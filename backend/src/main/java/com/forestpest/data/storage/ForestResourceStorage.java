@@ -1,5 +1,12 @@
 package com.forestpest.data.storage;
 
+import com.forestpest.data.index.AreaHierarchy;
+import com.forestpest.data.index.GeoBounds;
+import com.forestpest.data.index.GeoPoint;
+import com.forestpest.data.index.GeoPolygon;
+import com.forestpest.data.index.ReferenceIndex;
+import com.forestpest.data.index.ReferenceIndex.EntityType;
+import com.forestpest.data.index.SpatialGridIndex;
 import com.forestpest.entity.ForestResource;
 import org.springframework.stereotype.Component;
 
@@ -7,6 +14,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -16,105 +25,281 @@ import java.util.stream.Collectors;
 @Component
 public class ForestResourceStorage {
     
-    private final Map<String, ForestResource> forestResources = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> areaTypeIndex = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> parentAreaIndex = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> healthStatusIndex = new ConcurrentHashMap<>();
+    // 主表、属性索引、空间索引和区域层级树，批量装载时整体替换
+    private volatile Tables tables = new Tables();
+    
+    private volatile ReferenceIndex references;
+    
+    public void setReferenceIndex(ReferenceIndex references) {
+        this.references = references;
+    }
     
     public void save(ForestResource resource) {
-        forestResources.put(resource.getId(), resource);
+        Tables t = tables;
+        // 先更新区域层级，形成环时拒绝保存
+        t.hierarchy.upsert(resource.getId(), resource.getParentAreaId(),
+                resource.getArea() != null ? resource.getArea() : 0.0,
+                isUnhealthyPlot(resource), areaKeys(resource));
         
-        // 更新区域类型索引
-        areaTypeIndex.computeIfAbsent(resource.getAreaType(), k -> new ArrayList<>()).add(resource.getId());
+        t.forestResources.put(resource.getId(), resource);
         
-        // 更新父区域索引
-        if (resource.getParentAreaId() != null) {
-            parentAreaIndex.computeIfAbsent(resource.getParentAreaId(), k -> new ArrayList<>()).add(resource.getId());
+        // 更新空间索引，没有中心坐标时使用边界的中心
+        GeoPolygon boundary = GeoPolygon.parse(resource.getBoundary());
+        if (boundary != null) {
+            t.boundaries.put(resource.getId(), boundary);
+        } else {
+            t.boundaries.remove(resource.getId());
+        }
+        GeoPoint location = GeoPoint.parse(resource.getCoordinates());
+        if (location == null && boundary != null) {
+            location = boundary.getBounds().center();
         }
+        t.locationIndex.put(resource.getId(), location);
+        
+        // 更新区域类型索引
+        t.areaTypeIndex.computeIfAbsent(resource.getAreaType(), k -> new ArrayList<>()).add(resource.getId());
+        
         
         // 更新健康状况索引
         if (resource.getHealthStatus() != null) {
-            healthStatusIndex.computeIfAbsent(resource.getHealthStatus(), k -> new ArrayList<>()).add(resource.getId());
+            t.healthStatusIndex.computeIfAbsent(resource.getHealthStatus(), k -> new ArrayList<>()).add(resource.getId());
         }
+        
+        EntityReferences.register(references, resource);
+    }
+    
+    /**
+     * 批量保存，区域层级需要逐条校验上下级关系，按给定顺序保存（上级在前）
+     */
+    public void saveAll(Collection<ForestResource> batch) {
+        batch.forEach(this::save);
+    }
+    
+    /**
+     * 批量装载，整体替换全部区域
+     * 层级树允许下级先于上级登记，因此不要求输入顺序；形成环时抛出异常且不发布任何数据。
+     * 活跃预警计数从原层级树沿用。
+     */
+    public void bulkLoad(Collection<ForestResource> batch) {
+        Map<String, ForestResource> loaded = StorageIndexes.primary(batch, ForestResource::getId);
+        AreaHierarchy loadedHierarchy = new AreaHierarchy();
+        loadedHierarchy.inheritAlerts(tables.hierarchy);
+        SpatialGridIndex loadedLocations = new SpatialGridIndex();
+        Map<String, GeoPolygon> loadedBoundaries = new ConcurrentHashMap<>(loaded.size());
+        for (ForestResource resource : loaded.values()) {
+            loadedHierarchy.upsert(resource.getId(), resource.getParentAreaId(),
+                    resource.getArea() != null ? resource.getArea() : 0.0,
+                    isUnhealthyPlot(resource), areaKeys(resource));
+            GeoPolygon boundary = GeoPolygon.parse(resource.getBoundary());
+            if (boundary != null) {
+                loadedBoundaries.put(resource.getId(), boundary);
+            }
+            GeoPoint location = GeoPoint.parse(resource.getCoordinates());
+            if (location == null && boundary != null) {
+                location = boundary.getBounds().center();
+            }
+            loadedLocations.put(resource.getId(), location);
+        }
+        
+        tables = new Tables(loaded,
+                StorageIndexes.group(loaded, batch, ForestResource::getAreaType, ForestResource::getId),
+                StorageIndexes.group(loaded, batch, ForestResource::getHealthStatus, ForestResource::getId),
+                loadedLocations, loadedBoundaries, loadedHierarchy);
+        EntityReferences.unregisterAll(references, EntityType.FOREST_RESOURCE);
+        loaded.values().forEach(resource -> EntityReferences.register(references, resource));
     }
     
     public Optional<ForestResource> findById(String id) {
-        return Optional.ofNullable(forestResources.get(id));
+        return Optional.ofNullable(tables.forestResources.get(id));
     }
     
     public List<ForestResource> findAll() {
-        return new ArrayList<>(forestResources.values());
+        return new ArrayList<>(tables.forestResources.values());
+    }
+    
+    /**
+     * 遍历所有森林资源，不复制集合，供流式导出使用；遍历期间的并发修改可能可见
+     */
+    public Iterable<ForestResource> iterateAll() {
+        return Collections.unmodifiableCollection(tables.forestResources.values());
     }
     
     public List<ForestResource> findByAreaType(String areaType) {
-        List<String> ids = areaTypeIndex.get(areaType);
+        Tables t = tables;
+        List<String> ids = t.areaTypeIndex.get(areaType);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(forestResources::get)
+                .map(t.forestResources::get)
                 .filter(resource -> resource != null)
                 .collect(Collectors.toList());
     }
     
     public List<ForestResource> findByParentAreaId(String parentAreaId) {
-        List<String> ids = parentAreaIndex.get(parentAreaId);
-        if (ids == null) {
-            return new ArrayList<>();
-        }
-        return ids.stream()
-                .map(forestResources::get)
-                .filter(resource -> resource != null)
-                .collect(Collectors.toList());
+        Tables t = tables;
+        return toResources(t, t.hierarchy.children(parentAreaId));
     }
     
     public List<ForestResource> findByHealthStatus(String healthStatus) {
-        List<String> ids = healthStatusIndex.get(healthStatus);
+        Tables t = tables;
+        List<String> ids = t.healthStatusIndex.get(healthStatus);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(forestResources::get)
+                .map(t.forestResources::get)
                 .filter(resource -> resource != null)
                 .collect(Collectors.toList());
     }
     
     public List<ForestResource> findByAreaNameContaining(String areaName) {
-        return forestResources.values().stream()
+        return tables.forestResources.values().stream()
                 .filter(resource -> resource.getAreaName().contains(areaName))
                 .collect(Collectors.toList());
     }
     
     public List<ForestResource> findByDominantSpecies(String dominantSpecies) {
-        return forestResources.values().stream()
+        return tables.forestResources.values().stream()
                 .filter(resource -> dominantSpecies.equals(resource.getDominantSpecies()))
                 .collect(Collectors.toList());
     }
     
     public List<ForestResource> findRootAreas() {
-        return forestResources.values().stream()
-                .filter(resource -> resource.getParentAreaId() == null)
+        Tables t = tables;
+        return toResources(t, t.hierarchy.roots());
+    }
+    
+    /**
+     * 查找中心点在指定半径内的区域，按距离由近到远排序
+     */
+    public List<ForestResource> findWithinRadius(GeoPoint center, double radiusKm) {
+        Tables t = tables;
+        return toResources(t, t.locationIndex.withinRadius(center, radiusKm));
+    }
+    
+    /**
+     * 查找中心点在多边形内的区域
+     */
+    public List<ForestResource> findWithinPolygon(GeoPolygon polygon) {
+        Tables t = tables;
+        return toResources(t, t.locationIndex.withinPolygon(polygon));
+    }
+    
+    /**
+     * 获取区域位置：优先使用自身坐标，否则使用下级区域汇总范围的中心
+     */
+    public Optional<GeoPoint> getLocation(String id) {
+        GeoPoint location = tables.locationIndex.get(id);
+        if (location != null) {
+            return Optional.of(location);
+        }
+        return getSpatialExtent(id).map(GeoBounds::center);
+    }
+    
+    /**
+     * 按区域ID或编码获取区域位置，区域名称不作为查找键
+     */
+    public Optional<GeoPoint> findLocationByKey(String key) {
+        String id = resolveAreaId(key);
+        return id != null ? getLocation(id) : Optional.empty();
+    }
+    
+    /**
+     * 把区域ID或编码解析为区域ID，未登记时返回null
+     */
+    public String resolveAreaId(String key) {
+        return tables.hierarchy.resolve(key);
+    }
+    
+    /**
+     * 获取区域及其全部下级区域的汇总外包矩形
+     */
+    public Optional<GeoBounds> getSpatialExtent(String id) {
+        Tables t = tables;
+        GeoBounds extent = null;
+        for (String areaId : t.hierarchy.subtreeIds(id)) {
+            GeoPolygon boundary = t.boundaries.get(areaId);
+            GeoPoint location = t.locationIndex.get(areaId);
+            GeoBounds own = boundary != null ? boundary.getBounds() : (location != null ? GeoBounds.of(location) : null);
+            if (own != null) {
+                extent = own.union(extent);
+            }
+        }
+        return Optional.ofNullable(extent);
+    }
+    
+    /**
+     * 获取区域自身及全部下级区域的ID
+     */
+    public List<String> findSubtreeIds(String id) {
+        return tables.hierarchy.subtreeIds(id);
+    }
+    
+    /**
+     * 判断区域是否属于上级区域（含自身）
+     */
+    public boolean isWithinArea(String ancestorId, String id) {
+        return tables.hierarchy.isInSubtree(ancestorId, id);
+    }
+    
+    /**
+     * 获取区域子树汇总：区域数、总面积、不健康小班数、活跃预警数
+     */
+    public Optional<AreaHierarchy.Aggregate> getSubtreeAggregate(String id) {
+        return Optional.ofNullable(tables.hierarchy.aggregate(id));
+    }
+    
+    /**
+     * 调整目标区域的活跃预警数量，目标区域按区域ID或编码归属到区域
+     */
+    public void adjustActiveAlerts(String targetArea, int delta) {
+        tables.hierarchy.adjustAlerts(targetArea, delta);
+    }
+    
+    private static boolean isUnhealthyPlot(ForestResource resource) {
+        return "小班".equals(resource.getAreaType()) &&
+               ("较差".equals(resource.getHealthStatus()) || "差".equals(resource.getHealthStatus()));
+    }
+    
+    /**
+     * 区域的匹配键：区域ID和编码。区域名称可能重名，不作为匹配键，
+     * 层级汇总、空间查询和任务排程都按这一规则匹配目标区域
+     */
+    public static List<String> areaKeys(ForestResource resource) {
+        List<String> keys = new ArrayList<>();
+        keys.add(resource.getId());
+        if (resource.getAreaCode() != null) {
+            keys.add(resource.getAreaCode());
+        }
+        return keys;
+    }
+    
+    private static List<ForestResource> toResources(Tables t, List<String> ids) {
+        return ids.stream()
+                .map(t.forestResources::get)
+                .filter(resource -> resource != null)
                 .collect(Collectors.toList());
     }
     
     public void deleteById(String id) {
-        ForestResource resource = forestResources.remove(id);
+        Tables t = tables;
+        ForestResource resource = t.forestResources.remove(id);
         if (resource != null) {
+            EntityReferences.unregister(references, EntityType.FOREST_RESOURCE, id);
+            t.locationIndex.remove(id);
+            t.boundaries.remove(id);
+            
             // 清理索引
-            List<String> typeIds = areaTypeIndex.get(resource.getAreaType());
+            List<String> typeIds = t.areaTypeIndex.get(resource.getAreaType());
             if (typeIds != null) {
                 typeIds.remove(id);
             }
             
-            if (resource.getParentAreaId() != null) {
-                List<String> parentIds = parentAreaIndex.get(resource.getParentAreaId());
-                if (parentIds != null) {
-                    parentIds.remove(id);
-                }
-            }
+            t.hierarchy.remove(id);
             
             if (resource.getHealthStatus() != null) {
-                List<String> healthIds = healthStatusIndex.get(resource.getHealthStatus());
+                List<String> healthIds = t.healthStatusIndex.get(resource.getHealthStatus());
                 if (healthIds != null) {
                     healthIds.remove(id);
                 }
@@ -123,13 +308,44 @@ public class ForestResourceStorage {
     }
     
     public void clear() {
-        forestResources.clear();
-        areaTypeIndex.clear();
-        parentAreaIndex.clear();
-        healthStatusIndex.clear();
+        EntityReferences.unregisterAll(references, EntityType.FOREST_RESOURCE);
+        // 活跃预警计数由预测存储维护，清空区域时保留
+        Tables empty = new Tables();
+        empty.hierarchy.inheritAlerts(tables.hierarchy);
+        tables = empty;
     }
     
     public int count() {
-        return forestResources.size();
+        return tables.forestResources.size();
+    }
+    
+    /**
+     * 区域主表和各类索引，层级树的活跃预警计数随快照沿用
+     */
+    private static final class Tables {
+        private final Map<String, ForestResource> forestResources;
+        private final Map<String, List<String>> areaTypeIndex;
+        private final Map<String, List<String>> healthStatusIndex;
+        // 空间索引：区域中心坐标与解析后的边界
+        private final SpatialGridIndex locationIndex;
+        private final Map<String, GeoPolygon> boundaries;
+        // 区域层级树，维护上下级关系和子树汇总
+        private final AreaHierarchy hierarchy;
+        
+        private Tables() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                    new SpatialGridIndex(), new ConcurrentHashMap<>(), new AreaHierarchy());
+        }
+        
+        private Tables(Map<String, ForestResource> forestResources, Map<String, List<String>> areaTypeIndex,
+                       Map<String, List<String>> healthStatusIndex, SpatialGridIndex locationIndex,
+                       Map<String, GeoPolygon> boundaries, AreaHierarchy hierarchy) {
+            this.forestResources = forestResources;
+            this.areaTypeIndex = areaTypeIndex;
+            this.healthStatusIndex = healthStatusIndex;
+            this.locationIndex = locationIndex;
+            this.boundaries = boundaries;
+            this.hierarchy = hierarchy;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,388 @@
+package com.forestpest.data.storage;
+
+import com.forestpest.entity.IdentificationResult;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 识别结果数据存储
+ * 按用户维护按识别时间倒序的索引，按病虫害维护结果索引，
+ * 方法、病虫害、日期和反馈准确率等计数在保存和删除时增量更新，统计查询不再扫描全部结果。
+ */
+@Component
+public class IdentificationStorage {
+
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    // 新的在前；时间相同按ID倒序，保证顺序稳定
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator
+            .comparing((Entry entry) -> entry.time, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(entry -> entry.id, Comparator.reverseOrder());
+
+    // 主表、索引和计数，批量装载时整体替换
+    private volatile Tables tables = new Tables();
+
+    public synchronized void save(IdentificationResult result) {
+        Tables t = tables;
+        Entry previous = t.entries.get(result.getId());
+        if (previous != null) {
+            unindex(t, previous);
+        }
+        Entry entry = new Entry(result);
+        t.results.put(result.getId(), result);
+        t.entries.put(result.getId(), entry);
+        index(t, entry);
+    }
+
+    /**
+     * 批量装载，整体替换全部识别结果
+     * 计数在新快照中一次累加，用户历史先排好序再一次性构建跳表，完成后一次发布
+     */
+    public synchronized void bulkLoad(Collection<IdentificationResult> batch) {
+        Map<String, IdentificationResult> loadedResults = StorageIndexes.primary(batch, IdentificationResult::getId);
+        Tables loaded = new Tables(loadedResults, new ConcurrentHashMap<>(loadedResults.size()));
+        Map<String, TreeSet<Entry>> histories = new HashMap<>();
+        for (IdentificationResult result : loadedResults.values()) {
+            Entry entry = new Entry(result);
+            loaded.entries.put(entry.id, entry);
+            count(loaded, entry);
+            if (entry.userId != null) {
+                histories.computeIfAbsent(entry.userId, k -> new TreeSet<>(NEWEST_FIRST)).add(entry);
+            }
+        }
+        histories.forEach((userId, history) -> loaded.userIndex.put(userId, new ConcurrentSkipListSet<>(history)));
+        tables = loaded;
+    }
+
+    public Optional<IdentificationResult> findById(String id) {
+        return Optional.ofNullable(tables.results.get(id));
+    }
+
+    public List<IdentificationResult> findAll() {
+        return new ArrayList<>(tables.results.values());
+    }
+
+    /**
+     * 用户的全部识别结果，按识别时间倒序
+     */
+    public List<IdentificationResult> findByUserId(String userId) {
+        return findByUserId(userId, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 分页获取用户的识别结果，按识别时间倒序，只遍历到所需页为止
+     */
+    public List<IdentificationResult> findByUserId(String userId, int page, int size) {
+        Tables t = tables;
+        ConcurrentSkipListSet<Entry> history = t.userIndex.get(userId);
+        if (history == null || page < 0 || size <= 0) {
+            return new ArrayList<>();
+        }
+        long skip = (long) page * size;
+        List<IdentificationResult> pageResults = new ArrayList<>(Math.min(size, 64));
+        Iterator<Entry> iterator = history.iterator();
+        while (iterator.hasNext() && pageResults.size() < size) {
+            Entry entry = iterator.next();
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            IdentificationResult result = t.results.get(entry.id);
+            if (result != null) {
+                pageResults.add(result);
+            }
+        }
+        return pageResults;
+    }
+
+    /**
+     * 按识别时间倒序惰性遍历用户的识别结果，供流式导出使用
+     */
+    public Iterator<IdentificationResult> iterateByUserId(String userId) {
+        Tables t = tables;
+        ConcurrentSkipListSet<Entry> history = t.userIndex.get(userId);
+        if (history == null) {
+            return Collections.emptyIterator();
+        }
+        return history.stream()
+                .map(entry -> t.results.get(entry.id))
+                .filter(Objects::nonNull)
+                .iterator();
+    }
+
+    public List<IdentificationResult> findByPestId(String pestId) {
+        Tables t = tables;
+        Set<String> ids = t.pestIndex.get(pestId);
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        return ids.stream()
+                .map(t.results::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public synchronized Optional<IdentificationResult> deleteById(String id) {
+        Tables t = tables;
+        IdentificationResult removed = t.results.remove(id);
+        Entry entry = t.entries.remove(id);
+        if (entry != null) {
+            unindex(t, entry);
+        }
+        return Optional.ofNullable(removed);
+    }
+
+    public synchronized void clear() {
+        tables = new Tables();
+    }
+
+    public int count() {
+        return tables.results.size();
+    }
+
+    public int countUsers() {
+        return tables.userCounters.size();
+    }
+
+    public Map<String, Long> getMethodCounts() {
+        return snapshot(tables.methodCounts);
+    }
+
+    public Map<String, Long> getPestCounts() {
+        return snapshot(tables.pestCounts);
+    }
+
+    /**
+     * 每日识别数量，按日期升序
+     */
+    public NavigableMap<LocalDate, Long> getDailyCounts() {
+        NavigableMap<LocalDate, Long> counts = new TreeMap<>();
+        tables.dailyCounts.forEach((date, count) -> {
+            long value = count.sum();
+            if (value > 0) {
+                counts.put(date, value);
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * 用户识别统计：总数、按方法、按月份和平均置信度
+     */
+    public Map<String, Object> getUserStatistics(String userId) {
+        UserCounters counters = tables.userCounters.get(userId);
+        Map<String, Object> statistics = new HashMap<>();
+        long total = counters != null ? counters.total.sum() : 0;
+        statistics.put("totalIdentifications", (int) total);
+        statistics.put("byMethod", counters != null ? snapshot(counters.byMethod) : new HashMap<>());
+        statistics.put("byMonth", counters != null ? snapshot(counters.byMonth) : new HashMap<>());
+        statistics.put("averageConfidence", total > 0 ? counters.confidenceSum.sum() / total : 0.0);
+        return statistics;
+    }
+
+    /**
+     * 反馈准确率：overall为总体，其余键为识别方法；没有反馈时返回空
+     */
+    public Map<String, Double> getAccuracy() {
+        Tables t = tables;
+        Map<String, Double> accuracy = new HashMap<>();
+        long total = t.feedbackOverall.total.sum();
+        if (total == 0) {
+            return accuracy;
+        }
+        accuracy.put("overall", (double) t.feedbackOverall.correct.sum() / total);
+        t.feedbackByMethod.forEach((method, counters) -> {
+            long methodTotal = counters.total.sum();
+            if (methodTotal > 0) {
+                accuracy.put(method, (double) counters.correct.sum() / methodTotal);
+            }
+        });
+        return accuracy;
+    }
+
+    private static void index(Tables t, Entry entry) {
+        if (entry.userId != null) {
+            t.userIndex.computeIfAbsent(entry.userId, k -> new ConcurrentSkipListSet<>(NEWEST_FIRST)).add(entry);
+        }
+        count(t, entry);
+    }
+
+    private static void count(Tables t, Entry entry) {
+        if (entry.userId != null) {
+            UserCounters counters = t.userCounters.computeIfAbsent(entry.userId, k -> new UserCounters());
+            counters.total.increment();
+            counters.confidenceSum.add(entry.confidence);
+            adjust(counters.byMethod, entry.method, 1);
+            adjust(counters.byMonth, entry.time != null ? entry.time.format(MONTH_FORMATTER) : null, 1);
+        }
+        if (entry.pestId != null) {
+            t.pestIndex.computeIfAbsent(entry.pestId, k -> ConcurrentHashMap.newKeySet()).add(entry.id);
+        }
+        adjust(t.methodCounts, entry.method, 1);
+        adjust(t.pestCounts, entry.pestId, 1);
+        if (entry.time != null) {
+            t.dailyCounts.computeIfAbsent(entry.time.toLocalDate(), k -> new LongAdder()).increment();
+        }
+        if (entry.hasFeedback) {
+            t.feedbackOverall.record(entry.verified, 1);
+            if (entry.method != null) {
+                t.feedbackByMethod.computeIfAbsent(entry.method, k -> new FeedbackCounters()).record(entry.verified, 1);
+            }
+        }
+    }
+
+    private static void unindex(Tables t, Entry entry) {
+        if (entry.userId != null) {
+            Set<Entry> history = t.userIndex.get(entry.userId);
+            if (history != null) {
+                history.remove(entry);
+            }
+            UserCounters counters = t.userCounters.get(entry.userId);
+            if (counters != null) {
+                counters.total.decrement();
+                counters.confidenceSum.add(-entry.confidence);
+                adjust(counters.byMethod, entry.method, -1);
+                adjust(counters.byMonth, entry.time != null ? entry.time.format(MONTH_FORMATTER) : null, -1);
+                if (counters.total.sum() == 0) {
+                    t.userCounters.remove(entry.userId);
+                    t.userIndex.remove(entry.userId);
+                }
+            }
+        }
+        if (entry.pestId != null) {
+            Set<String> ids = t.pestIndex.get(entry.pestId);
+            if (ids != null) {
+                ids.remove(entry.id);
+            }
+        }
+        adjust(t.methodCounts, entry.method, -1);
+        adjust(t.pestCounts, entry.pestId, -1);
+        if (entry.time != null) {
+            LongAdder daily = t.dailyCounts.get(entry.time.toLocalDate());
+            if (daily != null) {
+                daily.decrement();
+            }
+        }
+        if (entry.hasFeedback) {
+            t.feedbackOverall.record(entry.verified, -1);
+            FeedbackCounters counters = entry.method != null ? t.feedbackByMethod.get(entry.method) : null;
+            if (counters != null) {
+                counters.record(entry.verified, -1);
+            }
+        }
+    }
+
+    private static void adjust(Map<String, LongAdder> counts, String key, int delta) {
+        if (key != null) {
+            counts.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+        }
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counts) {
+        Map<String, Long> snapshot = new HashMap<>();
+        counts.forEach((key, count) -> {
+            long value = count.sum();
+            if (value > 0) {
+                snapshot.put(key, value);
+            }
+        });
+        return snapshot;
+    }
+
+    /**
+     * 建立索引时的字段快照，结果对象被修改后仍能准确回退
+     */
+    private static final class Entry {
+        private final String id;
+        private final String userId;
+        private final String pestId;
+        private final String method;
+        private final LocalDateTime time;
+        private final double confidence;
+        private final boolean hasFeedback;
+        private final boolean verified;
+
+        private Entry(IdentificationResult result) {
+            this.id = result.getId();
+            this.userId = result.getUserId();
+            this.pestId = result.getPestId();
+            this.method = result.getIdentificationMethod();
+            this.time = result.getIdentificationTime();
+            this.confidence = result.getConfidence() != null ? result.getConfidence() : 0.0;
+            // 用户提交反馈后核实状态变为VERIFIED或REJECTED
+            String status = result.getVerificationStatus();
+            this.verified = "VERIFIED".equals(status);
+            this.hasFeedback = verified || "REJECTED".equals(status);
+        }
+    }
+
+    /**
+     * 识别结果主表、索引和计数
+     */
+    private static final class Tables {
+        private final Map<String, IdentificationResult> results;
+        // 结果ID -> 建立索引时的字段快照，更新或删除时按快照回退计数
+        private final Map<String, Entry> entries;
+        private final Map<String, ConcurrentSkipListSet<Entry>> userIndex = new ConcurrentHashMap<>();
+        private final Map<String, Set<String>> pestIndex = new ConcurrentHashMap<>();
+
+        private final Map<String, LongAdder> methodCounts = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> pestCounts = new ConcurrentHashMap<>();
+        private final NavigableMap<LocalDate, LongAdder> dailyCounts = new ConcurrentSkipListMap<>();
+        private final Map<String, UserCounters> userCounters = new ConcurrentHashMap<>();
+        // 识别方法 -> 反馈计数，以及全部反馈的总体计数
+        private final Map<String, FeedbackCounters> feedbackByMethod = new ConcurrentHashMap<>();
+        private final FeedbackCounters feedbackOverall = new FeedbackCounters();
+
+        private Tables() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+
+        private Tables(Map<String, IdentificationResult> results, Map<String, Entry> entries) {
+            this.results = results;
+            this.entries = entries;
+        }
+    }
+
+    private static final class UserCounters {
+        private final LongAdder total = new LongAdder();
+        private final DoubleAdder confidenceSum = new DoubleAdder();
+        private final Map<String, LongAdder> byMethod = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> byMonth = new ConcurrentHashMap<>();
+    }
+
+    private static final class FeedbackCounters {
+        private final LongAdder total = new LongAdder();
+        private final LongAdder correct = new LongAdder();
+
+        private void record(boolean verified, int delta) {
+            total.add(delta);
+            if (verified) {
+                correct.add(delta);
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.forestpest.data.storage;
+
+import com.forestpest.util.ImageProcessingUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 按内容寻址的图片存储
+ * 图片以SHA-256摘要命名，按摘要前两级分目录存放，相同内容只保存一份。
+ * 上传内容只读取一次：经直接缓冲区写入临时文件的同时计算摘要，内容已存在时丢弃临时文件，否则原子移动到位。
+ * 缩略图在首次请求时生成并缓存到磁盘。
+ */
+@Component
+public class ImageStorage {
+
+    // 允许的缩略图边长，避免任意尺寸请求占满磁盘
+    public static final Set<Integer> THUMBNAIL_SIZES = Set.of(64, 128, 200, 400);
+    public static final int DEFAULT_THUMBNAIL_SIZE = 200;
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final Set<String> EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> COPY_BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private volatile Path rootDirectory = Paths.get("data", "images");
+
+    // 已确认存在的图片：摘要 -> 文件路径
+    private final Map<String, Path> knownImages = new ConcurrentHashMap<>();
+
+    @Value("${identification.image.dir:data/images}")
+    public void setRootDirectory(String rootDirectory) {
+        this.rootDirectory = Paths.get(rootDirectory);
+        knownImages.clear();
+    }
+
+    public Path getRootDirectory() {
+        return rootDirectory;
+    }
+
+    /**
+     * 保存上传的图片，返回内容摘要
+     */
+    public StoredImage store(MultipartFile file) throws IOException {
+        String extension = normalizeExtension(ImageProcessingUtil.getFileExtension(file.getOriginalFilename()));
+        // 临时文件与图片目录在同一根目录下，保证可以原子移动
+        Files.createDirectories(rootDirectory);
+        Path temp = Files.createTempFile(rootDirectory, "upload", ".tmp");
+        try {
+            String hash;
+            try (InputStream in = file.getInputStream()) {
+                hash = copyAndDigest(Channels.newChannel(in), temp);
+            }
+            Path existing = locate(hash);
+            if (existing != null) {
+                return new StoredImage(hash, existing, true);
+            }
+            Path target = imagePath(hash, extension);
+            Files.createDirectories(target.getParent());
+            return publish(hash, temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 保存已读入内存的图片，返回内容摘要
+     */
+    public StoredImage store(byte[] data, String originalFilename) throws IOException {
+        String hash = digest(data);
+        Path existing = locate(hash);
+        if (existing != null) {
+            return new StoredImage(hash, existing, true);
+        }
+
+        Path target = imagePath(hash, normalizeExtension(ImageProcessingUtil.getFileExtension(originalFilename)));
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            return publish(hash, temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 查找图片文件
+     */
+    public Optional<Path> find(String hash) {
+        if (!isValidHash(hash)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(locate(hash));
+    }
+
+    /**
+     * 获取缩略图，首次请求时生成并缓存
+     */
+    public Optional<Path> findThumbnail(String hash, int size) throws IOException {
+        if (!THUMBNAIL_SIZES.contains(size)) {
+            throw new IllegalArgumentException("不支持的缩略图尺寸: " + size);
+        }
+        Path thumbnail = thumbnailPath(hash, size);
+        if (Files.exists(thumbnail)) {
+            return Optional.of(thumbnail);
+        }
+        Optional<Path> original = find(hash);
+        if (original.isEmpty()) {
+            return Optional.empty();
+        }
+
+        BufferedImage image = ImageProcessingUtil.readForThumbnail(original.get(), size).getImage();
+        writeThumbnail(thumbnail, ImageProcessingUtil.generateThumbnail(image, size));
+        return Optional.of(thumbnail);
+    }
+
+    /**
+     * 缓存已生成的缩略图，已存在时忽略
+     */
+    public void cacheThumbnail(String hash, int size, byte[] data) throws IOException {
+        if (!isValidHash(hash) || !THUMBNAIL_SIZES.contains(size) || data == null) {
+            return;
+        }
+        Path thumbnail = thumbnailPath(hash, size);
+        if (!Files.exists(thumbnail)) {
+            writeThumbnail(thumbnail, data);
+        }
+    }
+
+    public static boolean isValidHash(String hash) {
+        return hash != null && HASH_PATTERN.matcher(hash).matches();
+    }
+
+    private StoredImage publish(String hash, Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // 并发上传相同内容，保留先写入的文件
+            knownImages.put(hash, target);
+            return new StoredImage(hash, target, true);
+        }
+        knownImages.put(hash, target);
+        return new StoredImage(hash, target, false);
+    }
+
+    private void writeThumbnail(Path thumbnail, byte[] data) throws IOException {
+        Files.createDirectories(thumbnail.getParent());
+        Path temp = Files.createTempFile(thumbnail.getParent(), "thumb", ".tmp");
+        try {
+            Files.write(temp, data);
+            Files.move(temp, thumbnail, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 查找已保存的图片，先查内存再查分片目录
+     */
+    private Path locate(String hash) {
+        Path known = knownImages.get(hash);
+        if (known != null && Files.exists(known)) {
+            return known;
+        }
+        Path shard = shardDirectory(hash);
+        for (String extension : EXTENSIONS) {
+            Path candidate = shard.resolve(hash + "." + extension);
+            if (Files.exists(candidate)) {
+                knownImages.put(hash, candidate);
+                return candidate;
+            }
+        }
+        knownImages.remove(hash);
+        return null;
+    }
+
+    private Path shardDirectory(String hash) {
+        return rootDirectory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4));
+    }
+
+    private Path imagePath(String hash, String extension) {
+        return shardDirectory(hash).resolve(hash + "." + extension);
+    }
+
+    private Path thumbnailPath(String hash, int size) {
+        return rootDirectory.resolve("thumbnails").resolve(String.valueOf(size))
+                .resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".jpg");
+    }
+
+    private static String normalizeExtension(String extension) {
+        String lower = extension == null ? "" : extension.toLowerCase();
+        if ("jpeg".equals(lower)) {
+            return "jpg";
+        }
+        return EXTENSIONS.contains(lower) ? lower : "img";
+    }
+
+    /**
+     * 把输入复制到文件，同时计算摘要
+     */
+    private static String copyAndDigest(ReadableByteChannel in, Path file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = COPY_BUFFERS.get();
+        buffer.clear();
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                buffer.mark();
+                digest.update(buffer);
+                buffer.reset();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String digest(byte[] data) {
+        return HexFormat.of().formatHex(sha256().digest(data));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    /**
+     * 保存结果
+     */
+    public static final class StoredImage {
+        private final String hash;
+        private final Path path;
+        private final boolean duplicate;
+
+        private StoredImage(String hash, Path path, boolean duplicate) {
+            this.hash = hash;
+            this.path = path;
+            this.duplicate = duplicate;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * 内容是否已存在，为true时本次上传没有写入磁盘
+         */
+        public boolean isDuplicate() {
+            return duplicate;
+        }
+    }
+}
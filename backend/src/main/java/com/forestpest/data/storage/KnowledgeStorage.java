@@ -1,12 +1,17 @@
 package com.forestpest.data.storage;
 
 import com.forestpest.entity.KnowledgeBase;
+import com.forestpest.data.index.ReferenceIndex;
+import com.forestpest.data.index.ReferenceIndex.EntityType;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -16,128 +21,174 @@ import java.util.stream.Collectors;
 @Component
 public class KnowledgeStorage {
     
-    private final Map<String, KnowledgeBase> knowledgeBase = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> typeIndex = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> categoryIndex = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> authorIndex = new ConcurrentHashMap<>();
+    // 主表和索引，批量装载时整体替换
+    private volatile Tables tables = new Tables();
+    
+    private volatile ReferenceIndex references;
+    
+    public void setReferenceIndex(ReferenceIndex references) {
+        this.references = references;
+    }
     
     public void save(KnowledgeBase knowledge) {
-        knowledgeBase.put(knowledge.getId(), knowledge);
+        Tables t = tables;
+        t.knowledgeBase.put(knowledge.getId(), knowledge);
         
         // 更新类型索引
-        typeIndex.computeIfAbsent(knowledge.getType(), k -> new ArrayList<>()).add(knowledge.getId());
+        t.typeIndex.computeIfAbsent(knowledge.getType(), k -> new ArrayList<>()).add(knowledge.getId());
         
         // 更新分类索引
-        categoryIndex.computeIfAbsent(knowledge.getCategory(), k -> new ArrayList<>()).add(knowledge.getId());
+        t.categoryIndex.computeIfAbsent(knowledge.getCategory(), k -> new ArrayList<>()).add(knowledge.getId());
         
         // 更新作者索引
         if (knowledge.getAuthor() != null) {
-            authorIndex.computeIfAbsent(knowledge.getAuthor(), k -> new ArrayList<>()).add(knowledge.getId());
+            t.authorIndex.computeIfAbsent(knowledge.getAuthor(), k -> new ArrayList<>()).add(knowledge.getId());
         }
+        
+        EntityReferences.register(references, knowledge);
+    }
+    
+    /**
+     * 批量保存，索引按键分组后一次合并
+     */
+    public void saveAll(Collection<KnowledgeBase> batch) {
+        Tables t = tables;
+        Map<String, KnowledgeBase> byId = new HashMap<>(batch.size() * 2);
+        batch.forEach(knowledge -> byId.put(knowledge.getId(), knowledge));
+        t.knowledgeBase.putAll(byId);
+        StorageIndexes.appendAll(t.typeIndex, batch, KnowledgeBase::getType, KnowledgeBase::getId);
+        StorageIndexes.appendAll(t.categoryIndex, batch, KnowledgeBase::getCategory, KnowledgeBase::getId);
+        StorageIndexes.appendAll(t.authorIndex, batch, KnowledgeBase::getAuthor, KnowledgeBase::getId);
+        batch.forEach(knowledge -> EntityReferences.register(references, knowledge));
+    }
+    
+    /**
+     * 批量装载，整体替换全部知识条目
+     */
+    public void bulkLoad(Collection<KnowledgeBase> batch) {
+        Map<String, KnowledgeBase> loaded = StorageIndexes.primary(batch, KnowledgeBase::getId);
+        tables = new Tables(loaded,
+                StorageIndexes.group(loaded, batch, KnowledgeBase::getType, KnowledgeBase::getId),
+                StorageIndexes.group(loaded, batch, KnowledgeBase::getCategory, KnowledgeBase::getId),
+                StorageIndexes.group(loaded, batch, KnowledgeBase::getAuthor, KnowledgeBase::getId));
+        EntityReferences.unregisterAll(references, EntityType.KNOWLEDGE);
+        loaded.values().forEach(knowledge -> EntityReferences.register(references, knowledge));
     }
     
     public Optional<KnowledgeBase> findById(String id) {
-        return Optional.ofNullable(knowledgeBase.get(id));
+        return Optional.ofNullable(tables.knowledgeBase.get(id));
     }
     
     public List<KnowledgeBase> findAll() {
-        return new ArrayList<>(knowledgeBase.values());
+        return new ArrayList<>(tables.knowledgeBase.values());
+    }
+    
+    /**
+     * 遍历所有知识条目，不复制集合，供流式导出使用；遍历期间的并发修改可能可见
+     */
+    public Iterable<KnowledgeBase> iterateAll() {
+        return Collections.unmodifiableCollection(tables.knowledgeBase.values());
     }
     
     public List<KnowledgeBase> findByType(String type) {
-        List<String> ids = typeIndex.get(type);
+        Tables t = tables;
+        List<String> ids = t.typeIndex.get(type);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(knowledgeBase::get)
+                .map(t.knowledgeBase::get)
                 .filter(knowledge -> knowledge != null)
                 .collect(Collectors.toList());
     }
     
     public List<KnowledgeBase> findByCategory(String category) {
-        List<String> ids = categoryIndex.get(category);
+        Tables t = tables;
+        List<String> ids = t.categoryIndex.get(category);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(knowledgeBase::get)
+                .map(t.knowledgeBase::get)
                 .filter(knowledge -> knowledge != null)
                 .collect(Collectors.toList());
     }
     
     public List<KnowledgeBase> findByAuthor(String author) {
-        List<String> ids = authorIndex.get(author);
+        Tables t = tables;
+        List<String> ids = t.authorIndex.get(author);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(knowledgeBase::get)
+                .map(t.knowledgeBase::get)
                 .filter(knowledge -> knowledge != null)
                 .collect(Collectors.toList());
     }
     
     public List<KnowledgeBase> findByTitleContaining(String title) {
-        return knowledgeBase.values().stream()
+        return tables.knowledgeBase.values().stream()
                 .filter(knowledge -> knowledge.getTitle().contains(title))
                 .collect(Collectors.toList());
     }
     
     public List<KnowledgeBase> findByKeyword(String keyword) {
-        return knowledgeBase.values().stream()
+        return tables.knowledgeBase.values().stream()
                 .filter(knowledge -> knowledge.getKeywords() != null &&
                                    knowledge.getKeywords().contains(keyword))
                 .collect(Collectors.toList());
     }
     
     public List<KnowledgeBase> findByTag(String tag) {
-        return knowledgeBase.values().stream()
+        return tables.knowledgeBase.values().stream()
                 .filter(knowledge -> knowledge.getTags() != null &&
                                    knowledge.getTags().contains(tag))
                 .collect(Collectors.toList());
     }
     
     public List<KnowledgeBase> findByStatus(String status) {
-        return knowledgeBase.values().stream()
+        return tables.knowledgeBase.values().stream()
                 .filter(knowledge -> status.equals(knowledge.getStatus()))
                 .collect(Collectors.toList());
     }
     
     public List<KnowledgeBase> findByDifficulty(String difficulty) {
-        return knowledgeBase.values().stream()
+        return tables.knowledgeBase.values().stream()
                 .filter(knowledge -> difficulty.equals(knowledge.getDifficulty()))
                 .collect(Collectors.toList());
     }
     
     public List<KnowledgeBase> findByApplicableRegion(String region) {
-        return knowledgeBase.values().stream()
+        return tables.knowledgeBase.values().stream()
                 .filter(knowledge -> region.equals(knowledge.getApplicableRegion()))
                 .collect(Collectors.toList());
     }
     
     public List<KnowledgeBase> findByRelatedPest(String pestId) {
-        return knowledgeBase.values().stream()
+        return tables.knowledgeBase.values().stream()
                 .filter(knowledge -> knowledge.getRelatedPests() != null &&
                                    knowledge.getRelatedPests().contains(pestId))
                 .collect(Collectors.toList());
     }
     
     public void deleteById(String id) {
-        KnowledgeBase knowledge = knowledgeBase.remove(id);
+        Tables t = tables;
+        KnowledgeBase knowledge = t.knowledgeBase.remove(id);
         if (knowledge != null) {
+            EntityReferences.unregister(references, EntityType.KNOWLEDGE, id);
             // 清理索引
-            List<String> typeIds = typeIndex.get(knowledge.getType());
+            List<String> typeIds = t.typeIndex.get(knowledge.getType());
             if (typeIds != null) {
                 typeIds.remove(id);
             }
             
-            List<String> categoryIds = categoryIndex.get(knowledge.getCategory());
+            List<String> categoryIds = t.categoryIndex.get(knowledge.getCategory());
             if (categoryIds != null) {
                 categoryIds.remove(id);
             }
             
             if (knowledge.getAuthor() != null) {
-                List<String> authorIds = authorIndex.get(knowledge.getAuthor());
+                List<String> authorIds = t.authorIndex.get(knowledge.getAuthor());
                 if (authorIds != null) {
                     authorIds.remove(id);
                 }
@@ -146,13 +197,33 @@ public class KnowledgeStorage {
     }
     
     public void clear() {
-        knowledgeBase.clear();
-        typeIndex.clear();
-        categoryIndex.clear();
-        authorIndex.clear();
+        EntityReferences.unregisterAll(references, EntityType.KNOWLEDGE);
+        tables = new Tables();
     }
     
     public int count() {
-        return knowledgeBase.size();
+        return tables.knowledgeBase.size();
+    }
+    
+    /**
+     * 知识库主表和类型、分类、作者索引
+     */
+    private static final class Tables {
+        private final Map<String, KnowledgeBase> knowledgeBase;
+        private final Map<String, List<String>> typeIndex;
+        private final Map<String, List<String>> categoryIndex;
+        private final Map<String, List<String>> authorIndex;
+        
+        private Tables() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+        
+        private Tables(Map<String, KnowledgeBase> knowledgeBase, Map<String, List<String>> typeIndex,
+                       Map<String, List<String>> categoryIndex, Map<String, List<String>> authorIndex) {
+            this.knowledgeBase = knowledgeBase;
+            this.typeIndex = typeIndex;
+            this.categoryIndex = categoryIndex;
+            this.authorIndex = authorIndex;
+        }
     }
 }
\ No newline at end of file
@@ -1,13 +1,19 @@
 package com.forestpest.data.storage;
 
 import com.forestpest.entity.Pest;
+import com.forestpest.data.index.ReferenceIndex;
+import com.forestpest.data.index.ReferenceIndex.EntityType;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -16,76 +22,127 @@ import java.util.stream.Collectors;
 @Component
 public class PestStorage {
     
-    private final Map<String, Pest> pests = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> categoryIndex = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> riskLevelIndex = new ConcurrentHashMap<>();
+    // 主表和索引，批量装载时整体替换
+    private volatile Tables tables = new Tables();
+    
+    // 病虫害目录版本，任何新增、修改或删除后递增，供识别结果缓存判断失效
+    private final AtomicLong version = new AtomicLong();
+    
+    private volatile ReferenceIndex references;
+    
+    public void setReferenceIndex(ReferenceIndex references) {
+        this.references = references;
+    }
     
     public void save(Pest pest) {
-        pests.put(pest.getId(), pest);
+        Tables t = tables;
+        t.pests.put(pest.getId(), pest);
+        version.incrementAndGet();
         
         // 更新分类索引
-        categoryIndex.computeIfAbsent(pest.getCategory(), k -> new ArrayList<>()).add(pest.getId());
+        t.categoryIndex.computeIfAbsent(pest.getCategory(), k -> new ArrayList<>()).add(pest.getId());
         
         // 更新风险等级索引
         if (pest.getRiskLevel() != null) {
-            riskLevelIndex.computeIfAbsent(pest.getRiskLevel(), k -> new ArrayList<>()).add(pest.getId());
+            t.riskLevelIndex.computeIfAbsent(pest.getRiskLevel(), k -> new ArrayList<>()).add(pest.getId());
         }
+        
+        EntityReferences.register(references, pest);
+    }
+    
+    /**
+     * 批量保存，索引按键分组后一次合并，目录版本只递增一次
+     */
+    public void saveAll(Collection<Pest> batch) {
+        Tables t = tables;
+        Map<String, Pest> byId = new HashMap<>(batch.size() * 2);
+        batch.forEach(pest -> byId.put(pest.getId(), pest));
+        t.pests.putAll(byId);
+        StorageIndexes.appendAll(t.categoryIndex, batch, Pest::getCategory, Pest::getId);
+        StorageIndexes.appendAll(t.riskLevelIndex, batch, Pest::getRiskLevel, Pest::getId);
+        version.incrementAndGet();
+        batch.forEach(pest -> EntityReferences.register(references, pest));
+    }
+    
+    /**
+     * 批量装载，整体替换全部病虫害
+     */
+    public void bulkLoad(Collection<Pest> batch) {
+        Map<String, Pest> loaded = StorageIndexes.primary(batch, Pest::getId);
+        tables = new Tables(loaded,
+                StorageIndexes.group(loaded, batch, Pest::getCategory, Pest::getId),
+                StorageIndexes.group(loaded, batch, Pest::getRiskLevel, Pest::getId));
+        version.incrementAndGet();
+        EntityReferences.unregisterAll(references, EntityType.PEST);
+        loaded.values().forEach(pest -> EntityReferences.register(references, pest));
     }
     
     public Optional<Pest> findById(String id) {
-        return Optional.ofNullable(pests.get(id));
+        return Optional.ofNullable(tables.pests.get(id));
     }
     
     public List<Pest> findAll() {
-        return new ArrayList<>(pests.values());
+        return new ArrayList<>(tables.pests.values());
+    }
+    
+    /**
+     * 遍历所有病虫害，不复制集合，供流式导出使用；遍历期间的并发修改可能可见
+     */
+    public Iterable<Pest> iterateAll() {
+        return Collections.unmodifiableCollection(tables.pests.values());
     }
     
     public List<Pest> findByCategory(String category) {
-        List<String> ids = categoryIndex.get(category);
+        Tables t = tables;
+        List<String> ids = t.categoryIndex.get(category);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(pests::get)
+                .map(t.pests::get)
                 .filter(pest -> pest != null)
                 .collect(Collectors.toList());
     }
     
     public List<Pest> findByRiskLevel(String riskLevel) {
-        List<String> ids = riskLevelIndex.get(riskLevel);
+        Tables t = tables;
+        List<String> ids = t.riskLevelIndex.get(riskLevel);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(pests::get)
+                .map(t.pests::get)
                 .filter(pest -> pest != null)
                 .collect(Collectors.toList());
     }
     
     public List<Pest> findByNameContaining(String name) {
-        return pests.values().stream()
+        return tables.pests.values().stream()
                 .filter(pest -> pest.getName().contains(name))
                 .collect(Collectors.toList());
     }
     
     public List<Pest> findBySymptom(String symptom) {
-        return pests.values().stream()
+        return tables.pests.values().stream()
                 .filter(pest -> pest.getSymptoms() != null && 
                                pest.getSymptoms().stream().anyMatch(s -> s.contains(symptom)))
                 .collect(Collectors.toList());
     }
     
     public void deleteById(String id) {
-        Pest pest = pests.remove(id);
+        Tables t = tables;
+        Pest pest = t.pests.remove(id);
         if (pest != null) {
+            EntityReferences.unregister(references, EntityType.PEST, id);
+            version.incrementAndGet();
             // 清理索引
-            List<String> categoryIds = categoryIndex.get(pest.getCategory());
+            List<String> categoryIds = t.categoryIndex.get(pest.getCategory());
             if (categoryIds != null) {
                 categoryIds.remove(id);
             }
             
             if (pest.getRiskLevel() != null) {
-                List<String> riskIds = riskLevelIndex.get(pest.getRiskLevel());
+                List<String> riskIds = t.riskLevelIndex.get(pest.getRiskLevel());
                 if (riskIds != null) {
                     riskIds.remove(id);
                 }
@@ -94,12 +151,36 @@ public class PestStorage {
     }
     
     public void clear() {
-        pests.clear();
-        categoryIndex.clear();
-        riskLevelIndex.clear();
+        EntityReferences.unregisterAll(references, EntityType.PEST);
+        tables = new Tables();
+        version.incrementAndGet();
+    }
+    
+    public long getVersion() {
+        return version.get();
     }
     
     public int count() {
-        return pests.size();
+        return tables.pests.size();
+    }
+    
+    /**
+     * 主表和索引，同一快照内的索引只引用该快照主表中的病虫害
+     */
+    private static final class Tables {
+        private final Map<String, Pest> pests;
+        private final Map<String, List<String>> categoryIndex;
+        private final Map<String, List<String>> riskLevelIndex;
+        
+        private Tables() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+        
+        private Tables(Map<String, Pest> pests, Map<String, List<String>> categoryIndex,
+                       Map<String, List<String>> riskLevelIndex) {
+            this.pests = pests;
+            this.categoryIndex = categoryIndex;
+            this.riskLevelIndex = riskLevelIndex;
+        }
     }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.forestpest.data.storage;
 
 import com.forestpest.entity.Pesticide;
+import com.forestpest.data.index.ReferenceIndex;
+import com.forestpest.data.index.ReferenceIndex.EntityType;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
@@ -8,6 +10,9 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -17,60 +22,102 @@ import java.util.stream.Collectors;
 @Component
 public class PesticideStorage {
     
-    private final Map<String, Pesticide> pesticides = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> categoryIndex = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> safetyLevelIndex = new ConcurrentHashMap<>();
+    // 主表和索引，批量装载时整体替换
+    private volatile Tables tables = new Tables();
+    
+    private volatile ReferenceIndex references;
+    
+    public void setReferenceIndex(ReferenceIndex references) {
+        this.references = references;
+    }
     
     public void save(Pesticide pesticide) {
-        pesticides.put(pesticide.getId(), pesticide);
+        Tables t = tables;
+        t.pesticides.put(pesticide.getId(), pesticide);
         
         // 更新分类索引
         if (pesticide.getCategory() != null) {
-            categoryIndex.computeIfAbsent(pesticide.getCategory(), k -> new ArrayList<>()).add(pesticide.getId());
+            t.categoryIndex.computeIfAbsent(pesticide.getCategory(), k -> new ArrayList<>()).add(pesticide.getId());
         }
         
         // 更新安全等级索引
-        safetyLevelIndex.computeIfAbsent(pesticide.getSafetyLevel(), k -> new ArrayList<>()).add(pesticide.getId());
+        t.safetyLevelIndex.computeIfAbsent(pesticide.getSafetyLevel(), k -> new ArrayList<>()).add(pesticide.getId());
+        
+        EntityReferences.register(references, pesticide);
+    }
+    
+    /**
+     * 批量保存，索引按键分组后一次合并
+     */
+    public void saveAll(Collection<Pesticide> batch) {
+        Tables t = tables;
+        Map<String, Pesticide> byId = new HashMap<>(batch.size() * 2);
+        batch.forEach(pesticide -> byId.put(pesticide.getId(), pesticide));
+        t.pesticides.putAll(byId);
+        StorageIndexes.appendAll(t.categoryIndex, batch, Pesticide::getCategory, Pesticide::getId);
+        StorageIndexes.appendAll(t.safetyLevelIndex, batch, Pesticide::getSafetyLevel, Pesticide::getId);
+        batch.forEach(pesticide -> EntityReferences.register(references, pesticide));
+    }
+    
+    /**
+     * 批量装载，整体替换全部药剂
+     */
+    public void bulkLoad(Collection<Pesticide> batch) {
+        Map<String, Pesticide> loaded = StorageIndexes.primary(batch, Pesticide::getId);
+        tables = new Tables(loaded,
+                StorageIndexes.group(loaded, batch, Pesticide::getCategory, Pesticide::getId),
+                StorageIndexes.group(loaded, batch, Pesticide::getSafetyLevel, Pesticide::getId));
+        EntityReferences.unregisterAll(references, EntityType.PESTICIDE);
+        loaded.values().forEach(pesticide -> EntityReferences.register(references, pesticide));
     }
     
     public Optional<Pesticide> findById(String id) {
-        return Optional.ofNullable(pesticides.get(id));
+        return Optional.ofNullable(tables.pesticides.get(id));
     }
     
     public List<Pesticide> findAll() {
-        return new ArrayList<>(pesticides.values());
+        return new ArrayList<>(tables.pesticides.values());
+    }
+    
+    /**
+     * 遍历所有药剂，不复制集合，供流式导出使用；遍历期间的并发修改可能可见
+     */
+    public Iterable<Pesticide> iterateAll() {
+        return Collections.unmodifiableCollection(tables.pesticides.values());
     }
     
     public List<Pesticide> findByCategory(String category) {
-        List<String> ids = categoryIndex.get(category);
+        Tables t = tables;
+        List<String> ids = t.categoryIndex.get(category);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(pesticides::get)
+                .map(t.pesticides::get)
                 .filter(pesticide -> pesticide != null)
                 .collect(Collectors.toList());
     }
     
     public List<Pesticide> findBySafetyLevel(String safetyLevel) {
-        List<String> ids = safetyLevelIndex.get(safetyLevel);
+        Tables t = tables;
+        List<String> ids = t.safetyLevelIndex.get(safetyLevel);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(pesticides::get)
+                .map(t.pesticides::get)
                 .filter(pesticide -> pesticide != null)
                 .collect(Collectors.toList());
     }
     
     public List<Pesticide> findByNameContaining(String name) {
-        return pesticides.values().stream()
+        return tables.pesticides.values().stream()
                 .filter(pesticide -> pesticide.getName().contains(name))
                 .collect(Collectors.toList());
     }
     
     public List<Pesticide> findLowStock() {
-        return pesticides.values().stream()
+        return tables.pesticides.values().stream()
                 .filter(pesticide -> pesticide.getMinStockLevel() != null && 
                                    pesticide.getStockQuantity() <= pesticide.getMinStockLevel())
                 .collect(Collectors.toList());
@@ -78,29 +125,31 @@ public class PesticideStorage {
     
     public List<Pesticide> findExpiringSoon(int days) {
         LocalDate cutoffDate = LocalDate.now().plusDays(days);
-        return pesticides.values().stream()
+        return tables.pesticides.values().stream()
                 .filter(pesticide -> pesticide.getExpiryDate().isBefore(cutoffDate))
                 .collect(Collectors.toList());
     }
     
     public List<Pesticide> findByStatus(String status) {
-        return pesticides.values().stream()
+        return tables.pesticides.values().stream()
                 .filter(pesticide -> status.equals(pesticide.getStatus()))
                 .collect(Collectors.toList());
     }
     
     public void deleteById(String id) {
-        Pesticide pesticide = pesticides.remove(id);
+        Tables t = tables;
+        Pesticide pesticide = t.pesticides.remove(id);
         if (pesticide != null) {
+            EntityReferences.unregister(references, EntityType.PESTICIDE, id);
             // 清理索引
             if (pesticide.getCategory() != null) {
-                List<String> categoryIds = categoryIndex.get(pesticide.getCategory());
+                List<String> categoryIds = t.categoryIndex.get(pesticide.getCategory());
                 if (categoryIds != null) {
                     categoryIds.remove(id);
                 }
             }
             
-            List<String> safetyIds = safetyLevelIndex.get(pesticide.getSafetyLevel());
+            List<String> safetyIds = t.safetyLevelIndex.get(pesticide.getSafetyLevel());
             if (safetyIds != null) {
                 safetyIds.remove(id);
             }
@@ -108,12 +157,31 @@ public class PesticideStorage {
     }
     
     public void clear() {
-        pesticides.clear();
-        categoryIndex.clear();
-        safetyLevelIndex.clear();
+        EntityReferences.unregisterAll(references, EntityType.PESTICIDE);
+        tables = new Tables();
     }
     
     public int count() {
-        return pesticides.size();
+        return tables.pesticides.size();
+    }
+    
+    /**
+     * 药剂主表和分类、安全等级索引
+     */
+    private static final class Tables {
+        private final Map<String, Pesticide> pesticides;
+        private final Map<String, List<String>> categoryIndex;
+        private final Map<String, List<String>> safetyLevelIndex;
+        
+        private Tables() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+        
+        private Tables(Map<String, Pesticide> pesticides,
+                       Map<String, List<String>> categoryIndex, Map<String, List<String>> safetyLevelIndex) {
+            this.pesticides = pesticides;
+            this.categoryIndex = categoryIndex;
+            this.safetyLevelIndex = safetyLevelIndex;
+        }
     }
 }
\ No newline at end of file
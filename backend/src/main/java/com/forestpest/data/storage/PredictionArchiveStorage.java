@@ -0,0 +1,244 @@
+package com.forestpest.data.storage;
+
+import com.forestpest.entity.PestAlert;
+import com.forestpest.entity.PestPrediction;
+import com.forestpest.util.ColumnarEntityFormat;
+import com.forestpest.util.ColumnarReader;
+import com.forestpest.util.ColumnarWriter;
+import com.forestpest.util.ColumnarWriter.ColumnType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 预测预警归档存储
+ * 历史预测和预警以gzip压缩的列式文件写入磁盘，归档后仍可按条件查询。
+ */
+@Component
+public class PredictionArchiveStorage {
+
+    private static final String PREDICTION_PREFIX = "predictions-";
+    private static final String ALERT_PREFIX = "alerts-";
+    private static final String ARCHIVE_SUFFIX = ".fpc.gz";
+
+    private static final LinkedHashMap<String, ColumnType> ALERT_SCHEMA = new LinkedHashMap<>();
+
+    static {
+        ALERT_SCHEMA.put("id", ColumnType.STRING);
+        ALERT_SCHEMA.put("predictionId", ColumnType.STRING);
+        ALERT_SCHEMA.put("pestId", ColumnType.STRING);
+        ALERT_SCHEMA.put("pestName", ColumnType.STRING);
+        ALERT_SCHEMA.put("targetArea", ColumnType.STRING);
+        ALERT_SCHEMA.put("alertLevel", ColumnType.STRING);
+        ALERT_SCHEMA.put("alertType", ColumnType.STRING);
+        ALERT_SCHEMA.put("message", ColumnType.STRING);
+        ALERT_SCHEMA.put("status", ColumnType.STRING);
+        ALERT_SCHEMA.put("alertTime", ColumnType.LONG);
+        ALERT_SCHEMA.put("acknowledgedBy", ColumnType.STRING);
+        ALERT_SCHEMA.put("createdBy", ColumnType.STRING);
+        ALERT_SCHEMA.put("createdTime", ColumnType.LONG);
+    }
+
+    private volatile Path archiveDirectory = Paths.get("data", "archive");
+
+    // 归档文件名中的时间戳，单调递增，同一毫秒内的多次归档不会同名
+    private final AtomicLong lastStamp = new AtomicLong();
+
+    @Value("${prediction.archive.dir:data/archive}")
+    public void setArchiveDirectory(String archiveDirectory) {
+        this.archiveDirectory = Paths.get(archiveDirectory);
+    }
+
+    public Path getArchiveDirectory() {
+        return archiveDirectory;
+    }
+
+    /**
+     * 将预测及其预警写入一组归档文件，文件写完后才以原子方式改名对外可见
+     */
+    public void archive(LocalDate beforeDate, Collection<PestPrediction> predictions, Collection<PestAlert> alerts) throws IOException {
+        Files.createDirectories(archiveDirectory);
+        String stem = nextStem(beforeDate);
+
+        Path predictionFile = archiveDirectory.resolve(PREDICTION_PREFIX + stem);
+        writeArchive(predictionFile, out -> ColumnarEntityFormat.writePredictions(out, predictions));
+
+        if (!alerts.isEmpty()) {
+            Path alertFile = archiveDirectory.resolve(ALERT_PREFIX + stem);
+            writeArchive(alertFile, out -> {
+                ColumnarWriter writer = new ColumnarWriter(out, ALERT_SCHEMA);
+                for (PestAlert alert : alerts) {
+                    writer.writeRow(
+                        alert.getId(),
+                        alert.getPredictionId(),
+                        alert.getPestId(),
+                        alert.getPestName(),
+                        alert.getTargetArea(),
+                        alert.getAlertLevel(),
+                        alert.getAlertType(),
+                        alert.getMessage(),
+                        alert.getStatus(),
+                        toEpochSecond(alert.getAlertTime()),
+                        alert.getAcknowledgedBy(),
+                        alert.getCreatedBy(),
+                        toEpochSecond(alert.getCreatedTime())
+                    );
+                }
+                writer.finish();
+            });
+        }
+    }
+
+    /**
+     * 查询归档的预测记录，条件为null时不限制
+     */
+    public List<PestPrediction> findArchivedPredictions(String pestId, String targetArea,
+                                                        LocalDate startDate, LocalDate endDate) throws IOException {
+        Long startDay = startDate != null ? startDate.toEpochDay() : null;
+        Long endDay = endDate != null ? endDate.toEpochDay() : null;
+
+        List<PestPrediction> result = new ArrayList<>();
+        for (Path file : listArchiveFiles(PREDICTION_PREFIX)) {
+            readArchive(file, (rows, row) -> {
+                Long day = rows.getLong(row, "predictionDate");
+                if (pestId != null && !pestId.equals(rows.getString(row, "pestId"))) {
+                    return;
+                }
+                if (targetArea != null && !targetArea.equals(rows.getString(row, "targetArea"))) {
+                    return;
+                }
+                if ((startDay != null || endDay != null) && day == null) {
+                    return;
+                }
+                if ((startDay != null && day < startDay) || (endDay != null && day > endDay)) {
+                    return;
+                }
+                result.add(ColumnarEntityFormat.readPrediction(rows, row));
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 查询归档的预警记录，predictionId为null时返回全部
+     */
+    public List<PestAlert> findArchivedAlerts(String predictionId) throws IOException {
+        Predicate<String> matches = id -> predictionId == null || predictionId.equals(id);
+        List<PestAlert> result = new ArrayList<>();
+        for (Path file : listArchiveFiles(ALERT_PREFIX)) {
+            readArchive(file, (rows, row) -> {
+                if (matches.test(rows.getString(row, "predictionId"))) {
+                    result.add(toAlert(rows, row));
+                }
+            });
+        }
+        return result;
+    }
+
+    private PestAlert toAlert(ColumnarReader.RowGroup rows, int row) {
+        PestAlert alert = new PestAlert();
+        alert.setId(rows.getString(row, "id"));
+        alert.setPredictionId(rows.getString(row, "predictionId"));
+        alert.setPestId(rows.getString(row, "pestId"));
+        alert.setPestName(rows.getString(row, "pestName"));
+        alert.setTargetArea(rows.getString(row, "targetArea"));
+        alert.setAlertLevel(rows.getString(row, "alertLevel"));
+        alert.setAlertType(rows.getString(row, "alertType"));
+        alert.setMessage(rows.getString(row, "message"));
+        alert.setStatus(rows.getString(row, "status"));
+        alert.setAlertTime(fromEpochSecond(rows.getLong(row, "alertTime")));
+        alert.setAcknowledgedBy(rows.getString(row, "acknowledgedBy"));
+        alert.setCreatedBy(rows.getString(row, "createdBy"));
+        alert.setCreatedTime(fromEpochSecond(rows.getLong(row, "createdTime")));
+        return alert;
+    }
+
+    private List<Path> listArchiveFiles(String prefix) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(archiveDirectory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(archiveDirectory, prefix + "*" + ARCHIVE_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    /**
+     * 生成未被占用的归档文件名；时间戳取当前毫秒数与上次取值加一中的较大者，
+     * 目录中已有同名文件（如时钟回拨后重启）时继续递增
+     */
+    private String nextStem(LocalDate beforeDate) {
+        String date = beforeDate.format(DateTimeFormatter.BASIC_ISO_DATE);
+        while (true) {
+            long stamp = lastStamp.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+            String stem = date + "-" + stamp + ARCHIVE_SUFFIX;
+            if (!Files.exists(archiveDirectory.resolve(PREDICTION_PREFIX + stem))
+                    && !Files.exists(archiveDirectory.resolve(ALERT_PREFIX + stem))) {
+                return stem;
+            }
+        }
+    }
+
+    private void writeArchive(Path target, ArchiveContent content) throws IOException {
+        Path temp = Files.createTempFile(archiveDirectory, "archive-", ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                content.writeTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void readArchive(Path file, RowVisitor visitor) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file));
+             ColumnarReader reader = new ColumnarReader(in)) {
+            ColumnarReader.RowGroup rows;
+            while ((rows = reader.nextRowGroup()) != null) {
+                for (int row = 0; row < rows.size(); row++) {
+                    visitor.visit(rows, row);
+                }
+            }
+        }
+    }
+
+    private static Long toEpochSecond(LocalDateTime time) {
+        return ColumnarEntityFormat.toEpochSecond(time);
+    }
+
+    private static LocalDateTime fromEpochSecond(Long seconds) {
+        return ColumnarEntityFormat.fromEpochSecond(seconds);
+    }
+
+    @FunctionalInterface
+    private interface ArchiveContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RowVisitor {
+        void visit(ColumnarReader.RowGroup rows, int row);
+    }
+}
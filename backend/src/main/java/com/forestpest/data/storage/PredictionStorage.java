@@ -2,14 +2,28 @@ package com.forestpest.data.storage;
 
 import com.forestpest.entity.PestPrediction;
 import com.forestpest.entity.PestAlert;
+import com.forestpest.data.index.ReferenceIndex;
+import com.forestpest.data.index.ReferenceIndex.EntityType;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -18,141 +32,501 @@ import java.util.stream.Collectors;
 @Component
 public class PredictionStorage {
     
-    private final Map<String, PestPrediction> predictions = new ConcurrentHashMap<>();
-    private final Map<String, PestAlert> alerts = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> pestIdIndex = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> predictionAlertIndex = new ConcurrentHashMap<>();
+    // 预测、预警主表及全部索引，批量装载时整体替换
+    private volatile Tables tables = new Tables();
+    
+    // 活跃预警变化监听，按目标区域增量调整计数
+    private volatile BiConsumer<String, Integer> activeAlertListener;
+    
+    /**
+     * 设置活跃预警变化监听，参数为目标区域和数量变化
+     */
+    public void setActiveAlertListener(BiConsumer<String, Integer> activeAlertListener) {
+        this.activeAlertListener = activeAlertListener;
+    }
+    
+    private volatile ReferenceIndex references;
+    
+    public void setReferenceIndex(ReferenceIndex references) {
+        this.references = references;
+    }
     
     // PestPrediction methods
     public void savePrediction(PestPrediction prediction) {
-        predictions.put(prediction.getId(), prediction);
+        Tables t = tables;
+        PestPrediction previous = t.predictions.put(prediction.getId(), prediction);
         
-        // 更新病虫害ID索引
-        pestIdIndex.computeIfAbsent(prediction.getPestId(), k -> new ArrayList<>()).add(prediction.getId());
+        // 更新病虫害ID索引（重复保存时不重复登记）
+        if (previous == null || !Objects.equals(previous.getPestId(), prediction.getPestId())) {
+            if (previous != null && previous.getPestId() != null && t.pestIdIndex.containsKey(previous.getPestId())) {
+                t.pestIdIndex.get(previous.getPestId()).remove(prediction.getId());
+            }
+            t.pestIdIndex.computeIfAbsent(prediction.getPestId(), k -> new ArrayList<>()).add(prediction.getId());
+        }
+        
+        // 更新日期索引
+        reindex(t.predictionDateIndex, t.indexedPredictionDates, prediction.getId(), prediction.getPredictionDate());
+        reindex(t.predictionAreaIndex, t.indexedPredictionAreas, prediction.getId(), prediction.getTargetArea());
+        
+        EntityReferences.register(references, prediction);
     }
     
     public Optional<PestPrediction> findPredictionById(String id) {
-        return Optional.ofNullable(predictions.get(id));
+        return Optional.ofNullable(tables.predictions.get(id));
     }
     
     public List<PestPrediction> findAllPredictions() {
-        return new ArrayList<>(predictions.values());
+        return new ArrayList<>(tables.predictions.values());
+    }
+    
+    /**
+     * 遍历所有预测记录，不复制集合，供流式导出使用；遍历期间的并发修改可能可见
+     */
+    public Iterable<PestPrediction> iterateAllPredictions() {
+        return Collections.unmodifiableCollection(tables.predictions.values());
     }
     
     public List<PestPrediction> findPredictionsByPestId(String pestId) {
-        List<String> ids = pestIdIndex.get(pestId);
+        Tables t = tables;
+        List<String> ids = t.pestIdIndex.get(pestId);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(predictions::get)
+                .map(t.predictions::get)
                 .filter(prediction -> prediction != null)
                 .collect(Collectors.toList());
     }
     
     public List<PestPrediction> findPredictionsByRiskLevel(String riskLevel) {
-        return predictions.values().stream()
+        return tables.predictions.values().stream()
                 .filter(prediction -> riskLevel.equals(prediction.getRiskLevel()))
                 .collect(Collectors.toList());
     }
     
     public List<PestPrediction> findPredictionsByTargetArea(String targetArea) {
-        return predictions.values().stream()
-                .filter(prediction -> targetArea.equals(prediction.getTargetArea()))
-                .collect(Collectors.toList());
+        return findPredictionsByTargetAreas(List.of(targetArea));
+    }
+    
+    /**
+     * 查找目标区域属于给定集合的预测记录
+     */
+    public List<PestPrediction> findPredictionsByTargetAreas(Collection<String> targetAreas) {
+        Tables t = tables;
+        return collectByKeys(t.predictionAreaIndex, targetAreas, t.predictions);
     }
     
     public List<PestPrediction> findPredictionsByDateRange(LocalDate startDate, LocalDate endDate) {
-        return predictions.values().stream()
-                .filter(prediction -> !prediction.getPredictionDate().isBefore(startDate) &&
-                                    !prediction.getPredictionDate().isAfter(endDate))
-                .collect(Collectors.toList());
+        Tables t = tables;
+        if (startDate.isAfter(endDate)) {
+            return new ArrayList<>();
+        }
+        return collect(t.predictionDateIndex.subMap(startDate, true, endDate, true), t.predictions);
+    }
+    
+    /**
+     * 查找预测日期早于指定日期的预测记录，按日期升序
+     */
+    public List<PestPrediction> findPredictionsBefore(LocalDate date) {
+        Tables t = tables;
+        return collect(t.predictionDateIndex.headMap(date, false), t.predictions);
+    }
+    
+    /**
+     * 删除预测日期早于指定日期的预测记录及其预警，只访问过期的日期桶
+     */
+    public List<PestPrediction> removePredictionsBefore(LocalDate date) {
+        Tables t = tables;
+        List<PestPrediction> removed = new ArrayList<>();
+        Map.Entry<LocalDate, Set<String>> bucket;
+        while ((bucket = t.predictionDateIndex.firstEntry()) != null && bucket.getKey().isBefore(date)) {
+            if (!t.predictionDateIndex.remove(bucket.getKey(), bucket.getValue())) {
+                continue;
+            }
+            for (String id : bucket.getValue()) {
+                PestPrediction prediction = t.predictions.get(id);
+                if (prediction != null) {
+                    deletePredictionById(id);
+                    removed.add(prediction);
+                }
+            }
+        }
+        return removed;
     }
     
     public void deletePredictionById(String id) {
-        PestPrediction prediction = predictions.remove(id);
+        Tables t = tables;
+        PestPrediction prediction = t.predictions.remove(id);
         if (prediction != null) {
+            EntityReferences.unregister(references, EntityType.PREDICTION, id);
             // 清理索引
-            List<String> pestIds = pestIdIndex.get(prediction.getPestId());
+            List<String> pestIds = t.pestIdIndex.get(prediction.getPestId());
             if (pestIds != null) {
                 pestIds.remove(id);
             }
+            unindex(t.predictionDateIndex, t.indexedPredictionDates, id);
+            unindex(t.predictionAreaIndex, t.indexedPredictionAreas, id);
             
             // 删除相关预警
-            List<String> alertIds = predictionAlertIndex.get(id);
+            List<String> alertIds = t.predictionAlertIndex.get(id);
             if (alertIds != null) {
-                alertIds.forEach(alerts::remove);
-                predictionAlertIndex.remove(id);
+                alertIds.forEach(alertId -> {
+                    t.alerts.remove(alertId);
+                    unindex(t.alertDateIndex, t.indexedAlertDates, alertId);
+                    unindex(t.alertAreaIndex, t.indexedAlertAreas, alertId);
+                    trackActiveAlert(t, alertId, null);
+                });
+                t.predictionAlertIndex.remove(id);
             }
         }
     }
     
     // PestAlert methods
     public void saveAlert(PestAlert alert) {
-        alerts.put(alert.getId(), alert);
+        Tables t = tables;
+        PestAlert previous = t.alerts.put(alert.getId(), alert);
         
-        // 更新预测预警索引
-        if (alert.getPredictionId() != null) {
-            predictionAlertIndex.computeIfAbsent(alert.getPredictionId(), k -> new ArrayList<>()).add(alert.getId());
+        // 更新预测预警索引（重复保存时不重复登记）
+        if (previous == null && alert.getPredictionId() != null) {
+            t.predictionAlertIndex.computeIfAbsent(alert.getPredictionId(), k -> new ArrayList<>()).add(alert.getId());
         }
+        
+        // 更新创建日期索引
+        LocalDateTime createdTime = alert.getCreatedTime() != null ? alert.getCreatedTime() : alert.getAlertTime();
+        reindex(t.alertDateIndex, t.indexedAlertDates, alert.getId(),
+                createdTime != null ? createdTime.toLocalDate() : null);
+        reindex(t.alertAreaIndex, t.indexedAlertAreas, alert.getId(), alert.getTargetArea());
+        trackActiveAlert(t, alert.getId(), "ACTIVE".equals(alert.getStatus()) ? alert.getTargetArea() : null);
     }
     
     public Optional<PestAlert> findAlertById(String id) {
-        return Optional.ofNullable(alerts.get(id));
+        return Optional.ofNullable(tables.alerts.get(id));
     }
     
     public List<PestAlert> findAllAlerts() {
-        return new ArrayList<>(alerts.values());
+        return new ArrayList<>(tables.alerts.values());
+    }
+    
+    /**
+     * 遍历所有预警记录，不复制集合，供流式导出使用；遍历期间的并发修改可能可见
+     */
+    public Iterable<PestAlert> iterateAllAlerts() {
+        return Collections.unmodifiableCollection(tables.alerts.values());
     }
     
     public List<PestAlert> findAlertsByPredictionId(String predictionId) {
-        List<String> ids = predictionAlertIndex.get(predictionId);
+        Tables t = tables;
+        List<String> ids = t.predictionAlertIndex.get(predictionId);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(alerts::get)
+                .map(t.alerts::get)
                 .filter(alert -> alert != null)
                 .collect(Collectors.toList());
     }
     
+    public List<PestAlert> findAlertsByTargetArea(String targetArea) {
+        return findAlertsByTargetAreas(List.of(targetArea));
+    }
+    
+    /**
+     * 查找目标区域属于给定集合的预警记录
+     */
+    public List<PestAlert> findAlertsByTargetAreas(Collection<String> targetAreas) {
+        Tables t = tables;
+        return collectByKeys(t.alertAreaIndex, targetAreas, t.alerts);
+    }
+    
     public List<PestAlert> findAlertsByLevel(String alertLevel) {
-        return alerts.values().stream()
+        return tables.alerts.values().stream()
                 .filter(alert -> alertLevel.equals(alert.getAlertLevel()))
                 .collect(Collectors.toList());
     }
     
     public List<PestAlert> findAlertsByStatus(String status) {
-        return alerts.values().stream()
+        return tables.alerts.values().stream()
                 .filter(alert -> status.equals(alert.getStatus()))
                 .collect(Collectors.toList());
     }
     
+    /**
+     * 按创建时间范围查找预警记录
+     */
+    public List<PestAlert> findAlertsByCreatedTimeBetween(LocalDateTime startTime, LocalDateTime endTime) {
+        Tables t = tables;
+        if (startTime.isAfter(endTime)) {
+            return new ArrayList<>();
+        }
+        return collect(t.alertDateIndex.subMap(startTime.toLocalDate(), true, endTime.toLocalDate(), true), t.alerts).stream()
+                .filter(alert -> alert.getCreatedTime() != null &&
+                               !alert.getCreatedTime().isBefore(startTime) &&
+                               !alert.getCreatedTime().isAfter(endTime))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 删除创建时间早于指定时间的预警记录
+     * 早于当天的日期桶整桶移除，只有边界当天的桶需要逐条比较
+     */
+    public List<PestAlert> removeAlertsCreatedBefore(LocalDateTime time) {
+        Tables t = tables;
+        List<PestAlert> removed = new ArrayList<>();
+        LocalDate boundary = time.toLocalDate();
+        
+        Map.Entry<LocalDate, Set<String>> bucket;
+        while ((bucket = t.alertDateIndex.firstEntry()) != null && bucket.getKey().isBefore(boundary)) {
+            if (!t.alertDateIndex.remove(bucket.getKey(), bucket.getValue())) {
+                continue;
+            }
+            for (String id : bucket.getValue()) {
+                PestAlert alert = t.alerts.get(id);
+                if (alert != null) {
+                    deleteAlertById(id);
+                    removed.add(alert);
+                }
+            }
+        }
+        
+        Set<String> boundaryBucket = t.alertDateIndex.get(boundary);
+        if (boundaryBucket != null) {
+            for (String id : new ArrayList<>(boundaryBucket)) {
+                PestAlert alert = t.alerts.get(id);
+                if (alert != null && alert.getCreatedTime() != null && alert.getCreatedTime().isBefore(time)) {
+                    deleteAlertById(id);
+                    removed.add(alert);
+                }
+            }
+        }
+        return removed;
+    }
+    
     public void deleteAlertById(String id) {
-        PestAlert alert = alerts.remove(id);
+        Tables t = tables;
+        PestAlert alert = t.alerts.remove(id);
         if (alert != null) {
             // 清理索引
             if (alert.getPredictionId() != null) {
-                List<String> alertIds = predictionAlertIndex.get(alert.getPredictionId());
+                List<String> alertIds = t.predictionAlertIndex.get(alert.getPredictionId());
                 if (alertIds != null) {
                     alertIds.remove(id);
                 }
             }
+            unindex(t.alertDateIndex, t.indexedAlertDates, id);
+            unindex(t.alertAreaIndex, t.indexedAlertAreas, id);
+            trackActiveAlert(t, id, null);
+        }
+    }
+    
+    /**
+     * 批量装载，整体替换全部预测和预警
+     * 日期索引先在有序表中分组，再一次性构建跳表；活跃预警按区域汇总变化后通知监听方
+     */
+    public void bulkLoad(Collection<PestPrediction> predictionBatch, Collection<PestAlert> alertBatch) {
+        Map<String, PestPrediction> loadedPredictions = StorageIndexes.primary(predictionBatch, PestPrediction::getId);
+        Map<String, PestAlert> loadedAlerts = StorageIndexes.primary(alertBatch, PestAlert::getId);
+        
+        Map<String, LocalDate> predictionDates = new ConcurrentHashMap<>(loadedPredictions.size());
+        Map<String, String> predictionAreas = new ConcurrentHashMap<>(loadedPredictions.size());
+        NavigableMap<LocalDate, Set<String>> predictionDateBuckets = buckets(new TreeMap<>(), predictionDates,
+                loadedPredictions.values(), PestPrediction::getId, PestPrediction::getPredictionDate);
+        Map<String, Set<String>> predictionAreaBuckets = buckets(new HashMap<>(), predictionAreas,
+                loadedPredictions.values(), PestPrediction::getId, PestPrediction::getTargetArea);
+        
+        Map<String, LocalDate> alertDates = new ConcurrentHashMap<>(loadedAlerts.size());
+        Map<String, String> alertAreas = new ConcurrentHashMap<>(loadedAlerts.size());
+        Map<String, String> activeAreas = new ConcurrentHashMap<>();
+        NavigableMap<LocalDate, Set<String>> alertDateBuckets = buckets(new TreeMap<>(), alertDates,
+                loadedAlerts.values(), PestAlert::getId, alert -> {
+                    LocalDateTime createdTime = alert.getCreatedTime() != null ? alert.getCreatedTime() : alert.getAlertTime();
+                    return createdTime != null ? createdTime.toLocalDate() : null;
+                });
+        Map<String, Set<String>> alertAreaBuckets = buckets(new HashMap<>(), alertAreas,
+                loadedAlerts.values(), PestAlert::getId, PestAlert::getTargetArea);
+        loadedAlerts.values().stream()
+                .filter(alert -> "ACTIVE".equals(alert.getStatus()) && alert.getTargetArea() != null)
+                .forEach(alert -> activeAreas.put(alert.getId(), alert.getTargetArea()));
+        
+        Tables loaded = new Tables(loadedPredictions, loadedAlerts,
+                StorageIndexes.group(loadedPredictions, predictionBatch, PestPrediction::getPestId, PestPrediction::getId),
+                StorageIndexes.group(loadedAlerts, alertBatch, PestAlert::getPredictionId, PestAlert::getId),
+                new ConcurrentSkipListMap<>(predictionDateBuckets), predictionDates,
+                new ConcurrentSkipListMap<>(alertDateBuckets), alertDates,
+                new ConcurrentHashMap<>(predictionAreaBuckets), predictionAreas,
+                new ConcurrentHashMap<>(alertAreaBuckets), alertAreas,
+                activeAreas);
+        Map<String, String> previousActive = tables.activeAlertAreas;
+        tables = loaded;
+        EntityReferences.unregisterAll(references, EntityType.PREDICTION);
+        loadedPredictions.values().forEach(prediction -> EntityReferences.register(references, prediction));
+        
+        BiConsumer<String, Integer> listener = activeAlertListener;
+        if (listener != null) {
+            Map<String, Integer> deltas = new HashMap<>();
+            previousActive.values().forEach(area -> deltas.merge(area, -1, Integer::sum));
+            activeAreas.values().forEach(area -> deltas.merge(area, 1, Integer::sum));
+            deltas.forEach((area, delta) -> {
+                if (delta != 0) {
+                    listener.accept(area, delta);
+                }
+            });
         }
     }
     
     public void clear() {
-        predictions.clear();
-        alerts.clear();
-        pestIdIndex.clear();
-        predictionAlertIndex.clear();
+        EntityReferences.unregisterAll(references, EntityType.PREDICTION);
+        Tables t = tables;
+        tables = new Tables();
+        new ArrayList<>(t.activeAlertAreas.keySet()).forEach(id -> trackActiveAlert(t, id, null));
     }
     
     public int predictionCount() {
-        return predictions.size();
+        return tables.predictions.size();
     }
     
     public int alertCount() {
-        return alerts.size();
+        return tables.alerts.size();
+    }
+    
+    private void trackActiveAlert(Tables t, String id, String targetArea) {
+        String previous = targetArea != null ? t.activeAlertAreas.put(id, targetArea) : t.activeAlertAreas.remove(id);
+        BiConsumer<String, Integer> listener = activeAlertListener;
+        if (listener == null || Objects.equals(previous, targetArea)) {
+            return;
+        }
+        if (previous != null) {
+            listener.accept(previous, -1);
+        }
+        if (targetArea != null) {
+            listener.accept(targetArea, 1);
+        }
+    }
+    
+    // 分桶索引维护，indexedKeys记录每条记录当前所在的桶
+    
+    private static <K> void reindex(Map<K, Set<String>> index, Map<String, K> indexedKeys, String id, K key) {
+        K previous = key != null ? indexedKeys.put(id, key) : indexedKeys.remove(id);
+        if (previous != null && !previous.equals(key)) {
+            removeFromBucket(index, previous, id);
+        }
+        if (key != null) {
+            index.compute(key, (k, ids) -> {
+                Set<String> bucket = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                bucket.add(id);
+                return bucket;
+            });
+        }
+    }
+    
+    private static <T, K, M extends Map<K, Set<String>>> M buckets(M index, Map<String, K> indexedKeys,
+                                                                  Collection<T> items, Function<T, String> idOf,
+                                                                  Function<T, K> keyOf) {
+        for (T item : items) {
+            K key = keyOf.apply(item);
+            if (key != null) {
+                String id = idOf.apply(item);
+                indexedKeys.put(id, key);
+                index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+        return index;
+    }
+    
+    private static <K> void unindex(Map<K, Set<String>> index, Map<String, K> indexedKeys, String id) {
+        K key = indexedKeys.remove(id);
+        if (key != null) {
+            removeFromBucket(index, key, id);
+        }
+    }
+    
+    private static <K> void removeFromBucket(Map<K, Set<String>> index, K key, String id) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+    
+    private static <T> List<T> collectByKeys(Map<String, Set<String>> index, Collection<String> keys, Map<String, T> source) {
+        List<T> result = new ArrayList<>();
+        for (String key : new LinkedHashSet<>(keys)) {
+            Set<String> ids = key != null ? index.get(key) : null;
+            if (ids == null) {
+                continue;
+            }
+            for (String id : ids) {
+                T item = source.get(id);
+                if (item != null) {
+                    result.add(item);
+                }
+            }
+        }
+        return result;
+    }
+    
+    private static <T> List<T> collect(NavigableMap<LocalDate, Set<String>> buckets, Map<String, T> source) {
+        List<T> result = new ArrayList<>();
+        for (Set<String> ids : buckets.values()) {
+            for (String id : ids) {
+                T item = source.get(id);
+                if (item != null) {
+                    result.add(item);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 预测、预警主表和索引，indexed*记录每条记录当前所在的桶
+     */
+    private static final class Tables {
+        private final Map<String, PestPrediction> predictions;
+        private final Map<String, PestAlert> alerts;
+        private final Map<String, List<String>> pestIdIndex;
+        private final Map<String, List<String>> predictionAlertIndex;
+        // 按预测日期排序的索引，过期清理时整桶移除
+        private final NavigableMap<LocalDate, Set<String>> predictionDateIndex;
+        private final Map<String, LocalDate> indexedPredictionDates;
+        // 按预警创建日期排序的索引
+        private final NavigableMap<LocalDate, Set<String>> alertDateIndex;
+        private final Map<String, LocalDate> indexedAlertDates;
+        // 目标区域索引，供按区域和空间范围查询
+        private final Map<String, Set<String>> predictionAreaIndex;
+        private final Map<String, String> indexedPredictionAreas;
+        private final Map<String, Set<String>> alertAreaIndex;
+        private final Map<String, String> indexedAlertAreas;
+        // 活跃预警的目标区域
+        private final Map<String, String> activeAlertAreas;
+        
+        private Tables() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                    new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>(),
+                    new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>(),
+                    new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                    new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                    new ConcurrentHashMap<>());
+        }
+        
+        private Tables(Map<String, PestPrediction> predictions, Map<String, PestAlert> alerts,
+                       Map<String, List<String>> pestIdIndex, Map<String, List<String>> predictionAlertIndex,
+                       NavigableMap<LocalDate, Set<String>> predictionDateIndex, Map<String, LocalDate> indexedPredictionDates,
+                       NavigableMap<LocalDate, Set<String>> alertDateIndex, Map<String, LocalDate> indexedAlertDates,
+                       Map<String, Set<String>> predictionAreaIndex, Map<String, String> indexedPredictionAreas,
+                       Map<String, Set<String>> alertAreaIndex, Map<String, String> indexedAlertAreas,
+                       Map<String, String> activeAlertAreas) {
+            this.predictions = predictions;
+            this.alerts = alerts;
+            this.pestIdIndex = pestIdIndex;
+            this.predictionAlertIndex = predictionAlertIndex;
+            this.predictionDateIndex = predictionDateIndex;
+            this.indexedPredictionDates = indexedPredictionDates;
+            this.alertDateIndex = alertDateIndex;
+            this.indexedAlertDates = indexedAlertDates;
+            this.predictionAreaIndex = predictionAreaIndex;
+            this.indexedPredictionAreas = indexedPredictionAreas;
+            this.alertAreaIndex = alertAreaIndex;
+            this.indexedAlertAreas = indexedAlertAreas;
+            this.activeAlertAreas = activeAlertAreas;
+        }
     }
-}
\ No newline at end of file
+}
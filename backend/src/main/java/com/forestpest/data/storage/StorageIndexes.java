@@ -0,0 +1,64 @@
+package com.forestpest.data.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 存储索引的批量维护
+ * 先在本地按索引键分组，再对每个键合并一次，避免逐条写入时反复查找和扩容索引列表；
+ * 批量装载时一次遍历建好预分配容量的主表和索引，存储类把主表和索引放进同一个快照对象，
+ * 通过一次volatile写整体发布，读操作先取快照再访问，不会读到新主表配旧索引；
+ * 装载用于启动和快照导入，期间的并发写入不保证保留。
+ */
+final class StorageIndexes {
+
+    private StorageIndexes() {
+    }
+
+    /**
+     * 将一批实体的ID按索引键追加到索引中，键为null的实体不进入索引
+     */
+    static <T> void appendAll(Map<String, List<String>> index, Collection<T> items,
+                              Function<T, String> keyOf, Function<T, String> idOf) {
+        Map<String, List<String>> groups = new HashMap<>();
+        for (T item : items) {
+            String key = keyOf.apply(item);
+            if (key != null) {
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(idOf.apply(item));
+            }
+        }
+        groups.forEach((key, ids) -> index.computeIfAbsent(key, k -> new ArrayList<>(ids.size())).addAll(ids));
+    }
+
+    /**
+     * 建立预分配容量的主表，ID重复时以后出现的为准
+     */
+    static <T> Map<String, T> primary(Collection<T> items, Function<T, String> idOf) {
+        Map<String, T> table = new ConcurrentHashMap<>(items.size());
+        for (T item : items) {
+            table.put(idOf.apply(item), item);
+        }
+        return table;
+    }
+
+    /**
+     * 按索引键分组建立新索引，只收录主表中保留的实体，列表内保持输入顺序
+     */
+    static <T> Map<String, List<String>> group(Map<String, T> primary, Collection<T> items,
+                                               Function<T, String> keyOf, Function<T, String> idOf) {
+        Map<String, List<String>> groups = new HashMap<>();
+        for (T item : items) {
+            String id = idOf.apply(item);
+            String key = keyOf.apply(item);
+            if (key != null && primary.get(id) == item) {
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(id);
+            }
+        }
+        return new ConcurrentHashMap<>(groups);
+    }
+}
@@ -0,0 +1,166 @@
+package com.forestpest.data.storage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 防治任务进度计数
+ * 按归并后的任务状态计数并累计实际费用；用户级计数另外记录方案数和全部任务已完成的方案数。
+ * 实例不可变，存储在写入时整体替换，读取时直接返回当前实例。
+ */
+public final class TaskProgress {
+
+    /**
+     * 归并后的任务状态，中英文状态值对应到同一项
+     */
+    public enum Status {
+        PENDING, ASSIGNED, IN_PROGRESS, COMPLETED, CANCELLED, OTHER;
+
+        private static final Status[] VALUES = values();
+
+        public static Status of(String status) {
+            if (status == null) {
+                return OTHER;
+            }
+            switch (status) {
+                case "PENDING":
+                case "待执行":
+                    return PENDING;
+                case "ASSIGNED":
+                case "已分配":
+                    return ASSIGNED;
+                case "IN_PROGRESS":
+                case "执行中":
+                case "进行中":
+                    return IN_PROGRESS;
+                case "COMPLETED":
+                case "已完成":
+                    return COMPLETED;
+                case "CANCELLED":
+                case "已取消":
+                    return CANCELLED;
+                default:
+                    return OTHER;
+            }
+        }
+    }
+
+    public static final TaskProgress EMPTY = new TaskProgress(new long[Status.VALUES.length], 0, 0.0, 0, 0);
+
+    private final long[] counts;
+    private final long totalTasks;
+    private final double actualCost;
+    private final int plans;
+    private final int completedPlans;
+
+    private TaskProgress(long[] counts, long totalTasks, double actualCost, int plans, int completedPlans) {
+        this.counts = counts;
+        this.totalTasks = totalTasks;
+        this.actualCost = actualCost;
+        this.plans = plans;
+        this.completedPlans = completedPlans;
+    }
+
+    /**
+     * 单个任务的计数
+     */
+    static TaskProgress ofTask(String status, Double actualCost) {
+        long[] counts = new long[Status.VALUES.length];
+        counts[Status.of(status).ordinal()] = 1;
+        return new TaskProgress(counts, 1, actualCost != null ? actualCost : 0.0, 0, 0);
+    }
+
+    /**
+     * 加上（sign为1）或减去（sign为-1）另一份任务计数
+     */
+    TaskProgress add(TaskProgress delta, int sign) {
+        long[] sum = counts.clone();
+        for (int i = 0; i < sum.length; i++) {
+            sum[i] += sign * delta.counts[i];
+        }
+        return new TaskProgress(sum, totalTasks + sign * delta.totalTasks, actualCost + sign * delta.actualCost,
+                plans, completedPlans);
+    }
+
+    /**
+     * 把一个方案的任务计数并入（sign为1）或移出（sign为-1）用户计数
+     */
+    TaskProgress addPlan(TaskProgress plan, int sign) {
+        TaskProgress sum = add(plan, sign);
+        return new TaskProgress(sum.counts, sum.totalTasks, sum.actualCost,
+                plans + sign, completedPlans + (plan.isComplete() ? sign : 0));
+    }
+
+    boolean isEmpty() {
+        return totalTasks == 0 && plans == 0;
+    }
+
+    /**
+     * 批量累加的任务计数，累加完成后一次生成计数实例
+     */
+    static final class Sum {
+        private final long[] counts = new long[Status.VALUES.length];
+        private long totalTasks;
+        private double actualCost;
+
+        void add(String status, Double cost, int sign) {
+            counts[Status.of(status).ordinal()] += sign;
+            totalTasks += sign;
+            if (cost != null) {
+                actualCost += sign * cost;
+            }
+        }
+
+        TaskProgress toProgress() {
+            return new TaskProgress(counts.clone(), totalTasks, actualCost, 0, 0);
+        }
+    }
+
+    public long getCount(Status status) {
+        return counts[status.ordinal()];
+    }
+
+    public long getTotalTasks() {
+        return totalTasks;
+    }
+
+    public long getCompletedTasks() {
+        return counts[Status.COMPLETED.ordinal()];
+    }
+
+    public double getProgressPercentage() {
+        return totalTasks > 0 ? (double) getCompletedTasks() / totalTasks * 100 : 0.0;
+    }
+
+    /**
+     * 有任务且全部已完成
+     */
+    public boolean isComplete() {
+        return totalTasks > 0 && getCompletedTasks() == totalTasks;
+    }
+
+    public double getActualCost() {
+        return actualCost;
+    }
+
+    public int getPlans() {
+        return plans;
+    }
+
+    public int getCompletedPlans() {
+        return completedPlans;
+    }
+
+    /**
+     * 计数不为零的状态
+     */
+    public Map<String, Long> getStatusCounts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Status status : Status.VALUES) {
+            if (counts[status.ordinal()] != 0) {
+                result.put(status.name(), counts[status.ordinal()]);
+            }
+        }
+        return result;
+    }
+}
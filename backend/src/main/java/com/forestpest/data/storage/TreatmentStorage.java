@@ -2,145 +2,766 @@ package com.forestpest.data.storage;
 
 import com.forestpest.entity.TreatmentPlan;
 import com.forestpest.entity.TreatmentTask;
+import com.forestpest.data.index.ReferenceIndex;
+import com.forestpest.data.index.ReferenceIndex.EntityType;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * 防治方案和任务数据存储
+ * 方案按创建人和状态、任务按执行人、创建人和状态维护按创建时间倒序的索引，
+ * 按人员或状态查询时只读取对应索引，支持只遍历到所需页为止。
+ * 方案、方案创建人和全系统的任务进度计数随索引一起增量更新，进度查询直接读取当前计数；
+ * 批量保存任务时索引按键分组合并，计数按方案汇总后每批更新一次。
+ * 实体对象修改后需要重新保存，索引和计数按保存时记录的字段快照回退。
+ * 任务每次保存版本号加一；状态流转复制当前任务修改后用compareAndSetTask替换，已发布的任务对象不再修改。
  */
 @Component
 public class TreatmentStorage {
     
-    private final Map<String, TreatmentPlan> treatmentPlans = new ConcurrentHashMap<>();
-    private final Map<String, TreatmentTask> treatmentTasks = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> pestIdIndex = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> planTaskIndex = new ConcurrentHashMap<>();
+    // 新的在前；时间相同按ID倒序，保证顺序稳定
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator
+            .comparing((Entry entry) -> entry.time, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(entry -> entry.id, Comparator.reverseOrder());
+    
+    // 主表、索引和进度计数，批量装载时整体替换
+    private volatile Tables tables = new Tables();
+    
+    private volatile ReferenceIndex references;
+    
+    // 任务状态变化监听，在存储锁内调用，监听方不应阻塞
+    private volatile BiConsumer<String, String> taskStatusListener;
+    
+    public void setReferenceIndex(ReferenceIndex references) {
+        this.references = references;
+    }
+    
+    /**
+     * 设置任务状态变化监听，参数为任务ID和新状态；任务删除时新状态为null
+     */
+    public void setTaskStatusListener(BiConsumer<String, String> taskStatusListener) {
+        this.taskStatusListener = taskStatusListener;
+    }
     
     // TreatmentPlan methods
-    public void savePlan(TreatmentPlan plan) {
-        treatmentPlans.put(plan.getId(), plan);
+    public synchronized void savePlan(TreatmentPlan plan) {
+        Tables t = tables;
+        Entry previous = t.planEntries.get(plan.getId());
+        if (previous != null) {
+            unindexPlan(t, previous);
+        }
+        t.treatmentPlans.put(plan.getId(), plan);
+        indexPlan(t, Entry.of(plan));
         
-        // 更新病虫害ID索引
-        pestIdIndex.computeIfAbsent(plan.getPestId(), k -> new ArrayList<>()).add(plan.getId());
+        EntityReferences.register(references, plan);
+    }
+    
+    /**
+     * 批量保存方案
+     */
+    public synchronized void saveAllPlans(Collection<TreatmentPlan> batch) {
+        Tables t = tables;
+        Map<String, TreatmentPlan> byId = new HashMap<>(batch.size() * 2);
+        batch.forEach(plan -> byId.put(plan.getId(), plan));
+        for (String id : byId.keySet()) {
+            Entry previous = t.planEntries.get(id);
+            if (previous != null) {
+                unindexPlan(t, previous);
+            }
+        }
+        t.treatmentPlans.putAll(byId);
+        byId.values().forEach(plan -> indexPlan(t, Entry.of(plan)));
+        byId.values().forEach(plan -> EntityReferences.register(references, plan));
+    }
+    
+    /**
+     * 批量装载，整体替换全部方案，任务不受影响
+     * 有序索引先在本地排好序再一次性构建跳表，沿用当前的任务表，重建进度后一次发布
+     */
+    public synchronized void bulkLoadPlans(Collection<TreatmentPlan> batch) {
+        Tables t = tables;
+        Map<String, TreatmentPlan> loaded = StorageIndexes.primary(batch, TreatmentPlan::getId);
+        Map<String, Entry> entries = new ConcurrentHashMap<>(loaded.size());
+        loaded.values().forEach(plan -> entries.put(plan.getId(), Entry.of(plan)));
+        Tables next = new Tables(loaded, entries,
+                StorageIndexes.group(loaded, batch, TreatmentPlan::getPestId, TreatmentPlan::getId),
+                ordered(entries.values(), entry -> entry.createdBy),
+                ordered(entries.values(), entry -> entry.status),
+                t.treatmentTasks, t.taskEntries, t.planTaskIndex,
+                t.taskAssigneeIndex, t.taskCreatorIndex, t.taskStatusIndex);
+        rebuildProgress(next);
+        tables = next;
+        EntityReferences.unregisterAll(references, EntityType.TREATMENT_PLAN);
+        loaded.values().forEach(plan -> EntityReferences.register(references, plan));
     }
     
     public Optional<TreatmentPlan> findPlanById(String id) {
-        return Optional.ofNullable(treatmentPlans.get(id));
+        return Optional.ofNullable(tables.treatmentPlans.get(id));
     }
     
     public List<TreatmentPlan> findAllPlans() {
-        return new ArrayList<>(treatmentPlans.values());
+        return new ArrayList<>(tables.treatmentPlans.values());
+    }
+    
+    /**
+     * 遍历所有防治方案，不复制集合，供流式导出使用；遍历期间的并发修改可能可见
+     */
+    public Iterable<TreatmentPlan> iterateAllPlans() {
+        return Collections.unmodifiableCollection(tables.treatmentPlans.values());
     }
     
     public List<TreatmentPlan> findPlansByPestId(String pestId) {
-        List<String> ids = pestIdIndex.get(pestId);
+        Tables t = tables;
+        List<String> ids = t.pestIdIndex.get(pestId);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(treatmentPlans::get)
+                .map(t.treatmentPlans::get)
                 .filter(plan -> plan != null)
                 .collect(Collectors.toList());
     }
     
+    /**
+     * 指定状态的方案，按创建时间倒序
+     */
     public List<TreatmentPlan> findPlansByStatus(String status) {
-        return treatmentPlans.values().stream()
-                .filter(plan -> status.equals(plan.getStatus()))
-                .collect(Collectors.toList());
+        Tables t = tables;
+        return page(t.planStatusIndex.get(status), t.treatmentPlans, 0, Integer.MAX_VALUE);
     }
     
     public List<TreatmentPlan> findPlansByPriority(String priority) {
-        return treatmentPlans.values().stream()
+        return tables.treatmentPlans.values().stream()
                 .filter(plan -> priority.equals(plan.getPriority()))
                 .collect(Collectors.toList());
     }
     
-    public void deletePlanById(String id) {
-        TreatmentPlan plan = treatmentPlans.remove(id);
+    /**
+     * 用户创建的方案，按创建时间倒序
+     */
+    public List<TreatmentPlan> findPlansByCreatedBy(String createdBy) {
+        return findPlansByCreatedBy(createdBy, 0, Integer.MAX_VALUE);
+    }
+    
+    public List<TreatmentPlan> findPlansByCreatedBy(String createdBy, int page, int size) {
+        Tables t = tables;
+        return page(t.planCreatorIndex.get(createdBy), t.treatmentPlans, page, size);
+    }
+    
+    /**
+     * 创建过方案的用户数
+     */
+    public int planCreatorCount() {
+        return tables.planCreatorIndex.size();
+    }
+    
+    public synchronized void deletePlanById(String id) {
+        Tables t = tables;
+        TreatmentPlan plan = t.treatmentPlans.remove(id);
         if (plan != null) {
-            // 清理索引
-            List<String> pestIds = pestIdIndex.get(plan.getPestId());
-            if (pestIds != null) {
-                pestIds.remove(id);
-            }
+            EntityReferences.unregister(references, EntityType.TREATMENT_PLAN, id);
+            unindexPlan(t, t.planEntries.get(id));
             
             // 删除相关任务
-            List<String> taskIds = planTaskIndex.get(id);
+            List<String> taskIds = t.planTaskIndex.remove(id);
             if (taskIds != null) {
-                taskIds.forEach(treatmentTasks::remove);
-                planTaskIndex.remove(id);
+                for (String taskId : taskIds) {
+                    t.treatmentTasks.remove(taskId);
+                    Entry entry = t.taskEntries.get(taskId);
+                    unindexTask(t, entry);
+                    EntityReferences.unregister(references, EntityType.TREATMENT_TASK, taskId);
+                    notifyTaskStatus(entry, null);
+                }
             }
         }
     }
     
     // TreatmentTask methods
-    public void saveTask(TreatmentTask task) {
-        treatmentTasks.put(task.getId(), task);
-        
-        // 更新方案任务索引
-        planTaskIndex.computeIfAbsent(task.getPlanId(), k -> new ArrayList<>()).add(task.getId());
+    public synchronized void saveTask(TreatmentTask task) {
+        Tables t = tables;
+        TreatmentTask current = t.treatmentTasks.get(task.getId());
+        if (current != null) {
+            task.setVersion(versionOf(current) + 1);
+        } else if (task.getVersion() == null) {
+            task.setVersion(0L);
+        }
+        storeTask(t, task);
+    }
+    
+    /**
+     * 仅当当前保存的仍是expected这个实例时替换为updated，版本号在expected的基础上加一
+     * @return 是否替换成功，失败说明任务已被其他写入替换或删除
+     */
+    public synchronized boolean compareAndSetTask(TreatmentTask expected, TreatmentTask updated) {
+        Tables t = tables;
+        if (!expected.getId().equals(updated.getId()) || t.treatmentTasks.get(expected.getId()) != expected) {
+            return false;
+        }
+        updated.setVersion(versionOf(expected) + 1);
+        storeTask(t, updated);
+        return true;
+    }
+    
+    /**
+     * 批量按实例比较替换，键为读取到的任务、值为修改后的副本；只替换当前仍是该实例的任务，
+     * 版本号各自加一，索引和计数按批更新一次
+     * @return 替换成功的任务数
+     */
+    public synchronized int compareAndSetTasks(Map<TreatmentTask, TreatmentTask> updates) {
+        Tables t = tables;
+        List<TreatmentTask> accepted = new ArrayList<>(updates.size());
+        updates.forEach((expected, updated) -> {
+            if (expected.getId().equals(updated.getId()) && t.treatmentTasks.get(expected.getId()) == expected) {
+                accepted.add(updated);
+            }
+        });
+        if (!accepted.isEmpty()) {
+            saveAllTasks(accepted);
+        }
+        return accepted.size();
+    }
+    
+    /**
+     * 批量保存任务，索引先于主表写入
+     */
+    public synchronized void saveAllTasks(Collection<TreatmentTask> batch) {
+        Tables t = tables;
+        Map<String, TreatmentTask> byId = new HashMap<>(batch.size() * 2);
+        batch.forEach(task -> byId.put(task.getId(), task));
+        List<Entry> removed = new ArrayList<>();
+        List<Entry> added = new ArrayList<>(byId.size());
+        // 被替换的字段快照 -> 新快照，保存完成后通知状态变化
+        Map<Entry, Entry> replaced = new LinkedHashMap<>();
+        for (TreatmentTask task : byId.values()) {
+            TreatmentTask current = t.treatmentTasks.get(task.getId());
+            Entry entry = Entry.of(task);
+            if (current != null) {
+                task.setVersion(versionOf(current) + 1);
+                Entry previous = t.taskEntries.get(task.getId());
+                if (previous != null) {
+                    unlinkTask(t, previous);
+                    removed.add(previous);
+                    replaced.put(previous, entry);
+                }
+            } else if (task.getVersion() == null) {
+                task.setVersion(0L);
+            }
+            added.add(entry);
+        }
+        added.forEach(entry -> t.taskEntries.put(entry.id, entry));
+        StorageIndexes.appendAll(t.planTaskIndex, added, entry -> entry.group, entry -> entry.id);
+        addAllOrdered(t.taskAssigneeIndex, added, entry -> entry.assignedTo);
+        addAllOrdered(t.taskCreatorIndex, added, entry -> entry.createdBy);
+        addAllOrdered(t.taskStatusIndex, added, entry -> entry.status);
+        t.treatmentTasks.putAll(byId);
+        countTasks(t, removed, added);
+        byId.values().forEach(task -> EntityReferences.register(references, task));
+        replaced.forEach(this::notifyTaskStatus);
+    }
+    
+    /**
+     * 批量装载，整体替换全部任务，沿用当前的方案表，重建进度后一次发布
+     */
+    public synchronized void bulkLoadTasks(Collection<TreatmentTask> batch) {
+        Tables t = tables;
+        Map<String, TreatmentTask> loaded = StorageIndexes.primary(batch, TreatmentTask::getId);
+        Map<String, Entry> entries = new ConcurrentHashMap<>(loaded.size());
+        loaded.values().forEach(task -> entries.put(task.getId(), Entry.of(task)));
+        Tables next = new Tables(t.treatmentPlans, t.planEntries, t.pestIdIndex,
+                t.planCreatorIndex, t.planStatusIndex, loaded, entries,
+                StorageIndexes.group(loaded, batch, TreatmentTask::getPlanId, TreatmentTask::getId),
+                ordered(entries.values(), entry -> entry.assignedTo),
+                ordered(entries.values(), entry -> entry.createdBy),
+                ordered(entries.values(), entry -> entry.status));
+        rebuildProgress(next);
+        tables = next;
+        EntityReferences.unregisterAll(references, EntityType.TREATMENT_TASK);
+        loaded.values().forEach(task -> EntityReferences.register(references, task));
+        t.taskEntries.values().forEach(previous -> notifyTaskStatus(previous, entries.get(previous.id)));
     }
     
     public Optional<TreatmentTask> findTaskById(String id) {
-        return Optional.ofNullable(treatmentTasks.get(id));
+        return Optional.ofNullable(tables.treatmentTasks.get(id));
     }
     
     public List<TreatmentTask> findAllTasks() {
-        return new ArrayList<>(treatmentTasks.values());
+        return new ArrayList<>(tables.treatmentTasks.values());
+    }
+    
+    /**
+     * 遍历所有防治任务，不复制集合，供流式导出使用；遍历期间的并发修改可能可见
+     */
+    public Iterable<TreatmentTask> iterateAllTasks() {
+        return Collections.unmodifiableCollection(tables.treatmentTasks.values());
     }
     
     public List<TreatmentTask> findTasksByPlanId(String planId) {
-        List<String> ids = planTaskIndex.get(planId);
+        Tables t = tables;
+        List<String> ids = t.planTaskIndex.get(planId);
         if (ids == null) {
             return new ArrayList<>();
         }
         return ids.stream()
-                .map(treatmentTasks::get)
+                .map(t.treatmentTasks::get)
                 .filter(task -> task != null)
                 .collect(Collectors.toList());
     }
     
+    /**
+     * 指定状态的任务，按创建时间倒序
+     */
     public List<TreatmentTask> findTasksByStatus(String status) {
-        return treatmentTasks.values().stream()
-                .filter(task -> status.equals(task.getStatus()))
-                .collect(Collectors.toList());
+        Tables t = tables;
+        return page(t.taskStatusIndex.get(status), t.treatmentTasks, 0, Integer.MAX_VALUE);
     }
     
+    /**
+     * 分配给用户的任务，按创建时间倒序
+     */
     public List<TreatmentTask> findTasksByAssignedTo(String assignedTo) {
-        return treatmentTasks.values().stream()
-                .filter(task -> assignedTo.equals(task.getAssignedTo()))
-                .collect(Collectors.toList());
+        return findTasksByAssignedTo(assignedTo, 0, Integer.MAX_VALUE);
+    }
+    
+    public List<TreatmentTask> findTasksByAssignedTo(String assignedTo, int page, int size) {
+        Tables t = tables;
+        return page(t.taskAssigneeIndex.get(assignedTo), t.treatmentTasks, page, size);
+    }
+    
+    /**
+     * 用户创建的任务，按创建时间倒序
+     */
+    public List<TreatmentTask> findTasksByCreatedBy(String createdBy) {
+        return findTasksByCreatedBy(createdBy, 0, Integer.MAX_VALUE);
+    }
+    
+    public List<TreatmentTask> findTasksByCreatedBy(String createdBy, int page, int size) {
+        Tables t = tables;
+        return page(t.taskCreatorIndex.get(createdBy), t.treatmentTasks, page, size);
     }
     
-    public void deleteTaskById(String id) {
-        TreatmentTask task = treatmentTasks.remove(id);
+    public synchronized void deleteTaskById(String id) {
+        Tables t = tables;
+        TreatmentTask task = t.treatmentTasks.remove(id);
         if (task != null) {
-            // 清理索引
-            List<String> taskIds = planTaskIndex.get(task.getPlanId());
-            if (taskIds != null) {
-                taskIds.remove(id);
-            }
+            EntityReferences.unregister(references, EntityType.TREATMENT_TASK, id);
+            Entry entry = t.taskEntries.get(id);
+            unindexTask(t, entry);
+            notifyTaskStatus(entry, null);
         }
     }
     
-    public void clear() {
-        treatmentPlans.clear();
-        treatmentTasks.clear();
-        pestIdIndex.clear();
-        planTaskIndex.clear();
+    public synchronized void clear() {
+        EntityReferences.unregisterAll(references, EntityType.TREATMENT_TASK);
+        EntityReferences.unregisterAll(references, EntityType.TREATMENT_PLAN);
+        Tables t = tables;
+        tables = new Tables();
+        t.taskEntries.values().forEach(entry -> notifyTaskStatus(entry, null));
+    }
+    
+    /**
+     * 方案的任务进度
+     */
+    public TaskProgress getPlanProgress(String planId) {
+        return tables.planProgress.getOrDefault(planId, TaskProgress.EMPTY);
+    }
+    
+    /**
+     * 用户创建的全部方案的任务进度
+     */
+    public TaskProgress getUserProgress(String userId) {
+        return tables.userProgress.getOrDefault(userId, TaskProgress.EMPTY);
+    }
+    
+    public TaskProgress getSystemProgress() {
+        return tables.systemProgress;
+    }
+    
+    /**
+     * 按原始状态值统计的方案数
+     */
+    public Map<String, Long> getPlanStatusCounts() {
+        return new HashMap<>(tables.planStatusCounts);
+    }
+    
+    /**
+     * 按原始状态值统计的任务数
+     */
+    public Map<String, Long> getTaskStatusCounts() {
+        return new HashMap<>(tables.taskStatusCounts);
     }
     
     public int planCount() {
-        return treatmentPlans.size();
+        return tables.treatmentPlans.size();
     }
     
     public int taskCount() {
-        return treatmentTasks.size();
+        return tables.treatmentTasks.size();
+    }
+    
+    private void storeTask(Tables t, TreatmentTask task) {
+        Entry previous = t.taskEntries.get(task.getId());
+        if (previous != null) {
+            unindexTask(t, previous);
+        }
+        t.treatmentTasks.put(task.getId(), task);
+        Entry entry = Entry.of(task);
+        indexTask(t, entry);
+        
+        EntityReferences.register(references, task);
+        notifyTaskStatus(previous, entry);
+    }
+    
+    /**
+     * 已有任务的状态改变或被删除（current为null）时通知监听方
+     */
+    private void notifyTaskStatus(Entry previous, Entry current) {
+        BiConsumer<String, String> listener = taskStatusListener;
+        if (listener == null || previous == null
+                || (current != null && Objects.equals(previous.status, current.status))) {
+            return;
+        }
+        listener.accept(previous.id, current != null ? current.status : null);
+    }
+    
+    private static long versionOf(TreatmentTask task) {
+        return task.getVersion() != null ? task.getVersion() : 0L;
+    }
+    
+    private static void indexPlan(Tables t, Entry entry) {
+        t.planEntries.put(entry.id, entry);
+        if (entry.group != null) {
+            t.pestIdIndex.computeIfAbsent(entry.group, k -> new ArrayList<>()).add(entry.id);
+        }
+        addOrdered(t.planCreatorIndex, entry.createdBy, entry);
+        addOrdered(t.planStatusIndex, entry.status, entry);
+        countPlan(t, entry, 1);
+    }
+    
+    private static void unindexPlan(Tables t, Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        t.planEntries.remove(entry.id);
+        removeListed(t.pestIdIndex, entry.group, entry.id);
+        removeOrdered(t.planCreatorIndex, entry.createdBy, entry);
+        removeOrdered(t.planStatusIndex, entry.status, entry);
+        countPlan(t, entry, -1);
+    }
+    
+    private static void indexTask(Tables t, Entry entry) {
+        linkTask(t, entry);
+        countTask(t, entry, 1);
+    }
+    
+    private static void unindexTask(Tables t, Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        unlinkTask(t, entry);
+        countTask(t, entry, -1);
+    }
+    
+    private static void linkTask(Tables t, Entry entry) {
+        t.taskEntries.put(entry.id, entry);
+        if (entry.group != null) {
+            t.planTaskIndex.computeIfAbsent(entry.group, k -> new ArrayList<>()).add(entry.id);
+        }
+        addOrdered(t.taskAssigneeIndex, entry.assignedTo, entry);
+        addOrdered(t.taskCreatorIndex, entry.createdBy, entry);
+        addOrdered(t.taskStatusIndex, entry.status, entry);
+    }
+    
+    private static void unlinkTask(Tables t, Entry entry) {
+        t.taskEntries.remove(entry.id);
+        removeListed(t.planTaskIndex, entry.group, entry.id);
+        removeOrdered(t.taskAssigneeIndex, entry.assignedTo, entry);
+        removeOrdered(t.taskCreatorIndex, entry.createdBy, entry);
+        removeOrdered(t.taskStatusIndex, entry.status, entry);
+    }
+    
+    /**
+     * 方案进入或移出其创建人的计数；方案不存在时其任务只计入方案和系统计数
+     */
+    private static void countPlan(Tables t, Entry entry, int sign) {
+        adjust(t.planStatusCounts, entry.status, sign);
+        if (entry.createdBy != null) {
+            TaskProgress plan = t.planProgress.getOrDefault(entry.id, TaskProgress.EMPTY);
+            t.userProgress.compute(entry.createdBy, (key, user) ->
+                    nonEmpty((user != null ? user : TaskProgress.EMPTY).addPlan(plan, sign)));
+        }
+    }
+    
+    private static void countTask(Tables t, Entry entry, int sign) {
+        TaskProgress task = TaskProgress.ofTask(entry.status, entry.actualCost);
+        t.systemProgress = t.systemProgress.add(task, sign);
+        adjust(t.taskStatusCounts, entry.status, sign);
+        if (entry.group != null) {
+            countPlanTasks(t, entry.group, task, sign);
+        }
+    }
+    
+    /**
+     * 一批任务的计数变化先按方案汇总，每个方案、方案创建人和系统计数只替换一次
+     */
+    private static void countTasks(Tables t, Collection<Entry> removed, Collection<Entry> added) {
+        TaskProgress.Sum system = new TaskProgress.Sum();
+        Map<String, TaskProgress.Sum> plans = new HashMap<>();
+        Map<String, Long> statuses = new HashMap<>();
+        accumulate(removed, -1, system, plans, statuses);
+        accumulate(added, 1, system, plans, statuses);
+        t.systemProgress = t.systemProgress.add(system.toProgress(), 1);
+        statuses.forEach((status, delta) -> adjust(t.taskStatusCounts, status, delta));
+        plans.forEach((planId, delta) -> countPlanTasks(t, planId, delta.toProgress(), 1));
+    }
+    
+    private static void accumulate(Collection<Entry> entries, int sign, TaskProgress.Sum system,
+                                   Map<String, TaskProgress.Sum> plans, Map<String, Long> statuses) {
+        for (Entry entry : entries) {
+            system.add(entry.status, entry.actualCost, sign);
+            if (entry.status != null) {
+                statuses.merge(entry.status, (long) sign, Long::sum);
+            }
+            if (entry.group != null) {
+                plans.computeIfAbsent(entry.group, k -> new TaskProgress.Sum()).add(entry.status, entry.actualCost, sign);
+            }
+        }
+    }
+    
+    private static void countPlanTasks(Tables t, String planId, TaskProgress delta, int sign) {
+        TaskProgress before = t.planProgress.getOrDefault(planId, TaskProgress.EMPTY);
+        TaskProgress after = before.add(delta, sign);
+        if (after.isEmpty()) {
+            t.planProgress.remove(planId);
+        } else {
+            t.planProgress.put(planId, after);
+        }
+        Entry plan = t.planEntries.get(planId);
+        if (plan != null && plan.createdBy != null) {
+            // 先移出旧的方案计数再并入新的，方案数不变，完成方案数随之调整
+            t.userProgress.compute(plan.createdBy, (key, user) -> nonEmpty(
+                    (user != null ? user : TaskProgress.EMPTY).addPlan(before, -1).addPlan(after, 1)));
+        }
+    }
+    
+    /**
+     * 批量装载后按字段快照整体重建进度计数，在新快照发布前调用
+     */
+    private static void rebuildProgress(Tables t) {
+        Map<String, TaskProgress.Sum> sums = new HashMap<>();
+        Map<String, Long> taskStatuses = new HashMap<>();
+        TaskProgress.Sum system = new TaskProgress.Sum();
+        accumulate(t.taskEntries.values(), 1, system, sums, taskStatuses);
+        sums.forEach((planId, sum) -> t.planProgress.put(planId, sum.toProgress()));
+        for (Entry entry : t.planEntries.values()) {
+            adjust(t.planStatusCounts, entry.status, 1);
+            if (entry.createdBy != null) {
+                TaskProgress plan = t.planProgress.getOrDefault(entry.id, TaskProgress.EMPTY);
+                t.userProgress.compute(entry.createdBy, (key, user) ->
+                        (user != null ? user : TaskProgress.EMPTY).addPlan(plan, 1));
+            }
+        }
+        t.systemProgress = system.toProgress();
+        t.taskStatusCounts.putAll(taskStatuses);
+    }
+    
+    private static TaskProgress nonEmpty(TaskProgress progress) {
+        return progress.isEmpty() ? null : progress;
+    }
+    
+    private static void adjust(Map<String, Long> counts, String key, long delta) {
+        if (key != null) {
+            counts.compute(key, (k, count) -> {
+                long next = (count != null ? count : 0) + delta;
+                return next == 0 ? null : next;
+            });
+        }
+    }
+    
+    private static void removeListed(Map<String, List<String>> index, String key, String id) {
+        if (key == null) {
+            return;
+        }
+        List<String> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+        }
+    }
+    
+    private static void addOrdered(Map<String, ConcurrentSkipListSet<Entry>> index, String key, Entry entry) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(NEWEST_FIRST)).add(entry);
+        }
+    }
+    
+    private static void removeOrdered(Map<String, ConcurrentSkipListSet<Entry>> index, String key, Entry entry) {
+        if (key == null) {
+            return;
+        }
+        ConcurrentSkipListSet<Entry> entries = index.get(key);
+        if (entries != null) {
+            entries.remove(entry);
+            if (entries.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+    
+    private static Map<String, ConcurrentSkipListSet<Entry>> ordered(Collection<Entry> entries,
+                                                                   Function<Entry, String> keyOf) {
+        Map<String, ConcurrentSkipListSet<Entry>> index = new ConcurrentHashMap<>();
+        addAllOrdered(index, entries, keyOf);
+        return index;
+    }
+    
+    /**
+     * 按键分组排好序后合并；新键直接由有序集合建立，不逐条插入
+     */
+    private static void addAllOrdered(Map<String, ConcurrentSkipListSet<Entry>> index, Collection<Entry> entries,
+                                      Function<Entry, String> keyOf) {
+        Map<String, TreeSet<Entry>> groups = new HashMap<>();
+        for (Entry entry : entries) {
+            String key = keyOf.apply(entry);
+            if (key != null) {
+                groups.computeIfAbsent(key, k -> new TreeSet<>(NEWEST_FIRST)).add(entry);
+            }
+        }
+        groups.forEach((key, group) -> {
+            ConcurrentSkipListSet<Entry> existing = index.get(key);
+            if (existing != null) {
+                existing.addAll(group);
+            } else {
+                index.put(key, new ConcurrentSkipListSet<>(group));
+            }
+        });
+    }
+    
+    /**
+     * 按索引顺序读取一页实体，只遍历到所需页为止
+     */
+    private static <T> List<T> page(ConcurrentSkipListSet<Entry> entries, Map<String, T> source, int page, int size) {
+        if (entries == null || page < 0 || size <= 0) {
+            return new ArrayList<>();
+        }
+        long skip = (long) page * size;
+        List<T> result = new ArrayList<>(Math.min(size, 64));
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext() && result.size() < size) {
+            Entry entry = iterator.next();
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            T item = source.get(entry.id);
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 方案和任务的主表、索引及进度计数
+     * 批量装载一侧时另一侧的表沿用到新快照；systemProgress只在持有存储锁时替换
+     */
+    private static final class Tables {
+        private final Map<String, TreatmentPlan> treatmentPlans;
+        private final Map<String, Entry> planEntries;
+        private final Map<String, List<String>> pestIdIndex;
+        private final Map<String, ConcurrentSkipListSet<Entry>> planCreatorIndex;
+        private final Map<String, ConcurrentSkipListSet<Entry>> planStatusIndex;
+        private final Map<String, TreatmentTask> treatmentTasks;
+        private final Map<String, Entry> taskEntries;
+        private final Map<String, List<String>> planTaskIndex;
+        private final Map<String, ConcurrentSkipListSet<Entry>> taskAssigneeIndex;
+        private final Map<String, ConcurrentSkipListSet<Entry>> taskCreatorIndex;
+        private final Map<String, ConcurrentSkipListSet<Entry>> taskStatusIndex;
+        
+        // 方案ID -> 任务进度；方案创建人 -> 其全部方案的任务进度
+        private final Map<String, TaskProgress> planProgress = new ConcurrentHashMap<>();
+        private final Map<String, TaskProgress> userProgress = new ConcurrentHashMap<>();
+        private volatile TaskProgress systemProgress = TaskProgress.EMPTY;
+        private final Map<String, Long> planStatusCounts = new ConcurrentHashMap<>();
+        private final Map<String, Long> taskStatusCounts = new ConcurrentHashMap<>();
+        
+        private Tables() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                    new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                    new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                    new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+        
+        private Tables(Map<String, TreatmentPlan> treatmentPlans, Map<String, Entry> planEntries,
+                       Map<String, List<String>> pestIdIndex,
+                       Map<String, ConcurrentSkipListSet<Entry>> planCreatorIndex,
+                       Map<String, ConcurrentSkipListSet<Entry>> planStatusIndex,
+                       Map<String, TreatmentTask> treatmentTasks, Map<String, Entry> taskEntries,
+                       Map<String, List<String>> planTaskIndex,
+                       Map<String, ConcurrentSkipListSet<Entry>> taskAssigneeIndex,
+                       Map<String, ConcurrentSkipListSet<Entry>> taskCreatorIndex,
+                       Map<String, ConcurrentSkipListSet<Entry>> taskStatusIndex) {
+            this.treatmentPlans = treatmentPlans;
+            this.planEntries = planEntries;
+            this.pestIdIndex = pestIdIndex;
+            this.planCreatorIndex = planCreatorIndex;
+            this.planStatusIndex = planStatusIndex;
+            this.treatmentTasks = treatmentTasks;
+            this.taskEntries = taskEntries;
+            this.planTaskIndex = planTaskIndex;
+            this.taskAssigneeIndex = taskAssigneeIndex;
+            this.taskCreatorIndex = taskCreatorIndex;
+            this.taskStatusIndex = taskStatusIndex;
+        }
+    }
+    
+    /**
+     * 建立索引时的字段快照；group对方案是病虫害ID，对任务是方案ID
+     */
+    private static final class Entry {
+        private final String id;
+        private final LocalDateTime time;
+        private final String group;
+        private final String createdBy;
+        private final String assignedTo;
+        private final String status;
+        private final Double actualCost;
+        
+        private Entry(String id, LocalDateTime time, String group, String createdBy, String assignedTo, String status,
+                      Double actualCost) {
+            this.id = id;
+            this.time = time;
+            this.group = group;
+            this.createdBy = createdBy;
+            this.assignedTo = assignedTo;
+            this.status = status;
+            this.actualCost = actualCost;
+        }
+        
+        private static Entry of(TreatmentPlan plan) {
+            return new Entry(plan.getId(), plan.getCreatedTime(), plan.getPestId(), plan.getCreatedBy(), null,
+                    plan.getStatus(), null);
+        }
+        
+        private static Entry of(TreatmentTask task) {
+            return new Entry(task.getId(), task.getCreatedTime(), task.getPlanId(), task.getCreatedBy(),
+                    task.getAssignedTo(), task.getStatus(), task.getActualCost());
+        }
     }
-}
\ No newline at end of file
+}
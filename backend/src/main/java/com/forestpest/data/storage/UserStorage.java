@@ -1,12 +1,17 @@
 package com.forestpest.data.storage;
 
 import com.forestpest.entity.User;
+import com.forestpest.data.index.ReferenceIndex;
+import com.forestpest.data.index.ReferenceIndex.EntityType;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Optional;
 
 /**
@@ -15,63 +20,139 @@ import java.util.Optional;
 @Component
 public class UserStorage {
     
-    private final Map<String, User> users = new ConcurrentHashMap<>();
-    private final Map<String, String> usernameToId = new ConcurrentHashMap<>();
-    private final Map<String, String> emailToId = new ConcurrentHashMap<>();
+    // 主表和用户名、邮箱索引，批量装载时整体替换
+    private volatile Tables tables = new Tables();
+    
+    private volatile ReferenceIndex references;
+    
+    public void setReferenceIndex(ReferenceIndex references) {
+        this.references = references;
+    }
     
     public void save(User user) {
-        users.put(user.getId(), user);
-        usernameToId.put(user.getUsername(), user.getId());
-        emailToId.put(user.getEmail(), user.getId());
+        Tables t = tables;
+        t.users.put(user.getId(), user);
+        t.usernameToId.put(user.getUsername(), user.getId());
+        t.emailToId.put(user.getEmail(), user.getId());
+        
+        EntityReferences.register(references, user);
+    }
+    
+    /**
+     * 批量保存
+     */
+    public void saveAll(Collection<User> batch) {
+        Tables t = tables;
+        Map<String, User> byId = new HashMap<>(batch.size() * 2);
+        Map<String, String> byUsername = new HashMap<>(batch.size() * 2);
+        Map<String, String> byEmail = new HashMap<>(batch.size() * 2);
+        for (User user : batch) {
+            byId.put(user.getId(), user);
+            byUsername.put(user.getUsername(), user.getId());
+            byEmail.put(user.getEmail(), user.getId());
+        }
+        t.users.putAll(byId);
+        t.usernameToId.putAll(byUsername);
+        t.emailToId.putAll(byEmail);
+        batch.forEach(user -> EntityReferences.register(references, user));
+    }
+    
+    /**
+     * 批量装载，整体替换全部用户
+     */
+    public void bulkLoad(Collection<User> batch) {
+        Map<String, User> loaded = StorageIndexes.primary(batch, User::getId);
+        Map<String, String> byUsername = new ConcurrentHashMap<>(loaded.size());
+        Map<String, String> byEmail = new ConcurrentHashMap<>(loaded.size());
+        for (User user : loaded.values()) {
+            if (user.getUsername() != null) {
+                byUsername.put(user.getUsername(), user.getId());
+            }
+            if (user.getEmail() != null) {
+                byEmail.put(user.getEmail(), user.getId());
+            }
+        }
+        tables = new Tables(loaded, byUsername, byEmail);
+        EntityReferences.unregisterAll(references, EntityType.USER);
+        loaded.values().forEach(user -> EntityReferences.register(references, user));
     }
     
     public Optional<User> findById(String id) {
-        return Optional.ofNullable(users.get(id));
+        return Optional.ofNullable(tables.users.get(id));
     }
     
     public Optional<User> findByUsername(String username) {
-        String id = usernameToId.get(username);
-        return id != null ? Optional.ofNullable(users.get(id)) : Optional.empty();
+        Tables t = tables;
+        String id = t.usernameToId.get(username);
+        return id != null ? Optional.ofNullable(t.users.get(id)) : Optional.empty();
     }
     
     public Optional<User> findByEmail(String email) {
-        String id = emailToId.get(email);
-        return id != null ? Optional.ofNullable(users.get(id)) : Optional.empty();
+        Tables t = tables;
+        String id = t.emailToId.get(email);
+        return id != null ? Optional.ofNullable(t.users.get(id)) : Optional.empty();
     }
     
     public List<User> findAll() {
-        return new ArrayList<>(users.values());
+        return new ArrayList<>(tables.users.values());
+    }
+    
+    /**
+     * 遍历所有用户，不复制集合，供流式导出使用；遍历期间的并发修改可能可见
+     */
+    public Iterable<User> iterateAll() {
+        return Collections.unmodifiableCollection(tables.users.values());
     }
     
     public List<User> findByRole(String role) {
-        return users.values().stream()
+        return tables.users.values().stream()
                 .filter(user -> role.equals(user.getRole()))
                 .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
     }
     
     public boolean existsByUsername(String username) {
-        return usernameToId.containsKey(username);
+        return tables.usernameToId.containsKey(username);
     }
     
     public boolean existsByEmail(String email) {
-        return emailToId.containsKey(email);
+        return tables.emailToId.containsKey(email);
     }
     
     public void deleteById(String id) {
-        User user = users.remove(id);
+        Tables t = tables;
+        User user = t.users.remove(id);
         if (user != null) {
-            usernameToId.remove(user.getUsername());
-            emailToId.remove(user.getEmail());
+            EntityReferences.unregister(references, EntityType.USER, id);
+            t.usernameToId.remove(user.getUsername());
+            t.emailToId.remove(user.getEmail());
         }
     }
     
     public void clear() {
-        users.clear();
-        usernameToId.clear();
-        emailToId.clear();
+        EntityReferences.unregisterAll(references, EntityType.USER);
+        tables = new Tables();
     }
     
     public int count() {
-        return users.size();
+        return tables.users.size();
+    }
+    
+    /**
+     * 用户主表和用户名、邮箱到ID的映射
+     */
+    private static final class Tables {
+        private final Map<String, User> users;
+        private final Map<String, String> usernameToId;
+        private final Map<String, String> emailToId;
+        
+        private Tables() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+        
+        private Tables(Map<String, User> users, Map<String, String> usernameToId, Map<String, String> emailToId) {
+            this.users = users;
+            this.usernameToId = usernameToId;
+            this.emailToId = emailToId;
+        }
     }
 }
\ No newline at end of file
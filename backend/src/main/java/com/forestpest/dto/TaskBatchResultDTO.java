@@ -0,0 +1,94 @@
+package com.forestpest.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量创建任务结果DTO
+ * taskIds和statuses与提交的任务逐项对应，messages只记录未创建或未排程的项。
+ */
+public class TaskBatchResultDTO {
+
+    public static final String CREATED = "CREATED";
+    public static final String ASSIGNED = "ASSIGNED";
+    public static final String UNASSIGNED = "UNASSIGNED";
+    public static final String INVALID = "INVALID";
+
+    private int total;
+    private int created;
+    private int assigned;
+    private int failed;
+    private long elapsedMs;
+
+    private List<String> taskIds;
+    private List<String> statuses;
+    private Map<Integer, String> messages;
+
+    // Constructors
+    public TaskBatchResultDTO() {}
+
+    // Getters and Setters
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getAssigned() {
+        return assigned;
+    }
+
+    public void setAssigned(int assigned) {
+        this.assigned = assigned;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+
+    public List<String> getTaskIds() {
+        return taskIds;
+    }
+
+    public void setTaskIds(List<String> taskIds) {
+        this.taskIds = taskIds;
+    }
+
+    public List<String> getStatuses() {
+        return statuses;
+    }
+
+    public void setStatuses(List<String> statuses) {
+        this.statuses = statuses;
+    }
+
+    public Map<Integer, String> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(Map<Integer, String> messages) {
+        this.messages = messages;
+    }
+}
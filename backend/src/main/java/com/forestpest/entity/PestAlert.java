@@ -64,6 +64,15 @@ public class PestAlert extends BaseEntity {
     
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime acknowledgedTime;
+    
+    // 抑制窗口内合并的重复触发次数（含首次）
+    private Integer occurrenceCount = 1;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime lastOccurrenceTime;
+    
+    // 最近一次合并进来的预测ID
+    private String lastPredictionId;
 
     public PestAlert() {
         super();
@@ -242,6 +251,30 @@ public class PestAlert extends BaseEntity {
         this.acknowledgedTime = acknowledgedTime;
     }
 
+    public Integer getOccurrenceCount() {
+        return occurrenceCount;
+    }
+
+    public void setOccurrenceCount(Integer occurrenceCount) {
+        this.occurrenceCount = occurrenceCount;
+    }
+
+    public LocalDateTime getLastOccurrenceTime() {
+        return lastOccurrenceTime;
+    }
+
+    public void setLastOccurrenceTime(LocalDateTime lastOccurrenceTime) {
+        this.lastOccurrenceTime = lastOccurrenceTime;
+    }
+
+    public String getLastPredictionId() {
+        return lastPredictionId;
+    }
+
+    public void setLastPredictionId(String lastPredictionId) {
+        this.lastPredictionId = lastPredictionId;
+    }
+
     @Override
     public String toString() {
         return "PestAlert{" +
@@ -263,6 +296,8 @@ public class PestAlert extends BaseEntity {
                 ", expiryTime='" + expiryTime + '\'' +
                 ", acknowledgedBy='" + acknowledgedBy + '\'' +
                 ", acknowledgedTime=" + acknowledgedTime +
+                ", occurrenceCount=" + occurrenceCount +
+                ", lastOccurrenceTime=" + lastOccurrenceTime +
                 ", createdTime=" + createdTime +
                 '}';
     }
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -55,6 +56,9 @@ public class TreatmentTask extends BaseEntity {
     private String supervisedBy;
     
     private String completionRate;
+    
+    // 每次保存递增，用于检测并发修改
+    private Long version;
 
     public TreatmentTask() {
         super();
@@ -209,6 +213,45 @@ public class TreatmentTask extends BaseEntity {
         this.completionRate = completionRate;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * 复制全部字段，列表字段复制为新列表
+     */
+    public TreatmentTask copy() {
+        TreatmentTask copy = new TreatmentTask();
+        copy.id = id;
+        copy.createdTime = createdTime;
+        copy.updatedTime = updatedTime;
+        copy.createdBy = createdBy;
+        copy.updatedBy = updatedBy;
+        copy.planId = planId;
+        copy.taskName = taskName;
+        copy.description = description;
+        copy.assignedTo = assignedTo;
+        copy.status = status;
+        copy.scheduledTime = scheduledTime;
+        copy.actualStartTime = actualStartTime;
+        copy.actualEndTime = actualEndTime;
+        copy.executionNotes = executionNotes;
+        copy.usedPesticides = usedPesticides != null ? new ArrayList<>(usedPesticides) : null;
+        copy.targetArea = targetArea;
+        copy.priority = priority;
+        copy.actualCost = actualCost;
+        copy.weather = weather;
+        copy.photos = photos != null ? new ArrayList<>(photos) : null;
+        copy.supervisedBy = supervisedBy;
+        copy.completionRate = completionRate;
+        copy.version = version;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "TreatmentTask{" +
@@ -226,6 +269,7 @@ public class TreatmentTask extends BaseEntity {
                 ", actualCost=" + actualCost +
                 ", supervisedBy='" + supervisedBy + '\'' +
                 ", completionRate='" + completionRate + '\'' +
+                ", version=" + version +
                 ", createdTime=" + createdTime +
                 '}';
     }
@@ -34,6 +34,16 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(e.getErrorMessage()));
     }
 
+    /**
+     * 处理版本冲突，返回409和最新数据
+     */
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<ApiResponse<Object>> handleVersionConflictException(VersionConflictException e) {
+        logger.info("版本冲突: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ApiResponse<>(HttpStatus.CONFLICT.value(), e.getMessage(), e.getCurrent()));
+    }
+
     /**
      * 处理参数验证异常
      */
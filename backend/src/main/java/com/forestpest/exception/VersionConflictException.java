@@ -0,0 +1,21 @@
+package com.forestpest.exception;
+
+/**
+ * 版本冲突异常：请求基于的版本已被其他修改替换
+ */
+public class VersionConflictException extends BusinessException {
+
+    private final transient Object current;
+
+    public VersionConflictException(String message, Object current) {
+        super("VERSION_CONFLICT", message);
+        this.current = current;
+    }
+
+    /**
+     * 冲突时的最新数据，客户端据此重新提交
+     */
+    public Object getCurrent() {
+        return current;
+    }
+}
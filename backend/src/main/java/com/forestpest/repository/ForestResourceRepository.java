@@ -1,8 +1,13 @@
 package com.forestpest.repository;
 
+import com.forestpest.data.index.AreaHierarchy;
+import com.forestpest.data.index.GeoBounds;
+import com.forestpest.data.index.GeoPoint;
+import com.forestpest.data.index.GeoPolygon;
 import com.forestpest.entity.ForestResource;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 森林资源数据访问接口
@@ -153,4 +158,39 @@ public interface ForestResourceRepository extends BaseRepository<ForestResource,
      * 根据区域类型计算面积
      */
     java.util.Map<String, Double> calculateAreaByType();
-}
\ No newline at end of file
+    
+    /**
+     * 查找中心点在指定半径（公里）内的区域，按距离排序
+     */
+    List<ForestResource> findWithinRadius(GeoPoint center, double radiusKm);
+    
+    /**
+     * 查找中心点在多边形内的区域
+     */
+    List<ForestResource> findWithinPolygon(GeoPolygon polygon);
+    
+    /**
+     * 获取区域位置，没有自身坐标时使用下级区域汇总范围的中心
+     */
+    Optional<GeoPoint> findLocation(String id);
+    
+    /**
+     * 获取区域及全部下级区域的汇总范围
+     */
+    Optional<GeoBounds> findSpatialExtent(String id);
+    
+    /**
+     * 获取区域自身及全部下级区域的ID
+     */
+    List<String> findSubtreeIds(String id);
+    
+    /**
+     * 判断区域是否属于上级区域（含自身）
+     */
+    boolean isWithinArea(String ancestorId, String id);
+    
+    /**
+     * 获取区域子树汇总
+     */
+    Optional<AreaHierarchy.Aggregate> findSubtreeAggregate(String id);
+}
@@ -68,4 +68,9 @@ public interface PestRepository extends BaseRepository<Pest, String> {
      * 根据关键词搜索病虫害
      */
     List<Pest> searchByKeyword(String keyword);
+    
+    /**
+     * 获取病虫害目录版本，目录变化后版本递增
+     */
+    long getCatalogueVersion();
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.forestpest.entity.PestAlert;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +31,11 @@ public interface PredictionRepository {
      */
     List<PestPrediction> findAllPredictions();
     
+    /**
+     * 遍历所有预测记录，不复制集合
+     */
+    Iterable<PestPrediction> iterateAllPredictions();
+    
     /**
      * 根据病虫害ID查找预测记录
      */
@@ -45,6 +51,11 @@ public interface PredictionRepository {
      */
     List<PestPrediction> findPredictionsByTargetArea(String targetArea);
     
+    /**
+     * 根据多个目标区域查找预测记录
+     */
+    List<PestPrediction> findPredictionsByTargetAreas(Collection<String> targetAreas);
+    
     /**
      * 根据预测日期范围查找预测记录
      */
@@ -70,6 +81,16 @@ public interface PredictionRepository {
      */
     void deletePredictionById(String id);
     
+    /**
+     * 查找预测日期早于指定日期的预测记录
+     */
+    List<PestPrediction> findPredictionsBefore(LocalDate date);
+    
+    /**
+     * 删除预测日期早于指定日期的预测记录及其预警，返回被删除的预测
+     */
+    List<PestPrediction> deletePredictionsBefore(LocalDate date);
+    
     /**
      * 统计预测记录数量
      */
@@ -92,6 +113,11 @@ public interface PredictionRepository {
      */
     List<PestAlert> findAllAlerts();
     
+    /**
+     * 遍历所有预警记录，不复制集合
+     */
+    Iterable<PestAlert> iterateAllAlerts();
+    
     /**
      * 根据预测ID查找预警记录
      */
@@ -112,6 +138,11 @@ public interface PredictionRepository {
      */
     List<PestAlert> findAlertsByTargetArea(String targetArea);
     
+    /**
+     * 根据多个目标区域查找预警记录
+     */
+    List<PestAlert> findAlertsByTargetAreas(Collection<String> targetAreas);
+    
     /**
      * 根据创建时间范围查找预警记录
      */
@@ -137,6 +168,11 @@ public interface PredictionRepository {
      */
     void deleteAlertById(String id);
     
+    /**
+     * 删除创建时间早于指定时间的预警记录，返回被删除的预警
+     */
+    List<PestAlert> deleteAlertsCreatedBefore(LocalDateTime time);
+    
     /**
      * 统计预警记录数量
      */
@@ -67,10 +67,16 @@ public class EvaluationRepositoryImpl implements EvaluationRepository {
     
     @Override
     public List<EffectEvaluation> saveAll(Iterable<EffectEvaluation> evaluations) {
+        LocalDateTime now = LocalDateTime.now();
         List<EffectEvaluation> savedEvaluations = new java.util.ArrayList<>();
         for (EffectEvaluation evaluation : evaluations) {
-            savedEvaluations.add(save(evaluation));
+            if (evaluation.getId() == null) {
+                evaluation.setId(dataStorage.generateId());
+            }
+            evaluation.setUpdatedTime(now);
+            savedEvaluations.add(evaluation);
         }
+        dataStorage.getEvaluationStorage().saveAll(savedEvaluations);
         return savedEvaluations;
     }
     
@@ -1,5 +1,9 @@
 package com.forestpest.repository.impl;
 
+import com.forestpest.data.index.AreaHierarchy;
+import com.forestpest.data.index.GeoBounds;
+import com.forestpest.data.index.GeoPoint;
+import com.forestpest.data.index.GeoPolygon;
 import com.forestpest.entity.ForestResource;
 import com.forestpest.repository.ForestResourceRepository;
 import com.forestpest.data.storage.DataStorage;
@@ -65,10 +69,16 @@ public class ForestResourceRepositoryImpl implements ForestResourceRepository {
     
     @Override
     public List<ForestResource> saveAll(Iterable<ForestResource> resources) {
+        LocalDateTime now = LocalDateTime.now();
         List<ForestResource> savedResources = new java.util.ArrayList<>();
         for (ForestResource resource : resources) {
-            savedResources.add(save(resource));
+            if (resource.getId() == null) {
+                resource.setId(dataStorage.generateId());
+            }
+            resource.setUpdatedTime(now);
+            savedResources.add(resource);
         }
+        dataStorage.getForestResourceStorage().saveAll(savedResources);
         return savedResources;
     }
     
@@ -156,15 +166,8 @@ public class ForestResourceRepositoryImpl implements ForestResourceRepository {
     
     @Override
     public List<ForestResource> findLeafAreas() {
-        List<ForestResource> allResources = findAll();
-        List<String> parentIds = allResources.stream()
-                .map(ForestResource::getParentAreaId)
-                .filter(id -> id != null)
-                .distinct()
-                .collect(Collectors.toList());
-        
-        return allResources.stream()
-                .filter(resource -> !parentIds.contains(resource.getId()))
+        return findAll().stream()
+                .filter(resource -> findByParentAreaId(resource.getId()).isEmpty())
                 .collect(Collectors.toList());
     }
     
@@ -304,4 +307,39 @@ public class ForestResourceRepositoryImpl implements ForestResourceRepository {
                     Collectors.summingDouble(ForestResource::getArea)
                 ));
     }
-}
\ No newline at end of file
+    
+    @Override
+    public List<ForestResource> findWithinRadius(GeoPoint center, double radiusKm) {
+        return dataStorage.getForestResourceStorage().findWithinRadius(center, radiusKm);
+    }
+    
+    @Override
+    public List<ForestResource> findWithinPolygon(GeoPolygon polygon) {
+        return dataStorage.getForestResourceStorage().findWithinPolygon(polygon);
+    }
+    
+    @Override
+    public Optional<GeoPoint> findLocation(String id) {
+        return dataStorage.getForestResourceStorage().getLocation(id);
+    }
+    
+    @Override
+    public Optional<GeoBounds> findSpatialExtent(String id) {
+        return dataStorage.getForestResourceStorage().getSpatialExtent(id);
+    }
+    
+    @Override
+    public List<String> findSubtreeIds(String id) {
+        return dataStorage.getForestResourceStorage().findSubtreeIds(id);
+    }
+    
+    @Override
+    public boolean isWithinArea(String ancestorId, String id) {
+        return dataStorage.getForestResourceStorage().isWithinArea(ancestorId, id);
+    }
+    
+    @Override
+    public Optional<AreaHierarchy.Aggregate> findSubtreeAggregate(String id) {
+        return dataStorage.getForestResourceStorage().getSubtreeAggregate(id);
+    }
+}
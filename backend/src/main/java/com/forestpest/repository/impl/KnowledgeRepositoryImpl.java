@@ -66,10 +66,16 @@ public class KnowledgeRepositoryImpl implements KnowledgeRepository {
     
     @Override
     public List<KnowledgeBase> saveAll(Iterable<KnowledgeBase> knowledgeList) {
+        LocalDateTime now = LocalDateTime.now();
         List<KnowledgeBase> savedKnowledge = new java.util.ArrayList<>();
         for (KnowledgeBase knowledge : knowledgeList) {
-            savedKnowledge.add(save(knowledge));
+            if (knowledge.getId() == null) {
+                knowledge.setId(dataStorage.generateId());
+            }
+            knowledge.setUpdatedTime(now);
+            savedKnowledge.add(knowledge);
         }
+        dataStorage.getKnowledgeStorage().saveAll(savedKnowledge);
         return savedKnowledge;
     }
     
@@ -64,10 +64,16 @@ public class PestRepositoryImpl implements PestRepository {
     
     @Override
     public List<Pest> saveAll(Iterable<Pest> pests) {
+        LocalDateTime now = LocalDateTime.now();
         List<Pest> savedPests = new java.util.ArrayList<>();
         for (Pest pest : pests) {
-            savedPests.add(save(pest));
+            if (pest.getId() == null) {
+                pest.setId(dataStorage.generateId());
+            }
+            pest.setUpdatedTime(now);
+            savedPests.add(pest);
         }
+        dataStorage.getPestStorage().saveAll(savedPests);
         return savedPests;
     }
     
@@ -172,4 +178,9 @@ public class PestRepositoryImpl implements PestRepository {
                 )
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+    
+    @Override
+    public long getCatalogueVersion() {
+        return dataStorage.getPestStorage().getVersion();
+    }
+}
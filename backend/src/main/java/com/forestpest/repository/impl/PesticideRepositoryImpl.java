@@ -66,10 +66,16 @@ public class PesticideRepositoryImpl implements PesticideRepository {
     
     @Override
     public List<Pesticide> saveAll(Iterable<Pesticide> pesticides) {
+        LocalDateTime now = LocalDateTime.now();
         List<Pesticide> savedPesticides = new java.util.ArrayList<>();
         for (Pesticide pesticide : pesticides) {
-            savedPesticides.add(save(pesticide));
+            if (pesticide.getId() == null) {
+                pesticide.setId(dataStorage.generateId());
+            }
+            pesticide.setUpdatedTime(now);
+            savedPesticides.add(pesticide);
         }
+        dataStorage.getPesticideStorage().saveAll(savedPesticides);
         return savedPesticides;
     }
     
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -46,6 +47,11 @@ public class PredictionRepositoryImpl implements PredictionRepository {
         return dataStorage.getPredictionStorage().findAllPredictions();
     }
     
+    @Override
+    public Iterable<PestPrediction> iterateAllPredictions() {
+        return dataStorage.getPredictionStorage().iterateAllPredictions();
+    }
+    
     @Override
     public List<PestPrediction> findPredictionsByPestId(String pestId) {
         return dataStorage.getPredictionStorage().findPredictionsByPestId(pestId);
@@ -61,6 +67,11 @@ public class PredictionRepositoryImpl implements PredictionRepository {
         return dataStorage.getPredictionStorage().findPredictionsByTargetArea(targetArea);
     }
     
+    @Override
+    public List<PestPrediction> findPredictionsByTargetAreas(Collection<String> targetAreas) {
+        return dataStorage.getPredictionStorage().findPredictionsByTargetAreas(targetAreas);
+    }
+    
     @Override
     public List<PestPrediction> findPredictionsByDateRange(LocalDate startDate, LocalDate endDate) {
         return dataStorage.getPredictionStorage().findPredictionsByDateRange(startDate, endDate);
@@ -95,6 +106,16 @@ public class PredictionRepositoryImpl implements PredictionRepository {
         dataStorage.getPredictionStorage().deletePredictionById(id);
     }
     
+    @Override
+    public List<PestPrediction> findPredictionsBefore(LocalDate date) {
+        return dataStorage.getPredictionStorage().findPredictionsBefore(date);
+    }
+    
+    @Override
+    public List<PestPrediction> deletePredictionsBefore(LocalDate date) {
+        return dataStorage.getPredictionStorage().removePredictionsBefore(date);
+    }
+    
     @Override
     public long countPredictions() {
         return dataStorage.getPredictionStorage().predictionCount();
@@ -122,6 +143,11 @@ public class PredictionRepositoryImpl implements PredictionRepository {
         return dataStorage.getPredictionStorage().findAllAlerts();
     }
     
+    @Override
+    public Iterable<PestAlert> iterateAllAlerts() {
+        return dataStorage.getPredictionStorage().iterateAllAlerts();
+    }
+    
     @Override
     public List<PestAlert> findAlertsByPredictionId(String predictionId) {
         return dataStorage.getPredictionStorage().findAlertsByPredictionId(predictionId);
@@ -139,18 +165,17 @@ public class PredictionRepositoryImpl implements PredictionRepository {
     
     @Override
     public List<PestAlert> findAlertsByTargetArea(String targetArea) {
-        return findAllAlerts().stream()
-                .filter(alert -> targetArea.equals(alert.getTargetArea()))
-                .collect(Collectors.toList());
+        return dataStorage.getPredictionStorage().findAlertsByTargetArea(targetArea);
+    }
+    
+    @Override
+    public List<PestAlert> findAlertsByTargetAreas(Collection<String> targetAreas) {
+        return dataStorage.getPredictionStorage().findAlertsByTargetAreas(targetAreas);
     }
     
     @Override
     public List<PestAlert> findAlertsByCreatedTimeBetween(LocalDateTime startTime, LocalDateTime endTime) {
-        return findAllAlerts().stream()
-                .filter(alert -> alert.getCreatedTime() != null &&
-                               !alert.getCreatedTime().isBefore(startTime) &&
-                               !alert.getCreatedTime().isAfter(endTime))
-                .collect(Collectors.toList());
+        return dataStorage.getPredictionStorage().findAlertsByCreatedTimeBetween(startTime, endTime);
     }
     
     @Override
@@ -179,6 +204,11 @@ public class PredictionRepositoryImpl implements PredictionRepository {
         dataStorage.getPredictionStorage().deleteAlertById(id);
     }
     
+    @Override
+    public List<PestAlert> deleteAlertsCreatedBefore(LocalDateTime time) {
+        return dataStorage.getPredictionStorage().removeAlertsCreatedBefore(time);
+    }
+    
     @Override
     public long countAlerts() {
         return dataStorage.getPredictionStorage().alertCount();
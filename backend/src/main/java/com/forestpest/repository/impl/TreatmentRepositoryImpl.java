@@ -74,9 +74,7 @@ public class TreatmentRepositoryImpl implements TreatmentRepository {
     
     @Override
     public List<TreatmentPlan> findPlansByCreatedBy(String createdBy) {
-        return findAllPlans().stream()
-                .filter(plan -> createdBy.equals(plan.getCreatedBy()))
-                .collect(Collectors.toList());
+        return dataStorage.getTreatmentStorage().findPlansByCreatedBy(createdBy);
     }
     
     @Override
@@ -170,19 +168,31 @@ public class TreatmentRepositoryImpl implements TreatmentRepository {
     
     @Override
     public List<TreatmentPlan> saveAllPlans(Iterable<TreatmentPlan> plans) {
+        LocalDateTime now = LocalDateTime.now();
         List<TreatmentPlan> savedPlans = new java.util.ArrayList<>();
         for (TreatmentPlan plan : plans) {
-            savedPlans.add(savePlan(plan));
+            if (plan.getId() == null) {
+                plan.setId(dataStorage.generateId());
+            }
+            plan.setUpdatedTime(now);
+            savedPlans.add(plan);
         }
+        dataStorage.getTreatmentStorage().saveAllPlans(savedPlans);
         return savedPlans;
     }
     
     @Override
     public List<TreatmentTask> saveAllTasks(Iterable<TreatmentTask> tasks) {
+        LocalDateTime now = LocalDateTime.now();
         List<TreatmentTask> savedTasks = new java.util.ArrayList<>();
         for (TreatmentTask task : tasks) {
-            savedTasks.add(saveTask(task));
+            if (task.getId() == null) {
+                task.setId(dataStorage.generateId());
+            }
+            task.setUpdatedTime(now);
+            savedTasks.add(task);
         }
+        dataStorage.getTreatmentStorage().saveAllTasks(savedTasks);
         return savedTasks;
     }
     
@@ -64,10 +64,16 @@ public class UserRepositoryImpl implements UserRepository {
     
     @Override
     public List<User> saveAll(Iterable<User> users) {
+        LocalDateTime now = LocalDateTime.now();
         List<User> savedUsers = new java.util.ArrayList<>();
         for (User user : users) {
-            savedUsers.add(save(user));
+            if (user.getId() == null) {
+                user.setId(dataStorage.generateId());
+            }
+            user.setUpdatedTime(now);
+            savedUsers.add(user);
         }
+        dataStorage.getUserStorage().saveAll(savedUsers);
         return savedUsers;
     }
     
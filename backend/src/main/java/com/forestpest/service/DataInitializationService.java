@@ -2,6 +2,8 @@ package com.forestpest.service;
 
 import com.forestpest.data.factory.DataFactory;
 import com.forestpest.data.storage.DataStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -12,6 +14,8 @@ import org.springframework.stereotype.Service;
 @Service
 public class DataInitializationService {
     
+    private static final Logger logger = LoggerFactory.getLogger(DataInitializationService.class);
+    
     @Autowired
     private DataFactory dataFactory;
     
@@ -22,28 +26,28 @@ public class DataInitializationService {
      * 初始化所有演示数据
      */
     public void initializeAllData() {
-        System.out.println("开始初始化演示数据...");
+        logger.info("开始初始化演示数据...");
         dataFactory.generateAllData();
-        System.out.println("演示数据初始化完成！");
+        logger.info("演示数据初始化完成！");
     }
     
     /**
      * 重置所有数据
      */
     public void resetAllData() {
-        System.out.println("开始重置所有数据...");
+        logger.info("开始重置所有数据...");
         dataStorage.resetAllData();
-        System.out.println("数据重置完成！");
+        logger.info("数据重置完成！");
     }
     
     /**
      * 重新生成所有数据
      */
     public void regenerateAllData() {
-        System.out.println("开始重新生成所有数据...");
+        logger.info("开始重新生成所有数据...");
         resetAllData();
         initializeAllData();
-        System.out.println("数据重新生成完成！");
+        logger.info("数据重新生成完成！");
     }
     
     /**
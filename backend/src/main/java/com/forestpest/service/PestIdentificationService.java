@@ -2,8 +2,11 @@ package com.forestpest.service;
 
 import com.forestpest.entity.IdentificationResult;
 import com.forestpest.entity.Pest;
+import com.forestpest.service.identification.BatchIdentificationJob;
+import com.forestpest.util.StreamingExportUtil;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -98,6 +101,41 @@ public interface PestIdentificationService {
      */
     List<IdentificationResult> batchIdentifyByImages(List<MultipartFile> imageFiles, String userId);
     
+    /**
+     * 提交异步批量图片识别任务，图片读入内存后立即返回
+     */
+    BatchIdentificationJob submitBatchIdentification(List<MultipartFile> imageFiles, String userId);
+    
+    /**
+     * 获取批量识别任务
+     */
+    BatchIdentificationJob getBatchIdentificationJob(String jobId);
+    
+    /**
+     * 取消批量识别任务，尚未处理的图片不再识别
+     */
+    boolean cancelBatchIdentification(String jobId, String userId);
+    
+    /**
+     * 获取批量识别流水线各阶段统计
+     */
+    Map<String, Object> getBatchIdentificationStatistics();
+    
+    /**
+     * 获取识别模型的批次与各阶段耗时统计
+     */
+    Map<String, Object> getModelStatistics();
+    
+    /**
+     * 按内容摘要获取已保存的图片文件
+     */
+    Path getImageFile(String imageHash);
+    
+    /**
+     * 获取图片缩略图，首次请求时生成并缓存
+     */
+    Path getImageThumbnail(String imageHash, int size);
+    
     /**
      * 获取识别建议
      */
@@ -113,6 +151,11 @@ public interface PestIdentificationService {
      */
     String exportIdentificationHistory(String userId, String format);
     
+    /**
+     * 流式导出识别历史
+     */
+    StreamingExportUtil.ExportWriter streamIdentificationHistory(String userId, String format);
+    
     /**
      * 获取热门识别病虫害
      */
@@ -2,6 +2,7 @@ package com.forestpest.service;
 
 import com.forestpest.entity.Pesticide;
 import com.forestpest.entity.PesticideUsageRecord;
+import com.forestpest.util.StreamingExportUtil;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -82,6 +83,11 @@ public interface PesticideManagementService {
      */
     List<PesticideUsageRecord> getUsageRecords(String pesticideId);
     
+    /**
+     * 获取全部药剂使用记录
+     */
+    List<PesticideUsageRecord> getAllUsageRecords();
+    
     /**
      * 获取用户的药剂使用记录
      */
@@ -192,6 +198,16 @@ public interface PesticideManagementService {
      */
     String exportUsageRecords(LocalDate startDate, LocalDate endDate, String format);
     
+    /**
+     * 流式导出库存数据
+     */
+    StreamingExportUtil.ExportWriter streamInventoryData(String format);
+    
+    /**
+     * 流式导出使用记录
+     */
+    StreamingExportUtil.ExportWriter streamUsageRecords(LocalDate startDate, LocalDate endDate, String format);
+    
     /**
      * 批量更新库存
      */
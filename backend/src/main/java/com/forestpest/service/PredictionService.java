@@ -2,6 +2,7 @@ package com.forestpest.service;
 
 import com.forestpest.entity.PestPrediction;
 import com.forestpest.entity.PestAlert;
+import com.forestpest.util.StreamingExportUtil;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -397,6 +398,11 @@ public interface PredictionService {
      */
     boolean deployPredictionModel(String modelId);
     
+    /**
+     * 回滚预测模型到上一个训练版本
+     */
+    boolean rollbackPredictionModel(String modelId);
+    
     /**
      * 获取模型性能指标
      */
@@ -419,6 +425,16 @@ public interface PredictionService {
      */
     String exportAlertData(String format, Map<String, Object> filters);
     
+    /**
+     * 流式导出预测数据
+     */
+    StreamingExportUtil.ExportWriter streamPredictionData(String format, Map<String, Object> filters);
+    
+    /**
+     * 流式导出预警数据
+     */
+    StreamingExportUtil.ExportWriter streamAlertData(String format, Map<String, Object> filters);
+    
     /**
      * 导出预测报告
      */
@@ -483,6 +499,53 @@ public interface PredictionService {
      */
     boolean archiveHistoricalData(LocalDate beforeDate);
     
+    /**
+     * 查询归档的预测记录
+     */
+    List<PestPrediction> getArchivedPredictions(String pestId, String targetArea, LocalDate startDate, LocalDate endDate);
+    
+    /**
+     * 查询归档的预警记录
+     */
+    List<PestAlert> getArchivedAlerts(String predictionId);
+    
+    // ========== 空间查询 ==========
+    
+    /**
+     * 查询指定区域周边半径（公里）内各区域的预测记录
+     */
+    List<PestPrediction> getPredictionsNearArea(String areaId, double radiusKm);
+    
+    /**
+     * 查询多边形范围内各区域的预测记录，多边形格式为"纬度,经度;纬度,经度;..."
+     */
+    List<PestPrediction> getPredictionsWithinPolygon(String polygon);
+    
+    /**
+     * 查询区域及其全部下级区域的预测记录
+     */
+    List<PestPrediction> getPredictionsInArea(String areaId);
+    
+    /**
+     * 查询指定区域周边半径（公里）内各区域的预警记录
+     */
+    List<PestAlert> getAlertsNearArea(String areaId, double radiusKm);
+    
+    /**
+     * 查询多边形范围内各区域的预警记录
+     */
+    List<PestAlert> getAlertsWithinPolygon(String polygon);
+    
+    /**
+     * 查询区域及其全部下级区域的预警记录
+     */
+    List<PestAlert> getAlertsInArea(String areaId);
+    
+    /**
+     * 按直接下级区域汇总预测和活跃预警数量
+     */
+    Map<String, Object> getSpatialRiskSummary(String areaId);
+    
     /**
      * 系统健康检查
      */
@@ -0,0 +1,49 @@
+package com.forestpest.service;
+
+import com.forestpest.data.storage.TaskProgress.Status;
+import com.forestpest.exception.BusinessException;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 防治任务状态流转表
+ * 状态按TaskProgress.Status归并后校验，中英文状态值遵循同一张表；
+ * 无法归并的历史状态不限制流转，但不能作为流转目标。
+ */
+public final class TaskStateMachine {
+
+    private static final Map<Status, Set<Status>> TRANSITIONS = new EnumMap<>(Status.class);
+
+    static {
+        TRANSITIONS.put(Status.PENDING, EnumSet.of(Status.ASSIGNED, Status.IN_PROGRESS, Status.CANCELLED));
+        // 已分配的任务可以改派，也可以退回待分配
+        TRANSITIONS.put(Status.ASSIGNED, EnumSet.of(Status.PENDING, Status.ASSIGNED, Status.IN_PROGRESS,
+                Status.COMPLETED, Status.CANCELLED));
+        TRANSITIONS.put(Status.IN_PROGRESS, EnumSet.of(Status.ASSIGNED, Status.COMPLETED, Status.CANCELLED));
+        TRANSITIONS.put(Status.COMPLETED, EnumSet.noneOf(Status.class));
+        TRANSITIONS.put(Status.CANCELLED, EnumSet.of(Status.PENDING));
+        TRANSITIONS.put(Status.OTHER, EnumSet.complementOf(EnumSet.of(Status.OTHER)));
+    }
+
+    private TaskStateMachine() {
+    }
+
+    public static boolean canTransition(String from, String to) {
+        return TRANSITIONS.get(Status.of(from)).contains(Status.of(to));
+    }
+
+    /**
+     * 校验状态流转，不允许时抛出业务异常
+     */
+    public static void checkTransition(String from, String to) {
+        if (Status.of(to) == Status.OTHER) {
+            throw new BusinessException("未知的任务状态: " + to);
+        }
+        if (!canTransition(from, to)) {
+            throw new BusinessException("INVALID_TRANSITION", "任务状态不能从" + from + "变为" + to);
+        }
+    }
+}
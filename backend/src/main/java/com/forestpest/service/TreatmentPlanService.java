@@ -1,5 +1,6 @@
 package com.forestpest.service;
 
+import com.forestpest.dto.TaskBatchResultDTO;
 import com.forestpest.entity.TreatmentPlan;
 import com.forestpest.entity.TreatmentTask;
 import com.forestpest.entity.TreatmentMethod;
@@ -57,11 +58,21 @@ public interface TreatmentPlanService {
      */
     TreatmentTask assignTreatmentTask(String taskId, String assigneeId, String assignerId);
     
+    /**
+     * 分配防治任务，expectedVersion不为空时任务版本不一致则抛出版本冲突
+     */
+    TreatmentTask assignTreatmentTask(String taskId, String assigneeId, String assignerId, Long expectedVersion);
+    
     /**
      * 更新任务状态
      */
     TreatmentTask updateTaskStatus(String taskId, String status, String userId);
     
+    /**
+     * 更新任务状态，expectedVersion不为空时任务版本不一致则抛出版本冲突
+     */
+    TreatmentTask updateTaskStatus(String taskId, String status, String userId, Long expectedVersion);
+    
     /**
      * 获取防治任务列表
      */
@@ -82,6 +93,12 @@ public interface TreatmentPlanService {
      */
     TreatmentTask completeTreatmentTask(String taskId, String userId, Map<String, Object> completionData);
     
+    /**
+     * 完成防治任务，expectedVersion不为空时任务版本不一致则抛出版本冲突
+     */
+    TreatmentTask completeTreatmentTask(String taskId, String userId, Map<String, Object> completionData,
+                                        Long expectedVersion);
+    
     /**
      * 获取防治进度统计
      */
@@ -152,6 +169,12 @@ public interface TreatmentPlanService {
      */
     List<TreatmentTask> batchCreateTreatmentTasks(String planId, List<TreatmentTask> tasks, String userId);
     
+    /**
+     * 大批量创建防治任务，逐项返回处理结果；autoAssign为true时未指定执行人的任务随即排程
+     */
+    TaskBatchResultDTO bulkCreateTreatmentTasks(String planId, List<TreatmentTask> tasks, String userId,
+                                                boolean autoAssign);
+    
     /**
      * 获取防治任务统计
      */
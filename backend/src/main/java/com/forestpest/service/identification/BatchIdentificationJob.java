@@ -0,0 +1,200 @@
+package com.forestpest.service.identification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量图片识别任务
+ * 图片按完成先后记录顺序，调用方用游标增量获取新完成的结果；
+ * 可以注册回调在出现新结果时得到通知，不占用等待线程。
+ */
+public class BatchIdentificationJob {
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    private final String id;
+    private final String userId;
+    private final List<BatchImage> images;
+    private final LocalDateTime submittedTime = LocalDateTime.now();
+
+    // 按完成先后排列的图片序号，游标即该列表的下标
+    private final List<Integer> completionOrder = new ArrayList<>();
+    private int succeeded;
+    private int failed;
+    private int cancelledCount;
+    // 等待游标之后新结果的回调，触发后移除
+    private final Map<Runnable, Integer> progressListeners = new LinkedHashMap<>();
+
+    private volatile String status = STATUS_QUEUED;
+    private volatile boolean cancelRequested;
+    private volatile LocalDateTime startedTime;
+    private volatile LocalDateTime finishedTime;
+
+    public BatchIdentificationJob(String id, String userId, List<BatchImage> images) {
+        this.id = id;
+        this.userId = userId;
+        this.images = Collections.unmodifiableList(new ArrayList<>(images));
+    }
+
+    synchronized void markStarted() {
+        if (STATUS_QUEUED.equals(status)) {
+            status = STATUS_RUNNING;
+            startedTime = LocalDateTime.now();
+        }
+    }
+
+    /**
+     * 记录一张图片处理结束，全部结束时任务完成并唤醒等待方；回调在锁外执行
+     */
+    void complete(BatchImage image) {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (this) {
+            completionOrder.add(image.getIndex());
+            if (BatchImage.STATUS_SUCCEEDED.equals(image.getStatus())) {
+                succeeded++;
+            } else if (BatchImage.STATUS_FAILED.equals(image.getStatus())) {
+                failed++;
+            } else {
+                cancelledCount++;
+            }
+            if (completionOrder.size() == images.size()) {
+                status = cancelRequested ? STATUS_CANCELLED : STATUS_COMPLETED;
+                finishedTime = LocalDateTime.now();
+            }
+            Iterator<Map.Entry<Runnable, Integer>> iterator = progressListeners.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Runnable, Integer> entry = iterator.next();
+                if (hasProgress(entry.getValue())) {
+                    ready.add(entry.getKey());
+                    iterator.remove();
+                }
+            }
+            notifyAll();
+        }
+        ready.forEach(Runnable::run);
+    }
+
+    private boolean hasProgress(int cursor) {
+        return completionOrder.size() > cursor || isFinished();
+    }
+
+    public void requestCancel() {
+        cancelRequested = true;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public synchronized boolean isFinished() {
+        return completionOrder.size() == images.size();
+    }
+
+    public synchronized int getCompletedCount() {
+        return completionOrder.size();
+    }
+
+    /**
+     * 等待游标之后出现新结果或任务结束，超时返回false
+     */
+    public synchronized boolean awaitProgress(int cursor, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (completionOrder.size() <= cursor && !isFinished()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * 游标之后出现新结果或任务结束时执行一次回调，已满足时立即在调用线程执行
+     */
+    public void onProgress(int cursor, Runnable listener) {
+        synchronized (this) {
+            if (!hasProgress(cursor)) {
+                progressListeners.put(listener, cursor);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * 移除尚未触发的回调，用于等待超时或连接关闭
+     */
+    public synchronized void removeProgressListener(Runnable listener) {
+        progressListeners.remove(listener);
+    }
+
+    /**
+     * 获取游标之后完成的图片结果，最多limit条
+     */
+    public synchronized List<Map<String, Object>> getResultsSince(int cursor, int limit) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        int end = Math.min(completionOrder.size(), Math.max(0, cursor) + Math.max(0, limit));
+        for (int i = Math.max(0, cursor); i < end; i++) {
+            results.add(images.get(completionOrder.get(i)).toSummary());
+        }
+        return results;
+    }
+
+    /**
+     * 任务进度摘要
+     */
+    public synchronized Map<String, Object> toSummary() {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("jobId", id);
+        summary.put("userId", userId);
+        summary.put("status", status);
+        summary.put("total", images.size());
+        summary.put("completed", completionOrder.size());
+        summary.put("succeeded", succeeded);
+        summary.put("failed", failed);
+        summary.put("cancelled", cancelledCount);
+        summary.put("submittedTime", submittedTime);
+        summary.put("startedTime", startedTime);
+        summary.put("finishedTime", finishedTime);
+        return summary;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public List<BatchImage> getImages() {
+        return images;
+    }
+
+    public BatchImage getImage(int index) {
+        return index >= 0 && index < images.size() ? images.get(index) : null;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getSubmittedTime() {
+        return submittedTime;
+    }
+
+    public LocalDateTime getFinishedTime() {
+        return finishedTime;
+    }
+}
@@ -0,0 +1,310 @@
+package com.forestpest.service.identification;
+
+import com.forestpest.entity.IdentificationResult;
+import com.forestpest.util.ImageProcessingUtil;
+import com.forestpest.util.PerceptualHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量图片识别流水线
+ * 校验、解码、缩略图、识别四个阶段各有独立的有界线程池，图片逐张在阶段间流转。
+ * 每个阶段用信号量限制排队数量，下游阶段排满时上游线程阻塞等待，形成背压，
+ * 内存中待处理的图片数量与批次大小无关。
+ */
+public class BatchIdentificationPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchIdentificationPipeline.class);
+
+    /**
+     * 识别阶段的具体识别逻辑
+     */
+    @FunctionalInterface
+    public interface Identifier {
+        IdentificationResult identify(BatchImage image, String userId);
+    }
+
+    private final Identifier identifier;
+    private final int workers;
+    private final int queueCapacity;
+
+    private volatile Stage intake;
+    private volatile Stage validate;
+    private volatile Stage decode;
+    private volatile Stage thumbnail;
+    private volatile Stage identify;
+
+    public BatchIdentificationPipeline(Identifier identifier) {
+        this(identifier, Runtime.getRuntime().availableProcessors(), 64);
+    }
+
+    public BatchIdentificationPipeline(Identifier identifier, int workers, int queueCapacity) {
+        this.identifier = identifier;
+        this.workers = Math.max(1, workers);
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * 提交任务，立即返回；图片由投递线程逐张送入流水线
+     */
+    public void submit(BatchIdentificationJob job) {
+        start();
+        intake.executeAsync(() -> {
+            job.markStarted();
+            for (BatchImage image : job.getImages()) {
+                try {
+                    validate.submit(() -> validate(job, image));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    finish(job, image, null, "任务被中断");
+                }
+            }
+            return null;
+        });
+    }
+
+    // 各阶段返回下一步动作，阶段耗时不包含等待下游排队的时间
+
+    private Runnable validate(BatchIdentificationJob job, BatchImage image) {
+        if (skipIfCancelled(job, image)) {
+            return null;
+        }
+        try {
+            ImageProcessingUtil.validateImage(image.getContentType(), image.getFileName(), image.getSize());
+        } catch (RuntimeException e) {
+            finish(job, image, null, e.getMessage());
+            return null;
+        }
+        return forward(job, image, decode, () -> decode(job, image));
+    }
+
+    private Runnable decode(BatchIdentificationJob job, BatchImage image) {
+        if (skipIfCancelled(job, image)) {
+            return null;
+        }
+        try {
+            // 按缩略图尺寸采样解码，不生成全尺寸像素
+            Path source = image.getSource();
+            if (source == null) {
+                throw new IOException("图片文件不存在");
+            }
+            try (InputStream in = Files.newInputStream(source)) {
+                ImageProcessingUtil.SampledImage sampled = ImageProcessingUtil.readForThumbnail(in);
+                image.setDecoded(sampled.getImage(), sampled.getSourceWidth(), sampled.getSourceHeight());
+            }
+        } catch (IOException | RuntimeException e) {
+            finish(job, image, null, "图片解码失败: " + e.getMessage());
+            return null;
+        }
+        return forward(job, image, thumbnail, () -> thumbnail(job, image));
+    }
+
+    private Runnable thumbnail(BatchIdentificationJob job, BatchImage image) {
+        if (skipIfCancelled(job, image)) {
+            return null;
+        }
+        try {
+            image.setPerceptualHash(PerceptualHash.dHash(image.getDecoded()));
+            image.setThumbnail(ImageProcessingUtil.generateThumbnail(image.getDecoded()));
+        } catch (IOException | RuntimeException e) {
+            // 缩略图失败不影响识别
+            logger.warn("生成缩略图失败: job={}, index={}", job.getId(), image.getIndex(), e);
+        }
+        // 采样解码后的图片较小，保留给识别阶段作为模型输入，处理结束后释放
+        return forward(job, image, identify, () -> identify(job, image));
+    }
+
+    private Runnable identify(BatchIdentificationJob job, BatchImage image) {
+        if (skipIfCancelled(job, image)) {
+            return null;
+        }
+        try {
+            finish(job, image, identifier.identify(image, job.getUserId()), null);
+        } catch (RuntimeException e) {
+            finish(job, image, null, "识别失败: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private Runnable forward(BatchIdentificationJob job, BatchImage image, Stage next, StageTask task) {
+        return () -> {
+            try {
+                next.submit(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                finish(job, image, null, "任务被中断");
+            }
+        };
+    }
+
+    private boolean skipIfCancelled(BatchIdentificationJob job, BatchImage image) {
+        if (!job.isCancelRequested()) {
+            return false;
+        }
+        image.cancel();
+        job.complete(image);
+        return true;
+    }
+
+    private void finish(BatchIdentificationJob job, BatchImage image, IdentificationResult result, String error) {
+        if (result != null) {
+            image.succeed(result);
+        } else {
+            image.fail(error);
+        }
+        job.complete(image);
+    }
+
+    /**
+     * 各阶段的排队和耗时统计
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("workers", workers);
+        statistics.put("queueCapacity", queueCapacity);
+        if (intake != null) {
+            statistics.put("validate", validate.snapshot());
+            statistics.put("decode", decode.snapshot());
+            statistics.put("thumbnail", thumbnail.snapshot());
+            statistics.put("identify", identify.snapshot());
+        }
+        return statistics;
+    }
+
+    /**
+     * 首次提交时才创建线程池
+     */
+    private void start() {
+        if (intake != null) {
+            return;
+        }
+        synchronized (this) {
+            if (intake == null) {
+                validate = new Stage("validate", Math.max(1, workers / 2), queueCapacity);
+                decode = new Stage("decode", workers, queueCapacity);
+                // 缩略图阶段排队的是解码后的图片，排队容量不超过线程数；感知哈希也在此阶段计算
+                thumbnail = new Stage("thumbnail", workers, Math.min(queueCapacity, workers));
+                identify = new Stage("identify", workers, queueCapacity);
+                intake = new Stage("intake", 2, Integer.MAX_VALUE - 2);
+            }
+        }
+    }
+
+    public void shutdown() {
+        if (intake == null) {
+            return;
+        }
+        intake.shutdown();
+        validate.shutdown();
+        decode.shutdown();
+        thumbnail.shutdown();
+        identify.shutdown();
+    }
+
+    /**
+     * 阶段任务，返回需要在释放本阶段线程前执行的后续动作
+     */
+    @FunctionalInterface
+    private interface StageTask {
+        Runnable run();
+    }
+
+    /**
+     * 流水线阶段：固定线程数，信号量许可数为线程数加排队容量
+     */
+    private static final class Stage {
+        private final String name;
+        private final ExecutorService executor;
+        private final Semaphore permits;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        private Stage(String name, int threads, int capacity) {
+            this.name = name;
+            this.permits = new Semaphore(threads + capacity);
+            AtomicInteger sequence = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "batch-identify-" + name + "-" + sequence.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            ((ThreadPoolExecutor) executor).allowCoreThreadTimeOut(true);
+        }
+
+        /**
+         * 提交任务，排队已满时阻塞调用线程
+         */
+        private void submit(StageTask task) throws InterruptedException {
+            permits.acquire();
+            execute(task);
+        }
+
+        /**
+         * 提交任务，排队已满时不阻塞，只用于投递阶段
+         */
+        private void executeAsync(StageTask task) {
+            permits.acquireUninterruptibly();
+            execute(task);
+        }
+
+        private void execute(StageTask task) {
+            try {
+                executor.execute(() -> {
+                    long start = System.nanoTime();
+                    active.incrementAndGet();
+                    try {
+                        Runnable next = null;
+                        try {
+                            next = task.run();
+                        } finally {
+                            active.decrementAndGet();
+                            busyNanos.addAndGet(System.nanoTime() - start);
+                            processed.incrementAndGet();
+                        }
+                        // 下游排满时在此阻塞，本阶段许可暂不释放
+                        if (next != null) {
+                            next.run();
+                        }
+                    } catch (RuntimeException e) {
+                        logger.error("批量识别阶段执行失败: {}", name, e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            long count = processed.get();
+            snapshot.put("active", active.get());
+            snapshot.put("queued", ((ThreadPoolExecutor) executor).getQueue().size());
+            snapshot.put("processed", count);
+            snapshot.put("averageMillis", count > 0 ? busyNanos.get() / 1_000_000.0 / count : 0.0);
+            return snapshot;
+        }
+
+        private void shutdown() {
+            executor.shutdownNow();
+        }
+    }
+}
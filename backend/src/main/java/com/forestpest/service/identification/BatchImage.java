@@ -0,0 +1,189 @@
+package com.forestpest.service.identification;
+
+import com.forestpest.entity.IdentificationResult;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 批量识别中的单张图片
+ * 上传内容在提交时写入图片存储（未启用时写入临时文件），这里只保存文件引用；
+ * 各阶段依次填充解码结果、缩略图和识别结果，处理结束后释放引用，只保留缩略图和结果。
+ */
+public class BatchImage {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SUCCEEDED = "SUCCEEDED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    private final int index;
+    private final String fileName;
+    private final String contentType;
+    private final long size;
+    private final String imagePath;
+    private final boolean temporary;
+
+    private volatile Path source;
+    private volatile BufferedImage decoded;
+    private volatile int width;
+    private volatile int height;
+    private volatile byte[] thumbnail;
+    private volatile Long perceptualHash;
+    private volatile IdentificationResult result;
+    private volatile String error;
+    private volatile String status = STATUS_PENDING;
+
+    /**
+     * @param source 图片文件，未通过校验的图片为null
+     * @param imagePath 图片访问路径，为null时source是处理结束后删除的临时文件
+     */
+    public BatchImage(int index, String fileName, String contentType, long size, Path source, String imagePath) {
+        this.index = index;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.size = size;
+        this.source = source;
+        this.imagePath = imagePath;
+        this.temporary = source != null && imagePath == null;
+    }
+
+    void succeed(IdentificationResult result) {
+        this.result = result;
+        this.status = STATUS_SUCCEEDED;
+        release();
+    }
+
+    void fail(String error) {
+        this.error = error;
+        this.status = STATUS_FAILED;
+        release();
+    }
+
+    void cancel() {
+        this.status = STATUS_CANCELLED;
+        release();
+    }
+
+    private void release() {
+        Path file = source;
+        source = null;
+        decoded = null;
+        if (temporary && file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // 临时文件删除失败不影响结果
+            }
+        }
+    }
+
+    public boolean isDone() {
+        return !STATUS_PENDING.equals(status);
+    }
+
+    /**
+     * 转换为接口返回的结构，不包含图片数据
+     */
+    public Map<String, Object> toSummary() {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("index", index);
+        summary.put("fileName", fileName);
+        summary.put("status", status);
+        summary.put("width", width);
+        summary.put("height", height);
+        summary.put("hasThumbnail", thumbnail != null);
+        if (result != null) {
+            summary.put("result", result);
+        }
+        if (error != null) {
+            summary.put("error", error);
+        }
+        return summary;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public Path getSource() {
+        return source;
+    }
+
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    public BufferedImage getDecoded() {
+        return decoded;
+    }
+
+    public void setDecoded(BufferedImage decoded) {
+        this.decoded = decoded;
+        if (decoded != null) {
+            this.width = decoded.getWidth();
+            this.height = decoded.getHeight();
+        }
+    }
+    
+    /**
+     * 设置采样解码的图片，宽高记录原图尺寸
+     */
+    public void setDecoded(BufferedImage decoded, int width, int height) {
+        this.decoded = decoded;
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public byte[] getThumbnail() {
+        return thumbnail;
+    }
+
+    public void setThumbnail(byte[] thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+
+    public Long getPerceptualHash() {
+        return perceptualHash;
+    }
+    
+    public void setPerceptualHash(Long perceptualHash) {
+        this.perceptualHash = perceptualHash;
+    }
+    
+    public IdentificationResult getResult() {
+        return result;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,33 @@
+package com.forestpest.service.identification;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * 图片识别模型扩展点
+ * 实现类注册为Spring Bean后按名称选用；预处理在请求线程执行，推理按批次调用，
+ * 实现需保证可被多个推理线程同时调用。
+ */
+public interface IdentificationModel {
+
+    /**
+     * 模型名称，对应配置 identification.model.name
+     */
+    String getName();
+
+    /**
+     * 将采样解码后的图片转换为模型输入
+     */
+    float[] preprocess(BufferedImage image);
+
+    /**
+     * 批量推理，返回每个输入对各类别的原始得分（logit），类别顺序与classIds一致
+     */
+    float[][] infer(List<float[]> inputs, List<String> classIds);
+
+    /**
+     * 启动预热，加载权重并触发热点代码编译
+     */
+    default void warmUp() {
+    }
+}
@@ -0,0 +1,294 @@
+package com.forestpest.service.identification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 识别模型运行器
+ * 并发的识别请求进入同一队列，推理线程取到第一个请求后最多再等待maxDelay，
+ * 把期间到达的请求合并为一个批次调用模型，摊薄每次推理的固定开销。
+ * 预处理、排队、推理、后处理四个阶段分别统计耗时。
+ */
+public class IdentificationModelRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdentificationModelRunner.class);
+
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final long REQUEST_TIMEOUT_SECONDS = 10;
+
+    private final IdentificationModel model;
+    private final int workers;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final List<Thread> threads = new ArrayList<>();
+
+    private volatile List<String> classIds = Collections.emptyList();
+
+    private final StageLatency preprocessLatency = new StageLatency();
+    private final StageLatency queueLatency = new StageLatency();
+    private final StageLatency inferenceLatency = new StageLatency();
+    private final StageLatency postprocessLatency = new StageLatency();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong batchedRequests = new AtomicLong();
+
+    public IdentificationModelRunner(IdentificationModel model, int workers, int maxBatchSize, long maxDelayMicros) {
+        this.model = model;
+        this.workers = Math.max(1, workers);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, maxDelayMicros));
+        for (int i = 0; i < this.workers; i++) {
+            Thread thread = new Thread(this::runWorker, "identification-model-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    /**
+     * 更新识别类别，内容不变时保持原列表
+     */
+    public void updateCatalogue(List<String> classIds) {
+        if (!classIds.equals(this.classIds)) {
+            this.classIds = Collections.unmodifiableList(new ArrayList<>(classIds));
+        }
+    }
+
+    /**
+     * 识别一张图片，返回得分最高的topK个类别
+     */
+    public List<Candidate> identify(BufferedImage image, int topK) {
+        long start = System.nanoTime();
+        float[] features = model.preprocess(image);
+        preprocessLatency.record(System.nanoTime() - start);
+
+        Request request = new Request(features, topK);
+        if (!queue.offer(request)) {
+            throw new IllegalStateException("识别请求过多，请稍后再试");
+        }
+        try {
+            return request.future.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("识别被中断");
+        } catch (TimeoutException e) {
+            request.future.cancel(false);
+            throw new IllegalStateException("识别超时");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("模型推理失败: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * 启动预热：用合成图片按最大批次反复执行预处理和推理，触发即时编译
+     */
+    public void warmUp() {
+        long start = System.nanoTime();
+        model.warmUp();
+
+        BufferedImage image = new BufferedImage(256, 192, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x << 16) | (y << 8) | ((x + y) & 0xFF));
+            }
+        }
+        List<String> warmUpClasses = classIds.isEmpty() ? List.of("warmup") : classIds;
+        for (int round = 0; round < 50; round++) {
+            List<float[]> inputs = new ArrayList<>(maxBatchSize);
+            for (int i = 0; i < maxBatchSize; i++) {
+                inputs.add(model.preprocess(image));
+            }
+            model.infer(inputs, warmUpClasses);
+        }
+        logger.info("识别模型预热完成: model={}, {}ms", model.getName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void runWorker() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    Request next = queue.poll();
+                    if (next == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0 || (next = queue.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                            break;
+                        }
+                    }
+                    batch.add(next);
+                }
+                runBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void runBatch(List<Request> batch) {
+        long start = System.nanoTime();
+        List<float[]> inputs = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            queueLatency.record(start - request.enqueuedNanos);
+            inputs.add(request.features);
+        }
+        List<String> labels = classIds;
+        batchCount.incrementAndGet();
+        batchedRequests.addAndGet(batch.size());
+
+        float[][] logits;
+        try {
+            logits = model.infer(inputs, labels);
+        } catch (RuntimeException e) {
+            logger.error("识别模型推理失败: model={}", model.getName(), e);
+            for (Request request : batch) {
+                request.future.completeExceptionally(e);
+            }
+            return;
+        }
+        long inferred = System.nanoTime();
+        inferenceLatency.record(inferred - start);
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future.complete(topCandidates(logits[i], labels, batch.get(i).topK));
+        }
+        postprocessLatency.record(System.nanoTime() - inferred);
+    }
+
+    /**
+     * softmax归一化后取得分最高的类别
+     */
+    private static List<Candidate> topCandidates(float[] logits, List<String> labels, int topK) {
+        if (logits.length == 0) {
+            return Collections.emptyList();
+        }
+        float max = Float.NEGATIVE_INFINITY;
+        for (float logit : logits) {
+            max = Math.max(max, logit);
+        }
+        double[] probabilities = new double[logits.length];
+        double sum = 0.0;
+        for (int c = 0; c < logits.length; c++) {
+            probabilities[c] = Math.exp(logits[c] - max);
+            sum += probabilities[c];
+        }
+
+        int k = Math.min(Math.max(1, topK), logits.length);
+        List<Candidate> candidates = new ArrayList<>(k);
+        boolean[] taken = new boolean[logits.length];
+        for (int rank = 0; rank < k; rank++) {
+            int best = -1;
+            for (int c = 0; c < logits.length; c++) {
+                if (!taken[c] && (best < 0 || probabilities[c] > probabilities[best])) {
+                    best = c;
+                }
+            }
+            taken[best] = true;
+            candidates.add(new Candidate(labels.get(best), probabilities[best] / sum));
+        }
+        return candidates;
+    }
+
+    /**
+     * 批次与各阶段耗时统计
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        long batches = batchCount.get();
+        statistics.put("model", model.getName());
+        statistics.put("workers", workers);
+        statistics.put("maxBatchSize", maxBatchSize);
+        statistics.put("maxDelayMicros", TimeUnit.NANOSECONDS.toMicros(maxDelayNanos));
+        statistics.put("classCount", classIds.size());
+        statistics.put("queued", queue.size());
+        statistics.put("batches", batches);
+        statistics.put("averageBatchSize", batches > 0 ? (double) batchedRequests.get() / batches : 0.0);
+        statistics.put("preprocess", preprocessLatency.snapshot());
+        statistics.put("queue", queueLatency.snapshot());
+        statistics.put("inference", inferenceLatency.snapshot());
+        statistics.put("postprocess", postprocessLatency.snapshot());
+        return statistics;
+    }
+
+    public String getModelName() {
+        return model.getName();
+    }
+
+    public void shutdown() {
+        threads.forEach(Thread::interrupt);
+    }
+
+    private static final class Request {
+        private final float[] features;
+        private final int topK;
+        private final long enqueuedNanos = System.nanoTime();
+        private final CompletableFuture<List<Candidate>> future = new CompletableFuture<>();
+
+        private Request(float[] features, int topK) {
+            this.features = features;
+            this.topK = topK;
+        }
+    }
+
+    /**
+     * 阶段耗时：次数、平均和最大值
+     */
+    private static final class StageLatency {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            long n = count.get();
+            snapshot.put("count", n);
+            snapshot.put("averageMillis", n > 0 ? totalNanos.get() / 1_000_000.0 / n : 0.0);
+            snapshot.put("maxMillis", maxNanos.get() / 1_000_000.0);
+            return snapshot;
+        }
+    }
+
+    /**
+     * 识别候选类别及其概率
+     */
+    public static final class Candidate {
+        private final String classId;
+        private final double probability;
+
+        private Candidate(String classId, double probability) {
+            this.classId = classId;
+            this.probability = probability;
+        }
+
+        public String getClassId() {
+            return classId;
+        }
+
+        public double getProbability() {
+            return probability;
+        }
+    }
+}
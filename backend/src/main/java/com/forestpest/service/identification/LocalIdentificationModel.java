@@ -0,0 +1,115 @@
+package com.forestpest.service.identification;
+
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本地CPU识别模型
+ * 图片特征为4x4分块的平均颜色和8级亮度直方图，每个类别一行线性权重，
+ * 一个批次的推理是输入矩阵与权重矩阵的乘积。
+ * 未提供训练权重，类别权重按病虫害ID确定性生成，同一图片的识别结果稳定可复现。
+ */
+@Component
+public class LocalIdentificationModel implements IdentificationModel {
+
+    public static final String NAME = "local-cpu";
+
+    private static final int GRID = 4;
+    private static final int HISTOGRAM_BINS = 8;
+    // 分块颜色、亮度直方图和偏置项
+    private static final int FEATURE_COUNT = GRID * GRID * 3 + HISTOGRAM_BINS + 1;
+    private static final int MAX_CACHED_CLASSES = 10_000;
+
+    private final Map<String, float[]> classWeights = new ConcurrentHashMap<>();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public float[] preprocess(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        float[] features = new float[FEATURE_COUNT];
+        int[] cellCounts = new int[GRID * GRID];
+        int histogramOffset = GRID * GRID * 3;
+        for (int y = 0; y < height; y++) {
+            int row = y * GRID / height;
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int rgb = pixels[offset + x];
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                int cell = row * GRID + x * GRID / width;
+                features[cell * 3] += r;
+                features[cell * 3 + 1] += g;
+                features[cell * 3 + 2] += b;
+                cellCounts[cell]++;
+                int luminance = (299 * r + 587 * g + 114 * b) / 1000;
+                features[histogramOffset + luminance * HISTOGRAM_BINS / 256]++;
+            }
+        }
+
+        // 归一化到0-1
+        for (int cell = 0; cell < cellCounts.length; cell++) {
+            float scale = cellCounts[cell] > 0 ? 1.0f / (255.0f * cellCounts[cell]) : 0.0f;
+            features[cell * 3] *= scale;
+            features[cell * 3 + 1] *= scale;
+            features[cell * 3 + 2] *= scale;
+        }
+        float pixelCount = Math.max(1, width * height);
+        for (int bin = 0; bin < HISTOGRAM_BINS; bin++) {
+            features[histogramOffset + bin] /= pixelCount;
+        }
+        features[FEATURE_COUNT - 1] = 1.0f;
+        return features;
+    }
+
+    @Override
+    public float[][] infer(List<float[]> inputs, List<String> classIds) {
+        float[][] weights = new float[classIds.size()][];
+        for (int c = 0; c < weights.length; c++) {
+            weights[c] = weightsFor(classIds.get(c));
+        }
+
+        float[][] logits = new float[inputs.size()][weights.length];
+        // 外层按类别遍历，同一行权重在整个批次内保持在缓存中
+        for (int c = 0; c < weights.length; c++) {
+            float[] w = weights[c];
+            for (int i = 0; i < logits.length; i++) {
+                float[] x = inputs.get(i);
+                float sum = 0.0f;
+                for (int k = 0; k < FEATURE_COUNT; k++) {
+                    sum += w[k] * x[k];
+                }
+                logits[i][c] = sum;
+            }
+        }
+        return logits;
+    }
+
+    private float[] weightsFor(String classId) {
+        float[] weights = classWeights.get(classId);
+        if (weights != null) {
+            return weights;
+        }
+        Random random = new Random(classId.hashCode() * 31L + FEATURE_COUNT);
+        weights = new float[FEATURE_COUNT];
+        for (int k = 0; k < FEATURE_COUNT; k++) {
+            weights[k] = (float) (random.nextGaussian() * 2.0);
+        }
+        if (classWeights.size() < MAX_CACHED_CLASSES) {
+            classWeights.put(classId, weights);
+        }
+        return weights;
+    }
+}
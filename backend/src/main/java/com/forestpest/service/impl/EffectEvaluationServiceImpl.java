@@ -6,6 +6,7 @@ import com.forestpest.service.EffectEvaluationService;
 import com.forestpest.repository.EvaluationRepository;
 import com.forestpest.exception.ForestPestSystemException;
 import com.forestpest.util.IdGenerator;
+import com.forestpest.util.RandomProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -34,7 +35,9 @@ public class EffectEvaluationServiceImpl implements EffectEvaluationService {
     // 评估提醒存储
     private final Map<String, Map<String, Object>> evaluationReminders = new ConcurrentHashMap<>();
     
-    private final Random random = new Random();
+    // 随机数提供者，未注入时使用线程本地随机数
+    @Autowired
+    private RandomProvider randomProvider = RandomProvider.threadLocal();
     
     // 初始化评估模板
     {
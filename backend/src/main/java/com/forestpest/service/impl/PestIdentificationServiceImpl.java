@@ -5,15 +5,43 @@ import com.forestpest.entity.Pest;
 import com.forestpest.repository.PestRepository;
 import com.forestpest.service.PestIdentificationService;
 import com.forestpest.data.storage.DataStorage;
+import com.forestpest.data.index.BkTree;
+import com.forestpest.data.storage.IdentificationStorage;
+import com.forestpest.data.storage.ImageStorage;
 import com.forestpest.exception.BusinessException;
+import com.forestpest.service.identification.BatchIdentificationJob;
+import com.forestpest.service.identification.BatchIdentificationPipeline;
+import com.forestpest.service.identification.BatchImage;
+import com.forestpest.service.identification.IdentificationModel;
+import com.forestpest.service.identification.IdentificationModelRunner;
+import com.forestpest.util.ImageProcessingUtil;
+import com.forestpest.util.LruCache;
+import com.forestpest.util.PerceptualHash;
+import com.forestpest.util.RandomProvider;
+import com.forestpest.util.StreamingExportUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.annotation.PreDestroy;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -22,19 +50,113 @@ import java.util.stream.Collectors;
 @Service
 public class PestIdentificationServiceImpl implements PestIdentificationService {
     
+    private static final Logger logger = LoggerFactory.getLogger(PestIdentificationServiceImpl.class);
+    
     @Autowired
     private PestRepository pestRepository;
     
     @Autowired
     private DataStorage dataStorage;
     
-    // 识别结果存储
-    private final Map<String, IdentificationResult> identificationResults = new ConcurrentHashMap<>();
+    // 图片内容存储，未注入时只生成路径不落盘
+    @Autowired(required = false)
+    private ImageStorage imageStorage;
+    
+    private static final String IMAGE_URL_PREFIX = "/api/identification/images/";
+    
+    // 识别结果存储，带用户历史、病虫害索引和增量统计
+    @Autowired
+    private IdentificationStorage identificationStorage = new IdentificationStorage();
+    
+    // 图片感知哈希索引：识别结果ID按图片哈希存入BK树，结果ID -> 图片哈希
+    private final BkTree<String> imageHashIndex = new BkTree<>();
+    private final Map<String, Long> resultImageHashes = new ConcurrentHashMap<>();
+    
+    // 近似重复图片直接沿用历史结果的距离阈值，以及相似图片检索的距离阈值
+    private static final int NEAR_DUPLICATE_DISTANCE = 4;
+    private static final int SIMILAR_IMAGE_DISTANCE = 12;
+    
+    // 症状与综合条件识别的评分缓存：输入指纹 -> 按得分排序的病虫害，目录版本变化时清空
+    private volatile LruCache<String, List<ScoredPest>> rankingCache = new LruCache<>(1024);
+    private volatile long rankingCacheVersion = -1;
+    
+    // 随机数提供者，未注入时使用线程本地随机数
+    @Autowired
+    private RandomProvider randomProvider = RandomProvider.threadLocal();
+    
+    // 异步批量识别任务与流水线
+    private final Map<String, BatchIdentificationJob> batchJobs = new ConcurrentHashMap<>();
+    private volatile BatchIdentificationPipeline batchPipeline;
+    private int batchWorkers = Runtime.getRuntime().availableProcessors();
+    private int batchQueueCapacity = 64;
+    private int maxBatchImages = 5000;
+    private int maxActiveBatchJobs = 8;
+    private Duration batchJobRetention = Duration.ofHours(1);
+    
+    // 图片识别模型，默认使用模拟识别，配置模型名称（如local-cpu）后启用
+    static final String SIMULATION_MODEL = "simulation";
+    @Autowired(required = false)
+    private List<IdentificationModel> identificationModels;
+    private volatile IdentificationModelRunner modelRunner;
+    private volatile ModelCatalogue modelCatalogue;
+    private String modelName = SIMULATION_MODEL;
+    private int modelWorkers = Runtime.getRuntime().availableProcessors();
+    private int modelMaxBatchSize = 16;
+    private long modelMaxDelayMicros = 2000;
+    
+    @Value("${identification.cache.max-entries:1024}")
+    public void setRankingCacheMaxEntries(int maxEntries) {
+        this.rankingCache = new LruCache<>(maxEntries);
+    }
+    
+    @Value("${identification.model.name:simulation}")
+    public void setModelName(String modelName) {
+        this.modelName = modelName;
+    }
+    
+    @Value("${identification.model.workers:0}")
+    public void setModelWorkers(int modelWorkers) {
+        if (modelWorkers > 0) {
+            this.modelWorkers = modelWorkers;
+        }
+    }
     
-    // 用户识别历史索引
-    private final Map<String, List<String>> userIdentificationHistory = new ConcurrentHashMap<>();
+    @Value("${identification.model.max-batch-size:16}")
+    public void setModelMaxBatchSize(int modelMaxBatchSize) {
+        this.modelMaxBatchSize = modelMaxBatchSize;
+    }
+    
+    @Value("${identification.model.max-delay-micros:2000}")
+    public void setModelMaxDelayMicros(long modelMaxDelayMicros) {
+        this.modelMaxDelayMicros = modelMaxDelayMicros;
+    }
     
-    private final Random random = new Random();
+    @Value("${identification.batch.workers:0}")
+    public void setBatchWorkers(int batchWorkers) {
+        if (batchWorkers > 0) {
+            this.batchWorkers = batchWorkers;
+        }
+    }
+    
+    @Value("${identification.batch.queue-capacity:64}")
+    public void setBatchQueueCapacity(int batchQueueCapacity) {
+        this.batchQueueCapacity = batchQueueCapacity;
+    }
+    
+    @Value("${identification.batch.max-images:5000}")
+    public void setMaxBatchImages(int maxBatchImages) {
+        this.maxBatchImages = maxBatchImages;
+    }
+    
+    @Value("${identification.batch.max-active-jobs:8}")
+    public void setMaxActiveBatchJobs(int maxActiveBatchJobs) {
+        this.maxActiveBatchJobs = maxActiveBatchJobs;
+    }
+    
+    @Value("${identification.batch.retention-minutes:60}")
+    public void setBatchJobRetentionMinutes(long minutes) {
+        this.batchJobRetention = Duration.ofMinutes(minutes);
+    }
     
     @Override
     public IdentificationResult identifyByImage(MultipartFile imageFile, String userId) {
@@ -57,11 +179,22 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
             throw new BusinessException("图片文件大小不能超过10MB");
         }
         
-        // 模拟图片识别算法
-        IdentificationResult result = simulateImageIdentification(imageFile, userId);
+        // 按缩略图尺寸解码一次，感知哈希和模型输入共用
+        BufferedImage decoded = decodeForIdentification(imageFile);
+        Long imageHash = decoded != null ? PerceptualHash.dHash(decoded) : null;
+        
+        // 保存图片，相同内容只保存一份
+        String imagePath = saveImageFile(imageFile);
+        
+        // 近似重复的图片沿用历史结果，否则调用识别模型
+        IdentificationResult result = reuseNearDuplicate(imageHash, imagePath, userId);
+        if (result == null) {
+            result = identifyImage(decoded, imageFile.getOriginalFilename(), imagePath, userId);
+        }
         
         // 保存识别结果
         saveIdentificationResult(result, userId);
+        indexImageHash(result.getId(), imageHash);
         
         return result;
     }
@@ -76,28 +209,16 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
             throw new BusinessException("用户ID不能为空");
         }
         
-        List<IdentificationResult> results = new ArrayList<>();
-        
-        // 获取所有病虫害
-        List<Pest> allPests = pestRepository.findAll();
+        // 相同症状组合直接使用缓存的评分排名
+        List<ScoredPest> ranking = cachedRanking(fingerprint("symptoms", symptoms),
+                () -> rankBySymptoms(symptoms));
         
-        // 基于症状匹配病虫害
-        for (Pest pest : allPests) {
-            double matchScore = calculateSymptomMatchScore(symptoms, pest);
-            if (matchScore > 0.3) { // 匹配度阈值
-                IdentificationResult result = createIdentificationResult(pest, matchScore, userId);
-                result.setIdentificationMethod("症状匹配");
-                result.setInputSymptoms(symptoms);
-                results.add(result);
-            }
-        }
-        
-        // 按匹配度排序
-        results.sort((r1, r2) -> Double.compare(r2.getConfidence(), r1.getConfidence()));
-        
-        // 限制返回结果数量
-        if (results.size() > 5) {
-            results = results.subList(0, 5);
+        List<IdentificationResult> results = new ArrayList<>();
+        for (ScoredPest scored : ranking) {
+            IdentificationResult result = createIdentificationResult(scored.pest, scored.score, userId);
+            result.setIdentificationMethod("症状匹配");
+            result.setInputSymptoms(symptoms);
+            results.add(result);
         }
         
         // 保存识别结果
@@ -116,10 +237,48 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
             throw new BusinessException("用户ID不能为空");
         }
         
+        // 相同条件组合直接使用缓存的评分排名
+        List<ScoredPest> ranking = cachedRanking(fingerprint("conditions", symptoms, hostPlant, season, region),
+                () -> rankByConditions(symptoms, hostPlant, season, region));
+        
         List<IdentificationResult> results = new ArrayList<>();
-        List<Pest> allPests = pestRepository.findAll();
+        for (ScoredPest scored : ranking) {
+            IdentificationResult result = createIdentificationResult(scored.pest, scored.score, userId);
+            result.setIdentificationMethod("综合条件匹配");
+            result.setInputSymptoms(symptoms);
+            result.setLocation(region);
+            result.setNotes("Host plant: " + hostPlant + ", Season: " + season);
+            results.add(result);
+        }
+        
+        // 保存识别结果
+        for (IdentificationResult result : results) {
+            saveIdentificationResult(result, userId);
+        }
         
-        for (Pest pest : allPests) {
+        return results;
+    }
+    
+    /**
+     * 按症状为所有病虫害评分，返回得分最高的5个
+     */
+    private List<ScoredPest> rankBySymptoms(List<String> symptoms) {
+        List<ScoredPest> ranking = new ArrayList<>();
+        for (Pest pest : pestRepository.findAll()) {
+            double matchScore = calculateSymptomMatchScore(symptoms, pest);
+            if (matchScore > 0.3) { // 匹配度阈值
+                ranking.add(new ScoredPest(pest, matchScore));
+            }
+        }
+        return topRanked(ranking, 5);
+    }
+    
+    /**
+     * 按综合条件为所有病虫害评分，返回得分最高的10个
+     */
+    private List<ScoredPest> rankByConditions(List<String> symptoms, String hostPlant, String season, String region) {
+        List<ScoredPest> ranking = new ArrayList<>();
+        for (Pest pest : pestRepository.findAll()) {
             double totalScore = 0.0;
             int factorCount = 0;
             
@@ -153,75 +312,91 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
             if (factorCount > 0) {
                 double averageScore = totalScore / factorCount;
                 if (averageScore > 0.3) {
-                    IdentificationResult result = createIdentificationResult(pest, averageScore, userId);
-                    result.setIdentificationMethod("综合条件匹配");
-                    result.setInputSymptoms(symptoms);
-                    result.setLocation(region);
-                    result.setNotes("Host plant: " + hostPlant + ", Season: " + season);
-                    results.add(result);
+                    ranking.add(new ScoredPest(pest, averageScore));
                 }
             }
         }
-        
+        return topRanked(ranking, 10);
+    }
+    
+    private static List<ScoredPest> topRanked(List<ScoredPest> ranking, int limit) {
         // 按匹配度排序并限制结果数量
-        results.sort((r1, r2) -> Double.compare(r2.getConfidence(), r1.getConfidence()));
-        if (results.size() > 10) {
-            results = results.subList(0, 10);
+        ranking.sort((s1, s2) -> Double.compare(s2.score, s1.score));
+        return ranking.size() > limit ? new ArrayList<>(ranking.subList(0, limit)) : ranking;
+    }
+    
+    /**
+     * 读取评分缓存，病虫害目录变化后先清空缓存
+     */
+    private List<ScoredPest> cachedRanking(String fingerprint, Supplier<List<ScoredPest>> scorer) {
+        long version = pestRepository.getCatalogueVersion();
+        LruCache<String, List<ScoredPest>> cache = rankingCache;
+        if (version != rankingCacheVersion) {
+            cache.clear();
+            rankingCacheVersion = version;
         }
-        
-        // 保存识别结果
-        for (IdentificationResult result : results) {
-            saveIdentificationResult(result, userId);
+        return cache.computeIfAbsent(version + "|" + fingerprint,
+                key -> Collections.unmodifiableList(scorer.get()));
+    }
+    
+    /**
+     * 识别输入的规范化指纹：症状排序后拼接，空白条件视为未提供
+     */
+    private static String fingerprint(String method, List<String> symptoms, String... conditions) {
+        StringBuilder key = new StringBuilder(method);
+        List<String> sorted = symptoms == null ? Collections.emptyList()
+                : symptoms.stream().map(symptom -> symptom == null ? "" : symptom).sorted().collect(Collectors.toList());
+        key.append('|').append(sorted.size());
+        for (String symptom : sorted) {
+            // 带长度前缀，避免不同拆分得到相同的拼接结果
+            key.append('|').append(symptom.length()).append(':').append(symptom);
         }
+        for (String condition : conditions) {
+            String value = condition == null || condition.trim().isEmpty() ? "" : condition;
+            key.append('|').append(value.length()).append(':').append(value);
+        }
+        return key.toString();
+    }
+    
+    /**
+     * 缓存的评分结果
+     */
+    private static final class ScoredPest {
+        private final Pest pest;
+        private final double score;
         
-        return results;
+        private ScoredPest(Pest pest, double score) {
+            this.pest = pest;
+            this.score = score;
+        }
     } 
    
     @Override
     public List<IdentificationResult> getIdentificationHistory(String userId) {
-        List<String> resultIds = userIdentificationHistory.get(userId);
-        if (resultIds == null) {
-            return new ArrayList<>();
-        }
-        
-        return resultIds.stream()
-                .map(identificationResults::get)
-                .filter(Objects::nonNull)
-                .sorted((r1, r2) -> r2.getIdentificationTime().compareTo(r1.getIdentificationTime()))
-                .collect(Collectors.toList());
+        return identificationStorage.findByUserId(userId);
     }
     
     @Override
     public List<IdentificationResult> getIdentificationHistory(String userId, int page, int size) {
-        List<IdentificationResult> allHistory = getIdentificationHistory(userId);
-        
-        int start = page * size;
-        int end = Math.min(start + size, allHistory.size());
-        
-        if (start >= allHistory.size()) {
-            return new ArrayList<>();
-        }
-        
-        return allHistory.subList(start, end);
+        return identificationStorage.findByUserId(userId, page, size);
     }
     
     @Override
     public IdentificationResult getIdentificationResult(String resultId) {
-        return identificationResults.get(resultId);
+        return identificationStorage.findById(resultId).orElse(null);
     }
     
     @Override
     public boolean deleteIdentificationResult(String resultId, String userId) {
-        IdentificationResult result = identificationResults.get(resultId);
+        IdentificationResult result = getIdentificationResult(resultId);
         if (result == null || !userId.equals(result.getUserId())) {
             return false;
         }
         
-        identificationResults.remove(resultId);
-        
-        List<String> userHistory = userIdentificationHistory.get(userId);
-        if (userHistory != null) {
-            userHistory.remove(resultId);
+        identificationStorage.deleteById(resultId);
+        Long imageHash = resultImageHashes.remove(resultId);
+        if (imageHash != null) {
+            imageHashIndex.remove(imageHash, resultId);
         }
         
         return true;
@@ -229,68 +404,29 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
     
     @Override
     public Map<String, Object> getIdentificationStatistics(String userId) {
-        List<IdentificationResult> userHistory = getIdentificationHistory(userId);
-        
-        Map<String, Object> statistics = new HashMap<>();
-        statistics.put("totalIdentifications", userHistory.size());
-        
-        // 按方法统计
-        Map<String, Long> methodStats = userHistory.stream()
-                .collect(Collectors.groupingBy(
-                    IdentificationResult::getIdentificationMethod,
-                    Collectors.counting()
-                ));
-        statistics.put("byMethod", methodStats);
-        
-        // 按月份统计
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        Map<String, Long> monthlyStats = userHistory.stream()
-                .collect(Collectors.groupingBy(
-                    result -> result.getIdentificationTime().format(formatter),
-                    Collectors.counting()
-                ));
-        statistics.put("byMonth", monthlyStats);
-        
-        // 平均置信度
-        double avgConfidence = userHistory.stream()
-                .mapToDouble(IdentificationResult::getConfidence)
-                .average()
-                .orElse(0.0);
-        statistics.put("averageConfidence", avgConfidence);
-        
-        return statistics;
+        return identificationStorage.getUserStatistics(userId);
     }
     
     @Override
     public Map<String, Object> getSystemIdentificationStatistics() {
         Map<String, Object> statistics = new HashMap<>();
         
-        List<IdentificationResult> allResults = new ArrayList<>(identificationResults.values());
-        statistics.put("totalIdentifications", allResults.size());
-        statistics.put("totalUsers", userIdentificationHistory.size());
+        statistics.put("totalIdentifications", identificationStorage.count());
+        statistics.put("totalUsers", identificationStorage.countUsers());
         
         // 最受欢迎的病虫害
-        Map<String, Long> pestPopularity = allResults.stream()
-                .collect(Collectors.groupingBy(
-                    IdentificationResult::getPestId,
-                    Collectors.counting()
-                ));
-        statistics.put("popularPests", pestPopularity);
+        statistics.put("popularPests", identificationStorage.getPestCounts());
         
         // 识别方法统计
-        Map<String, Long> methodStats = allResults.stream()
-                .collect(Collectors.groupingBy(
-                    IdentificationResult::getIdentificationMethod,
-                    Collectors.counting()
-                ));
-        statistics.put("methodStats", methodStats);
+        statistics.put("methodStats", identificationStorage.getMethodCounts());
+        statistics.put("rankingCache", rankingCache.snapshot());
         
         return statistics;
     }
     
     @Override
     public IdentificationResult updateUserFeedback(String resultId, String userId, boolean isCorrect, String feedback) {
-        IdentificationResult result = identificationResults.get(resultId);
+        IdentificationResult result = getIdentificationResult(resultId);
         if (result == null || !userId.equals(result.getUserId())) {
             throw new BusinessException("识别结果不存在或无权限");
         }
@@ -299,42 +435,14 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
         result.setVerificationStatus(isCorrect ? "VERIFIED" : "REJECTED");
         result.setUpdatedTime(LocalDateTime.now());
         
+        // 重新保存以更新准确率计数
+        identificationStorage.save(result);
         return result;
     }
     
     @Override
     public Map<String, Double> getAccuracyStatistics() {
-        List<IdentificationResult> resultsWithFeedback = identificationResults.values().stream()
-                .filter(result -> result.getUpdatedTime() != null)
-                .collect(Collectors.toList());
-        
-        if (resultsWithFeedback.isEmpty()) {
-            return new HashMap<>();
-        }
-        
-        Map<String, Double> accuracy = new HashMap<>();
-        
-        // 总体准确率
-        long correctCount = resultsWithFeedback.stream()
-                .mapToLong(result -> "VERIFIED".equals(result.getVerificationStatus()) ? 1 : 0)
-                .sum();
-        double overallAccuracy = (double) correctCount / resultsWithFeedback.size();
-        accuracy.put("overall", overallAccuracy);
-        
-        // 按识别方法统计准确率
-        Map<String, List<IdentificationResult>> byMethod = resultsWithFeedback.stream()
-                .collect(Collectors.groupingBy(IdentificationResult::getIdentificationMethod));
-        
-        for (Map.Entry<String, List<IdentificationResult>> entry : byMethod.entrySet()) {
-            List<IdentificationResult> methodResults = entry.getValue();
-            long methodCorrectCount = methodResults.stream()
-                    .mapToLong(result -> "VERIFIED".equals(result.getVerificationStatus()) ? 1 : 0)
-                    .sum();
-            double methodAccuracy = (double) methodCorrectCount / methodResults.size();
-            accuracy.put(entry.getKey(), methodAccuracy);
-        }
-        
-        return accuracy;
+        return identificationStorage.getAccuracy();
     }    
   
   @Override
@@ -362,12 +470,22 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
     
     @Override
     public List<IdentificationResult> findSimilarIdentifications(String resultId) {
-        IdentificationResult targetResult = identificationResults.get(resultId);
+        IdentificationResult targetResult = getIdentificationResult(resultId);
         if (targetResult == null) {
             return new ArrayList<>();
         }
         
-        return identificationResults.values().stream()
+        // 有图片的结果按图片相似度查找，只访问BK树中距离范围内的节点
+        Long imageHash = resultImageHashes.get(resultId);
+        if (imageHash != null) {
+            return imageHashIndex.search(imageHash, SIMILAR_IMAGE_DISTANCE).stream()
+                    .map(match -> getIdentificationResult(match.getValue()))
+                    .filter(result -> result != null && !result.getId().equals(resultId))
+                    .limit(5)
+                    .collect(Collectors.toList());
+        }
+        
+        return identificationStorage.findAll().stream()
                 .filter(result -> !result.getId().equals(resultId))
                 .filter(result -> isSimilarResult(targetResult, result))
                 .sorted((r1, r2) -> Double.compare(r2.getConfidence(), r1.getConfidence()))
@@ -407,6 +525,238 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
         return results;
     }
     
+    @Override
+    public BatchIdentificationJob submitBatchIdentification(List<MultipartFile> imageFiles, String userId) {
+        if (imageFiles == null || imageFiles.isEmpty()) {
+            throw new BusinessException("图片文件列表不能为空");
+        }
+        
+        if (userId == null || userId.trim().isEmpty()) {
+            throw new BusinessException("用户ID不能为空");
+        }
+        
+        if (imageFiles.size() > maxBatchImages) {
+            throw new BusinessException("批量识别最多支持" + maxBatchImages + "张图片");
+        }
+        
+        purgeExpiredBatchJobs();
+        long activeJobs = batchJobs.values().stream().filter(job -> !job.isFinished()).count();
+        if (activeJobs >= maxActiveBatchJobs) {
+            throw new BusinessException("当前批量识别任务过多，请稍后再试");
+        }
+        
+        // 上传的临时文件在请求结束后删除，提交时逐张写入图片存储，排队的只是文件引用
+        List<BatchImage> images = new ArrayList<>(imageFiles.size());
+        try {
+            for (int i = 0; i < imageFiles.size(); i++) {
+                images.add(stageBatchImage(i, imageFiles.get(i)));
+            }
+        } catch (IOException e) {
+            images.forEach(this::deleteStagedFile);
+            throw new BusinessException("保存图片失败: " + e.getMessage());
+        }
+        
+        BatchIdentificationJob job = new BatchIdentificationJob(dataStorage.generateId(), userId, images);
+        batchJobs.put(job.getId(), job);
+        getBatchPipeline().submit(job);
+        return job;
+    }
+    
+    @Override
+    public BatchIdentificationJob getBatchIdentificationJob(String jobId) {
+        BatchIdentificationJob job = batchJobs.get(jobId);
+        if (job == null) {
+            throw new BusinessException("批量识别任务不存在或已过期");
+        }
+        return job;
+    }
+    
+    @Override
+    public boolean cancelBatchIdentification(String jobId, String userId) {
+        BatchIdentificationJob job = getBatchIdentificationJob(jobId);
+        if (!job.getUserId().equals(userId)) {
+            throw new BusinessException("无权限取消此批量识别任务");
+        }
+        if (job.isFinished()) {
+            return false;
+        }
+        job.requestCancel();
+        return true;
+    }
+    
+    @Override
+    public Map<String, Object> getBatchIdentificationStatistics() {
+        Map<String, Object> statistics = new HashMap<>(getBatchPipeline().getStatistics());
+        statistics.put("jobCount", batchJobs.size());
+        statistics.put("activeJobCount", batchJobs.values().stream().filter(job -> !job.isFinished()).count());
+        statistics.put("maxBatchImages", maxBatchImages);
+        statistics.put("maxActiveJobs", maxActiveBatchJobs);
+        return statistics;
+    }
+    
+    /**
+     * 把上传的图片写入图片存储，未启用时写入临时文件；未通过校验的图片不落盘，由流水线校验阶段记录失败
+     */
+    private BatchImage stageBatchImage(int index, MultipartFile imageFile) throws IOException {
+        String fileName = imageFile.getOriginalFilename();
+        String contentType = imageFile.getContentType();
+        long size = imageFile.getSize();
+        try {
+            ImageProcessingUtil.validateImage(contentType, fileName, size);
+        } catch (BusinessException e) {
+            return new BatchImage(index, fileName, contentType, size, null, null);
+        }
+        if (imageStorage != null) {
+            ImageStorage.StoredImage stored = imageStorage.store(imageFile);
+            return new BatchImage(index, fileName, contentType, size, stored.getPath(), IMAGE_URL_PREFIX + stored.getHash());
+        }
+        Path temp = Files.createTempFile("batch-image", ".tmp");
+        try (InputStream in = imageFile.getInputStream()) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return new BatchImage(index, fileName, contentType, size, temp, null);
+    }
+    
+    private void deleteStagedFile(BatchImage image) {
+        if (image.getImagePath() == null && image.getSource() != null) {
+            try {
+                Files.deleteIfExists(image.getSource());
+            } catch (IOException e) {
+                logger.warn("删除临时图片失败: {}", image.getSource(), e);
+            }
+        }
+    }
+    
+    /**
+     * 流水线识别阶段调用的单张图片识别
+     */
+    private IdentificationResult identifyBatchImage(BatchImage image, String userId) {
+        String imagePath = image.getImagePath() != null ? image.getImagePath() : simulatedImagePath(image.getFileName());
+        if (imageStorage != null && image.getThumbnail() != null && imagePath.startsWith(IMAGE_URL_PREFIX)) {
+            // 流水线已生成默认尺寸缩略图，直接放入缓存
+            try {
+                imageStorage.cacheThumbnail(imagePath.substring(IMAGE_URL_PREFIX.length()),
+                        ImageStorage.DEFAULT_THUMBNAIL_SIZE, image.getThumbnail());
+            } catch (IOException e) {
+                // 缩略图缓存失败时在首次请求时重新生成
+            }
+        }
+        IdentificationResult result = reuseNearDuplicate(image.getPerceptualHash(), imagePath, userId);
+        if (result == null) {
+            result = identifyImage(image.getDecoded(), image.getFileName(), imagePath, userId);
+        }
+        saveIdentificationResult(result, userId);
+        indexImageHash(result.getId(), image.getPerceptualHash());
+        return result;
+    }
+    
+    @Override
+    public Map<String, Object> getModelStatistics() {
+        IdentificationModelRunner runner = getModelRunner();
+        if (runner == null) {
+            Map<String, Object> statistics = new HashMap<>();
+            statistics.put("model", "simulation");
+            return statistics;
+        }
+        return runner.getStatistics();
+    }
+    
+    /**
+     * 应用启动后预热识别模型
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpIdentificationModel() {
+        IdentificationModelRunner runner = getModelRunner();
+        if (runner != null) {
+            try {
+                runner.warmUp();
+            } catch (RuntimeException e) {
+                logger.warn("识别模型预热失败: {}", runner.getModelName(), e);
+            }
+        }
+    }
+    
+    /**
+     * 应用关闭时停止推理线程和批量识别流水线
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (modelRunner != null) {
+            modelRunner.shutdown();
+        }
+        if (batchPipeline != null) {
+            batchPipeline.shutdown();
+        }
+    }
+    
+    /**
+     * 按配置名称选用识别模型，首次使用时启动推理线程；配置为simulation时不启用模型
+     */
+    private IdentificationModelRunner getModelRunner() {
+        if (modelRunner == null && identificationModels != null && !SIMULATION_MODEL.equals(modelName)) {
+            synchronized (this) {
+                if (modelRunner == null) {
+                    IdentificationModel model = identificationModels.stream()
+                            .filter(candidate -> candidate.getName().equals(modelName))
+                            .findFirst()
+                            .orElse(null);
+                    if (model == null) {
+                        logger.warn("未找到识别模型 {}，使用模拟识别", modelName);
+                        identificationModels = null;
+                        return null;
+                    }
+                    modelRunner = new IdentificationModelRunner(model, modelWorkers, modelMaxBatchSize, modelMaxDelayMicros);
+                }
+            }
+        }
+        return modelRunner;
+    }
+    
+    @Override
+    public Path getImageFile(String imageHash) {
+        if (imageStorage == null) {
+            throw new BusinessException("图片存储未启用");
+        }
+        return imageStorage.find(imageHash).orElseThrow(() -> new BusinessException("图片不存在"));
+    }
+    
+    @Override
+    public Path getImageThumbnail(String imageHash, int size) {
+        if (imageStorage == null) {
+            throw new BusinessException("图片存储未启用");
+        }
+        if (!ImageStorage.THUMBNAIL_SIZES.contains(size)) {
+            throw new BusinessException("缩略图尺寸只支持" + new TreeSet<>(ImageStorage.THUMBNAIL_SIZES));
+        }
+        try {
+            return imageStorage.findThumbnail(imageHash, size).orElseThrow(() -> new BusinessException("图片不存在"));
+        } catch (IOException e) {
+            throw new BusinessException("生成缩略图失败: " + e.getMessage());
+        }
+    }
+    
+    private BatchIdentificationPipeline getBatchPipeline() {
+        if (batchPipeline == null) {
+            synchronized (batchJobs) {
+                if (batchPipeline == null) {
+                    batchPipeline = new BatchIdentificationPipeline(this::identifyBatchImage, batchWorkers, batchQueueCapacity);
+                }
+            }
+        }
+        return batchPipeline;
+    }
+    
+    /**
+     * 清理超过保留时间的已完成任务
+     */
+    private void purgeExpiredBatchJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minus(batchJobRetention);
+        batchJobs.values().removeIf(job -> job.getFinishedTime() != null && job.getFinishedTime().isBefore(threshold));
+    }
+    
     @Override
     public List<String> getIdentificationSuggestions(String partialSymptom) {
         if (partialSymptom == null || partialSymptom.trim().isEmpty()) {
@@ -450,27 +800,24 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
     
     @Override
     public String exportIdentificationHistory(String userId, String format) {
-        List<IdentificationResult> history = getIdentificationHistory(userId);
-        
-        if ("json".equalsIgnoreCase(format)) {
-            // 简化的JSON导出
-            return history.toString();
-        } else if ("csv".equalsIgnoreCase(format)) {
-            // 简化的CSV导出
-            StringBuilder csv = new StringBuilder();
-            csv.append("识别时间,病虫害名称,置信度,识别方法\n");
-            
-            for (IdentificationResult result : history) {
-                Optional<Pest> pestOpt = pestRepository.findById(result.getPestId());
-                String pestName = pestOpt.map(Pest::getName).orElse("未知");
-                
-                csv.append(result.getIdentificationTime()).append(",")
-                   .append(pestName).append(",")
-                   .append(result.getConfidence()).append(",")
-                   .append(result.getIdentificationMethod()).append("\n");
-            }
-            
-            return csv.toString();
+        return StreamingExportUtil.asString(streamIdentificationHistory(userId, format));
+    }
+    
+    @Override
+    public StreamingExportUtil.ExportWriter streamIdentificationHistory(String userId, String format) {
+        // 按时间倒序惰性遍历用户历史索引
+        Iterable<IdentificationResult> history = () -> identificationStorage.iterateByUserId(userId);
+        
+        if (StreamingExportUtil.isJson(format)) {
+            return StreamingExportUtil.json(history);
+        } else if (StreamingExportUtil.isCsv(format)) {
+            String[] header = {"识别时间", "病虫害名称", "置信度", "识别方法"};
+            return StreamingExportUtil.csv(header, history, result -> new Object[]{
+                result.getIdentificationTime(),
+                pestRepository.findById(result.getPestId()).map(Pest::getName).orElse("未知"),
+                result.getConfidence(),
+                result.getIdentificationMethod()
+            });
         }
         
         throw new BusinessException("不支持的导出格式: " + format);
@@ -478,11 +825,7 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
     
     @Override
     public List<Map<String, Object>> getPopularIdentifiedPests(int limit) {
-        Map<String, Long> pestCounts = identificationResults.values().stream()
-                .collect(Collectors.groupingBy(
-                    IdentificationResult::getPestId,
-                    Collectors.counting()
-                ));
+        Map<String, Long> pestCounts = identificationStorage.getPestCounts();
         
         return pestCounts.entrySet().stream()
                 .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
@@ -511,11 +854,10 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
             formatter = DateTimeFormatter.ofPattern("yyyy");
         }
         
-        Map<String, Long> timeCounts = identificationResults.values().stream()
-                .collect(Collectors.groupingBy(
-                    result -> result.getIdentificationTime().format(formatter),
-                    Collectors.counting()
-                ));
+        // 由每日计数汇总到所需粒度
+        Map<String, Long> timeCounts = new HashMap<>();
+        identificationStorage.getDailyCounts().forEach((date, count) ->
+                timeCounts.merge(date.format(formatter), count, Long::sum));
         
         List<Map<String, Object>> trendData = timeCounts.entrySet().stream()
                 .sorted(Map.Entry.comparingByKey())
@@ -533,12 +875,80 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
    
     // ========== 私有辅助方法 ==========
     
+    /**
+     * 调用识别模型识别图片，模型不可用或图片无法解码时使用模拟识别
+     */
+    private IdentificationResult identifyImage(BufferedImage decoded, String fileName, String imagePath, String userId) {
+        IdentificationModelRunner runner = getModelRunner();
+        if (runner == null || decoded == null) {
+            return simulateImageIdentification(fileName, imagePath, userId);
+        }
+        
+        Map<String, Pest> pestsById = getModelCatalogue(runner).pestsById;
+        if (pestsById.isEmpty()) {
+            throw new BusinessException("系统中没有病虫害数据");
+        }
+        
+        List<IdentificationModelRunner.Candidate> candidates;
+        try {
+            candidates = runner.identify(decoded, 3);
+        } catch (IllegalStateException e) {
+            throw new BusinessException(e.getMessage());
+        }
+        Pest selectedPest = candidates.isEmpty() ? null : pestsById.get(candidates.get(0).getClassId());
+        if (selectedPest == null) {
+            // 类别表刚刚变化，本次结果对应的病虫害已不存在
+            return simulateImageIdentification(fileName, imagePath, userId);
+        }
+        
+        IdentificationResult result = createIdentificationResult(selectedPest, candidates.get(0).getProbability(), userId);
+        result.setPestName(selectedPest.getName());
+        result.setIdentificationMethod("图片识别");
+        result.setImagePath(imagePath);
+        result.setAlternativePests(candidates.stream().skip(1)
+                .map(candidate -> pestsById.get(candidate.getClassId()))
+                .filter(Objects::nonNull)
+                .map(Pest::getName)
+                .collect(Collectors.toList()));
+        return result;
+    }
+    
+    /**
+     * 识别模型使用的病虫害类别，病虫害数据版本变化时才重新加载并更新模型类别
+     */
+    private ModelCatalogue getModelCatalogue(IdentificationModelRunner runner) {
+        long version = pestRepository.getCatalogueVersion();
+        ModelCatalogue catalogue = modelCatalogue;
+        if (catalogue == null || catalogue.version != version) {
+            Map<String, Pest> pestsById = new LinkedHashMap<>();
+            for (Pest pest : pestRepository.findAll()) {
+                pestsById.put(pest.getId(), pest);
+            }
+            catalogue = new ModelCatalogue(version, pestsById);
+            runner.updateCatalogue(new ArrayList<>(pestsById.keySet()));
+            modelCatalogue = catalogue;
+        }
+        return catalogue;
+    }
+    
+    /**
+     * 某一版本的病虫害类别
+     */
+    private static final class ModelCatalogue {
+        private final long version;
+        private final Map<String, Pest> pestsById;
+        
+        private ModelCatalogue(long version, Map<String, Pest> pestsById) {
+            this.version = version;
+            this.pestsById = pestsById;
+        }
+    }
+    
     /**
      * 模拟图片识别算法
      */
-    private IdentificationResult simulateImageIdentification(MultipartFile imageFile, String userId) {
+    private IdentificationResult simulateImageIdentification(String fileName, String imagePath, String userId) {
         // 基于文件名或时间戳生成模拟识别结果
-        String fileName = imageFile.getOriginalFilename();
         List<Pest> allPests = pestRepository.findAll();
         
         if (allPests.isEmpty()) {
@@ -546,16 +956,16 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
         }
         
         // 基于文件名哈希选择病虫害
-        int index = Math.abs((fileName != null ? fileName.hashCode() : 0) + 
-                            (int) System.currentTimeMillis()) % allPests.size();
+        int index = Math.floorMod((fileName != null ? fileName.hashCode() : 0) + 
+                            randomProvider.nextInt(allPests.size()), allPests.size());
         Pest selectedPest = allPests.get(index);
         
         // 生成置信度（0.6-0.95之间）
-        double confidence = 0.6 + random.nextDouble() * 0.35;
+        double confidence = 0.6 + randomProvider.nextDouble() * 0.35;
         
         IdentificationResult result = createIdentificationResult(selectedPest, confidence, userId);
         result.setIdentificationMethod("图片识别");
-        result.setImagePath(saveImageFile(imageFile));
+        result.setImagePath(imagePath);
         
         return result;
     }
@@ -640,16 +1050,72 @@ public class PestIdentificationServiceImpl implements PestIdentificationService
      * 保存识别结果
      */
     private void saveIdentificationResult(IdentificationResult result, String userId) {
-        identificationResults.put(result.getId(), result);
-        userIdentificationHistory.computeIfAbsent(userId, k -> new ArrayList<>()).add(result.getId());
+        identificationStorage.save(result);
     }
     
     /**
-     * 保存图片文件（模拟）
+     * 按缩略图尺寸解码上传图片，无法解码时返回null
+     */
+    private BufferedImage decodeForIdentification(MultipartFile imageFile) {
+        try (InputStream in = imageFile.getInputStream()) {
+            return ImageProcessingUtil.readForThumbnail(in).getImage();
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+    
+    private void indexImageHash(String resultId, Long imageHash) {
+        if (imageHash != null) {
+            resultImageHashes.put(resultId, imageHash);
+            imageHashIndex.add(imageHash, resultId);
+        }
+    }
+    
+    /**
+     * 存在近似重复的历史图片时沿用其识别结果，不再重复识别
+     */
+    private IdentificationResult reuseNearDuplicate(Long imageHash, String imagePath, String userId) {
+        if (imageHash == null) {
+            return null;
+        }
+        for (BkTree.Match<String> match : imageHashIndex.search(imageHash, NEAR_DUPLICATE_DISTANCE)) {
+            IdentificationResult source = getIdentificationResult(match.getValue());
+            if (source == null || source.getPestId() == null) {
+                continue;
+            }
+            IdentificationResult result = new IdentificationResult();
+            result.setId(dataStorage.generateId());
+            result.setUserId(userId);
+            result.setPestId(source.getPestId());
+            result.setPestName(source.getPestName());
+            result.setConfidence(source.getConfidence());
+            result.setAlternativePests(source.getAlternativePests());
+            result.setIdentificationTime(LocalDateTime.now());
+            result.setCreatedBy(userId);
+            result.setIdentificationMethod("图片识别");
+            result.setImagePath(imagePath);
+            result.setNotes("与历史图片近似，沿用识别结果: " + source.getId());
+            return result;
+        }
+        return null;
+    }
+    
+    /**
+     * 保存上传的图片文件，返回图片访问路径
      */
     private String saveImageFile(MultipartFile imageFile) {
-        // 模拟文件保存，返回文件路径
-        String fileName = System.currentTimeMillis() + "_" + imageFile.getOriginalFilename();
+        if (imageStorage == null) {
+            return simulatedImagePath(imageFile.getOriginalFilename());
+        }
+        try {
+            return IMAGE_URL_PREFIX + imageStorage.store(imageFile).getHash();
+        } catch (IOException e) {
+            throw new BusinessException("保存图片失败: " + e.getMessage());
+        }
+    }
+    
+    private String simulatedImagePath(String originalFilename) {
+        String fileName = System.currentTimeMillis() + "_" + originalFilename;
         return "/uploads/images/" + fileName;
     }
     
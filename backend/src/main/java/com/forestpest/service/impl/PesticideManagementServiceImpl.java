@@ -5,6 +5,8 @@ import com.forestpest.entity.PesticideUsageRecord;
 import com.forestpest.service.PesticideManagementService;
 import com.forestpest.data.storage.DataStorage;
 import com.forestpest.exception.BusinessException;
+import com.forestpest.util.RandomProvider;
+import com.forestpest.util.StreamingExportUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -47,7 +49,9 @@ public class PesticideManagementServiceImpl implements PesticideManagementServic
     // 处置记录
     private final List<Map<String, Object>> disposalRecords = new ArrayList<>();
     
-    private final Random random = new Random();
+    // 随机数提供者，未注入时使用线程本地随机数
+    @Autowired
+    private RandomProvider randomProvider = RandomProvider.threadLocal();
     
     public PesticideManagementServiceImpl() {
         // 初始化默认药剂数据
@@ -316,6 +320,11 @@ public class PesticideManagementServiceImpl implements PesticideManagementServic
         return usageRecord;
     }
     
+    @Override
+    public List<PesticideUsageRecord> getAllUsageRecords() {
+        return new ArrayList<>(usageRecords.values());
+    }
+    
     @Override
     public List<PesticideUsageRecord> getUsageRecords(String pesticideId) {
         List<String> recordIds = pesticideUsageIndex.get(pesticideId);
@@ -859,54 +868,55 @@ public class PesticideManagementServiceImpl implements PesticideManagementServic
     
     @Override
     public String exportInventoryData(String format) {
-        List<Pesticide> inventory = getPesticideInventory();
+        return StreamingExportUtil.asString(streamInventoryData(format));
+    }
+    
+    @Override
+    public String exportUsageRecords(LocalDate startDate, LocalDate endDate, String format) {
+        return StreamingExportUtil.asString(streamUsageRecords(startDate, endDate, format));
+    }
+    
+    @Override
+    public StreamingExportUtil.ExportWriter streamInventoryData(String format) {
+        // 直接迭代库存视图，不复制列表
+        Iterable<Pesticide> inventory = pesticideInventory.values();
         
-        if ("json".equalsIgnoreCase(format)) {
-            return inventory.toString();
-        } else if ("csv".equalsIgnoreCase(format)) {
-            StringBuilder csv = new StringBuilder();
-            csv.append("药剂名称,商品名,有效成分,规格,类型,当前库存,单价,过期日期\n");
-            
-            for (Pesticide pesticide : inventory) {
-                csv.append(pesticide.getName()).append(",")
-                   .append(pesticide.getName()).append(",")
-                   .append(pesticide.getActiveIngredient()).append(",")
-                   .append(pesticide.getSpecification()).append(",")
-                   .append(pesticide.getCategory()).append(",")
-                   .append(pesticide.getStockQuantity()).append(",")
-                   .append(pesticide.getUnitPrice()).append(",")
-                   .append(pesticide.getExpiryDate()).append("\n");
-            }
-            
-            return csv.toString();
+        if (StreamingExportUtil.isJson(format)) {
+            return StreamingExportUtil.json(inventory);
+        } else if (StreamingExportUtil.isCsv(format)) {
+            String[] header = {"药剂名称", "商品名", "有效成分", "规格", "类型", "当前库存", "单价", "过期日期"};
+            return StreamingExportUtil.csv(header, inventory, pesticide -> new Object[]{
+                pesticide.getName(), pesticide.getName(), pesticide.getActiveIngredient(),
+                pesticide.getSpecification(), pesticide.getCategory(), pesticide.getStockQuantity(),
+                pesticide.getUnitPrice(), pesticide.getExpiryDate()
+            });
         }
         
         throw new BusinessException("不支持的导出格式: " + format);
     }
     
     @Override
-    public String exportUsageRecords(LocalDate startDate, LocalDate endDate, String format) {
-        List<PesticideUsageRecord> records = getUsageRecordsByDateRange(startDate, endDate);
+    public StreamingExportUtil.ExportWriter streamUsageRecords(LocalDate startDate, LocalDate endDate, String format) {
+        // 写出时才按日期过滤，过滤结果不落到中间列表
+        Iterable<PesticideUsageRecord> records = () -> usageRecords.values().stream()
+                .filter(record -> {
+                    LocalDate usageDate = record.getUsageTime().toLocalDate();
+                    return !usageDate.isBefore(startDate) && !usageDate.isAfter(endDate);
+                })
+                .iterator();
         
-        if ("json".equalsIgnoreCase(format)) {
-            return records.toString();
-        } else if ("csv".equalsIgnoreCase(format)) {
-            StringBuilder csv = new StringBuilder();
-            csv.append("使用时间,药剂名称,使用数量,目标区域,使用人员,任务ID\n");
-            
-            for (PesticideUsageRecord record : records) {
+        if (StreamingExportUtil.isJson(format)) {
+            return StreamingExportUtil.json(records);
+        } else if (StreamingExportUtil.isCsv(format)) {
+            String[] header = {"使用时间", "药剂名称", "使用数量", "目标区域", "使用人员", "任务ID"};
+            return StreamingExportUtil.csv(header, records, record -> {
                 Pesticide pesticide = pesticideInventory.get(record.getPesticideId());
-                String pesticideName = pesticide != null ? pesticide.getName() : "未知";
-                
-                csv.append(record.getUsageTime()).append(",")
-                   .append(pesticideName).append(",")
-                   .append(record.getUsedQuantity()).append(",")
-                   .append(record.getTargetArea()).append(",")
-                   .append(record.getUsedBy()).append(",")
-                   .append(record.getTaskId()).append("\n");
-            }
-            
-            return csv.toString();
+                return new Object[]{
+                    record.getUsageTime(), pesticide != null ? pesticide.getName() : "未知",
+                    record.getUsedQuantity(), record.getTargetArea(), record.getUsedBy(),
+                    record.getTaskId()
+                };
+            });
         }
         
         throw new BusinessException("不支持的导出格式: " + format);
@@ -1351,7 +1361,7 @@ public class PesticideManagementServiceImpl implements PesticideManagementServic
             Map<String, Object> item = new HashMap<>();
             LocalDate date = now.minusMonths(i);
             item.put("period", date.format(DateTimeFormatter.ofPattern("yyyy-MM")));
-            item.put("price", 45.0 + random.nextDouble() * 10); // 45-55之间的价�?
+            item.put("price", 45.0 + randomProvider.nextDouble() * 10); // 45-55之间的价�?
             priceData.add(item);
         }
         
@@ -1,14 +1,36 @@
 package com.forestpest.service.impl;
 
+import com.forestpest.data.index.GeoBounds;
+import com.forestpest.data.index.GeoPoint;
+import com.forestpest.data.index.GeoPolygon;
+import com.forestpest.data.storage.ForestResourceStorage;
+import com.forestpest.data.storage.PredictionArchiveStorage;
+import com.forestpest.entity.EffectEvaluation;
+import com.forestpest.entity.ForestResource;
 import com.forestpest.entity.PestPrediction;
 import com.forestpest.entity.PestAlert;
 import com.forestpest.service.PredictionService;
+import com.forestpest.service.prediction.AlertSuppressionIndex;
+import com.forestpest.service.prediction.LogisticRegressionModel;
+import com.forestpest.service.prediction.PredictionFeatureExtractor;
+import com.forestpest.service.prediction.PredictionModelRegistry;
+import com.forestpest.service.prediction.StreamingModelMetrics;
+import com.forestpest.service.prediction.TrainingSample;
+import com.forestpest.repository.EvaluationRepository;
+import com.forestpest.repository.ForestResourceRepository;
 import com.forestpest.repository.PredictionRepository;
 import com.forestpest.exception.ForestPestSystemException;
 import com.forestpest.util.IdGenerator;
+import com.forestpest.util.RandomProvider;
+import com.forestpest.util.StreamingExportUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -25,20 +47,60 @@ public class PredictionServiceImpl implements PredictionService {
     @Autowired
     private PredictionRepository predictionRepository;
     
+    @Autowired
+    private EvaluationRepository evaluationRepository;
+    
+    @Autowired
+    private PredictionArchiveStorage predictionArchiveStorage;
+    
+    @Autowired
+    private ForestResourceRepository forestResourceRepository;
+    
     // 预警规则存储
     private final Map<String, Map<String, Object>> alertRules = new ConcurrentHashMap<>();
     
     // 通知偏好存储
     private final Map<String, Map<String, Object>> notificationPreferences = new ConcurrentHashMap<>();
     
-    // 预测模型存储
-    private final Map<String, Map<String, Object>> predictionModels = new ConcurrentHashMap<>();
+    // 预警抑制索引，合并抑制窗口内的重复预警
+    private final AlertSuppressionIndex alertSuppressionIndex = new AlertSuppressionIndex();
+    
+    // 预测模型注册中心
+    private final PredictionModelRegistry modelRegistry = new PredictionModelRegistry();
+    
+    // 已上报的实际发生情况（预测ID -> 训练样本），按上报顺序只保留最近的样本；
+    // 评估指标已流式累计，淘汰的样本不再参与训练
+    private int maxReportedOutcomes = 10000;
+    private final Map<String, TrainingSample> reportedOutcomes = Collections.synchronizedMap(
+            new LinkedHashMap<String, TrainingSample>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TrainingSample> eldest) {
+                    return size() > maxReportedOutcomes;
+                }
+            });
+    
+    // 已计入评估指标的预测ID，不随训练样本淘汰，预测删除时移除；同一预测只计分一次
+    private final Set<String> scoredPredictions = ConcurrentHashMap.newKeySet();
+    
+    // 各模型的流式评估指标
+    private final Map<String, StreamingModelMetrics> modelMetrics = new ConcurrentHashMap<>();
+    
+    // 全部预测的流式评估指标
+    private final StreamingModelMetrics overallMetrics = new StreamingModelMetrics();
+    
+    // 预测记录中的模型名称与模型ID的对应关系
+    private static final Map<String, String> MODEL_ID_BY_LABEL = Map.of(
+            "历史数据模型", "history-model",
+            "天气预测模型", "weather-model",
+            "综合预测模型", "comprehensive-model");
     
     // 系统配置存储
     private final Map<String, Object> predictionConfig = new ConcurrentHashMap<>();
     private final Map<String, Object> alertConfig = new ConcurrentHashMap<>();
     
-    private final Random random = new Random();
+    // 随机数提供者，未注入时使用线程本地随机数
+    @Autowired
+    private RandomProvider randomProvider = RandomProvider.threadLocal();
     
     // 初始化配置和模型
     {
@@ -47,6 +109,22 @@ public class PredictionServiceImpl implements PredictionService {
         initializeDefaultAlertRules();
     }
     
+    /**
+     * 设置保留的上报训练样本数量上限
+     */
+    @Value("${prediction.model.max-reported-outcomes:10000}")
+    public void setMaxReportedOutcomes(int maxReportedOutcomes) {
+        this.maxReportedOutcomes = Math.max(1, maxReportedOutcomes);
+    }
+    
+    /**
+     * 设置模型文件目录，并恢复已训练的模型版本
+     */
+    @Value("${prediction.model.artifact-dir:data/models}")
+    public void setModelArtifactDirectory(String artifactDirectory) {
+        modelRegistry.setArtifactDirectory(Paths.get(artifactDirectory));
+    }
+    
     // ========== 预测管理方法实现 ==========
     
     @Override
@@ -154,6 +232,7 @@ public class PredictionServiceImpl implements PredictionService {
         }
         
         predictionRepository.deletePredictionById(predictionId);
+        scoredPredictions.remove(predictionId);
         return true;
     }
     
@@ -242,7 +321,7 @@ public class PredictionServiceImpl implements PredictionService {
         alert.setCertainty("可能");
         alert.setInstructions(prediction.getRecommendedActions());
         
-        return createAlert(alert, userId);
+        return raiseAlert(alert, userId);
     }
     
     @Override
@@ -400,7 +479,7 @@ public class PredictionServiceImpl implements PredictionService {
         prediction.setPredictionModel("历史数据模型");
         
         // 模拟基于历史数据的预测算法
-        double baseProbability = 0.3 + random.nextDouble() * 0.4; // 0.3-0.7
+        double baseProbability = 0.3 + randomProvider.nextDouble() * 0.4; // 0.3-0.7
         
         // 根据历史数据调整概率
         if (parameters.containsKey("historicalOccurrences")) {
@@ -408,7 +487,8 @@ public class PredictionServiceImpl implements PredictionService {
             baseProbability += occurrences * 0.1;
         }
         
-        prediction.setProbability(Math.min(1.0, baseProbability));
+        prediction.setProbability(scoreWithServingModel("history-model", parameters,
+                prediction.getPredictionDate(), Math.min(1.0, baseProbability)));
         prediction.setRiskLevel(calculateRiskLevel(prediction.getProbability(), parameters));
         prediction.setInfluencingFactors("历史发生频率、季节性规律、环境相似性");
         prediction.setConfidence("中等");
@@ -447,7 +527,8 @@ public class PredictionServiceImpl implements PredictionService {
             probability += 0.1;
         }
         
-        prediction.setProbability(Math.min(1.0, probability));
+        prediction.setProbability(scoreWithServingModel("weather-model", weatherData,
+                prediction.getPredictionDate(), Math.min(1.0, probability)));
         prediction.setRiskLevel(calculateRiskLevel(prediction.getProbability(), weatherData));
         prediction.setWeatherConditions(String.format("温度: %.1f°C, 湿度: %.1f%%, 降雨: %.1fmm", 
                                                       temperature, humidity, rainfall));
@@ -524,7 +605,8 @@ public class PredictionServiceImpl implements PredictionService {
             factors.add("环境因子");
         }
         
-        prediction.setProbability(Math.min(1.0, probability));
+        prediction.setProbability(scoreWithServingModel("comprehensive-model", allData,
+                prediction.getPredictionDate(), Math.min(1.0, probability)));
         prediction.setRiskLevel(calculateRiskLevel(prediction.getProbability(), allData));
         prediction.setInfluencingFactors(String.join("、", factors));
         prediction.setConfidence("高");
@@ -551,7 +633,7 @@ public class PredictionServiceImpl implements PredictionService {
     @Override
     public double calculateProbability(String pestId, String targetArea, Map<String, Object> factors) {
         // 模拟概率计算算法
-        double baseProbability = 0.3 + random.nextDouble() * 0.4; // 基础概率 0.3-0.7
+        double baseProbability = 0.3 + randomProvider.nextDouble() * 0.4; // 基础概率 0.3-0.7
         
         // 根据各种因子调整概率
         if (factors.containsKey("temperature")) {
@@ -568,7 +650,7 @@ public class PredictionServiceImpl implements PredictionService {
             }
         }
         
-        return Math.min(1.0, baseProbability);
+        return scoreWithServingModel("comprehensive-model", factors, null, Math.min(1.0, baseProbability));
     }
     
     @Override
@@ -588,6 +670,13 @@ public class PredictionServiceImpl implements PredictionService {
         // 计算准确性指标
         double accuracy = actualOccurred ? predictedProbability : (1 - predictedProbability);
         
+        // 记录实际结果，作为后续模型训练样本；同一预测只在首次上报时计入评估指标
+        reportedOutcomes.put(predictionId, new TrainingSample(
+                PredictionFeatureExtractor.extract(prediction), actualOccurred));
+        if (scoredPredictions.add(predictionId)) {
+            recordOutcome(prediction, predictedProbability, actualOccurred);
+        }
+        
         evaluation.put("predictionId", predictionId);
         evaluation.put("predictedProbability", predictedProbability);
         evaluation.put("actualOccurred", actualOccurred);
@@ -607,15 +696,15 @@ public class PredictionServiceImpl implements PredictionService {
     
     @Override
     public boolean updatePredictionModel(String modelId, Map<String, Object> trainingData) {
-        if (!predictionModels.containsKey(modelId)) {
+        if (!modelRegistry.contains(modelId)) {
             return false;
         }
         
-        Map<String, Object> model = predictionModels.get(modelId);
-        model.put("lastTrainingTime", LocalDateTime.now());
-        model.put("trainingDataSize", trainingData.size());
-        model.put("version", (Integer) model.getOrDefault("version", 1) + 1);
+        Map<String, Object> options = trainingData != null ? trainingData : new HashMap<>();
+        boolean autoDeploy = Boolean.TRUE.equals(options.get("autoDeploy"));
         
+        // 训练在后台线程执行，预测请求继续使用当前部署的模型
+        modelRegistry.trainAsync(modelId, () -> collectTrainingSamples(options), autoDeploy);
         return true;
     }
     
@@ -668,7 +757,7 @@ public class PredictionServiceImpl implements PredictionService {
         alert.setInstructions(prediction.getRecommendedActions());
         alert.setAlertType("预测预警");
         
-        return createAlert(alert, "system");
+        return raiseAlert(alert, "system");
     }
     
     @Override
@@ -902,6 +991,154 @@ public class PredictionServiceImpl implements PredictionService {
         return factors;
     }
     
+    /**
+     * 将实际结果计入对应模型和全局的流式指标
+     */
+    private void recordOutcome(PestPrediction prediction, double predictedProbability, boolean actualOccurred) {
+        overallMetrics.record(predictedProbability, actualOccurred);
+        String label = prediction.getPredictionModel();
+        String modelId = label != null ? MODEL_ID_BY_LABEL.get(label) : null;
+        if (modelId != null) {
+            modelMetrics.computeIfAbsent(modelId, id -> new StreamingModelMetrics())
+                    .record(predictedProbability, actualOccurred);
+        }
+    }
+    
+    /**
+     * 获取模型的实时评估指标快照
+     */
+    private Map<String, Object> liveMetrics(String modelId) {
+        StreamingModelMetrics metrics = modelMetrics.get(modelId);
+        return metrics != null ? metrics.snapshot() : new StreamingModelMetrics().snapshot();
+    }
+    
+    /**
+     * 有实际结果时使用实时准确率，否则使用模型的基线准确率
+     */
+    private Object effectiveAccuracy(Map<String, Object> model) {
+        StreamingModelMetrics metrics = modelMetrics.get((String) model.get("id"));
+        Double liveAccuracy = metrics != null ? metrics.getAccuracy() : null;
+        return liveAccuracy != null ? liveAccuracy : model.get("accuracy");
+    }
+    
+    /**
+     * 使用已部署的模型打分；没有部署模型时返回启发式概率
+     */
+    private double scoreWithServingModel(String modelId, Map<String, Object> factors, LocalDate date, double heuristicProbability) {
+        Optional<LogisticRegressionModel> model = modelRegistry.getServingModel(modelId);
+        if (!model.isPresent()) {
+            return heuristicProbability;
+        }
+        double[] features = PredictionFeatureExtractor.extract(
+                factors != null ? factors : new HashMap<>(), date, heuristicProbability);
+        return model.get().predict(features);
+    }
+    
+    /**
+     * 收集训练样本：已上报的实际结果、历史预测与效果评估的匹配结果，以及请求中显式提供的样本
+     */
+    private List<TrainingSample> collectTrainingSamples(Map<String, Object> trainingData) {
+        Map<String, TrainingSample> samples = new HashMap<>();
+        
+        Map<String, List<EffectEvaluation>> evaluationsByPest = new HashMap<>();
+        for (PestPrediction prediction : predictionRepository.findAllPredictions()) {
+            if (prediction.getPestId() == null) {
+                continue;
+            }
+            List<EffectEvaluation> evaluations = evaluationsByPest.computeIfAbsent(
+                    prediction.getPestId(), evaluationRepository::findByPestId);
+            Boolean occurred = PredictionFeatureExtractor.deriveOutcome(prediction, evaluations);
+            if (occurred != null) {
+                samples.put(prediction.getId(), new TrainingSample(PredictionFeatureExtractor.extract(prediction), occurred));
+            }
+        }
+        
+        // 人工上报的结果优先于推断结果
+        synchronized (reportedOutcomes) {
+            samples.putAll(reportedOutcomes);
+        }
+        
+        List<TrainingSample> result = new ArrayList<>(samples.values());
+        Object explicitSamples = trainingData.get("samples");
+        if (explicitSamples instanceof List) {
+            for (Object item : (List<?>) explicitSamples) {
+                if (item instanceof Map) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> sample = (Map<String, Object>) item;
+                    boolean occurred = Boolean.TRUE.equals(sample.get("occurred"));
+                    double prior = sample.get("probability") instanceof Number
+                            ? ((Number) sample.get("probability")).doubleValue() : Double.NaN;
+                    LocalDate date = sample.get("date") != null ? LocalDate.parse(sample.get("date").toString()) : null;
+                    result.add(new TrainingSample(PredictionFeatureExtractor.extract(sample, date, prior), occurred));
+                }
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * 由预测产生预警：抑制窗口内相同病虫害、区域和等级的预警合并到已有预警，否则新建
+     */
+    private PestAlert raiseAlert(PestAlert alert, String userId) {
+        Duration window = getSuppressionWindow(alert.getAlertLevel());
+        if (window.isZero() || window.isNegative()) {
+            return createAlert(alert, userId);
+        }
+        
+        return alertSuppressionIndex.admit(alert.getPestId(), alert.getTargetArea(), alert.getAlertLevel(),
+                alert.getPredictionId(), LocalDateTime.now(), window, getEscalationThreshold(),
+                repeat -> mergeRepeatedAlert(repeat, alert),
+                () -> createAlert(alert, userId));
+    }
+    
+    /**
+     * 将重复触发合并到已有预警的计数中；已有预警不存在或已处理时返回null
+     * 同一抑制窗口内的合并由索引串行调用
+     */
+    private PestAlert mergeRepeatedAlert(AlertSuppressionIndex.Repeat repeat, PestAlert alert) {
+        Optional<PestAlert> existingOpt = predictionRepository.findAlertById(repeat.getAlertId());
+        if (!existingOpt.isPresent() || "HANDLED".equals(existingOpt.get().getStatus())) {
+            return null;
+        }
+        
+        PestAlert existing = existingOpt.get();
+        if (!repeat.isCounted()) {
+            // 同一预测重复触发，不重复计数
+            return existing;
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        existing.setOccurrenceCount(repeat.getOccurrences());
+        existing.setLastOccurrenceTime(now);
+        existing.setLastPredictionId(alert.getPredictionId());
+        existing.setUpdatedTime(now);
+        PestAlert saved = predictionRepository.saveAlert(existing);
+        
+        // 重复次数达到升级阈值时再通知一次
+        if (repeat.isEscalate()) {
+            sendAlertNotification(saved.getId(), getDefaultRecipients(saved));
+        }
+        return saved;
+    }
+    
+    /**
+     * 获取预警等级对应的抑制窗口，支持按等级配置或统一配置分钟数
+     */
+    private Duration getSuppressionWindow(String alertLevel) {
+        Object configured = alertConfig.get("suppressionWindowMinutes");
+        Object minutes = configured instanceof Map ? ((Map<?, ?>) configured).get(alertLevel) : configured;
+        if (minutes instanceof Number) {
+            return Duration.ofMinutes(((Number) minutes).longValue());
+        }
+        return Duration.ZERO;
+    }
+    
+    private int getEscalationThreshold() {
+        Object threshold = alertConfig.get("escalationThreshold");
+        return threshold instanceof Number ? ((Number) threshold).intValue() : 5;
+    }
+    
     private void checkAndTriggerAlert(PestPrediction prediction) {
         // 如果是高风险预测，自动触发预警
         if ("高风险".equals(prediction.getRiskLevel()) || "极高风险".equals(prediction.getRiskLevel())) {
@@ -969,38 +1206,27 @@ public class PredictionServiceImpl implements PredictionService {
         alertConfig.put("autoExpireHours", 72);
         alertConfig.put("maxRecipientsPerAlert", 100);
         alertConfig.put("enableAutoTrigger", true);
+        
+        // 预警抑制窗口（分钟），等级越高窗口越短
+        Map<String, Object> suppressionWindows = new HashMap<>();
+        suppressionWindows.put("紧急", 60);
+        suppressionWindows.put("高级", 240);
+        suppressionWindows.put("中级", 720);
+        suppressionWindows.put("低级", 1440);
+        suppressionWindows.put("信息", 1440);
+        alertConfig.put("suppressionWindowMinutes", suppressionWindows);
+        alertConfig.put("escalationThreshold", 5);
     }
     
     private void initializePredictionModels() {
         // 历史数据模型
-        Map<String, Object> historyModel = new HashMap<>();
-        historyModel.put("id", "history-model");
-        historyModel.put("name", "历史数据预测模型");
-        historyModel.put("type", "历史统计");
-        historyModel.put("accuracy", 0.75);
-        historyModel.put("version", 1);
-        historyModel.put("status", "active");
-        predictionModels.put("history-model", historyModel);
+        modelRegistry.register("history-model", "历史数据预测模型", "历史统计", 0.75);
         
         // 天气预测模型
-        Map<String, Object> weatherModel = new HashMap<>();
-        weatherModel.put("id", "weather-model");
-        weatherModel.put("name", "天气预测模型");
-        weatherModel.put("type", "气象关联");
-        weatherModel.put("accuracy", 0.82);
-        weatherModel.put("version", 1);
-        weatherModel.put("status", "active");
-        predictionModels.put("weather-model", weatherModel);
+        modelRegistry.register("weather-model", "天气预测模型", "气象关联", 0.82);
         
         // 综合预测模型
-        Map<String, Object> comprehensiveModel = new HashMap<>();
-        comprehensiveModel.put("id", "comprehensive-model");
-        comprehensiveModel.put("name", "综合预测模型");
-        comprehensiveModel.put("type", "多因子综合");
-        comprehensiveModel.put("accuracy", 0.88);
-        comprehensiveModel.put("version", 1);
-        comprehensiveModel.put("status", "active");
-        predictionModels.put("comprehensive-model", comprehensiveModel);
+        modelRegistry.register("comprehensive-model", "综合预测模型", "多因子综合", 0.88);
     }
     
     private void initializeDefaultAlertRules() {
@@ -1028,11 +1254,27 @@ public class PredictionServiceImpl implements PredictionService {
     @Override
     public Map<String, Object> getPredictionAccuracyStatistics() {
         Map<String, Object> stats = new HashMap<>();
-        stats.put("overallAccuracy", 0.78);
-        stats.put("modelAccuracies", predictionModels.values().stream()
+        List<Map<String, Object>> models = modelRegistry.describeAll();
+        Map<String, Object> overall = overallMetrics.snapshot();
+        
+        // 尚无实际结果上报时，以各模型基线准确率的均值作为整体准确率
+        Object overallAccuracy = overall.get("accuracy");
+        if (overallAccuracy == null) {
+            overallAccuracy = models.stream()
+                    .mapToDouble(model -> ((Number) model.get("accuracy")).doubleValue())
+                    .average()
+                    .orElse(0.0);
+        }
+        
+        stats.put("overallAccuracy", overallAccuracy);
+        stats.put("evaluatedPredictions", overall.get("evaluatedCount"));
+        stats.put("brierScore", overall.get("brierScore"));
+        stats.put("logLoss", overall.get("logLoss"));
+        stats.put("auc", overall.get("auc"));
+        stats.put("modelAccuracies", models.stream()
                 .collect(Collectors.toMap(
                     model -> (String) model.get("name"),
-                    model -> model.get("accuracy")
+                    this::effectiveAccuracy
                 )));
         return stats;
     }
@@ -1157,12 +1399,12 @@ public class PredictionServiceImpl implements PredictionService {
     
     @Override
     public List<Map<String, Object>> getPredictionModels() {
-        return new ArrayList<>(predictionModels.values());
+        return modelRegistry.describeAll();
     }
     
     @Override
     public Map<String, Object> getPredictionModelDetails(String modelId) {
-        return predictionModels.getOrDefault(modelId, new HashMap<>());
+        return modelRegistry.describe(modelId);
     }
     
     @Override
@@ -1172,33 +1414,46 @@ public class PredictionServiceImpl implements PredictionService {
     
     @Override
     public Map<String, Object> evaluatePredictionModel(String modelId, Map<String, Object> testData) {
-        Map<String, Object> evaluation = new HashMap<>();
+        Map<String, Object> evaluation = new HashMap<>(liveMetrics(modelId));
         evaluation.put("modelId", modelId);
-        evaluation.put("accuracy", 0.85);
-        evaluation.put("precision", 0.82);
-        evaluation.put("recall", 0.78);
-        evaluation.put("f1Score", 0.80);
+        evaluation.put("evaluationTime", LocalDateTime.now());
         return evaluation;
     }
     
     @Override
     public boolean deployPredictionModel(String modelId) {
-        Map<String, Object> model = predictionModels.get(modelId);
-        if (model != null) {
-            model.put("status", "deployed");
-            model.put("deployTime", LocalDateTime.now());
+        if (!modelRegistry.contains(modelId)) {
+            return false;
+        }
+        
+        try {
+            // 有训练版本时原子切换到最新版本，否则沿用启发式算法
+            if (!modelRegistry.deployLatest(modelId)) {
+                modelRegistry.updateDescriptor(modelId, "status", "deployed");
+                modelRegistry.updateDescriptor(modelId, "deployTime", LocalDateTime.now());
+            }
             return true;
+        } catch (IOException e) {
+            throw new ForestPestSystemException("部署预测模型失败: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public boolean rollbackPredictionModel(String modelId) {
+        try {
+            return modelRegistry.rollback(modelId);
+        } catch (IOException e) {
+            throw new ForestPestSystemException("回滚预测模型失败: " + e.getMessage(), e);
         }
-        return false;
     }
     
     @Override
     public Map<String, Object> getModelPerformanceMetrics(String modelId) {
-        Map<String, Object> metrics = new HashMap<>();
+        Map<String, Object> metrics = new HashMap<>(liveMetrics(modelId));
         metrics.put("modelId", modelId);
-        metrics.put("accuracy", 0.85);
-        metrics.put("responseTime", "150ms");
-        metrics.put("throughput", "1000 predictions/hour");
+        if (metrics.get("accuracy") == null) {
+            metrics.put("accuracy", modelRegistry.describe(modelId).get("accuracy"));
+        }
         return metrics;
     }
     
@@ -1208,8 +1463,9 @@ public class PredictionServiceImpl implements PredictionService {
         List<Map<String, Object>> models = new ArrayList<>();
         
         for (String modelId : modelIds) {
-            Map<String, Object> model = predictionModels.get(modelId);
-            if (model != null) {
+            if (modelRegistry.contains(modelId)) {
+                Map<String, Object> model = modelRegistry.describe(modelId);
+                model.put("metrics", liveMetrics(modelId));
                 models.add(model);
             }
         }
@@ -1222,51 +1478,43 @@ public class PredictionServiceImpl implements PredictionService {
     
     @Override
     public String exportPredictionData(String format, Map<String, Object> filters) {
-        List<PestPrediction> predictions = predictionRepository.findAllPredictions();
-        
-        if ("json".equalsIgnoreCase(format)) {
-            return predictions.toString();
-        } else if ("csv".equalsIgnoreCase(format)) {
-            StringBuilder csv = new StringBuilder();
-            csv.append("ID,病虫害ID,目标区域,预测日期,风险等级,发生概率,创建时间\n");
-            
-            for (PestPrediction prediction : predictions) {
-                csv.append(prediction.getId()).append(",")
-                   .append(prediction.getPestId()).append(",")
-                   .append(prediction.getTargetArea()).append(",")
-                   .append(prediction.getPredictionDate()).append(",")
-                   .append(prediction.getRiskLevel()).append(",")
-                   .append(prediction.getProbability()).append(",")
-                   .append(prediction.getCreatedTime()).append("\n");
-            }
-            
-            return csv.toString();
+        return StreamingExportUtil.asString(streamPredictionData(format, filters));
+    }
+    
+    @Override
+    public String exportAlertData(String format, Map<String, Object> filters) {
+        return StreamingExportUtil.asString(streamAlertData(format, filters));
+    }
+    
+    @Override
+    public StreamingExportUtil.ExportWriter streamPredictionData(String format, Map<String, Object> filters) {
+        if (StreamingExportUtil.isJson(format)) {
+            return out -> StreamingExportUtil.json(predictionRepository.iterateAllPredictions()).writeTo(out);
+        } else if (StreamingExportUtil.isCsv(format)) {
+            String[] header = {"ID", "病虫害ID", "目标区域", "预测日期", "风险等级", "发生概率", "创建时间"};
+            return out -> StreamingExportUtil.csv(header, predictionRepository.iterateAllPredictions(),
+                    prediction -> new Object[]{
+                        prediction.getId(), prediction.getPestId(), prediction.getTargetArea(),
+                        prediction.getPredictionDate(), prediction.getRiskLevel(),
+                        prediction.getProbability(), prediction.getCreatedTime()
+                    }).writeTo(out);
         }
         
         throw new ForestPestSystemException("不支持的导出格式: " + format);
     }
     
     @Override
-    public String exportAlertData(String format, Map<String, Object> filters) {
-        List<PestAlert> alerts = predictionRepository.findAllAlerts();
-        
-        if ("json".equalsIgnoreCase(format)) {
-            return alerts.toString();
-        } else if ("csv".equalsIgnoreCase(format)) {
-            StringBuilder csv = new StringBuilder();
-            csv.append("ID,预测ID,预警等级,预警时间,目标受众,消息,状态\n");
-            
-            for (PestAlert alert : alerts) {
-                csv.append(alert.getId()).append(",")
-                   .append(alert.getPredictionId()).append(",")
-                   .append(alert.getAlertLevel()).append(",")
-                   .append(alert.getAlertTime()).append(",")
-                   .append(alert.getTargetAudience()).append(",")
-                   .append(alert.getMessage()).append(",")
-                   .append(alert.getStatus()).append("\n");
-            }
-            
-            return csv.toString();
+    public StreamingExportUtil.ExportWriter streamAlertData(String format, Map<String, Object> filters) {
+        if (StreamingExportUtil.isJson(format)) {
+            return out -> StreamingExportUtil.json(predictionRepository.iterateAllAlerts()).writeTo(out);
+        } else if (StreamingExportUtil.isCsv(format)) {
+            String[] header = {"ID", "预测ID", "预警等级", "预警时间", "目标受众", "消息", "状态"};
+            return out -> StreamingExportUtil.csv(header, predictionRepository.iterateAllAlerts(),
+                    alert -> new Object[]{
+                        alert.getId(), alert.getPredictionId(), alert.getAlertLevel(),
+                        alert.getAlertTime(), alert.getTargetAudience(), alert.getMessage(),
+                        alert.getStatus()
+                    }).writeTo(out);
         }
         
         throw new ForestPestSystemException("不支持的导出格式: " + format);
@@ -1374,35 +1622,183 @@ public class PredictionServiceImpl implements PredictionService {
     @Override
     public int cleanupExpiredPredictions() {
         LocalDate expireDate = LocalDate.now().minusDays(30);
-        List<PestPrediction> expiredPredictions = predictionRepository.findAllPredictions().stream()
-                .filter(pred -> pred.getPredictionDate().isBefore(expireDate))
-                .collect(Collectors.toList());
-        
-        for (PestPrediction prediction : expiredPredictions) {
-            predictionRepository.deletePredictionById(prediction.getId());
-        }
-        
-        return expiredPredictions.size();
+        List<PestPrediction> deleted = predictionRepository.deletePredictionsBefore(expireDate);
+        deleted.forEach(prediction -> scoredPredictions.remove(prediction.getId()));
+        return deleted.size();
     }
     
     @Override
     public int cleanupExpiredAlerts() {
         LocalDateTime expireTime = LocalDateTime.now().minusDays(7);
-        List<PestAlert> expiredAlerts = predictionRepository.findAllAlerts().stream()
-                .filter(alert -> alert.getCreatedTime().isBefore(expireTime))
-                .collect(Collectors.toList());
+        alertSuppressionIndex.purgeExpired(LocalDateTime.now());
+        return predictionRepository.deleteAlertsCreatedBefore(expireTime).size();
+    }
+    
+    @Override
+    public boolean archiveHistoricalData(LocalDate beforeDate) {
+        if (beforeDate == null) {
+            return false;
+        }
+        
+        List<PestPrediction> historical = predictionRepository.findPredictionsBefore(beforeDate);
+        if (historical.isEmpty()) {
+            return true;
+        }
+        
+        List<PestAlert> relatedAlerts = new ArrayList<>();
+        for (PestPrediction prediction : historical) {
+            relatedAlerts.addAll(predictionRepository.findAlertsByPredictionId(prediction.getId()));
+        }
         
-        for (PestAlert alert : expiredAlerts) {
-            predictionRepository.deleteAlertById(alert.getId());
+        try {
+            predictionArchiveStorage.archive(beforeDate, historical, relatedAlerts);
+        } catch (IOException e) {
+            throw new ForestPestSystemException("归档历史数据失败: " + e.getMessage(), e);
         }
         
-        return expiredAlerts.size();
+        // 只删除已写入归档的记录，相关预警随预测一并删除
+        for (PestPrediction prediction : historical) {
+            predictionRepository.deletePredictionById(prediction.getId());
+            scoredPredictions.remove(prediction.getId());
+        }
+        return true;
     }
     
     @Override
-    public boolean archiveHistoricalData(LocalDate beforeDate) {
-        // 模拟归档操作
-        return true;
+    public List<PestPrediction> getArchivedPredictions(String pestId, String targetArea, LocalDate startDate, LocalDate endDate) {
+        try {
+            return predictionArchiveStorage.findArchivedPredictions(pestId, targetArea, startDate, endDate);
+        } catch (IOException e) {
+            throw new ForestPestSystemException("查询归档预测失败: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public List<PestAlert> getArchivedAlerts(String predictionId) {
+        try {
+            return predictionArchiveStorage.findArchivedAlerts(predictionId);
+        } catch (IOException e) {
+            throw new ForestPestSystemException("查询归档预警失败: " + e.getMessage(), e);
+        }
+    }
+    
+    // ========== 空间查询实现 ==========
+    
+    @Override
+    public List<PestPrediction> getPredictionsNearArea(String areaId, double radiusKm) {
+        return predictionRepository.findPredictionsByTargetAreas(areaKeys(findResourcesNear(areaId, radiusKm)));
+    }
+    
+    @Override
+    public List<PestPrediction> getPredictionsWithinPolygon(String polygon) {
+        return predictionRepository.findPredictionsByTargetAreas(areaKeys(findResourcesWithin(polygon)));
+    }
+    
+    @Override
+    public List<PestPrediction> getPredictionsInArea(String areaId) {
+        return predictionRepository.findPredictionsByTargetAreas(areaKeys(findSubtree(areaId)));
+    }
+    
+    @Override
+    public List<PestAlert> getAlertsNearArea(String areaId, double radiusKm) {
+        return predictionRepository.findAlertsByTargetAreas(areaKeys(findResourcesNear(areaId, radiusKm)));
+    }
+    
+    @Override
+    public List<PestAlert> getAlertsWithinPolygon(String polygon) {
+        return predictionRepository.findAlertsByTargetAreas(areaKeys(findResourcesWithin(polygon)));
+    }
+    
+    @Override
+    public List<PestAlert> getAlertsInArea(String areaId) {
+        return predictionRepository.findAlertsByTargetAreas(areaKeys(findSubtree(areaId)));
+    }
+    
+    @Override
+    public Map<String, Object> getSpatialRiskSummary(String areaId) {
+        ForestResource area = forestResourceRepository.findById(areaId)
+                .orElseThrow(() -> new ForestPestSystemException("区域不存在"));
+        
+        List<Map<String, Object>> children = new ArrayList<>();
+        for (ForestResource child : forestResourceRepository.findByParentAreaId(areaId)) {
+            Map<String, Object> item = toAreaSummary(child);
+            forestResourceRepository.findLocation(child.getId()).ifPresent(location -> item.put("location", location.toString()));
+            children.add(item);
+        }
+        
+        Map<String, Object> summary = toAreaSummary(area);
+        summary.put("predictionCount", getPredictionsInArea(areaId).size());
+        forestResourceRepository.findSpatialExtent(areaId).ifPresent(extent -> summary.put("extent", toExtentMap(extent)));
+        summary.put("children", children);
+        return summary;
+    }
+    
+    /**
+     * 区域子树汇总由层级树增量维护，直接读取
+     */
+    private Map<String, Object> toAreaSummary(ForestResource area) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("areaId", area.getId());
+        summary.put("areaName", area.getAreaName());
+        summary.put("areaType", area.getAreaType());
+        forestResourceRepository.findSubtreeAggregate(area.getId()).ifPresent(aggregate -> {
+            summary.put("areaCount", aggregate.getAreaCount());
+            summary.put("totalArea", aggregate.getTotalArea());
+            summary.put("unhealthyPlotCount", aggregate.getUnhealthyPlotCount());
+            summary.put("activeAlertCount", aggregate.getActiveAlertCount());
+        });
+        return summary;
+    }
+    
+    private List<ForestResource> findResourcesNear(String areaId, double radiusKm) {
+        if (radiusKm < 0) {
+            throw new ForestPestSystemException("查询半径不能为负数");
+        }
+        if (!forestResourceRepository.findById(areaId).isPresent()) {
+            throw new ForestPestSystemException("区域不存在");
+        }
+        GeoPoint center = forestResourceRepository.findLocation(areaId)
+                .orElseThrow(() -> new ForestPestSystemException("区域缺少坐标信息"));
+        return forestResourceRepository.findWithinRadius(center, radiusKm);
+    }
+    
+    private List<ForestResource> findResourcesWithin(String polygon) {
+        GeoPolygon area = GeoPolygon.parse(polygon);
+        if (area == null) {
+            throw new ForestPestSystemException("多边形格式不正确，应为\"纬度,经度;纬度,经度;...\"且至少包含3个顶点");
+        }
+        return forestResourceRepository.findWithinPolygon(area);
+    }
+    
+    private List<ForestResource> findSubtree(String areaId) {
+        List<String> ids = forestResourceRepository.findSubtreeIds(areaId);
+        if (ids.isEmpty()) {
+            throw new ForestPestSystemException("区域不存在");
+        }
+        return ids.stream()
+                .map(id -> forestResourceRepository.findById(id).orElse(null))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 预测和预警的目标区域与层级汇总使用相同的匹配键（区域ID或编码）
+     */
+    private Set<String> areaKeys(Collection<ForestResource> resources) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (ForestResource resource : resources) {
+            keys.addAll(ForestResourceStorage.areaKeys(resource));
+        }
+        return keys;
+    }
+    
+    private Map<String, Object> toExtentMap(GeoBounds extent) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("minLatitude", extent.getMinLatitude());
+        map.put("minLongitude", extent.getMinLongitude());
+        map.put("maxLatitude", extent.getMaxLatitude());
+        map.put("maxLongitude", extent.getMaxLongitude());
+        return map;
     }
     
     @Override
@@ -1411,7 +1807,7 @@ public class PredictionServiceImpl implements PredictionService {
         health.put("status", "healthy");
         health.put("predictionCount", predictionRepository.countPredictions());
         health.put("alertCount", predictionRepository.countAlerts());
-        health.put("activeModels", predictionModels.size());
+        health.put("activeModels", modelRegistry.size());
         health.put("checkTime", LocalDateTime.now());
         return health;
     }
@@ -1426,7 +1822,11 @@ public class PredictionServiceImpl implements PredictionService {
         // 重新初始化配置和模型
         predictionConfig.clear();
         alertConfig.clear();
-        predictionModels.clear();
+        modelRegistry.clear();
+        modelMetrics.clear();
+        overallMetrics.reset();
+        reportedOutcomes.clear();
+        scoredPredictions.clear();
         alertRules.clear();
         
         initializeDefaultConfig();
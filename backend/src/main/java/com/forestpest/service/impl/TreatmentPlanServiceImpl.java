@@ -1,63 +1,93 @@
 package com.forestpest.service.impl;
 
+import com.forestpest.dto.TaskBatchResultDTO;
 import com.forestpest.entity.TreatmentPlan;
 import com.forestpest.entity.TreatmentTask;
 import com.forestpest.entity.TreatmentMethod;
 import com.forestpest.entity.Pest;
 import com.forestpest.repository.PestRepository;
+import com.forestpest.service.TaskStateMachine;
 import com.forestpest.service.TreatmentPlanService;
+import com.forestpest.service.scheduling.TreatmentScheduleService;
 import com.forestpest.data.storage.DataStorage;
+import com.forestpest.data.storage.TaskProgress;
+import com.forestpest.data.storage.TreatmentStorage;
 import com.forestpest.exception.BusinessException;
+import com.forestpest.exception.VersionConflictException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
- * 防治方案服务简化实现类
+ * 防治方案服务实现类
  * 
- * 这是TreatmentPlanServiceImpl的简化版本，只实现核心功能。
- * 复杂的业务逻辑方法暂时抛出未实现异常。
+ * 方案和任务保存在带索引的TreatmentStorage中，任务状态按版本校验后替换，批量创建任务可随即排程。
+ * 模板、统计、报表和提醒等方法尚未实现，调用时抛出未实现异常。
  */
 @Service
 public class TreatmentPlanServiceImpl implements TreatmentPlanService {
     
+    // 未指定版本时，替换失败后重新读取并校验的次数上限
+    private static final int MAX_TRANSITION_ATTEMPTS = 3;
+    
     @Autowired
     private PestRepository pestRepository;
     
     @Autowired
     private DataStorage dataStorage;
     
-    // 防治方案存储
-    private final Map<String, TreatmentPlan> treatmentPlans = new ConcurrentHashMap<>();
-    
-    // 防治任务存储
-    private final Map<String, TreatmentTask> treatmentTasks = new ConcurrentHashMap<>();
+    @Autowired
+    private TreatmentScheduleService treatmentScheduleService;
     
-    // 用户方案索引 - 用户ID -> 方案ID列表
-    private final Map<String, List<String>> userPlanIndex = new ConcurrentHashMap<>();
+    private int bulkMaxTasks = 10000;
     
-    // 方案任务索引 - 方案ID -> 任务ID列表
-    private final Map<String, List<String>> planTaskIndex = new ConcurrentHashMap<>();
+    @Value("${treatment.bulk.max-tasks:10000}")
+    public void setBulkMaxTasks(int bulkMaxTasks) {
+        this.bulkMaxTasks = bulkMaxTasks;
+    }
     
     /**
      * 统一的未实现异常处理方法
      */
     private void throwNotImplementedException(String methodName) {
         throw new UnsupportedOperationException(
-            String.format("方法 %s 在简化版本中暂未实现，请使用完整版本或等待后续更新", methodName)
+            String.format("方法 %s 暂未实现", methodName)
         );
     }
     
     /**
-     * 保存方案到存储并更新索引
+     * 方案和任务统一保存在数据存储中，修改实体后需重新保存以更新索引
      */
-    private void saveTreatmentPlan(TreatmentPlan plan, String userId) {
-        treatmentPlans.put(plan.getId(), plan);
-        userPlanIndex.computeIfAbsent(userId, k -> new ArrayList<>()).add(plan.getId());
+    private TreatmentStorage treatmentStorage() {
+        return dataStorage.getTreatmentStorage();
+    }
+    
+    /**
+     * 任务状态流转：change基于当前任务校验并返回修改后的副本，再按实例比较替换。
+     * 指定expectedVersion时版本不一致即冲突；未指定时替换失败说明有并发写入，重新读取后再校验一次。
+     */
+    private TreatmentTask transitionTask(String taskId, Long expectedVersion, UnaryOperator<TreatmentTask> change) {
+        TreatmentTask current = null;
+        for (int attempt = 0; attempt < MAX_TRANSITION_ATTEMPTS; attempt++) {
+            current = treatmentStorage().findTaskById(taskId).orElse(null);
+            if (current == null) {
+                throw new BusinessException("防治任务不存在");
+            }
+            long version = current.getVersion() != null ? current.getVersion() : 0L;
+            if (expectedVersion != null && expectedVersion != version) {
+                throw new VersionConflictException("任务已被修改，当前版本为" + version, current);
+            }
+            TreatmentTask next = change.apply(current);
+            if (treatmentStorage().compareAndSetTask(current, next)) {
+                return next;
+            }
+        }
+        throw new VersionConflictException("任务正在被其他请求修改，请稍后重试", current);
     }
     
     // ==================== 核心实现方法 ====================
@@ -115,7 +145,7 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
         }
         
         // 保存方案
-        saveTreatmentPlan(plan, userId);
+        treatmentStorage().savePlan(plan);
         
         return plan;
     }
@@ -126,7 +156,7 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("方案ID不能为空");
         }
         
-        return treatmentPlans.get(planId);
+        return treatmentStorage().findPlanById(planId).orElse(null);
     }
     
     @Override
@@ -135,30 +165,16 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("用户ID不能为空");
         }
         
-        List<String> planIds = userPlanIndex.get(userId);
-        if (planIds == null) {
-            return new ArrayList<>();
-        }
-        
-        return planIds.stream()
-                .map(treatmentPlans::get)
-                .filter(Objects::nonNull)
-                .sorted((p1, p2) -> p2.getCreatedTime().compareTo(p1.getCreatedTime()))
-                .collect(Collectors.toList());
+        return treatmentStorage().findPlansByCreatedBy(userId);
     }
     
     @Override
     public List<TreatmentPlan> getUserTreatmentPlans(String userId, int page, int size) {
-        List<TreatmentPlan> allPlans = getUserTreatmentPlans(userId);
-        
-        int start = page * size;
-        int end = Math.min(start + size, allPlans.size());
-        
-        if (start >= allPlans.size()) {
-            return new ArrayList<>();
+        if (userId == null || userId.trim().isEmpty()) {
+            throw new BusinessException("用户ID不能为空");
         }
         
-        return allPlans.subList(start, end);
+        return treatmentStorage().findPlansByCreatedBy(userId, page, size);
     }
     
     @Override
@@ -175,7 +191,7 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("更新的方案信息不能为空");
         }
         
-        TreatmentPlan existingPlan = treatmentPlans.get(planId);
+        TreatmentPlan existingPlan = treatmentStorage().findPlanById(planId).orElse(null);
         if (existingPlan == null) {
             throw new BusinessException("防治方案不存在");
         }
@@ -194,6 +210,7 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
         existingPlan.setPriority(updatedPlan.getPriority());
         existingPlan.setUpdatedTime(LocalDateTime.now());
         existingPlan.setUpdatedBy(userId);
+        treatmentStorage().savePlan(existingPlan);
         
         return existingPlan;
     }
@@ -220,7 +237,7 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
         }
         
         // 保存方案
-        saveTreatmentPlan(plan, userId);
+        treatmentStorage().savePlan(plan);
         
         return plan;
     }
@@ -235,7 +252,7 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("用户ID不能为空");
         }
         
-        TreatmentPlan plan = treatmentPlans.get(planId);
+        TreatmentPlan plan = treatmentStorage().findPlanById(planId).orElse(null);
         if (plan == null) {
             return false;
         }
@@ -244,23 +261,8 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("无权限删除此防治方案");
         }
         
-        // 删除相关任务
-        List<String> taskIds = planTaskIndex.get(planId);
-        if (taskIds != null) {
-            for (String taskId : taskIds) {
-                treatmentTasks.remove(taskId);
-            }
-            planTaskIndex.remove(planId);
-        }
-        
-        // 删除方案
-        treatmentPlans.remove(planId);
-        
-        // 更新用户索引
-        List<String> userPlans = userPlanIndex.get(userId);
-        if (userPlans != null) {
-            userPlans.remove(planId);
-        }
+        // 删除方案及其任务
+        treatmentStorage().deletePlanById(planId);
         
         return true;
     }
@@ -275,11 +277,23 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("任务信息不能为空");
         }
         
+        checkPlanOwner(planId, userId);
+        
+        // 设置任务基本信息
+        initNewTask(task, planId, userId, LocalDateTime.now());
+        
+        // 保存任务
+        treatmentStorage().saveTask(task);
+        
+        return task;
+    }
+    
+    private void checkPlanOwner(String planId, String userId) {
         if (userId == null || userId.trim().isEmpty()) {
             throw new BusinessException("用户ID不能为空");
         }
         
-        TreatmentPlan plan = treatmentPlans.get(planId);
+        TreatmentPlan plan = treatmentStorage().findPlanById(planId).orElse(null);
         if (plan == null) {
             throw new BusinessException("防治方案不存在");
         }
@@ -287,25 +301,48 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
         if (!userId.equals(plan.getCreatedBy())) {
             throw new BusinessException("无权限为此方案创建任务");
         }
-        
-        // 设置任务基本信息
+    }
+    
+    private void initNewTask(TreatmentTask task, String planId, String userId, LocalDateTime now) {
         task.setId(dataStorage.generateId());
         task.setPlanId(planId);
         task.setCreatedBy(userId);
-        task.setCreatedTime(LocalDateTime.now());
-        task.setStatus("PENDING");
-        
-        // 保存任务
-        treatmentTasks.put(task.getId(), task);
-        
-        // 更新索引
-        planTaskIndex.computeIfAbsent(planId, k -> new ArrayList<>()).add(task.getId());
-        
-        return task;
+        task.setCreatedTime(now);
+        // 创建时已指定执行人的任务直接处于已分配状态，执行人可以直接开始或完成
+        boolean assigned = task.getAssignedTo() != null && !task.getAssignedTo().trim().isEmpty();
+        task.setStatus(assigned ? "ASSIGNED" : "PENDING");
+        task.setVersion(null);
+    }
+    
+    /**
+     * 批量创建时逐项校验，返回错误信息，通过时返回null
+     */
+    private String validateNewTask(TreatmentTask task) {
+        if (task == null) {
+            return "任务信息不能为空";
+        }
+        if (task.getTaskName() == null || task.getTaskName().trim().isEmpty()) {
+            return "任务名称不能为空";
+        }
+        if (task.getTaskName().length() > 200) {
+            return "任务名称长度不能超过200个字符";
+        }
+        if (task.getDescription() != null && task.getDescription().length() > 1000) {
+            return "任务描述长度不能超过1000个字符";
+        }
+        if (task.getAssignedTo() != null && !dataStorage.getUserStorage().findById(task.getAssignedTo()).isPresent()) {
+            return "分配人员不存在: " + task.getAssignedTo();
+        }
+        return null;
     }
     
     @Override
     public TreatmentTask assignTreatmentTask(String taskId, String assigneeId, String assignerId) {
+        return assignTreatmentTask(taskId, assigneeId, assignerId, null);
+    }
+    
+    @Override
+    public TreatmentTask assignTreatmentTask(String taskId, String assigneeId, String assignerId, Long expectedVersion) {
         if (taskId == null || taskId.trim().isEmpty()) {
             throw new BusinessException("任务ID不能为空");
         }
@@ -318,28 +355,31 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("分配人ID不能为空");
         }
         
-        TreatmentTask task = treatmentTasks.get(taskId);
-        if (task == null) {
-            throw new BusinessException("防治任务不存在");
-        }
-        
-        // 检查权限
-        TreatmentPlan plan = treatmentPlans.get(task.getPlanId());
-        if (plan == null || !assignerId.equals(plan.getCreatedBy())) {
-            throw new BusinessException("无权限分配此任务");
-        }
-        
-        // 更新任务分配信息
-        task.setAssignedTo(assigneeId);
-        task.setStatus("ASSIGNED");
-        task.setUpdatedTime(LocalDateTime.now());
-        task.setUpdatedBy(assignerId);
-        
-        return task;
+        return transitionTask(taskId, expectedVersion, current -> {
+            // 检查权限
+            TreatmentPlan plan = treatmentStorage().findPlanById(current.getPlanId()).orElse(null);
+            if (plan == null || !assignerId.equals(plan.getCreatedBy())) {
+                throw new BusinessException("无权限分配此任务");
+            }
+            TaskStateMachine.checkTransition(current.getStatus(), "ASSIGNED");
+            
+            // 更新任务分配信息
+            TreatmentTask task = current.copy();
+            task.setAssignedTo(assigneeId);
+            task.setStatus("ASSIGNED");
+            task.setUpdatedTime(LocalDateTime.now());
+            task.setUpdatedBy(assignerId);
+            return task;
+        });
     }
     
     @Override
     public TreatmentTask updateTaskStatus(String taskId, String status, String userId) {
+        return updateTaskStatus(taskId, status, userId, null);
+    }
+    
+    @Override
+    public TreatmentTask updateTaskStatus(String taskId, String status, String userId, Long expectedVersion) {
         if (taskId == null || taskId.trim().isEmpty()) {
             throw new BusinessException("任务ID不能为空");
         }
@@ -352,21 +392,26 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("用户ID不能为空");
         }
         
-        TreatmentTask task = treatmentTasks.get(taskId);
-        if (task == null) {
-            throw new BusinessException("防治任务不存在");
-        }
-        
-        // 检查权限
-        if (!userId.equals(task.getAssignedTo()) && !userId.equals(task.getCreatedBy())) {
-            throw new BusinessException("无权限更新此任务状态");
-        }
-        
-        task.setStatus(status);
-        task.setUpdatedTime(LocalDateTime.now());
-        task.setUpdatedBy(userId);
-        
-        return task;
+        return transitionTask(taskId, expectedVersion, current -> {
+            // 检查权限
+            if (!userId.equals(current.getAssignedTo()) && !userId.equals(current.getCreatedBy())) {
+                throw new BusinessException("无权限更新此任务状态");
+            }
+            TaskStateMachine.checkTransition(current.getStatus(), status);
+            
+            TreatmentTask task = current.copy();
+            task.setStatus(status);
+            LocalDateTime now = LocalDateTime.now();
+            TaskProgress.Status target = TaskProgress.Status.of(status);
+            if (target == TaskProgress.Status.IN_PROGRESS && task.getActualStartTime() == null) {
+                task.setActualStartTime(now);
+            } else if (target == TaskProgress.Status.COMPLETED && task.getActualEndTime() == null) {
+                task.setActualEndTime(now);
+            }
+            task.setUpdatedTime(now);
+            task.setUpdatedBy(userId);
+            return task;
+        });
     }
     
     @Override
@@ -375,14 +420,7 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("方案ID不能为空");
         }
         
-        List<String> taskIds = planTaskIndex.get(planId);
-        if (taskIds == null) {
-            return new ArrayList<>();
-        }
-        
-        return taskIds.stream()
-                .map(treatmentTasks::get)
-                .filter(Objects::nonNull)
+        return treatmentStorage().findTasksByPlanId(planId).stream()
                 .sorted((t1, t2) -> t1.getCreatedTime().compareTo(t2.getCreatedTime()))
                 .collect(Collectors.toList());
     }
@@ -393,10 +431,7 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("用户ID不能为空");
         }
         
-        return treatmentTasks.values().stream()
-                .filter(task -> userId.equals(task.getAssignedTo()))
-                .sorted((t1, t2) -> t2.getCreatedTime().compareTo(t1.getCreatedTime()))
-                .collect(Collectors.toList());
+        return treatmentStorage().findTasksByAssignedTo(userId);
     }
     
     @Override
@@ -405,14 +440,17 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("用户ID不能为空");
         }
         
-        return treatmentTasks.values().stream()
-                .filter(task -> userId.equals(task.getCreatedBy()))
-                .sorted((t1, t2) -> t2.getCreatedTime().compareTo(t1.getCreatedTime()))
-                .collect(Collectors.toList());
+        return treatmentStorage().findTasksByCreatedBy(userId);
     }
     
     @Override
     public TreatmentTask completeTreatmentTask(String taskId, String userId, Map<String, Object> completionData) {
+        return completeTreatmentTask(taskId, userId, completionData, null);
+    }
+    
+    @Override
+    public TreatmentTask completeTreatmentTask(String taskId, String userId, Map<String, Object> completionData,
+                                               Long expectedVersion) {
         if (taskId == null || taskId.trim().isEmpty()) {
             throw new BusinessException("任务ID不能为空");
         }
@@ -421,31 +459,30 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("用户ID不能为空");
         }
         
-        TreatmentTask task = treatmentTasks.get(taskId);
-        if (task == null) {
-            throw new BusinessException("防治任务不存在");
-        }
-        
-        if (!userId.equals(task.getAssignedTo())) {
-            throw new BusinessException("只有任务执行者可以完成任务");
-        }
-        
-        task.setStatus("COMPLETED");
-        task.setActualEndTime(LocalDateTime.now());
-        task.setUpdatedTime(LocalDateTime.now());
-        task.setUpdatedBy(userId);
-        
-        // 处理完成数据
-        if (completionData != null) {
-            if (completionData.containsKey("executionNotes")) {
-                task.setExecutionNotes((String) completionData.get("executionNotes"));
+        return transitionTask(taskId, expectedVersion, current -> {
+            if (!userId.equals(current.getAssignedTo())) {
+                throw new BusinessException("只有任务执行者可以完成任务");
             }
-            if (completionData.containsKey("actualCost")) {
-                task.setActualCost((Double) completionData.get("actualCost"));
+            TaskStateMachine.checkTransition(current.getStatus(), "COMPLETED");
+            
+            TreatmentTask task = current.copy();
+            task.setStatus("COMPLETED");
+            task.setActualEndTime(LocalDateTime.now());
+            task.setUpdatedTime(LocalDateTime.now());
+            task.setUpdatedBy(userId);
+            
+            // 处理完成数据
+            if (completionData != null) {
+                if (completionData.containsKey("executionNotes")) {
+                    task.setExecutionNotes((String) completionData.get("executionNotes"));
+                }
+                // 请求体中的整数费用解析为Integer，统一按数值读取
+                if (completionData.get("actualCost") instanceof Number) {
+                    task.setActualCost(((Number) completionData.get("actualCost")).doubleValue());
+                }
             }
-        }
-        
-        return task;
+            return task;
+        });
     }
     
     @Override
@@ -454,28 +491,15 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("方案ID不能为空");
         }
         
-        List<TreatmentTask> tasks = getTreatmentTasks(planId);
+        // 读取存储随任务写入维护的计数
+        TaskProgress counters = treatmentStorage().getPlanProgress(planId);
         
         Map<String, Object> progress = new HashMap<>();
-        progress.put("totalTasks", tasks.size());
-        
-        if (tasks.isEmpty()) {
-            progress.put("completedTasks", 0);
-            progress.put("progressPercentage", 0.0);
-            return progress;
-        }
-        
-        long completedTasks = tasks.stream()
-                .mapToLong(task -> "COMPLETED".equals(task.getStatus()) ? 1 : 0)
-                .sum();
-        
-        progress.put("completedTasks", completedTasks);
-        progress.put("progressPercentage", (double) completedTasks / tasks.size() * 100);
-        
-        // 按状态统计
-        Map<String, Long> statusStats = tasks.stream()
-                .collect(Collectors.groupingBy(TreatmentTask::getStatus, Collectors.counting()));
-        progress.put("statusStats", statusStats);
+        progress.put("totalTasks", (int) counters.getTotalTasks());
+        progress.put("completedTasks", counters.getCompletedTasks());
+        progress.put("progressPercentage", counters.getProgressPercentage());
+        progress.put("statusStats", counters.getStatusCounts());
+        progress.put("actualCost", counters.getActualCost());
         
         return progress;
     }
@@ -486,32 +510,16 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
             throw new BusinessException("用户ID不能为空");
         }
         
-        List<TreatmentPlan> userPlans = getUserTreatmentPlans(userId);
+        TaskProgress counters = treatmentStorage().getUserProgress(userId);
         
         Map<String, Object> progress = new HashMap<>();
-        progress.put("totalPlans", userPlans.size());
-        
-        int completedPlans = 0;
-        int totalTasks = 0;
-        int completedTasks = 0;
-        
-        for (TreatmentPlan plan : userPlans) {
-            Map<String, Object> planProgress = getTreatmentProgress(plan.getId());
-            int planTotalTasks = (Integer) planProgress.get("totalTasks");
-            int planCompletedTasks = ((Long) planProgress.get("completedTasks")).intValue();
-            
-            totalTasks += planTotalTasks;
-            completedTasks += planCompletedTasks;
-            
-            if (planTotalTasks > 0 && planCompletedTasks == planTotalTasks) {
-                completedPlans++;
-            }
-        }
-        
-        progress.put("completedPlans", completedPlans);
-        progress.put("totalTasks", totalTasks);
-        progress.put("completedTasks", completedTasks);
-        progress.put("overallProgress", totalTasks > 0 ? (double) completedTasks / totalTasks * 100 : 0.0);
+        progress.put("totalPlans", counters.getPlans());
+        progress.put("completedPlans", counters.getCompletedPlans());
+        progress.put("totalTasks", (int) counters.getTotalTasks());
+        progress.put("completedTasks", (int) counters.getCompletedTasks());
+        progress.put("overallProgress", counters.getProgressPercentage());
+        progress.put("statusStats", counters.getStatusCounts());
+        progress.put("actualCost", counters.getActualCost());
         
         return progress;
     }
@@ -520,19 +528,19 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
     public Map<String, Object> getSystemTreatmentProgress() {
         Map<String, Object> progress = new HashMap<>();
         
-        progress.put("totalPlans", treatmentPlans.size());
-        progress.put("totalTasks", treatmentTasks.size());
-        progress.put("totalUsers", userPlanIndex.size());
+        TreatmentStorage storage = treatmentStorage();
+        progress.put("totalPlans", storage.planCount());
+        progress.put("totalTasks", storage.taskCount());
+        progress.put("totalUsers", storage.planCreatorCount());
         
-        // 按状态统计方案
-        Map<String, Long> planStatusStats = treatmentPlans.values().stream()
-                .collect(Collectors.groupingBy(TreatmentPlan::getStatus, Collectors.counting()));
-        progress.put("planStatusStats", planStatusStats);
+        progress.put("planStatusStats", storage.getPlanStatusCounts());
+        progress.put("taskStatusStats", storage.getTaskStatusCounts());
         
-        // 按状态统计任务
-        Map<String, Long> taskStatusStats = treatmentTasks.values().stream()
-                .collect(Collectors.groupingBy(TreatmentTask::getStatus, Collectors.counting()));
-        progress.put("taskStatusStats", taskStatusStats);
+        TaskProgress counters = storage.getSystemProgress();
+        progress.put("completedTasks", counters.getCompletedTasks());
+        progress.put("progressPercentage", counters.getProgressPercentage());
+        progress.put("statusStats", counters.getStatusCounts());
+        progress.put("actualCost", counters.getActualCost());
         
         return progress;
     }
@@ -623,10 +631,109 @@ public class TreatmentPlanServiceImpl implements TreatmentPlanService {
         return null;
     }
     
+    /**
+     * 与bulkCreateTreatmentTasks走同一流程和数量上限；接口返回创建的任务列表，
+     * 因此任一任务校验失败时整批拒绝，不写入任何任务
+     */
     @Override
     public List<TreatmentTask> batchCreateTreatmentTasks(String planId, List<TreatmentTask> tasks, String userId) {
-        throwNotImplementedException("batchCreateTreatmentTasks");
-        return null;
+        long start = System.nanoTime();
+        checkNewTaskBatch(planId, tasks, userId);
+        for (int i = 0; i < tasks.size(); i++) {
+            String error = validateNewTask(tasks.get(i));
+            if (error != null) {
+                throw new BusinessException("第" + (i + 1) + "个任务: " + error);
+            }
+        }
+        createTasks(planId, tasks, userId, false, start);
+        return new ArrayList<>(tasks);
+    }
+    
+    /**
+     * 方案和权限不满足时整批拒绝；单项校验失败只跳过该项，其余任务一次写入存储
+     */
+    @Override
+    public TaskBatchResultDTO bulkCreateTreatmentTasks(String planId, List<TreatmentTask> tasks, String userId,
+                                                       boolean autoAssign) {
+        long start = System.nanoTime();
+        checkNewTaskBatch(planId, tasks, userId);
+        // 自动分配需要排程权限，在生成任务ID和写入任何任务之前检查
+        if (autoAssign && !treatmentScheduleService.canSchedule(userId)) {
+            throw new BusinessException("自动分配任务需要管理员权限，请关闭自动分配或由管理员创建");
+        }
+        return createTasks(planId, tasks, userId, autoAssign, start);
+    }
+    
+    private void checkNewTaskBatch(String planId, List<TreatmentTask> tasks, String userId) {
+        if (tasks == null || tasks.isEmpty()) {
+            throw new BusinessException("任务列表不能为空");
+        }
+        if (tasks.size() > bulkMaxTasks) {
+            throw new BusinessException("批量创建任务最多支持" + bulkMaxTasks + "个");
+        }
+        checkPlanOwner(planId, userId);
+    }
+    
+    /**
+     * 逐项校验并初始化任务，有效任务整批保存或排程后保存
+     */
+    private TaskBatchResultDTO createTasks(String planId, List<TreatmentTask> tasks, String userId,
+                                           boolean autoAssign, long start) {
+        int size = tasks.size();
+        List<String> taskIds = new ArrayList<>(size);
+        List<String> statuses = new ArrayList<>(size);
+        Map<Integer, String> messages = new TreeMap<>();
+        List<TreatmentTask> valid = new ArrayList<>(size);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < size; i++) {
+            TreatmentTask task = tasks.get(i);
+            String error = validateNewTask(task);
+            if (error != null) {
+                taskIds.add(null);
+                statuses.add(TaskBatchResultDTO.INVALID);
+                messages.put(i, error);
+                continue;
+            }
+            initNewTask(task, planId, userId, now);
+            valid.add(task);
+            taskIds.add(task.getId());
+            statuses.add(TaskBatchResultDTO.CREATED);
+        }
+        
+        Map<String, String> unscheduled = Collections.emptyMap();
+        if (autoAssign && !valid.isEmpty()) {
+            unscheduled = treatmentScheduleService.scheduleNewTasks(valid, userId);
+        } else if (!valid.isEmpty()) {
+            treatmentStorage().saveAllTasks(valid);
+        }
+        
+        int assigned = 0;
+        if (autoAssign) {
+            for (int i = 0; i < size; i++) {
+                String taskId = taskIds.get(i);
+                if (taskId == null) {
+                    continue;
+                }
+                if ("ASSIGNED".equals(tasks.get(i).getStatus())) {
+                    statuses.set(i, TaskBatchResultDTO.ASSIGNED);
+                    assigned++;
+                } else if (unscheduled.containsKey(taskId)) {
+                    statuses.set(i, TaskBatchResultDTO.UNASSIGNED);
+                    messages.put(i, unscheduled.get(taskId));
+                }
+            }
+        }
+        
+        TaskBatchResultDTO result = new TaskBatchResultDTO();
+        result.setTotal(size);
+        result.setCreated(valid.size());
+        result.setAssigned(assigned);
+        result.setFailed(size - valid.size());
+        result.setTaskIds(taskIds);
+        result.setStatuses(statuses);
+        result.setMessages(messages);
+        result.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+        return result;
     }
     
     @Override
@@ -0,0 +1,206 @@
+package com.forestpest.service.prediction;
+
+import com.forestpest.entity.PestAlert;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 预警抑制索引
+ * 以(病虫害ID, 目标区域, 预警等级)为键记录抑制窗口内的活跃预警。
+ * 窗口内的重复触发合并到已有预警，每个键在一个窗口内最多产生一条新预警。
+ * 索引内只决定合并还是新建，预警的读写回调在索引更新之外执行；
+ * 同一窗口内的合并按条目串行执行，触发次数和升级标记由条目维护。
+ */
+public class AlertSuppressionIndex {
+
+    // 每登记若干次新预警清理一次过期条目
+    private static final int SWEEP_INTERVAL = 256;
+
+    private final Map<AlertKey, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger admissionsSinceSweep = new AtomicInteger();
+
+    /**
+     * 登记一次预警触发
+     * 窗口内已有预警时调用merge合并，参数中带有合并后的触发次数和是否需要升级通知，
+     * merge返回null表示已有预警不可用，结束其窗口后重新登记；否则调用create新建预警并开启新的抑制窗口。
+     * 新建期间同键的触发等待新预警写入后再合并。触发次数首次达到escalationThreshold时升级，每个窗口只升级一次。
+     */
+    public PestAlert admit(String pestId, String targetArea, String alertLevel, String predictionId,
+                           LocalDateTime now, Duration window, int escalationThreshold,
+                           Function<Repeat, PestAlert> merge, Supplier<PestAlert> create) {
+        AlertKey key = new AlertKey(pestId, targetArea, alertLevel);
+        while (true) {
+            Entry candidate = new Entry(now.plus(window));
+            Entry current = entries.compute(key, (k, entry) ->
+                    entry != null && now.isBefore(entry.expiresAt) ? entry : candidate);
+
+            if (current == candidate) {
+                if (predictionId != null) {
+                    candidate.predictionIds.add(predictionId);
+                }
+                PestAlert created = null;
+                try {
+                    created = create.get();
+                    if (created != null && created.getOccurrenceCount() != null) {
+                        candidate.occurrences = created.getOccurrenceCount();
+                    }
+                } finally {
+                    String alertId = created != null ? created.getId() : null;
+                    candidate.alertId.complete(alertId);
+                    if (alertId == null) {
+                        entries.remove(key, candidate);
+                    }
+                }
+                sweep(now);
+                return created;
+            }
+
+            String alertId = current.alertId.join();
+            if (alertId != null) {
+                PestAlert merged = mergeInto(current, alertId, predictionId, escalationThreshold, merge);
+                if (merged != null) {
+                    return merged;
+                }
+            }
+            entries.remove(key, current);
+        }
+    }
+
+    private static PestAlert mergeInto(Entry entry, String alertId, String predictionId, int escalationThreshold,
+                                       Function<Repeat, PestAlert> merge) {
+        synchronized (entry) {
+            boolean counted = predictionId == null || !entry.predictionIds.contains(predictionId);
+            int occurrences = counted ? entry.occurrences + 1 : entry.occurrences;
+            boolean escalate = counted && !entry.escalated && occurrences >= escalationThreshold;
+            PestAlert merged = merge.apply(new Repeat(alertId, occurrences, counted, escalate));
+            if (merged != null && counted) {
+                if (predictionId != null) {
+                    entry.predictionIds.add(predictionId);
+                }
+                entry.occurrences = occurrences;
+                entry.escalated |= escalate;
+            }
+            return merged;
+        }
+    }
+
+    private void sweep(LocalDateTime now) {
+        if (admissionsSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            admissionsSinceSweep.set(0);
+            purgeExpired(now);
+        }
+    }
+
+    /**
+     * 清理已过抑制窗口的条目
+     */
+    public int purgeExpired(LocalDateTime now) {
+        int before = entries.size();
+        entries.values().removeIf(entry -> !now.isBefore(entry.expiresAt));
+        return before - entries.size();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 一次合并到已有预警的重复触发
+     */
+    public static final class Repeat {
+        private final String alertId;
+        private final int occurrences;
+        private final boolean counted;
+        private final boolean escalate;
+
+        private Repeat(String alertId, int occurrences, boolean counted, boolean escalate) {
+            this.alertId = alertId;
+            this.occurrences = occurrences;
+            this.counted = counted;
+            this.escalate = escalate;
+        }
+
+        public String getAlertId() {
+            return alertId;
+        }
+
+        /**
+         * 合并后的触发次数
+         */
+        public int getOccurrences() {
+            return occurrences;
+        }
+
+        /**
+         * 是否计入触发次数，同一预测重复触发时为false
+         */
+        public boolean isCounted() {
+            return counted;
+        }
+
+        /**
+         * 是否需要发送升级通知
+         */
+        public boolean isEscalate() {
+            return escalate;
+        }
+    }
+
+    private static final class Entry {
+        // 新建的预警写入后完成，新建失败时为null
+        private final CompletableFuture<String> alertId = new CompletableFuture<>();
+        private final LocalDateTime expiresAt;
+        private final Set<String> predictionIds = ConcurrentHashMap.newKeySet();
+        // 以下字段在条目锁内读写
+        private int occurrences = 1;
+        private boolean escalated;
+
+        private Entry(LocalDateTime expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class AlertKey {
+        private final String pestId;
+        private final String targetArea;
+        private final String alertLevel;
+
+        private AlertKey(String pestId, String targetArea, String alertLevel) {
+            this.pestId = pestId;
+            this.targetArea = targetArea;
+            this.alertLevel = alertLevel;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AlertKey)) {
+                return false;
+            }
+            AlertKey other = (AlertKey) o;
+            return Objects.equals(pestId, other.pestId) &&
+                   Objects.equals(targetArea, other.targetArea) &&
+                   Objects.equals(alertLevel, other.alertLevel);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pestId, targetArea, alertLevel);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.forestpest.service.prediction;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 逻辑回归预测模型
+ * 训练完成后不可变，可在多个请求线程间安全共享；权重以紧凑的二进制格式持久化
+ */
+public final class LogisticRegressionModel {
+
+    // 二进制格式标识 "FPLR" 与格式版本
+    private static final int MAGIC = 0x46504C52;
+    private static final short FORMAT_VERSION = 1;
+
+    private final String modelId;
+    private final int version;
+    private final String[] featureNames;
+    private final double[] featureMeans;
+    private final double[] featureScales;
+    private final double[] weights;
+    private final double bias;
+    private final int sampleCount;
+    private final double trainingLoss;
+    private final long trainedAt;
+
+    private LogisticRegressionModel(String modelId, int version, String[] featureNames,
+                                    double[] featureMeans, double[] featureScales,
+                                    double[] weights, double bias,
+                                    int sampleCount, double trainingLoss, long trainedAt) {
+        this.modelId = modelId;
+        this.version = version;
+        this.featureNames = featureNames;
+        this.featureMeans = featureMeans;
+        this.featureScales = featureScales;
+        this.weights = weights;
+        this.bias = bias;
+        this.sampleCount = sampleCount;
+        this.trainingLoss = trainingLoss;
+        this.trainedAt = trainedAt;
+    }
+
+    /**
+     * 使用批量梯度下降拟合带L2正则的逻辑回归
+     * 特征先做标准化，缺失值（NaN）按均值填充
+     */
+    public static LogisticRegressionModel fit(String modelId, int version, String[] featureNames,
+                                              List<TrainingSample> samples,
+                                              int epochs, double learningRate, double l2) {
+        if (samples == null || samples.isEmpty()) {
+            throw new IllegalArgumentException("训练样本不能为空");
+        }
+
+        int n = samples.size();
+        int d = featureNames.length;
+        double[] means = new double[d];
+        double[] scales = new double[d];
+
+        // 计算均值（忽略缺失值）
+        int[] present = new int[d];
+        for (TrainingSample sample : samples) {
+            double[] x = sample.getFeatures();
+            for (int j = 0; j < d; j++) {
+                if (!Double.isNaN(x[j])) {
+                    means[j] += x[j];
+                    present[j]++;
+                }
+            }
+        }
+        for (int j = 0; j < d; j++) {
+            means[j] = present[j] > 0 ? means[j] / present[j] : 0.0;
+        }
+
+        // 计算标准差
+        for (TrainingSample sample : samples) {
+            double[] x = sample.getFeatures();
+            for (int j = 0; j < d; j++) {
+                if (!Double.isNaN(x[j])) {
+                    double diff = x[j] - means[j];
+                    scales[j] += diff * diff;
+                }
+            }
+        }
+        for (int j = 0; j < d; j++) {
+            double std = present[j] > 1 ? Math.sqrt(scales[j] / (present[j] - 1)) : 0.0;
+            scales[j] = std > 1e-9 ? std : 1.0;
+        }
+
+        // 预先标准化，避免每轮迭代重复计算
+        double[][] x = new double[n][d];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            double[] raw = samples.get(i).getFeatures();
+            for (int j = 0; j < d; j++) {
+                x[i][j] = Double.isNaN(raw[j]) ? 0.0 : (raw[j] - means[j]) / scales[j];
+            }
+            y[i] = samples.get(i).isOccurred() ? 1.0 : 0.0;
+        }
+
+        double[] w = new double[d];
+        double b = 0.0;
+        double[] gradient = new double[d];
+
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            Arrays.fill(gradient, 0.0);
+            double gradientBias = 0.0;
+
+            for (int i = 0; i < n; i++) {
+                double error = sigmoid(dot(w, x[i]) + b) - y[i];
+                for (int j = 0; j < d; j++) {
+                    gradient[j] += error * x[i][j];
+                }
+                gradientBias += error;
+            }
+
+            for (int j = 0; j < d; j++) {
+                w[j] -= learningRate * (gradient[j] / n + l2 * w[j]);
+            }
+            b -= learningRate * gradientBias / n;
+        }
+
+        // 计算最终对数损失
+        double loss = 0.0;
+        for (int i = 0; i < n; i++) {
+            double p = clamp(sigmoid(dot(w, x[i]) + b));
+            loss -= y[i] * Math.log(p) + (1 - y[i]) * Math.log(1 - p);
+        }
+
+        return new LogisticRegressionModel(modelId, version, featureNames.clone(), means, scales,
+                w, b, n, loss / n, System.currentTimeMillis());
+    }
+
+    /**
+     * 计算发生概率
+     */
+    public double predict(double[] features) {
+        double z = bias;
+        for (int j = 0; j < weights.length; j++) {
+            double value = j < features.length && !Double.isNaN(features[j])
+                    ? (features[j] - featureMeans[j]) / featureScales[j]
+                    : 0.0;
+            z += weights[j] * value;
+        }
+        return sigmoid(z);
+    }
+
+    /**
+     * 写出二进制权重文件
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+        out.writeUTF(modelId);
+        out.writeInt(version);
+        out.writeLong(trainedAt);
+        out.writeInt(sampleCount);
+        out.writeDouble(trainingLoss);
+        out.writeShort(featureNames.length);
+        for (int j = 0; j < featureNames.length; j++) {
+            out.writeUTF(featureNames[j]);
+            out.writeDouble(featureMeans[j]);
+            out.writeDouble(featureScales[j]);
+            out.writeDouble(weights[j]);
+        }
+        out.writeDouble(bias);
+        out.flush();
+    }
+
+    /**
+     * 读取二进制权重文件
+     */
+    public static LogisticRegressionModel readFrom(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("模型文件格式不正确");
+        }
+        short formatVersion = in.readShort();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("不支持的模型文件版本: " + formatVersion);
+        }
+
+        String modelId = in.readUTF();
+        int version = in.readInt();
+        long trainedAt = in.readLong();
+        int sampleCount = in.readInt();
+        double trainingLoss = in.readDouble();
+        int d = in.readShort();
+
+        String[] names = new String[d];
+        double[] means = new double[d];
+        double[] scales = new double[d];
+        double[] w = new double[d];
+        for (int j = 0; j < d; j++) {
+            names[j] = in.readUTF();
+            means[j] = in.readDouble();
+            scales[j] = in.readDouble();
+            w[j] = in.readDouble();
+        }
+        double b = in.readDouble();
+
+        return new LogisticRegressionModel(modelId, version, names, means, scales, w, b,
+                sampleCount, trainingLoss, trainedAt);
+    }
+
+    private static double dot(double[] w, double[] x) {
+        double sum = 0.0;
+        for (int j = 0; j < w.length; j++) {
+            sum += w[j] * x[j];
+        }
+        return sum;
+    }
+
+    private static double sigmoid(double z) {
+        return 1.0 / (1.0 + Math.exp(-z));
+    }
+
+    private static double clamp(double p) {
+        return Math.max(1e-12, Math.min(1 - 1e-12, p));
+    }
+
+    // Getters
+    public String getModelId() {
+        return modelId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String[] getFeatureNames() {
+        return featureNames.clone();
+    }
+
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    public double getBias() {
+        return bias;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public double getTrainingLoss() {
+        return trainingLoss;
+    }
+
+    public long getTrainedAt() {
+        return trainedAt;
+    }
+}
@@ -0,0 +1,130 @@
+package com.forestpest.service.prediction;
+
+import com.forestpest.entity.EffectEvaluation;
+import com.forestpest.entity.EvaluationData;
+import com.forestpest.entity.PestPrediction;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 预测特征提取器
+ * 将预测记录、气象参数和评估数据转换为模型可用的数值特征与标签
+ */
+public final class PredictionFeatureExtractor {
+
+    public static final String[] FEATURE_NAMES = {
+        "temperature", "humidity", "rainfall", "windSpeed", "seasonSin", "seasonCos", "priorProbability"
+    };
+
+    // 评估时间相对预测日期的匹配窗口（天）
+    private static final int OUTCOME_WINDOW_DAYS = 30;
+
+    // 受害率阈值，超过即视为病虫害实际发生
+    private static final double OCCURRENCE_DAMAGE_RATE = 0.1;
+
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("-?\\d+(\\.\\d+)?");
+
+    private PredictionFeatureExtractor() {
+    }
+
+    /**
+     * 从预测记录中提取特征
+     */
+    public static double[] extract(PestPrediction prediction) {
+        LocalDate date = prediction.getPredictionDate() != null ? prediction.getPredictionDate() : LocalDate.now();
+        double[] features = new double[FEATURE_NAMES.length];
+        features[0] = parseNumber(prediction.getTemperature());
+        features[1] = parseNumber(prediction.getHumidity());
+        features[2] = parseNumber(prediction.getRainfall());
+        features[3] = parseNumber(prediction.getWindSpeed());
+        fillSeason(features, date);
+        features[6] = prediction.getProbability() != null ? prediction.getProbability() : Double.NaN;
+        return features;
+    }
+
+    /**
+     * 从请求参数中提取特征，用于在线打分
+     */
+    public static double[] extract(Map<String, Object> factors, LocalDate date, double priorProbability) {
+        double[] features = new double[FEATURE_NAMES.length];
+        features[0] = toDouble(factors.get("temperature"));
+        features[1] = toDouble(factors.get("humidity"));
+        features[2] = toDouble(factors.get("rainfall"));
+        features[3] = toDouble(factors.get("windSpeed"));
+        fillSeason(features, date != null ? date : LocalDate.now());
+        features[6] = priorProbability;
+        return features;
+    }
+
+    /**
+     * 根据效果评估中的防治前数据推断预测是否实际发生
+     * 只采用同一病虫害、同一区域、预测日期后窗口期内的评估；没有匹配评估时返回null
+     */
+    public static Boolean deriveOutcome(PestPrediction prediction, List<EffectEvaluation> evaluations) {
+        if (prediction.getPredictionDate() == null || evaluations == null) {
+            return null;
+        }
+
+        LocalDateTime windowStart = prediction.getPredictionDate().atStartOfDay();
+        LocalDateTime windowEnd = windowStart.plusDays(OUTCOME_WINDOW_DAYS);
+        Boolean outcome = null;
+
+        for (EffectEvaluation evaluation : evaluations) {
+            if (evaluation.getEvaluationTime() == null || evaluation.getBeforeTreatment() == null) {
+                continue;
+            }
+            if (evaluation.getEvaluationTime().isBefore(windowStart) || evaluation.getEvaluationTime().isAfter(windowEnd)) {
+                continue;
+            }
+            if (prediction.getTargetArea() != null && evaluation.getEvaluatedArea() != null &&
+                !prediction.getTargetArea().equals(evaluation.getEvaluatedArea())) {
+                continue;
+            }
+            if (isOccurrence(evaluation.getBeforeTreatment())) {
+                return true;
+            }
+            outcome = false;
+        }
+
+        return outcome;
+    }
+
+    private static boolean isOccurrence(EvaluationData data) {
+        if (data.getDamageRate() != null && data.getDamageRate() >= OCCURRENCE_DAMAGE_RATE) {
+            return true;
+        }
+        if (data.getDamagedPlants() != null && data.getDamagedPlants() > 0) {
+            return true;
+        }
+        return data.getAffectedArea() != null && data.getAffectedArea() > 0;
+    }
+
+    private static void fillSeason(double[] features, LocalDate date) {
+        double angle = 2 * Math.PI * (date.getDayOfYear() - 1) / 365.0;
+        features[4] = Math.sin(angle);
+        features[5] = Math.cos(angle);
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return value != null ? parseNumber(value.toString()) : Double.NaN;
+    }
+
+    /**
+     * 解析 "25.3°C"、"70%" 之类带单位的数值
+     */
+    private static double parseNumber(String text) {
+        if (text == null || text.isEmpty()) {
+            return Double.NaN;
+        }
+        Matcher matcher = NUMBER_PATTERN.matcher(text);
+        return matcher.find() ? Double.parseDouble(matcher.group()) : Double.NaN;
+    }
+}
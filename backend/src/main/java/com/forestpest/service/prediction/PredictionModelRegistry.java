@@ -0,0 +1,357 @@
+package com.forestpest.service.prediction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 预测模型注册中心
+ * 管理模型描述信息、训练出的各版本权重文件，以及当前对外服务的模型。
+ * 训练在独立线程执行，完成后通过原子引用切换，预测请求无需等待。
+ */
+public class PredictionModelRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PredictionModelRegistry.class);
+
+    public static final int MIN_TRAINING_SAMPLES = 10;
+
+    private static final int TRAINING_EPOCHS = 500;
+    private static final double LEARNING_RATE = 0.1;
+    private static final double L2_PENALTY = 0.001;
+
+    private static final String ARTIFACT_SUFFIX = ".bin";
+    private static final String DEPLOYED_POINTER = "DEPLOYED";
+
+    private final Map<String, ModelEntry> entries = new ConcurrentHashMap<>();
+
+    private final ExecutorService trainingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "prediction-model-trainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Path artifactDirectory = Paths.get("data", "models");
+
+    private volatile int maxRetainedVersions = 10;
+
+    /**
+     * 注册模型描述
+     */
+    public void register(String modelId, String name, String type, double baselineAccuracy) {
+        ModelEntry entry = new ModelEntry();
+        entry.descriptor.put("id", modelId);
+        entry.descriptor.put("name", name);
+        entry.descriptor.put("type", type);
+        entry.descriptor.put("accuracy", baselineAccuracy);
+        entry.descriptor.put("version", 1);
+        entry.descriptor.put("status", "active");
+        entry.descriptor.put("algorithm", "logistic-regression");
+        entry.descriptor.put("trainingStatus", "UNTRAINED");
+        entries.put(modelId, entry);
+    }
+
+    public boolean contains(String modelId) {
+        return entries.containsKey(modelId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 获取模型描述（包含版本与服务状态）
+     */
+    public Map<String, Object> describe(String modelId) {
+        ModelEntry entry = entries.get(modelId);
+        if (entry == null) {
+            return new HashMap<>();
+        }
+
+        Map<String, Object> view = new HashMap<>(entry.descriptor);
+        LogisticRegressionModel serving = entry.serving.get();
+        view.put("servingVersion", serving != null ? serving.getVersion() : null);
+        view.put("versions", new ArrayList<>(entry.versions.keySet()));
+        return view;
+    }
+
+    public List<Map<String, Object>> describeAll() {
+        List<Map<String, Object>> models = new ArrayList<>();
+        for (String modelId : entries.keySet()) {
+            models.add(describe(modelId));
+        }
+        return models;
+    }
+
+    /**
+     * 更新模型描述中的字段
+     */
+    public void updateDescriptor(String modelId, String key, Object value) {
+        ModelEntry entry = entries.get(modelId);
+        if (entry != null) {
+            entry.descriptor.put(key, value);
+        }
+    }
+
+    /**
+     * 获取当前对外服务的模型，无锁读取
+     */
+    public Optional<LogisticRegressionModel> getServingModel(String modelId) {
+        ModelEntry entry = entries.get(modelId);
+        return entry == null ? Optional.empty() : Optional.ofNullable(entry.serving.get());
+    }
+
+    /**
+     * 异步训练新版本模型
+     * 同一模型同时只会有一个训练任务，重复提交会返回正在执行的任务
+     */
+    public CompletableFuture<LogisticRegressionModel> trainAsync(String modelId,
+                                                                 Supplier<List<TrainingSample>> sampleSupplier,
+                                                                 boolean deployWhenReady) {
+        ModelEntry entry = entries.get(modelId);
+        if (entry == null) {
+            CompletableFuture<LogisticRegressionModel> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalArgumentException("模型不存在: " + modelId));
+            return failed;
+        }
+
+        CompletableFuture<LogisticRegressionModel> next = new CompletableFuture<>();
+        CompletableFuture<LogisticRegressionModel> running = entry.pendingTraining.get();
+        if (running != null && !running.isDone()) {
+            return running;
+        }
+        if (!entry.pendingTraining.compareAndSet(running, next)) {
+            return entry.pendingTraining.get();
+        }
+
+        entry.descriptor.put("trainingStatus", "TRAINING");
+        trainingExecutor.execute(() -> {
+            try {
+                LogisticRegressionModel model = train(modelId, entry, sampleSupplier.get());
+                if (model != null && deployWhenReady) {
+                    deploy(modelId, model.getVersion());
+                }
+                next.complete(model);
+            } catch (Exception e) {
+                logger.error("预测模型训练失败: {}", modelId, e);
+                entry.descriptor.put("trainingStatus", "FAILED");
+                entry.descriptor.put("lastTrainingError", String.valueOf(e.getMessage()));
+                next.completeExceptionally(e);
+            }
+        });
+        return next;
+    }
+
+    private LogisticRegressionModel train(String modelId, ModelEntry entry, List<TrainingSample> samples) throws IOException {
+        entry.descriptor.put("lastTrainingTime", LocalDateTime.now());
+        entry.descriptor.put("trainingDataSize", samples.size());
+
+        if (samples.size() < MIN_TRAINING_SAMPLES) {
+            entry.descriptor.put("trainingStatus", "INSUFFICIENT_DATA");
+            logger.info("预测模型{}训练样本不足: {} < {}", modelId, samples.size(), MIN_TRAINING_SAMPLES);
+            return null;
+        }
+
+        int version = entry.versions.isEmpty() ? 1 : entry.versions.lastKey() + 1;
+        LogisticRegressionModel model = LogisticRegressionModel.fit(modelId, version,
+                PredictionFeatureExtractor.FEATURE_NAMES, samples, TRAINING_EPOCHS, LEARNING_RATE, L2_PENALTY);
+
+        Path artifact = writeArtifact(model);
+        entry.versions.put(version, artifact);
+        entry.trained.put(version, model);
+        pruneVersions(entry);
+
+        entry.descriptor.put("version", version);
+        entry.descriptor.put("trainingStatus", "TRAINED");
+        entry.descriptor.put("trainingLoss", model.getTrainingLoss());
+        entry.descriptor.remove("lastTrainingError");
+        logger.info("预测模型{}训练完成，版本{}，样本{}，损失{}", modelId, version, samples.size(), model.getTrainingLoss());
+        return model;
+    }
+
+    /**
+     * 部署指定版本，原子替换服务中的模型
+     */
+    public boolean deploy(String modelId, int version) throws IOException {
+        ModelEntry entry = entries.get(modelId);
+        if (entry == null || !entry.versions.containsKey(version)) {
+            return false;
+        }
+
+        LogisticRegressionModel model = entry.trained.get(version);
+        if (model == null) {
+            model = readArtifact(entry.versions.get(version));
+            entry.trained.put(version, model);
+        }
+
+        entry.serving.set(model);
+        writeDeployedPointer(modelId, version);
+        entry.descriptor.put("status", "deployed");
+        entry.descriptor.put("deployTime", LocalDateTime.now());
+        return true;
+    }
+
+    /**
+     * 部署最新训练的版本；没有训练版本时返回false
+     */
+    public boolean deployLatest(String modelId) throws IOException {
+        ModelEntry entry = entries.get(modelId);
+        if (entry == null || entry.versions.isEmpty()) {
+            return false;
+        }
+        return deploy(modelId, entry.versions.lastKey());
+    }
+
+    /**
+     * 回滚到当前服务版本之前的一个版本
+     */
+    public boolean rollback(String modelId) throws IOException {
+        ModelEntry entry = entries.get(modelId);
+        if (entry == null) {
+            return false;
+        }
+        LogisticRegressionModel serving = entry.serving.get();
+        if (serving == null) {
+            return false;
+        }
+        Integer previous = entry.versions.lowerKey(serving.getVersion());
+        return previous != null && deploy(modelId, previous);
+    }
+
+    /**
+     * 设置模型文件目录，并恢复目录中已有的版本和部署状态
+     */
+    public void setArtifactDirectory(Path directory) {
+        this.artifactDirectory = directory;
+        restoreArtifacts();
+    }
+
+    public Path getArtifactDirectory() {
+        return artifactDirectory;
+    }
+
+    public void setMaxRetainedVersions(int maxRetainedVersions) {
+        this.maxRetainedVersions = Math.max(1, maxRetainedVersions);
+    }
+
+    private void restoreArtifacts() {
+        for (Map.Entry<String, ModelEntry> item : entries.entrySet()) {
+            String modelId = item.getKey();
+            ModelEntry entry = item.getValue();
+            Path modelDir = artifactDirectory.resolve(modelId);
+            if (!Files.isDirectory(modelDir)) {
+                continue;
+            }
+
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(modelDir, "v*" + ARTIFACT_SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    try {
+                        int version = Integer.parseInt(name.substring(1, name.length() - ARTIFACT_SUFFIX.length()));
+                        entry.versions.put(version, file);
+                    } catch (NumberFormatException e) {
+                        logger.warn("忽略无法识别的模型文件: {}", file);
+                    }
+                }
+
+                if (!entry.versions.isEmpty()) {
+                    entry.descriptor.put("version", entry.versions.lastKey());
+                    entry.descriptor.put("trainingStatus", "TRAINED");
+                }
+
+                Path pointer = modelDir.resolve(DEPLOYED_POINTER);
+                if (Files.exists(pointer)) {
+                    int deployed = Integer.parseInt(new String(Files.readAllBytes(pointer), StandardCharsets.UTF_8).trim());
+                    deploy(modelId, deployed);
+                }
+            } catch (IOException | NumberFormatException e) {
+                logger.warn("恢复预测模型{}的版本失败", modelId, e);
+            }
+        }
+    }
+
+    private Path writeArtifact(LogisticRegressionModel model) throws IOException {
+        Path modelDir = artifactDirectory.resolve(model.getModelId());
+        Files.createDirectories(modelDir);
+        Path target = modelDir.resolve("v" + model.getVersion() + ARTIFACT_SUFFIX);
+        Path temp = Files.createTempFile(modelDir, "train-", ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+            model.writeTo(out);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    private LogisticRegressionModel readArtifact(Path artifact) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(artifact))) {
+            return LogisticRegressionModel.readFrom(in);
+        }
+    }
+
+    private void writeDeployedPointer(String modelId, int version) throws IOException {
+        Path modelDir = artifactDirectory.resolve(modelId);
+        Files.createDirectories(modelDir);
+        Path temp = Files.createTempFile(modelDir, "deploy-", ".tmp");
+        Files.write(temp, String.valueOf(version).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, modelDir.resolve(DEPLOYED_POINTER), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 只保留最近的若干版本，服务中的版本始终保留
+     */
+    private void pruneVersions(ModelEntry entry) {
+        LogisticRegressionModel serving = entry.serving.get();
+        while (entry.versions.size() > maxRetainedVersions) {
+            Integer oldest = entry.versions.firstKey();
+            if (serving != null && oldest == serving.getVersion()) {
+                oldest = entry.versions.higherKey(oldest);
+                if (oldest == null) {
+                    return;
+                }
+            }
+            Path removed = entry.versions.remove(oldest);
+            entry.trained.remove(oldest);
+            try {
+                Files.deleteIfExists(removed);
+            } catch (IOException e) {
+                logger.warn("删除旧模型文件失败: {}", removed, e);
+            }
+        }
+    }
+
+    private static final class ModelEntry {
+        private final Map<String, Object> descriptor = new ConcurrentHashMap<>();
+        private final AtomicReference<LogisticRegressionModel> serving = new AtomicReference<>();
+        private final NavigableMap<Integer, Path> versions = new ConcurrentSkipListMap<>();
+        private final Map<Integer, LogisticRegressionModel> trained = new ConcurrentHashMap<>();
+        private final AtomicReference<CompletableFuture<LogisticRegressionModel>> pendingTraining = new AtomicReference<>();
+    }
+}
@@ -0,0 +1,165 @@
+package com.forestpest.service.prediction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式模型评估指标
+ * 每上报一个实际结果就增量更新Brier分数、对数损失、校准直方图和AUC草图，
+ * 占用内存与已评估的预测数量无关。
+ */
+public class StreamingModelMetrics {
+
+    // 校准直方图分箱数
+    private static final int CALIBRATION_BINS = 10;
+
+    // AUC草图的概率分桶数，分辨率为0.01
+    private static final int AUC_BUCKETS = 100;
+
+    private static final double DECISION_THRESHOLD = 0.5;
+    private static final double EPSILON = 1e-12;
+
+    private long count;
+    private double brierSum;
+    private double logLossSum;
+
+    private long truePositives;
+    private long falsePositives;
+    private long trueNegatives;
+    private long falseNegatives;
+
+    private final long[] binCounts = new long[CALIBRATION_BINS];
+    private final long[] binPositives = new long[CALIBRATION_BINS];
+    private final double[] binProbabilitySums = new double[CALIBRATION_BINS];
+
+    private final long[] positiveBuckets = new long[AUC_BUCKETS];
+    private final long[] negativeBuckets = new long[AUC_BUCKETS];
+
+    /**
+     * 记录一次预测概率与实际结果
+     */
+    public synchronized void record(double probability, boolean occurred) {
+        double p = Double.isNaN(probability) ? 0.5 : Math.max(0.0, Math.min(1.0, probability));
+        double y = occurred ? 1.0 : 0.0;
+
+        count++;
+        brierSum += (p - y) * (p - y);
+        double clamped = Math.max(EPSILON, Math.min(1 - EPSILON, p));
+        logLossSum -= occurred ? Math.log(clamped) : Math.log(1 - clamped);
+
+        boolean predictedPositive = p >= DECISION_THRESHOLD;
+        if (predictedPositive && occurred) {
+            truePositives++;
+        } else if (predictedPositive) {
+            falsePositives++;
+        } else if (occurred) {
+            falseNegatives++;
+        } else {
+            trueNegatives++;
+        }
+
+        int bin = bucketOf(p, CALIBRATION_BINS);
+        binCounts[bin]++;
+        binProbabilitySums[bin] += p;
+        if (occurred) {
+            binPositives[bin]++;
+            positiveBuckets[bucketOf(p, AUC_BUCKETS)]++;
+        } else {
+            negativeBuckets[bucketOf(p, AUC_BUCKETS)]++;
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized void reset() {
+        count = 0;
+        brierSum = 0;
+        logLossSum = 0;
+        truePositives = falsePositives = trueNegatives = falseNegatives = 0;
+        Arrays.fill(binCounts, 0);
+        Arrays.fill(binPositives, 0);
+        Arrays.fill(binProbabilitySums, 0);
+        Arrays.fill(positiveBuckets, 0);
+        Arrays.fill(negativeBuckets, 0);
+    }
+
+    /**
+     * 获取当前指标快照；尚无评估数据时各指标为null
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("evaluatedCount", count);
+        metrics.put("positiveCount", truePositives + falseNegatives);
+        metrics.put("accuracy", count > 0 ? (double) (truePositives + trueNegatives) / count : null);
+        metrics.put("precision", ratio(truePositives, truePositives + falsePositives));
+        metrics.put("recall", ratio(truePositives, truePositives + falseNegatives));
+        metrics.put("f1Score", f1Score());
+        metrics.put("brierScore", count > 0 ? brierSum / count : null);
+        metrics.put("logLoss", count > 0 ? logLossSum / count : null);
+        metrics.put("auc", auc());
+        metrics.put("calibration", calibration());
+        return metrics;
+    }
+
+    public synchronized Double getAccuracy() {
+        return count > 0 ? (double) (truePositives + trueNegatives) / count : null;
+    }
+
+    private Double f1Score() {
+        Double precision = ratio(truePositives, truePositives + falsePositives);
+        Double recall = ratio(truePositives, truePositives + falseNegatives);
+        if (precision == null || recall == null || precision + recall == 0) {
+            return null;
+        }
+        return 2 * precision * recall / (precision + recall);
+    }
+
+    /**
+     * 基于分桶的Mann-Whitney统计量估算AUC，同桶视为平局计0.5
+     */
+    private Double auc() {
+        long positives = truePositives + falseNegatives;
+        long negatives = falsePositives + trueNegatives;
+        if (positives == 0 || negatives == 0) {
+            return null;
+        }
+
+        double concordant = 0.0;
+        long negativesBelow = 0;
+        for (int i = 0; i < AUC_BUCKETS; i++) {
+            concordant += positiveBuckets[i] * (negativesBelow + 0.5 * negativeBuckets[i]);
+            negativesBelow += negativeBuckets[i];
+        }
+        return concordant / ((double) positives * negatives);
+    }
+
+    private List<Map<String, Object>> calibration() {
+        List<Map<String, Object>> bins = new ArrayList<>();
+        for (int i = 0; i < CALIBRATION_BINS; i++) {
+            if (binCounts[i] == 0) {
+                continue;
+            }
+            Map<String, Object> bin = new HashMap<>();
+            bin.put("lower", (double) i / CALIBRATION_BINS);
+            bin.put("upper", (double) (i + 1) / CALIBRATION_BINS);
+            bin.put("count", binCounts[i]);
+            bin.put("meanPredicted", binProbabilitySums[i] / binCounts[i]);
+            bin.put("observedRate", (double) binPositives[i] / binCounts[i]);
+            bins.add(bin);
+        }
+        return bins;
+    }
+
+    private static Double ratio(long numerator, long denominator) {
+        return denominator > 0 ? (double) numerator / denominator : null;
+    }
+
+    private static int bucketOf(double p, int buckets) {
+        return Math.min(buckets - 1, (int) (p * buckets));
+    }
+}
@@ -0,0 +1,24 @@
+package com.forestpest.service.prediction;
+
+/**
+ * 模型训练样本
+ * 特征向量与实际是否发生的标签
+ */
+public final class TrainingSample {
+
+    private final double[] features;
+    private final boolean occurred;
+
+    public TrainingSample(double[] features, boolean occurred) {
+        this.features = features;
+        this.occurred = occurred;
+    }
+
+    public double[] getFeatures() {
+        return features;
+    }
+
+    public boolean isOccurred() {
+        return occurred;
+    }
+}
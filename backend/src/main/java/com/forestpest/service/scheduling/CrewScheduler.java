@@ -0,0 +1,758 @@
+package com.forestpest.service.scheduling;
+
+import com.forestpest.data.index.GeoPoint;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 防治班组排程器
+ * 药剂库存按任务优先级从高到低分配；分到库存的任务按最早开工时间依次接到代价最小的班组路线末尾，
+ * 再反复尝试把单个任务迁移到邻近班组或本班组的其他位置，代价下降即接受，直到没有改进或达到轮数上限。
+ *
+ * 代价 = Σ优先级权重×延误分钟 + 行驶权重×行驶分钟；约束为班组可用时段、每日作业时段和药剂库存，
+ * 排不进任何班组或库存不足的任务记录原因后留空。已指定班组的任务只排入该班组，先于其他任务分配库存。
+ * 排程结果保留在实例中，新到任务按最便宜插入位置增量加入，不重排已有任务。
+ * 非线程安全，由调用方加锁。
+ */
+public class CrewScheduler {
+
+    private static final double INFEASIBLE = Double.POSITIVE_INFINITY;
+    private static final double EPSILON = 1e-6;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    // 迁移到其他班组时只尝试最早开工时间附近的插入位置和路线末尾
+    private static final int INSERTION_WINDOW = 3;
+
+    public static final String REASON_STOCK = "药剂库存不足";
+    public static final String REASON_NO_CREW = "排程范围内没有可用班组";
+
+    private final LocalDateTime origin;
+    private final Settings settings;
+    private final int originMinuteOfDay;
+
+    private final Map<String, CrewState> crews = new LinkedHashMap<>();
+    private final Map<String, JobState> jobs = new LinkedHashMap<>();
+    // 药剂ID -> 剩余可占用数量，未登记的药剂不限量
+    private final Map<String, Integer> stock = new HashMap<>();
+    private final Map<String, String> unassigned = new LinkedHashMap<>();
+
+    public CrewScheduler(LocalDateTime origin, Settings settings) {
+        this.origin = origin;
+        this.settings = settings;
+        this.originMinuteOfDay = origin.getHour() * 60 + origin.getMinute();
+    }
+
+    public void addCrew(Crew crew) {
+        long from = crew.availableFrom != null ? Math.max(0, minutesFrom(crew.availableFrom)) : 0;
+        long until = crew.availableUntil != null ? minutesFrom(crew.availableUntil) : Long.MAX_VALUE;
+        crews.put(crew.id, new CrewState(crew.id, crew.home, from, until));
+    }
+
+    public void setStock(String pesticideId, int quantity) {
+        stock.put(pesticideId, quantity);
+    }
+
+    /**
+     * 批量排程：贪心构造后做局部搜索
+     */
+    public Result schedule(Collection<Job> batch) {
+        Map<String, Job> distinct = new LinkedHashMap<>();
+        batch.forEach(job -> distinct.put(job.taskId, job));
+        List<JobState> pending = new ArrayList<>(distinct.size());
+        for (Job job : distinct.values()) {
+            remove(job.taskId);
+            JobState state = new JobState(job, earliestOf(job));
+            jobs.put(job.taskId, state);
+            pending.add(state);
+        }
+        // 库存先分给已指定班组的任务，其余按优先级分配；路线按最早开工时间构造
+        pending.sort(Comparator.comparing((JobState state) -> state.job.crewId == null)
+                .thenComparingInt(state -> -state.job.weight)
+                .thenComparingLong(state -> state.earliest)
+                .thenComparing(state -> state.job.taskId));
+        pending.removeIf(state -> {
+            if (reserve(state)) {
+                return false;
+            }
+            unassigned.put(state.job.taskId, REASON_STOCK);
+            return true;
+        });
+        pending.sort(Comparator.comparingLong((JobState state) -> state.earliest)
+                .thenComparingInt(state -> -state.job.weight)
+                .thenComparing(state -> state.job.taskId));
+
+        for (JobState state : pending) {
+            CrewState best = null;
+            double bestDelta = INFEASIBLE;
+            for (CrewState crew : candidates(state)) {
+                // 只算延误的下界，已不优于当前最佳时跳过距离计算
+                long ready = crew.route.isEmpty() ? crew.from : crew.route.get(crew.route.size() - 1).end();
+                if ((double) state.job.weight * Math.max(0, ready - state.earliest) >= bestDelta) {
+                    continue;
+                }
+                double delta = evaluate(crew, -1, state, crew.route.size(), bestDelta);
+                if (delta < bestDelta) {
+                    bestDelta = delta;
+                    best = crew;
+                }
+            }
+            if (best == null) {
+                release(state);
+                unassigned.put(state.job.taskId, REASON_NO_CREW);
+                continue;
+            }
+            best.route.add(state);
+            refresh(best);
+        }
+
+        double initialCost = totalCost();
+        int moves = improve(new ArrayList<>(jobs.values()), settings.improvementPasses, true);
+        return new Result(assignments(), new LinkedHashMap<>(unassigned), initialCost, totalCost(), moves);
+    }
+
+    /**
+     * 增量加入一个任务：在全部班组的全部位置中选插入代价最小的，再调整所在班组的任务顺序；
+     * 排不进时返回null，原因见{@link #unassignedReasons()}
+     */
+    public Assignment insert(Job job) {
+        remove(job.taskId);
+        JobState state = new JobState(job, earliestOf(job));
+        jobs.put(job.taskId, state);
+        if (!reserve(state)) {
+            unassigned.put(job.taskId, REASON_STOCK);
+            return null;
+        }
+
+        CrewState best = null;
+        int bestIndex = -1;
+        double bestDelta = INFEASIBLE;
+        for (CrewState crew : candidates(state)) {
+            for (int index = 0; index <= crew.route.size(); index++) {
+                double delta = evaluate(crew, -1, state, index, bestDelta);
+                if (delta < bestDelta) {
+                    bestDelta = delta;
+                    best = crew;
+                    bestIndex = index;
+                }
+            }
+        }
+        if (best == null) {
+            release(state);
+            unassigned.put(job.taskId, REASON_NO_CREW);
+            return null;
+        }
+        best.route.add(bestIndex, state);
+        refresh(best);
+        improve(new ArrayList<>(best.route), 1, false);
+        return assignmentOf(state);
+    }
+
+    /**
+     * 移除任务并归还占用的药剂库存，所在班组后续任务按新路线重新计算时间
+     */
+    public boolean remove(String taskId) {
+        JobState state = jobs.remove(taskId);
+        if (state == null) {
+            return false;
+        }
+        if (unassigned.remove(taskId) == null) {
+            release(state);
+        }
+        CrewState crew = state.crew;
+        if (crew != null) {
+            crew.route.remove(state);
+            state.crew = null;
+            refresh(crew);
+        }
+        return true;
+    }
+
+    /**
+     * 局部搜索：逐个尝试把任务迁移到邻近班组或本班组的其他位置
+     * acrossCrews为false时只调整任务在本班组内的顺序
+     */
+    private int improve(List<JobState> candidates, int passes, boolean acrossCrews) {
+        int moves = 0;
+        for (int pass = 0; pass < passes; pass++) {
+            Map<CrewState, GeoPoint> anchors = acrossCrews ? anchors() : Collections.emptyMap();
+            int passMoves = 0;
+            for (JobState state : candidates) {
+                if (state.crew != null && relocate(state, anchors, acrossCrews)) {
+                    passMoves++;
+                }
+            }
+            moves += passMoves;
+            if (passMoves == 0) {
+                break;
+            }
+        }
+        return moves;
+    }
+
+    public List<Assignment> assignments() {
+        List<Assignment> result = new ArrayList<>();
+        for (CrewState crew : crews.values()) {
+            crew.route.forEach(state -> result.add(assignmentOf(state)));
+        }
+        return result;
+    }
+
+    /**
+     * 班组的任务序列，按执行顺序排列
+     */
+    public List<Assignment> route(String crewId) {
+        CrewState crew = crews.get(crewId);
+        if (crew == null) {
+            return new ArrayList<>();
+        }
+        List<Assignment> result = new ArrayList<>(crew.route.size());
+        crew.route.forEach(state -> result.add(assignmentOf(state)));
+        return result;
+    }
+
+    public Assignment getAssignment(String taskId) {
+        JobState state = jobs.get(taskId);
+        return state != null && state.crew != null ? assignmentOf(state) : null;
+    }
+
+    public Map<String, String> unassignedReasons() {
+        return new LinkedHashMap<>(unassigned);
+    }
+
+    public int getRemainingStock(String pesticideId) {
+        return stock.getOrDefault(pesticideId, Integer.MAX_VALUE);
+    }
+
+    public double totalCost() {
+        double cost = 0;
+        for (CrewState crew : crews.values()) {
+            cost += crew.cost;
+        }
+        return cost;
+    }
+
+    public int crewCount() {
+        return crews.size();
+    }
+
+    public boolean hasCrew(String crewId) {
+        return crews.containsKey(crewId);
+    }
+
+    /**
+     * 任务可排入的班组：已指定班组时只有该班组
+     */
+    private Collection<CrewState> candidates(JobState state) {
+        if (state.job.crewId == null) {
+            return crews.values();
+        }
+        CrewState crew = crews.get(state.job.crewId);
+        return crew != null ? Collections.singletonList(crew) : Collections.emptyList();
+    }
+
+    private boolean relocate(JobState state, Map<CrewState, GeoPoint> anchors, boolean acrossCrews) {
+        CrewState from = state.crew;
+        int fromIndex = from.route.indexOf(state);
+        double removal = evaluate(from, fromIndex, null, -1, INFEASIBLE);
+
+        CrewState bestCrew = null;
+        int bestIndex = -1;
+        double bestDelta = -EPSILON;
+        for (int index = 0; index < from.route.size(); index++) {
+            if (index == fromIndex) {
+                continue;
+            }
+            double delta = evaluate(from, fromIndex, state, index, INFEASIBLE);
+            if (delta < bestDelta) {
+                bestDelta = delta;
+                bestCrew = from;
+                bestIndex = index;
+            }
+        }
+        if (acrossCrews && state.job.crewId == null) {
+            for (CrewState crew : neighbours(state, anchors)) {
+                if (crew == from) {
+                    continue;
+                }
+                int around = insertionPoint(crew, state.earliest);
+                int last = crew.route.size();
+                for (int index = Math.max(0, around - INSERTION_WINDOW); index <= last; index++) {
+                    if (index > around + INSERTION_WINDOW && index < last) {
+                        index = last;
+                    }
+                    double delta = removal + evaluate(crew, -1, state, index, bestDelta - removal);
+                    if (delta < bestDelta) {
+                        bestDelta = delta;
+                        bestCrew = crew;
+                        bestIndex = index;
+                    }
+                }
+            }
+        }
+        if (bestCrew == null) {
+            return false;
+        }
+        from.route.remove(fromIndex);
+        bestCrew.route.add(bestIndex, state);
+        refresh(from);
+        if (bestCrew != from) {
+            refresh(bestCrew);
+        }
+        return true;
+    }
+
+    /**
+     * 邻近班组：按班组锚点（驻地或当前路线中心）距离取最近的若干个，另加一个没有锚点的空闲班组
+     */
+    private List<CrewState> neighbours(JobState state, Map<CrewState, GeoPoint> anchors) {
+        GeoPoint location = state.job.location;
+        if (location == null) {
+            return Collections.emptyList();
+        }
+        int limit = settings.candidateCrews;
+        CrewState[] nearest = new CrewState[limit];
+        double[] distances = new double[limit];
+        int size = 0;
+        CrewState idle = null;
+        for (CrewState crew : crews.values()) {
+            GeoPoint anchor = anchors.get(crew);
+            if (anchor == null) {
+                if (idle == null && crew.route.isEmpty()) {
+                    idle = crew;
+                }
+                continue;
+            }
+            double distance = squaredDegrees(anchor, location);
+            if (size == limit && distance >= distances[size - 1]) {
+                continue;
+            }
+            int position = size < limit ? size++ : size - 1;
+            while (position > 0 && distances[position - 1] > distance) {
+                distances[position] = distances[position - 1];
+                nearest[position] = nearest[position - 1];
+                position--;
+            }
+            distances[position] = distance;
+            nearest[position] = crew;
+        }
+        List<CrewState> result = new ArrayList<>(size + 1);
+        for (int i = 0; i < size; i++) {
+            result.add(nearest[i]);
+        }
+        if (idle != null) {
+            result.add(idle);
+        }
+        return result;
+    }
+
+    /**
+     * 只用于比较远近的近似距离，经度按纬度余弦缩放
+     */
+    private static double squaredDegrees(GeoPoint a, GeoPoint b) {
+        double dLat = a.getLatitude() - b.getLatitude();
+        double dLng = (a.getLongitude() - b.getLongitude()) * Math.cos(Math.toRadians(b.getLatitude()));
+        return dLat * dLat + dLng * dLng;
+    }
+
+    /**
+     * 路线中第一个开工时间不早于给定时间的位置
+     */
+    private static int insertionPoint(CrewState crew, long earliest) {
+        int low = 0;
+        int high = crew.route.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (crew.route.get(middle).start < earliest) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private Map<CrewState, GeoPoint> anchors() {
+        Map<CrewState, GeoPoint> anchors = new HashMap<>(crews.size() * 2);
+        for (CrewState crew : crews.values()) {
+            if (crew.home != null) {
+                anchors.put(crew, crew.home);
+                continue;
+            }
+            double latitude = 0;
+            double longitude = 0;
+            int located = 0;
+            for (JobState state : crew.route) {
+                if (state.job.location != null) {
+                    latitude += state.job.location.getLatitude();
+                    longitude += state.job.location.getLongitude();
+                    located++;
+                }
+            }
+            if (located > 0) {
+                anchors.put(crew, new GeoPoint(latitude / located, longitude / located));
+            }
+        }
+        return anchors;
+    }
+
+    /**
+     * 计算路线变化引起的代价增量，不修改路线
+     * removeAt为要移除的原位置（-1表示不移除），insertAt为插入任务在移除后路线中的位置；
+     * 从第一个受影响的位置向后推算，后续任务的开工时间和位置与原路线一致时提前结束。
+     * 违反约束时返回正无穷。只插入不移除时，插入点之后第二个任务起增量只增不减，
+     * 此时已不小于bound即返回当前值，调用方据此放弃该位置。
+     */
+    private double evaluate(CrewState crew, int removeAt, JobState insert, int insertAt, double bound) {
+        List<JobState> route = crew.route;
+        int size = route.size();
+        int insertBefore = insert == null ? -1
+                : (removeAt >= 0 && insertAt >= removeAt ? insertAt + 1 : insertAt);
+        int first = Math.min(removeAt >= 0 ? removeAt : size, insert != null ? insertBefore : size);
+
+        GeoPoint at = first > 0 ? route.get(first - 1).at : crew.home;
+        long time = first > 0 ? route.get(first - 1).end() : crew.from;
+        boolean inserted = insert == null;
+        double delta = 0;
+
+        for (int i = first; i <= size; i++) {
+            if (!inserted && i == insertBefore) {
+                long travel = travelMinutes(at, insert.job.location);
+                long start = startTime(time + travel, insert);
+                if (start < 0 || start + insert.job.durationMinutes > crew.until) {
+                    return INFEASIBLE;
+                }
+                delta += contribution(insert, start, travel);
+                time = start + insert.job.durationMinutes;
+                at = insert.job.location != null ? insert.job.location : at;
+                inserted = true;
+            }
+            if (i == size) {
+                break;
+            }
+            if (removeAt < 0 && i > insertBefore && delta >= bound) {
+                return delta;
+            }
+            JobState state = route.get(i);
+            if (i == removeAt) {
+                delta -= contribution(state, state.start, state.travelIn);
+                continue;
+            }
+            long travel = travelMinutes(at, state.job.location);
+            long start = startTime(time + travel, state);
+            if (start < 0 || start + state.job.durationMinutes > crew.until) {
+                return INFEASIBLE;
+            }
+            GeoPoint after = state.job.location != null ? state.job.location : at;
+            if (inserted && i > removeAt && start == state.start && travel == state.travelIn
+                    && Objects.equals(after, state.at)) {
+                break;
+            }
+            delta += contribution(state, start, travel) - contribution(state, state.start, state.travelIn);
+            time = start + state.job.durationMinutes;
+            at = after;
+        }
+        return delta;
+    }
+
+    /**
+     * 按当前顺序重新推算班组路线的时间、行驶和代价
+     */
+    private void refresh(CrewState crew) {
+        GeoPoint at = crew.home;
+        long time = crew.from;
+        double cost = 0;
+        for (JobState state : crew.route) {
+            long travel = travelMinutes(at, state.job.location);
+            state.crew = crew;
+            state.travelIn = travel;
+            state.start = startTime(time + travel, state);
+            at = state.job.location != null ? state.job.location : at;
+            state.at = at;
+            time = state.end();
+            cost += contribution(state, state.start, travel);
+        }
+        crew.cost = cost;
+    }
+
+    private double contribution(JobState state, long start, long travel) {
+        return (double) state.job.weight * (start - state.earliest) + settings.travelWeight * travel;
+    }
+
+    /**
+     * 不早于最早开工时间、落在每日作业时段内的开工时间；任务时长超过作业时段时返回-1
+     */
+    private long startTime(long ready, JobState state) {
+        int duration = state.job.durationMinutes;
+        if (duration > settings.shiftEndMinute - settings.shiftStartMinute) {
+            return -1;
+        }
+        long absolute = Math.max(ready, state.earliest) + originMinuteOfDay;
+        long day = Math.floorDiv(absolute, MINUTES_PER_DAY);
+        long minuteOfDay = absolute - day * MINUTES_PER_DAY;
+        if (minuteOfDay < settings.shiftStartMinute) {
+            absolute = day * MINUTES_PER_DAY + settings.shiftStartMinute;
+        } else if (minuteOfDay + duration > settings.shiftEndMinute) {
+            absolute = (day + 1) * MINUTES_PER_DAY + settings.shiftStartMinute;
+        }
+        return absolute - originMinuteOfDay;
+    }
+
+    private long travelMinutes(GeoPoint from, GeoPoint to) {
+        if (from == null || to == null) {
+            return 0;
+        }
+        return (long) Math.ceil(from.distanceKm(to) / settings.travelSpeedKmh * 60);
+    }
+
+    private boolean reserve(JobState state) {
+        for (Map.Entry<String, Integer> demand : state.job.pesticides.entrySet()) {
+            Integer remaining = stock.get(demand.getKey());
+            if (remaining != null && remaining < demand.getValue()) {
+                return false;
+            }
+        }
+        state.job.pesticides.forEach((id, quantity) -> stock.computeIfPresent(id, (k, remaining) -> remaining - quantity));
+        return true;
+    }
+
+    private void release(JobState state) {
+        state.job.pesticides.forEach((id, quantity) -> stock.computeIfPresent(id, (k, remaining) -> remaining + quantity));
+    }
+
+    private long earliestOf(Job job) {
+        return job.earliest != null ? Math.max(0, minutesFrom(job.earliest)) : 0;
+    }
+
+    private long minutesFrom(LocalDateTime time) {
+        return Duration.between(origin, time).toMinutes();
+    }
+
+    private Assignment assignmentOf(JobState state) {
+        CrewState crew = state.crew;
+        return new Assignment(state.job.taskId, crew.id, crew.route.indexOf(state),
+                origin.plusMinutes(state.start), origin.plusMinutes(state.end()), state.travelIn);
+    }
+
+    /**
+     * 排程参数
+     */
+    public static final class Settings {
+        private int shiftStartMinute = 8 * 60;
+        private int shiftEndMinute = 17 * 60;
+        private double travelSpeedKmh = 40;
+        private double travelWeight = 1;
+        private int candidateCrews = 8;
+        private int improvementPasses = 2;
+
+        public Settings shift(int startHour, int endHour) {
+            if (startHour < 0 || endHour > 24 || startHour >= endHour) {
+                throw new IllegalArgumentException("作业时段无效: " + startHour + "-" + endHour);
+            }
+            this.shiftStartMinute = startHour * 60;
+            this.shiftEndMinute = endHour * 60;
+            return this;
+        }
+
+        public Settings travelSpeedKmh(double travelSpeedKmh) {
+            this.travelSpeedKmh = travelSpeedKmh;
+            return this;
+        }
+
+        public Settings travelWeight(double travelWeight) {
+            this.travelWeight = travelWeight;
+            return this;
+        }
+
+        public Settings candidateCrews(int candidateCrews) {
+            this.candidateCrews = Math.max(1, candidateCrews);
+            return this;
+        }
+
+        public Settings improvementPasses(int improvementPasses) {
+            this.improvementPasses = Math.max(0, improvementPasses);
+            return this;
+        }
+    }
+
+    /**
+     * 班组：驻地可为空（首个任务不计行驶），可用时段为空时不限
+     */
+    public static final class Crew {
+        private final String id;
+        private final GeoPoint home;
+        private final LocalDateTime availableFrom;
+        private final LocalDateTime availableUntil;
+
+        public Crew(String id, GeoPoint home, LocalDateTime availableFrom, LocalDateTime availableUntil) {
+            this.id = Objects.requireNonNull(id);
+            this.home = home;
+            this.availableFrom = availableFrom;
+            this.availableUntil = availableUntil;
+        }
+    }
+
+    /**
+     * 待排任务：位置为空时不计行驶，pesticides为药剂ID到占用数量，crewId不为空时只排入该班组
+     */
+    public static final class Job {
+        private final String taskId;
+        private final GeoPoint location;
+        private final LocalDateTime earliest;
+        private final int durationMinutes;
+        private final int weight;
+        private final Map<String, Integer> pesticides;
+        private final String crewId;
+
+        public Job(String taskId, GeoPoint location, LocalDateTime earliest, int durationMinutes, int weight,
+                   Map<String, Integer> pesticides) {
+            this(taskId, location, earliest, durationMinutes, weight, pesticides, null);
+        }
+
+        public Job(String taskId, GeoPoint location, LocalDateTime earliest, int durationMinutes, int weight,
+                   Map<String, Integer> pesticides, String crewId) {
+            this.taskId = Objects.requireNonNull(taskId);
+            this.location = location;
+            this.earliest = earliest;
+            this.durationMinutes = durationMinutes;
+            this.weight = weight;
+            this.pesticides = pesticides != null ? pesticides : Collections.emptyMap();
+            this.crewId = crewId;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+    }
+
+    /**
+     * 排程结果中的一条任务安排
+     */
+    public static final class Assignment {
+        private final String taskId;
+        private final String crewId;
+        private final int sequence;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final long travelMinutes;
+
+        private Assignment(String taskId, String crewId, int sequence, LocalDateTime start, LocalDateTime end,
+                           long travelMinutes) {
+            this.taskId = taskId;
+            this.crewId = crewId;
+            this.sequence = sequence;
+            this.start = start;
+            this.end = end;
+            this.travelMinutes = travelMinutes;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        public String getCrewId() {
+            return crewId;
+        }
+
+        public int getSequence() {
+            return sequence;
+        }
+
+        public LocalDateTime getStart() {
+            return start;
+        }
+
+        public LocalDateTime getEnd() {
+            return end;
+        }
+
+        public long getTravelMinutes() {
+            return travelMinutes;
+        }
+    }
+
+    /**
+     * 批量排程结果
+     */
+    public static final class Result {
+        private final List<Assignment> assignments;
+        private final Map<String, String> unassigned;
+        private final double initialCost;
+        private final double finalCost;
+        private final int improvementMoves;
+
+        private Result(List<Assignment> assignments, Map<String, String> unassigned, double initialCost,
+                       double finalCost, int improvementMoves) {
+            this.assignments = assignments;
+            this.unassigned = unassigned;
+            this.initialCost = initialCost;
+            this.finalCost = finalCost;
+            this.improvementMoves = improvementMoves;
+        }
+
+        public List<Assignment> getAssignments() {
+            return assignments;
+        }
+
+        public Map<String, String> getUnassigned() {
+            return unassigned;
+        }
+
+        public double getInitialCost() {
+            return initialCost;
+        }
+
+        public double getFinalCost() {
+            return finalCost;
+        }
+
+        public int getImprovementMoves() {
+            return improvementMoves;
+        }
+    }
+
+    private static final class CrewState {
+        private final String id;
+        private final GeoPoint home;
+        private final long from;
+        private final long until;
+        private final List<JobState> route = new ArrayList<>();
+        private double cost;
+
+        private CrewState(String id, GeoPoint home, long from, long until) {
+            this.id = id;
+            this.home = home;
+            this.from = from;
+            this.until = until;
+        }
+    }
+
+    /**
+     * 任务在路线中的推算结果：开工时间、进入行驶分钟、完工后所在位置
+     */
+    private static final class JobState {
+        private final Job job;
+        private final long earliest;
+        private CrewState crew;
+        private long start;
+        private long travelIn;
+        private GeoPoint at;
+
+        private JobState(Job job, long earliest) {
+            this.job = job;
+            this.earliest = earliest;
+        }
+
+        private long end() {
+            return start + job.durationMinutes;
+        }
+    }
+}
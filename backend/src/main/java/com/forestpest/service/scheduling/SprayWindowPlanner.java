@@ -0,0 +1,437 @@
+package com.forestpest.service.scheduling;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 喷药作业窗口规划器
+ * 按地块保存逐小时天气预报，风速、温度、湿度都在允许范围内且无降雨的连续小时构成一个作业窗口，
+ * 窗口结束前还要留出药液耐雨的无雨时长。每个地块的窗口互不重叠，按开始时间保存在区间索引中。
+ * 每个待执行任务取其最早可开工时间之后第一个容得下作业时长的窗口。
+ *
+ * 新预报只与已有数据逐小时比较：数据有变化的地块才重算窗口，
+ * 其中只有变化时段可能影响已选窗口的任务重新选择。
+ * 非线程安全，由调用方加锁。
+ */
+public class SprayWindowPlanner {
+
+    private final Settings settings;
+
+    // 地块 -> 小时 -> 预报
+    private final Map<String, TreeMap<LocalDateTime, HourlyForecast>> forecasts = new HashMap<>();
+    // 地块 -> 窗口开始时间 -> 窗口
+    private final Map<String, TreeMap<LocalDateTime, Window>> windows = new HashMap<>();
+    private final Map<String, TaskState> tasks = new HashMap<>();
+    private final Map<String, Set<String>> tasksByPlot = new HashMap<>();
+
+    public SprayWindowPlanner(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * 合并一批预报，重算数据有变化的地块并重新评估受影响的任务
+     */
+    public IngestResult ingest(Collection<HourlyForecast> batch) {
+        // 地块 -> 最早变化的小时
+        Map<String, LocalDateTime> changedFrom = new HashMap<>();
+        int changedHours = 0;
+        for (HourlyForecast hour : batch) {
+            TreeMap<LocalDateTime, HourlyForecast> series = forecasts.computeIfAbsent(hour.plot, plot -> new TreeMap<>());
+            HourlyForecast previous = series.put(hour.time, hour);
+            if (hour.sameWeather(previous)) {
+                continue;
+            }
+            changedHours++;
+            changedFrom.merge(hour.plot, hour.time, (a, b) -> a.isBefore(b) ? a : b);
+        }
+
+        int evaluated = 0;
+        for (Map.Entry<String, LocalDateTime> change : changedFrom.entrySet()) {
+            String plot = change.getKey();
+            rebuildWindows(plot);
+            for (String taskId : tasksByPlot.getOrDefault(plot, Collections.emptySet())) {
+                TaskState task = tasks.get(taskId);
+                if (affectedBy(task, change.getValue())) {
+                    evaluate(task);
+                    evaluated++;
+                }
+            }
+        }
+        return new IngestResult(batch.size(), changedHours, changedFrom.size(), evaluated);
+    }
+
+    /**
+     * 登记或更新任务，地块、时长变化或已选窗口早于新的最早开工时间时重新选择窗口
+     * @return 是否重新评估
+     */
+    public boolean track(String taskId, String plot, LocalDateTime earliest, int durationHours) {
+        LocalDateTime from = ceilHour(earliest);
+        int hours = Math.max(1, durationHours);
+        TaskState task = tasks.get(taskId);
+        if (task != null && task.plot.equals(plot) && task.durationHours == hours && !from.isBefore(task.earliest)
+                && (task.window == null || !task.window.start.isBefore(from))) {
+            // 最早开工时间推后但不晚于已选窗口时，原来的选择依然是最早可用的
+            task.earliest = from;
+            return false;
+        }
+        if (task != null) {
+            untrack(taskId);
+        }
+        task = new TaskState(taskId, plot, from, hours);
+        tasks.put(taskId, task);
+        tasksByPlot.computeIfAbsent(plot, key -> new HashSet<>()).add(taskId);
+        evaluate(task);
+        return true;
+    }
+
+    public boolean untrack(String taskId) {
+        TaskState task = tasks.remove(taskId);
+        if (task == null) {
+            return false;
+        }
+        Set<String> ids = tasksByPlot.get(task.plot);
+        if (ids != null) {
+            ids.remove(taskId);
+            if (ids.isEmpty()) {
+                tasksByPlot.remove(task.plot);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 任务当前选中的作业时段，没有可用窗口时为null
+     */
+    public TaskWindow windowFor(String taskId) {
+        TaskState task = tasks.get(taskId);
+        return task != null ? task.window : null;
+    }
+
+    public Set<String> trackedTasks() {
+        return Collections.unmodifiableSet(tasks.keySet());
+    }
+
+    /**
+     * 地块在[from, to)内有交集的作业窗口，from或to为空时不限
+     */
+    public List<Window> windows(String plot, LocalDateTime from, LocalDateTime to) {
+        TreeMap<LocalDateTime, Window> index = windows.get(plot);
+        if (index == null) {
+            return Collections.emptyList();
+        }
+        NavigableMap<LocalDateTime, Window> candidates = index;
+        if (from != null) {
+            // 开始于from之前的窗口中只有最后一个可能跨过from
+            Map.Entry<LocalDateTime, Window> floor = index.floorEntry(from);
+            candidates = index.tailMap(floor != null ? floor.getKey() : from, true);
+        }
+        if (to != null) {
+            candidates = candidates.headMap(to, false);
+        }
+        List<Window> result = new ArrayList<>();
+        for (Window window : candidates.values()) {
+            if (from == null || window.end.isAfter(from)) {
+                result.add(window);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 删除早于指定时间的预报和窗口，跨过该时间的窗口保留
+     */
+    public void purgeBefore(LocalDateTime time) {
+        for (TreeMap<LocalDateTime, HourlyForecast> series : forecasts.values()) {
+            series.headMap(time, false).clear();
+        }
+        forecasts.values().removeIf(Map::isEmpty);
+        for (TreeMap<LocalDateTime, Window> index : windows.values()) {
+            index.headMap(time, false).values().removeIf(window -> !window.end.isAfter(time));
+        }
+        windows.values().removeIf(Map::isEmpty);
+    }
+
+    public int plotCount() {
+        return forecasts.size();
+    }
+
+    public int windowCount() {
+        int count = 0;
+        for (TreeMap<LocalDateTime, Window> index : windows.values()) {
+            count += index.size();
+        }
+        return count;
+    }
+
+    /**
+     * 只有变化发生在已选窗口结束加耐雨时长之前，任务的选择才可能改变
+     */
+    private boolean affectedBy(TaskState task, LocalDateTime changedFrom) {
+        return task.window == null
+                || !changedFrom.isAfter(task.window.window.end.plusHours(settings.rainfastHours));
+    }
+
+    private void evaluate(TaskState task) {
+        task.window = null;
+        for (Window window : windows(task.plot, task.earliest, null)) {
+            LocalDateTime start = window.start.isBefore(task.earliest) ? task.earliest : window.start;
+            LocalDateTime end = start.plusHours(task.durationHours);
+            if (!end.isAfter(window.end)) {
+                task.window = new TaskWindow(task.taskId, window, start, end);
+                return;
+            }
+        }
+    }
+
+    private void rebuildWindows(String plot) {
+        List<HourlyForecast> hours = new ArrayList<>(forecasts.get(plot).values());
+        TreeMap<LocalDateTime, Window> index = new TreeMap<>();
+        // 从后往前记录每个小时之后（含）最近的降雨时间，超出预报范围视为无雨
+        LocalDateTime[] nextRain = new LocalDateTime[hours.size() + 1];
+        for (int i = hours.size() - 1; i >= 0; i--) {
+            HourlyForecast hour = hours.get(i);
+            boolean gapAfter = i + 1 < hours.size() && !hours.get(i + 1).time.equals(hour.time.plusHours(1));
+            nextRain[i] = isRainy(hour) ? hour.time : (gapAfter ? null : nextRain[i + 1]);
+        }
+
+        int i = 0;
+        while (i < hours.size()) {
+            if (!isSprayable(hours.get(i))) {
+                i++;
+                continue;
+            }
+            int runStart = i;
+            while (i + 1 < hours.size() && isSprayable(hours.get(i + 1))
+                    && hours.get(i + 1).time.equals(hours.get(i).time.plusHours(1))) {
+                i++;
+            }
+            LocalDateTime start = hours.get(runStart).time;
+            LocalDateTime end = hours.get(i).time.plusHours(1);
+            LocalDateTime rain = i + 1 < hours.size() && hours.get(i + 1).time.equals(end) ? nextRain[i + 1] : null;
+            if (rain != null && rain.minusHours(settings.rainfastHours).isBefore(end)) {
+                end = rain.minusHours(settings.rainfastHours);
+            }
+            if (end.isAfter(start)) {
+                index.put(start, new Window(plot, start, end));
+            }
+            i++;
+        }
+        if (index.isEmpty()) {
+            windows.remove(plot);
+        } else {
+            windows.put(plot, index);
+        }
+    }
+
+    private boolean isRainy(HourlyForecast hour) {
+        return hour.rainfall == null || hour.rainfall > settings.maxRainfall;
+    }
+
+    private boolean isSprayable(HourlyForecast hour) {
+        return !isRainy(hour)
+                && hour.windSpeed != null && hour.windSpeed <= settings.maxWindSpeed
+                && hour.temperature != null
+                && hour.temperature >= settings.minTemperature && hour.temperature <= settings.maxTemperature
+                && hour.humidity != null && hour.humidity >= settings.minHumidity;
+    }
+
+    private static LocalDateTime ceilHour(LocalDateTime time) {
+        LocalDateTime hour = time.truncatedTo(ChronoUnit.HOURS);
+        return hour.equals(time) ? hour : hour.plusHours(1);
+    }
+
+    private static final class TaskState {
+        private final String taskId;
+        private final String plot;
+        private final int durationHours;
+        private LocalDateTime earliest;
+        private TaskWindow window;
+
+        private TaskState(String taskId, String plot, LocalDateTime earliest, int durationHours) {
+            this.taskId = taskId;
+            this.plot = plot;
+            this.earliest = earliest;
+            this.durationHours = durationHours;
+        }
+    }
+
+    /**
+     * 作业条件阈值：风速米/秒，温度摄氏度，湿度百分比，降雨毫米/小时
+     */
+    public static final class Settings {
+        private double maxWindSpeed = 5.0;
+        private double minTemperature = 5.0;
+        private double maxTemperature = 30.0;
+        private double minHumidity = 40.0;
+        private double maxRainfall = 0.0;
+        private int rainfastHours = 2;
+
+        public Settings maxWindSpeed(double maxWindSpeed) {
+            this.maxWindSpeed = maxWindSpeed;
+            return this;
+        }
+
+        public Settings temperature(double minTemperature, double maxTemperature) {
+            if (minTemperature > maxTemperature) {
+                throw new IllegalArgumentException("温度范围无效: " + minTemperature + "-" + maxTemperature);
+            }
+            this.minTemperature = minTemperature;
+            this.maxTemperature = maxTemperature;
+            return this;
+        }
+
+        public Settings minHumidity(double minHumidity) {
+            this.minHumidity = minHumidity;
+            return this;
+        }
+
+        public Settings maxRainfall(double maxRainfall) {
+            this.maxRainfall = maxRainfall;
+            return this;
+        }
+
+        public Settings rainfastHours(int rainfastHours) {
+            this.rainfastHours = Math.max(0, rainfastHours);
+            return this;
+        }
+    }
+
+    /**
+     * 单个地块单个小时的预报，缺失的数值视为不适宜作业
+     */
+    public static final class HourlyForecast {
+        private final String plot;
+        private final LocalDateTime time;
+        private final Double temperature;
+        private final Double humidity;
+        private final Double windSpeed;
+        private final Double rainfall;
+
+        public HourlyForecast(String plot, LocalDateTime time, Double temperature, Double humidity,
+                              Double windSpeed, Double rainfall) {
+            this.plot = Objects.requireNonNull(plot);
+            this.time = time.truncatedTo(ChronoUnit.HOURS);
+            this.temperature = temperature;
+            this.humidity = humidity;
+            this.windSpeed = windSpeed;
+            this.rainfall = rainfall;
+        }
+
+        private boolean sameWeather(HourlyForecast other) {
+            return other != null
+                    && Objects.equals(temperature, other.temperature)
+                    && Objects.equals(humidity, other.humidity)
+                    && Objects.equals(windSpeed, other.windSpeed)
+                    && Objects.equals(rainfall, other.rainfall);
+        }
+
+        public String getPlot() {
+            return plot;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+    }
+
+    /**
+     * 地块的连续作业窗口[start, end)
+     */
+    public static final class Window {
+        private final String plot;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        private Window(String plot, LocalDateTime start, LocalDateTime end) {
+            this.plot = plot;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getPlot() {
+            return plot;
+        }
+
+        public LocalDateTime getStart() {
+            return start;
+        }
+
+        public LocalDateTime getEnd() {
+            return end;
+        }
+    }
+
+    /**
+     * 任务在窗口内的作业时段
+     */
+    public static final class TaskWindow {
+        private final String taskId;
+        private final Window window;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        private TaskWindow(String taskId, Window window, LocalDateTime start, LocalDateTime end) {
+            this.taskId = taskId;
+            this.window = window;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        public Window getWindow() {
+            return window;
+        }
+
+        public LocalDateTime getStart() {
+            return start;
+        }
+
+        public LocalDateTime getEnd() {
+            return end;
+        }
+    }
+
+    public static final class IngestResult {
+        private final int rows;
+        private final int changedHours;
+        private final int changedPlots;
+        private final int evaluatedTasks;
+
+        private IngestResult(int rows, int changedHours, int changedPlots, int evaluatedTasks) {
+            this.rows = rows;
+            this.changedHours = changedHours;
+            this.changedPlots = changedPlots;
+            this.evaluatedTasks = evaluatedTasks;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getChangedHours() {
+            return changedHours;
+        }
+
+        public int getChangedPlots() {
+            return changedPlots;
+        }
+
+        public int getEvaluatedTasks() {
+            return evaluatedTasks;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.forestpest.service.scheduling;
+
+import com.forestpest.data.storage.DataStorage;
+import com.forestpest.entity.TreatmentTask;
+import com.forestpest.exception.BusinessException;
+import com.forestpest.service.scheduling.SprayWindowPlanner.HourlyForecast;
+import com.forestpest.service.scheduling.SprayWindowPlanner.IngestResult;
+import com.forestpest.service.scheduling.SprayWindowPlanner.TaskWindow;
+import com.forestpest.service.scheduling.SprayWindowPlanner.Window;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 喷药作业窗口服务
+ * 导入逐小时天气预报CSV，为尚未开始的防治任务在其目标区域上选择作业窗口。
+ * CSV首行为列名，需包含plot、time、temperature、humidity、windSpeed、rainfall，
+ * plot可以是区域ID或编码，其他取值按原值与任务的目标区域匹配，time为ISO格式的整点时间。
+ */
+@Service
+public class SprayWindowService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SprayWindowService.class);
+
+    private static final String[] COLUMNS = {"plot", "time", "temperature", "humidity", "windspeed", "rainfall"};
+
+    @Autowired
+    private DataStorage dataStorage;
+
+    private final SprayWindowPlanner.Settings settings = new SprayWindowPlanner.Settings();
+    private double minTemperature = 5.0;
+    private double maxTemperature = 30.0;
+    private int taskMinutes = 240;
+
+    private SprayWindowPlanner planner;
+
+    @Value("${treatment.spraying.max-wind-speed:5.0}")
+    public void setMaxWindSpeed(double maxWindSpeed) {
+        settings.maxWindSpeed(maxWindSpeed);
+    }
+
+    @Value("${treatment.spraying.min-temperature:5.0}")
+    public void setMinTemperature(double minTemperature) {
+        this.minTemperature = minTemperature;
+    }
+
+    @Value("${treatment.spraying.max-temperature:30.0}")
+    public void setMaxTemperature(double maxTemperature) {
+        this.maxTemperature = maxTemperature;
+    }
+
+    @Value("${treatment.spraying.min-humidity:40.0}")
+    public void setMinHumidity(double minHumidity) {
+        settings.minHumidity(minHumidity);
+    }
+
+    @Value("${treatment.spraying.max-rainfall:0.0}")
+    public void setMaxRainfall(double maxRainfall) {
+        settings.maxRainfall(maxRainfall);
+    }
+
+    @Value("${treatment.spraying.rainfast-hours:2}")
+    public void setRainfastHours(int rainfastHours) {
+        settings.rainfastHours(rainfastHours);
+    }
+
+    @Value("${treatment.scheduling.task-minutes:240}")
+    public void setTaskMinutes(int taskMinutes) {
+        this.taskMinutes = taskMinutes;
+    }
+
+    /**
+     * 导入一份预报：先同步待执行任务，再合并预报，只重新评估受变化影响的任务
+     */
+    public synchronized Map<String, Object> ingestForecast(InputStream input) {
+        List<HourlyForecast> rows = parse(input);
+        LocalDateTime now = LocalDateTime.now();
+        SprayWindowPlanner current = planner();
+        current.purgeBefore(now.minusDays(1));
+        int synced = syncTasks(current, now);
+        IngestResult result = current.ingest(rows);
+
+        int covered = 0;
+        for (String taskId : current.trackedTasks()) {
+            if (current.windowFor(taskId) != null) {
+                covered++;
+            }
+        }
+        logger.info("导入天气预报: {}行, 变化{}小时/{}个地块, 重新评估任务{}个, 有作业窗口的任务{}/{}",
+                result.getRows(), result.getChangedHours(), result.getChangedPlots(),
+                synced + result.getEvaluatedTasks(), covered, current.trackedTasks().size());
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("rows", result.getRows());
+        summary.put("changedHours", result.getChangedHours());
+        summary.put("changedPlots", result.getChangedPlots());
+        summary.put("evaluatedTasks", synced + result.getEvaluatedTasks());
+        summary.put("pendingTasks", current.trackedTasks().size());
+        summary.put("tasksWithWindow", covered);
+        summary.put("plots", current.plotCount());
+        summary.put("windows", current.windowCount());
+        return summary;
+    }
+
+    /**
+     * 任务的作业窗口，任务已开始或没有可用窗口时返回null
+     */
+    public synchronized TaskWindow findTaskWindow(String taskId) {
+        TreatmentTask task = dataStorage.getTreatmentStorage().findTaskById(taskId)
+                .orElseThrow(() -> new BusinessException("防治任务不存在"));
+        return findTaskWindow(task);
+    }
+
+    /**
+     * 按任务当前的目标区域和计划时间取作业窗口，尚未导入预报时返回null
+     */
+    public synchronized TaskWindow findTaskWindow(TreatmentTask task) {
+        if (planner == null) {
+            return null;
+        }
+        if (!TreatmentScheduleService.SCHEDULABLE_STATUSES.contains(task.getStatus())) {
+            planner.untrack(task.getId());
+            return null;
+        }
+        track(planner, task, LocalDateTime.now());
+        return planner.windowFor(task.getId());
+    }
+
+    /**
+     * 区域在时间范围内的作业窗口
+     */
+    public synchronized List<Map<String, Object>> getAreaWindows(String areaKey, LocalDateTime from, LocalDateTime to) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (planner == null) {
+            return result;
+        }
+        for (Window window : planner.windows(plotOf(areaKey), from, to)) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("plot", window.getPlot());
+            item.put("start", window.getStart());
+            item.put("end", window.getEnd());
+            result.add(item);
+        }
+        return result;
+    }
+
+    private SprayWindowPlanner planner() {
+        if (planner == null) {
+            planner = new SprayWindowPlanner(settings.temperature(minTemperature, maxTemperature));
+        }
+        return planner;
+    }
+
+    /**
+     * 登记全部待执行任务并移除已开始的任务，返回重新评估的任务数
+     */
+    private int syncTasks(SprayWindowPlanner current, LocalDateTime now) {
+        Set<String> pending = new HashSet<>();
+        int evaluated = 0;
+        for (String status : TreatmentScheduleService.SCHEDULABLE_STATUSES) {
+            for (TreatmentTask task : dataStorage.getTreatmentStorage().findTasksByStatus(status)) {
+                if (task.getTargetArea() == null || !pending.add(task.getId())) {
+                    continue;
+                }
+                if (track(current, task, now)) {
+                    evaluated++;
+                }
+            }
+        }
+        for (String taskId : new ArrayList<>(current.trackedTasks())) {
+            if (!pending.contains(taskId)) {
+                current.untrack(taskId);
+            }
+        }
+        return evaluated;
+    }
+
+    private boolean track(SprayWindowPlanner current, TreatmentTask task, LocalDateTime now) {
+        if (task.getTargetArea() == null) {
+            current.untrack(task.getId());
+            return false;
+        }
+        LocalDateTime earliest = task.getScheduledTime() != null && task.getScheduledTime().isAfter(now)
+                ? task.getScheduledTime() : now;
+        return current.track(task.getId(), plotOf(task.getTargetArea()), earliest, (taskMinutes + 59) / 60);
+    }
+
+    /**
+     * 登记过的区域统一用区域ID作为地块键，其余按原值
+     */
+    private String plotOf(String areaKey) {
+        String id = dataStorage.getForestResourceStorage().resolveAreaId(areaKey);
+        return id != null ? id : areaKey;
+    }
+
+    private List<HourlyForecast> parse(InputStream input) {
+        List<HourlyForecast> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new BusinessException("天气预报文件为空");
+            }
+            int[] positions = columnPositions(header.replace("\uFEFF", "").split(","));
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                rows.add(parseRow(line.split(",", -1), positions, lineNumber));
+            }
+        } catch (IOException e) {
+            throw new BusinessException("读取天气预报失败: " + e.getMessage());
+        }
+        return rows;
+    }
+
+    private int[] columnPositions(String[] header) {
+        Map<String, Integer> byName = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            byName.put(header[i].trim().toLowerCase(Locale.ROOT), i);
+        }
+        int[] positions = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            Integer position = byName.get(COLUMNS[i]);
+            if (position == null) {
+                throw new BusinessException("天气预报缺少列: " + COLUMNS[i]);
+            }
+            positions[i] = position;
+        }
+        return positions;
+    }
+
+    private HourlyForecast parseRow(String[] fields, int[] positions, int lineNumber) {
+        try {
+            String plot = field(fields, positions[0]);
+            String time = field(fields, positions[1]);
+            if (plot == null || time == null) {
+                throw new BusinessException("天气预报第" + lineNumber + "行缺少地块或时间");
+            }
+            return new HourlyForecast(plotOf(plot), LocalDateTime.parse(time.replace(' ', 'T')),
+                    number(fields, positions[2]), number(fields, positions[3]),
+                    number(fields, positions[4]), number(fields, positions[5]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new BusinessException("天气预报第" + lineNumber + "行格式错误: " + e.getMessage());
+        }
+    }
+
+    private static String field(String[] fields, int position) {
+        if (position >= fields.length) {
+            return null;
+        }
+        String value = fields[position].trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Double number(String[] fields, int position) {
+        String value = field(fields, position);
+        return value != null ? Double.valueOf(value) : null;
+    }
+}
@@ -0,0 +1,456 @@
+package com.forestpest.service.scheduling;
+
+import com.forestpest.data.index.GeoPoint;
+import com.forestpest.data.storage.DataStorage;
+import com.forestpest.data.storage.ForestResourceStorage;
+import com.forestpest.data.storage.TaskProgress;
+import com.forestpest.data.storage.TreatmentStorage;
+import com.forestpest.entity.Pesticide;
+import com.forestpest.entity.TreatmentTask;
+import com.forestpest.entity.User;
+import com.forestpest.exception.BusinessException;
+import com.forestpest.service.PermissionService;
+import com.forestpest.service.scheduling.CrewScheduler.Assignment;
+import com.forestpest.service.scheduling.CrewScheduler.Crew;
+import com.forestpest.service.scheduling.CrewScheduler.Job;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 防治任务排程服务
+ * 普通用户作为作业班组，尚未开始的任务参与排程；批量排程重建排程器并把结果写回任务，
+ * 单个任务排程在当前排程上增量插入；批量新建的任务在保存前排程，排程结果随任务一起保存。
+ * 任务开始执行、完成或删除后从当前排程中移除；排程起点过旧或药剂库存变化时按当前数据重建排程器。
+ */
+@Service
+public class TreatmentScheduleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TreatmentScheduleService.class);
+
+    // 尚未开始执行、可以重新安排的任务状态
+    static final Set<String> SCHEDULABLE_STATUSES = Set.of("PENDING", "ASSIGNED", "待执行", "已分配");
+
+    @Autowired
+    private DataStorage dataStorage;
+
+    @Autowired
+    private PermissionService permissionService;
+
+    @Autowired
+    private SprayWindowService sprayWindowService;
+
+    private final CrewScheduler.Settings settings = new CrewScheduler.Settings();
+    private int horizonDays = 14;
+    private int taskMinutes = 240;
+    private int pesticideUnitsPerTask = 1;
+    private int shiftStartHour = 8;
+    private int shiftEndHour = 17;
+    private int refreshHours = 24;
+
+    private CrewScheduler scheduler;
+    // 当前排程器的起点和建立时的药剂库存
+    private LocalDateTime schedulerOrigin;
+    private Map<String, Integer> schedulerStock = new HashMap<>();
+    // 状态变为不可排程或已删除的任务，下次排程操作前从排程器中移除
+    private final Queue<String> released = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 监听任务状态变化；监听在存储锁内调用，这里只记录任务ID，不获取排程锁
+     */
+    @PostConstruct
+    public void init() {
+        dataStorage.getTreatmentStorage().setTaskStatusListener((taskId, status) -> {
+            if (status == null || !SCHEDULABLE_STATUSES.contains(status)) {
+                released.add(taskId);
+            }
+        });
+    }
+
+    @Value("${treatment.scheduling.horizon-days:14}")
+    public void setHorizonDays(int horizonDays) {
+        this.horizonDays = horizonDays;
+    }
+
+    @Value("${treatment.scheduling.shift-start-hour:8}")
+    public void setShiftStartHour(int shiftStartHour) {
+        this.shiftStartHour = shiftStartHour;
+    }
+
+    @Value("${treatment.scheduling.shift-end-hour:17}")
+    public void setShiftEndHour(int shiftEndHour) {
+        this.shiftEndHour = shiftEndHour;
+    }
+
+    @Value("${treatment.scheduling.task-minutes:240}")
+    public void setTaskMinutes(int taskMinutes) {
+        this.taskMinutes = taskMinutes;
+    }
+
+    @Value("${treatment.scheduling.travel-speed-kmh:40}")
+    public void setTravelSpeedKmh(double travelSpeedKmh) {
+        settings.travelSpeedKmh(travelSpeedKmh);
+    }
+
+    @Value("${treatment.scheduling.pesticide-units-per-task:1}")
+    public void setPesticideUnitsPerTask(int pesticideUnitsPerTask) {
+        this.pesticideUnitsPerTask = pesticideUnitsPerTask;
+    }
+
+    @Value("${treatment.scheduling.candidate-crews:8}")
+    public void setCandidateCrews(int candidateCrews) {
+        settings.candidateCrews(candidateCrews);
+    }
+
+    @Value("${treatment.scheduling.improvement-passes:2}")
+    public void setImprovementPasses(int improvementPasses) {
+        settings.improvementPasses(improvementPasses);
+    }
+
+    @Value("${treatment.scheduling.refresh-hours:24}")
+    public void setRefreshHours(int refreshHours) {
+        this.refreshHours = refreshHours;
+    }
+
+    /**
+     * 重新排程全部未开始的任务，并把分配结果写回任务
+     */
+    public synchronized Map<String, Object> scheduleAll(String assignerId) {
+        checkAssigner(assignerId);
+        long start = System.nanoTime();
+        LocalDateTime origin = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        released.clear();
+        CrewScheduler fresh = resetScheduler(origin);
+
+        TreatmentStorage storage = dataStorage.getTreatmentStorage();
+        Map<String, TreatmentTask> tasks = new LinkedHashMap<>();
+        for (String status : SCHEDULABLE_STATUSES) {
+            storage.findTasksByStatus(status).forEach(task -> tasks.put(task.getId(), task));
+        }
+        List<Job> jobs = new ArrayList<>(tasks.size());
+        tasks.values().forEach(task -> jobs.add(toJob(task, origin)));
+
+        CrewScheduler.Result result = fresh.schedule(jobs);
+        result.getAssignments().forEach(assignment -> apply(tasks.get(assignment.getTaskId()), assignment, assignerId));
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        logger.info("任务排程完成: 班组{}个, 任务{}个, 已安排{}个, 代价{} -> {}, 耗时{}ms",
+                fresh.crewCount(), jobs.size(), result.getAssignments().size(),
+                Math.round(result.getInitialCost()), Math.round(result.getFinalCost()), elapsedMs);
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("crews", fresh.crewCount());
+        summary.put("totalTasks", jobs.size());
+        summary.put("assignedTasks", result.getAssignments().size());
+        summary.put("unassignedTasks", result.getUnassigned());
+        summary.put("initialCost", result.getInitialCost());
+        summary.put("finalCost", result.getFinalCost());
+        summary.put("improvementMoves", result.getImprovementMoves());
+        summary.put("elapsedMs", elapsedMs);
+        return summary;
+    }
+
+    /**
+     * 把单个任务增量插入当前排程，同一班组中顺序或时间变化的任务一并写回
+     */
+    public synchronized TreatmentTask scheduleTask(String taskId, String assignerId) {
+        checkAssigner(assignerId);
+        TreatmentTask task = dataStorage.getTreatmentStorage().findTaskById(taskId)
+                .orElseThrow(() -> new BusinessException("防治任务不存在"));
+        if (!SCHEDULABLE_STATUSES.contains(task.getStatus())) {
+            throw new BusinessException("任务已开始执行，不能重新排程");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        CrewScheduler current = currentScheduler(now, assignerId);
+
+        Assignment assignment = current.insert(toJob(task, now));
+        if (assignment == null) {
+            throw new BusinessException("任务无法排程: " + current.unassignedReasons().get(taskId));
+        }
+        for (Assignment affected : current.route(assignment.getCrewId())) {
+            dataStorage.getTreatmentStorage().findTaskById(affected.getTaskId())
+                    .ifPresent(routed -> apply(routed, affected, assignerId));
+        }
+        return dataStorage.getTreatmentStorage().findTaskById(taskId).orElse(task);
+    }
+
+    /**
+     * 为一批尚未保存的新任务排程，结果写入任务后整批保存；已指定执行人的任务固定在该班组，
+     * 只由排程器安排开工时间，同一班组的其他任务避开其作业时段。
+     * 当前排程中因此调整的已有任务整批写回
+     * @return 未能排程的新任务ID -> 原因，不含已指定执行人的任务
+     */
+    public synchronized Map<String, String> scheduleNewTasks(List<TreatmentTask> tasks, String assignerId) {
+        checkAssigner(assignerId);
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        CrewScheduler current = currentScheduler(now, assignerId);
+        Map<String, TreatmentTask> batch = new HashMap<>(tasks.size() * 2);
+        Map<String, TreatmentTask> fixed = new HashMap<>();
+        List<Job> jobs = new ArrayList<>(tasks.size());
+        for (TreatmentTask task : tasks) {
+            if (task.getAssignedTo() == null) {
+                batch.put(task.getId(), task);
+                jobs.add(toJob(task, now, null));
+            } else if (current.hasCrew(task.getAssignedTo())) {
+                // 执行人不是排程班组时不占用排程
+                fixed.put(task.getId(), task);
+                jobs.add(toJob(task, now, task.getAssignedTo()));
+            }
+        }
+
+        CrewScheduler.Result result = current.schedule(jobs);
+        List<Assignment> moved = new ArrayList<>();
+        for (Assignment assignment : result.getAssignments()) {
+            TreatmentTask task = batch.containsKey(assignment.getTaskId())
+                    ? batch.get(assignment.getTaskId()) : fixed.get(assignment.getTaskId());
+            if (task != null) {
+                assign(task, assignment, assignerId);
+            } else {
+                moved.add(assignment);
+            }
+        }
+        TreatmentStorage storage = dataStorage.getTreatmentStorage();
+        storage.saveAllTasks(tasks);
+        // 被调整的已有任务只写回仍可排程且分配确有变化的，整批比较替换
+        Map<TreatmentTask, TreatmentTask> updates = new LinkedHashMap<>();
+        for (Assignment assignment : moved) {
+            storage.findTaskById(assignment.getTaskId()).ifPresent(task -> {
+                TreatmentTask next = reassigned(task, assignment, assignerId);
+                if (next != null) {
+                    updates.put(task, next);
+                }
+            });
+        }
+        int written = updates.isEmpty() ? 0 : storage.compareAndSetTasks(updates);
+
+        Map<String, String> unassigned = new HashMap<>();
+        result.getUnassigned().forEach((taskId, reason) -> {
+            if (batch.containsKey(taskId)) {
+                unassigned.put(taskId, reason);
+            }
+        });
+        result.getUnassigned().keySet().stream().filter(fixed::containsKey).forEach(taskId ->
+                logger.warn("已指定执行人的任务{}未能排入班组排程，保留原安排: {}", taskId, result.getUnassigned().get(taskId)));
+        logger.info("新任务排程完成: 任务{}个, 未安排{}个, 调整已有任务{}个, 耗时{}ms",
+                jobs.size(), unassigned.size(), written, (System.nanoTime() - start) / 1_000_000);
+        return unassigned;
+    }
+
+    /**
+     * 班组在当前排程中的任务序列
+     */
+    public synchronized List<Map<String, Object>> getCrewSchedule(String crewId) {
+        List<Map<String, Object>> route = new ArrayList<>();
+        if (scheduler == null) {
+            return route;
+        }
+        releaseStopped();
+        for (Assignment assignment : scheduler.route(crewId)) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("taskId", assignment.getTaskId());
+            item.put("sequence", assignment.getSequence());
+            item.put("start", assignment.getStart());
+            item.put("end", assignment.getEnd());
+            item.put("travelMinutes", assignment.getTravelMinutes());
+            route.add(item);
+        }
+        return route;
+    }
+
+    /**
+     * 用户是否有权执行任务排程
+     */
+    public boolean canSchedule(String assignerId) {
+        return assignerId != null && permissionService.isAdmin(assignerId);
+    }
+
+    private void checkAssigner(String assignerId) {
+        if (assignerId == null || assignerId.trim().isEmpty()) {
+            throw new BusinessException("分配人ID不能为空");
+        }
+        if (!canSchedule(assignerId)) {
+            throw new BusinessException("无权限执行任务排程");
+        }
+    }
+
+    /**
+     * 当前排程器，先移除已不可排程的任务；尚未建立时新建空排程器，
+     * 排程起点已超过刷新间隔或药剂库存变化时重建，原排程器中的任务按新的班组可用时间和库存重新排程
+     */
+    private CrewScheduler currentScheduler(LocalDateTime now, String assignerId) {
+        releaseStopped();
+        if (scheduler == null) {
+            return resetScheduler(now.truncatedTo(ChronoUnit.MINUTES));
+        }
+        boolean expired = now.isAfter(schedulerOrigin.plusHours(refreshHours));
+        if (!expired && currentStock().equals(schedulerStock)) {
+            return scheduler;
+        }
+
+        Set<String> taskIds = new LinkedHashSet<>();
+        scheduler.assignments().forEach(assignment -> taskIds.add(assignment.getTaskId()));
+        taskIds.addAll(scheduler.unassignedReasons().keySet());
+        CrewScheduler fresh = resetScheduler(now.truncatedTo(ChronoUnit.MINUTES));
+        Map<String, TreatmentTask> tasks = new HashMap<>(taskIds.size() * 2);
+        List<Job> jobs = new ArrayList<>(taskIds.size());
+        for (String taskId : taskIds) {
+            dataStorage.getTreatmentStorage().findTaskById(taskId)
+                    .filter(task -> SCHEDULABLE_STATUSES.contains(task.getStatus()))
+                    .ifPresent(task -> {
+                        tasks.put(taskId, task);
+                        jobs.add(toJob(task, now));
+                    });
+        }
+        CrewScheduler.Result result = fresh.schedule(jobs);
+        result.getAssignments().forEach(assignment -> apply(tasks.get(assignment.getTaskId()), assignment, assignerId));
+        logger.info("排程器已重建({}): 任务{}个, 已安排{}个", expired ? "排程起点过期" : "药剂库存变化",
+                jobs.size(), result.getAssignments().size());
+        return fresh;
+    }
+
+    /**
+     * 移除状态已变为不可排程或已删除的任务
+     */
+    private void releaseStopped() {
+        String taskId;
+        while ((taskId = released.poll()) != null) {
+            if (scheduler != null) {
+                scheduler.remove(taskId);
+            }
+        }
+    }
+
+    private Map<String, Integer> currentStock() {
+        Map<String, Integer> stock = new HashMap<>();
+        for (Pesticide pesticide : dataStorage.getPesticideStorage().findAll()) {
+            stock.put(pesticide.getId(), pesticide.getStockQuantity() != null ? pesticide.getStockQuantity() : 0);
+        }
+        return stock;
+    }
+
+    /**
+     * 以普通用户为班组、当前库存为药剂上限新建排程器并替换当前排程器；
+     * 班组驻地取其最近一个已开始任务的目标区域位置，没有时首个任务不计行驶
+     */
+    private CrewScheduler resetScheduler(LocalDateTime origin) {
+        CrewScheduler fresh = new CrewScheduler(origin, settings.shift(shiftStartHour, shiftEndHour));
+        LocalDateTime until = origin.plusDays(horizonDays);
+        for (User user : dataStorage.getUserStorage().findByRole(PermissionService.Roles.USER)) {
+            if (!"ACTIVE".equals(user.getStatus())) {
+                continue;
+            }
+            GeoPoint home = null;
+            List<TreatmentTask> latest = dataStorage.getTreatmentStorage().findTasksByAssignedTo(user.getId(), 0, 1);
+            if (!latest.isEmpty() && !SCHEDULABLE_STATUSES.contains(latest.get(0).getStatus())) {
+                home = locate(latest.get(0).getTargetArea());
+            }
+            fresh.addCrew(new Crew(user.getId(), home, origin, until));
+        }
+        Map<String, Integer> stock = currentStock();
+        stock.forEach(fresh::setStock);
+        scheduler = fresh;
+        schedulerOrigin = origin;
+        schedulerStock = stock;
+        return fresh;
+    }
+
+    private Job toJob(TreatmentTask task, LocalDateTime now) {
+        return toJob(task, now, null);
+    }
+
+    /**
+     * crewId不为空时任务固定在该班组
+     */
+    private Job toJob(TreatmentTask task, LocalDateTime now, String crewId) {
+        Map<String, Integer> pesticides = new HashMap<>();
+        if (task.getUsedPesticides() != null) {
+            task.getUsedPesticides().forEach(id -> pesticides.merge(id, pesticideUnitsPerTask, Integer::sum));
+        }
+        LocalDateTime earliest = task.getScheduledTime() != null && task.getScheduledTime().isAfter(now)
+                ? task.getScheduledTime() : now;
+        // 有天气预报时不早于作业窗口开工
+        SprayWindowPlanner.TaskWindow window = sprayWindowService.findTaskWindow(task);
+        if (window != null && window.getStart().isAfter(earliest)) {
+            earliest = window.getStart();
+        }
+        return new Job(task.getId(), locate(task.getTargetArea()), earliest, taskMinutes,
+                priorityWeight(task.getPriority()), pesticides, crewId);
+    }
+
+    private GeoPoint locate(String targetArea) {
+        ForestResourceStorage resources = dataStorage.getForestResourceStorage();
+        return resources.findLocationByKey(targetArea).orElse(null);
+    }
+
+    /**
+     * 写回排程结果；排程期间任务被其他请求修改时保留对方的修改
+     */
+    private void apply(TreatmentTask task, Assignment assignment, String assignerId) {
+        TreatmentTask next = reassigned(task, assignment, assignerId);
+        if (next != null && !dataStorage.getTreatmentStorage().compareAndSetTask(task, next)) {
+            logger.debug("任务{}在排程期间被修改，未写回排程结果", task.getId());
+        }
+    }
+
+    /**
+     * 按排程结果修改后的任务副本，分配未变化时返回null；
+     * 任务已开始执行或完成时不再改回已分配，移出排程并返回null
+     */
+    private TreatmentTask reassigned(TreatmentTask task, Assignment assignment, String assignerId) {
+        if (!SCHEDULABLE_STATUSES.contains(task.getStatus())) {
+            scheduler.remove(task.getId());
+            return null;
+        }
+        if (TaskProgress.Status.of(task.getStatus()) == TaskProgress.Status.ASSIGNED
+                && assignment.getCrewId().equals(task.getAssignedTo())
+                && assignment.getStart().equals(task.getScheduledTime())) {
+            return null;
+        }
+        TreatmentTask next = task.copy();
+        assign(next, assignment, assignerId);
+        return next;
+    }
+
+    private static void assign(TreatmentTask task, Assignment assignment, String assignerId) {
+        task.setAssignedTo(assignment.getCrewId());
+        task.setScheduledTime(assignment.getStart());
+        task.setStatus("ASSIGNED");
+        task.setUpdatedTime(LocalDateTime.now());
+        task.setUpdatedBy(assignerId);
+    }
+
+    private static int priorityWeight(String priority) {
+        if (priority == null) {
+            return 2;
+        }
+        switch (priority) {
+            case "紧急":
+            case "URGENT":
+                return 8;
+            case "高":
+            case "HIGH":
+                return 4;
+            case "低":
+            case "LOW":
+                return 1;
+            default:
+                return 2;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.forestpest.util;
+
+import com.forestpest.entity.EffectEvaluation;
+import com.forestpest.entity.EvaluationData;
+import com.forestpest.entity.PestPrediction;
+import com.forestpest.entity.PesticideUsageRecord;
+import com.forestpest.util.ColumnarWriter.ColumnType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * 实体的列式编码
+ * 定义预测、药剂使用记录和效果评估的列布局：枚举类文本（风险等级、区域、方法等）由写入器做字典编码，
+ * 数值列按原始类型存储，日期存为纪元日、时间存为UTC纪元秒。
+ */
+public final class ColumnarEntityFormat {
+
+    private static final LinkedHashMap<String, ColumnType> PREDICTION_SCHEMA = new LinkedHashMap<>();
+    private static final LinkedHashMap<String, ColumnType> USAGE_SCHEMA = new LinkedHashMap<>();
+    private static final LinkedHashMap<String, ColumnType> EVALUATION_SCHEMA = new LinkedHashMap<>();
+
+    static {
+        PREDICTION_SCHEMA.put("id", ColumnType.STRING);
+        PREDICTION_SCHEMA.put("pestId", ColumnType.STRING);
+        PREDICTION_SCHEMA.put("pestName", ColumnType.STRING);
+        PREDICTION_SCHEMA.put("targetArea", ColumnType.STRING);
+        PREDICTION_SCHEMA.put("predictionDate", ColumnType.LONG);
+        PREDICTION_SCHEMA.put("riskLevel", ColumnType.STRING);
+        PREDICTION_SCHEMA.put("probability", ColumnType.DOUBLE);
+        PREDICTION_SCHEMA.put("predictionModel", ColumnType.STRING);
+        PREDICTION_SCHEMA.put("confidence", ColumnType.STRING);
+        PREDICTION_SCHEMA.put("influencingFactors", ColumnType.STRING);
+        PREDICTION_SCHEMA.put("recommendedActions", ColumnType.STRING);
+        PREDICTION_SCHEMA.put("status", ColumnType.STRING);
+        PREDICTION_SCHEMA.put("createdBy", ColumnType.STRING);
+        PREDICTION_SCHEMA.put("createdTime", ColumnType.LONG);
+
+        USAGE_SCHEMA.put("id", ColumnType.STRING);
+        USAGE_SCHEMA.put("pesticideId", ColumnType.STRING);
+        USAGE_SCHEMA.put("pesticideName", ColumnType.STRING);
+        USAGE_SCHEMA.put("taskId", ColumnType.STRING);
+        USAGE_SCHEMA.put("usedQuantity", ColumnType.LONG);
+        USAGE_SCHEMA.put("usageTime", ColumnType.LONG);
+        USAGE_SCHEMA.put("usedBy", ColumnType.STRING);
+        USAGE_SCHEMA.put("targetArea", ColumnType.STRING);
+        USAGE_SCHEMA.put("concentration", ColumnType.STRING);
+        USAGE_SCHEMA.put("applicationMethod", ColumnType.STRING);
+        USAGE_SCHEMA.put("weather", ColumnType.STRING);
+        USAGE_SCHEMA.put("supervisedBy", ColumnType.STRING);
+        USAGE_SCHEMA.put("effectivenessRating", ColumnType.STRING);
+        USAGE_SCHEMA.put("createdBy", ColumnType.STRING);
+        USAGE_SCHEMA.put("createdTime", ColumnType.LONG);
+
+        EVALUATION_SCHEMA.put("id", ColumnType.STRING);
+        EVALUATION_SCHEMA.put("taskId", ColumnType.STRING);
+        EVALUATION_SCHEMA.put("pestId", ColumnType.STRING);
+        EVALUATION_SCHEMA.put("evaluatedArea", ColumnType.STRING);
+        EVALUATION_SCHEMA.put("evaluationTime", ColumnType.LONG);
+        EVALUATION_SCHEMA.put("evaluatedBy", ColumnType.STRING);
+        EVALUATION_SCHEMA.put("effectivenessRate", ColumnType.DOUBLE);
+        EVALUATION_SCHEMA.put("evaluationMethod", ColumnType.STRING);
+        EVALUATION_SCHEMA.put("weather", ColumnType.STRING);
+        EVALUATION_SCHEMA.put("status", ColumnType.STRING);
+        EVALUATION_SCHEMA.put("reviewedBy", ColumnType.STRING);
+        EVALUATION_SCHEMA.put("reviewTime", ColumnType.LONG);
+        EVALUATION_SCHEMA.put("beforeAffectedArea", ColumnType.DOUBLE);
+        EVALUATION_SCHEMA.put("beforeSeverityLevel", ColumnType.STRING);
+        EVALUATION_SCHEMA.put("beforePestPopulation", ColumnType.LONG);
+        EVALUATION_SCHEMA.put("beforeDamageRate", ColumnType.DOUBLE);
+        EVALUATION_SCHEMA.put("afterAffectedArea", ColumnType.DOUBLE);
+        EVALUATION_SCHEMA.put("afterSeverityLevel", ColumnType.STRING);
+        EVALUATION_SCHEMA.put("afterPestPopulation", ColumnType.LONG);
+        EVALUATION_SCHEMA.put("afterDamageRate", ColumnType.DOUBLE);
+        EVALUATION_SCHEMA.put("createdBy", ColumnType.STRING);
+        EVALUATION_SCHEMA.put("createdTime", ColumnType.LONG);
+    }
+
+    private ColumnarEntityFormat() {
+    }
+
+    // ========== 预测 ==========
+
+    public static ColumnarWriter predictionWriter(OutputStream out) throws IOException {
+        return new ColumnarWriter(out, PREDICTION_SCHEMA);
+    }
+
+    public static void writePrediction(ColumnarWriter writer, PestPrediction prediction) throws IOException {
+        writer.writeRow(
+            prediction.getId(),
+            prediction.getPestId(),
+            prediction.getPestName(),
+            prediction.getTargetArea(),
+            toEpochDay(prediction.getPredictionDate()),
+            prediction.getRiskLevel(),
+            prediction.getProbability(),
+            prediction.getPredictionModel(),
+            prediction.getConfidence(),
+            prediction.getInfluencingFactors(),
+            prediction.getRecommendedActions(),
+            prediction.getStatus(),
+            prediction.getCreatedBy(),
+            toEpochSecond(prediction.getCreatedTime())
+        );
+    }
+
+    public static PestPrediction readPrediction(ColumnarReader.RowGroup rows, int row) {
+        PestPrediction prediction = new PestPrediction();
+        prediction.setId(rows.getString(row, "id"));
+        prediction.setPestId(rows.getString(row, "pestId"));
+        prediction.setPestName(rows.getString(row, "pestName"));
+        prediction.setTargetArea(rows.getString(row, "targetArea"));
+        prediction.setPredictionDate(fromEpochDay(rows.getLong(row, "predictionDate")));
+        prediction.setRiskLevel(rows.getString(row, "riskLevel"));
+        prediction.setProbability(rows.getDouble(row, "probability"));
+        prediction.setPredictionModel(rows.getString(row, "predictionModel"));
+        prediction.setConfidence(rows.getString(row, "confidence"));
+        prediction.setInfluencingFactors(rows.getString(row, "influencingFactors"));
+        prediction.setRecommendedActions(rows.getString(row, "recommendedActions"));
+        prediction.setStatus(rows.getString(row, "status"));
+        prediction.setCreatedBy(rows.getString(row, "createdBy"));
+        prediction.setCreatedTime(fromEpochSecond(rows.getLong(row, "createdTime")));
+        return prediction;
+    }
+
+    public static void writePredictions(OutputStream out, Iterable<PestPrediction> predictions) throws IOException {
+        ColumnarWriter writer = predictionWriter(out);
+        for (PestPrediction prediction : predictions) {
+            writePrediction(writer, prediction);
+        }
+        writer.finish();
+    }
+
+    public static List<PestPrediction> readPredictions(InputStream in) throws IOException {
+        return readAll(in, ColumnarEntityFormat::readPrediction);
+    }
+
+    // ========== 药剂使用记录 ==========
+
+    public static void writeUsageRecords(OutputStream out, Iterable<PesticideUsageRecord> records) throws IOException {
+        ColumnarWriter writer = new ColumnarWriter(out, USAGE_SCHEMA);
+        for (PesticideUsageRecord record : records) {
+            writer.writeRow(
+                record.getId(),
+                record.getPesticideId(),
+                record.getPesticideName(),
+                record.getTaskId(),
+                record.getUsedQuantity(),
+                toEpochSecond(record.getUsageTime()),
+                record.getUsedBy(),
+                record.getTargetArea(),
+                record.getConcentration(),
+                record.getApplicationMethod(),
+                record.getWeather(),
+                record.getSupervisedBy(),
+                record.getEffectivenessRating(),
+                record.getCreatedBy(),
+                toEpochSecond(record.getCreatedTime())
+            );
+        }
+        writer.finish();
+    }
+
+    public static List<PesticideUsageRecord> readUsageRecords(InputStream in) throws IOException {
+        return readAll(in, (rows, row) -> {
+            PesticideUsageRecord record = new PesticideUsageRecord();
+            record.setId(rows.getString(row, "id"));
+            record.setPesticideId(rows.getString(row, "pesticideId"));
+            record.setPesticideName(rows.getString(row, "pesticideName"));
+            record.setTaskId(rows.getString(row, "taskId"));
+            record.setUsedQuantity(toInteger(rows.getLong(row, "usedQuantity")));
+            record.setUsageTime(fromEpochSecond(rows.getLong(row, "usageTime")));
+            record.setUsedBy(rows.getString(row, "usedBy"));
+            record.setTargetArea(rows.getString(row, "targetArea"));
+            record.setConcentration(rows.getString(row, "concentration"));
+            record.setApplicationMethod(rows.getString(row, "applicationMethod"));
+            record.setWeather(rows.getString(row, "weather"));
+            record.setSupervisedBy(rows.getString(row, "supervisedBy"));
+            record.setEffectivenessRating(rows.getString(row, "effectivenessRating"));
+            record.setCreatedBy(rows.getString(row, "createdBy"));
+            record.setCreatedTime(fromEpochSecond(rows.getLong(row, "createdTime")));
+            return record;
+        });
+    }
+
+    // ========== 效果评估 ==========
+
+    public static void writeEvaluations(OutputStream out, Iterable<EffectEvaluation> evaluations) throws IOException {
+        ColumnarWriter writer = new ColumnarWriter(out, EVALUATION_SCHEMA);
+        for (EffectEvaluation evaluation : evaluations) {
+            EvaluationData before = evaluation.getBeforeTreatment();
+            EvaluationData after = evaluation.getAfterTreatment();
+            writer.writeRow(
+                evaluation.getId(),
+                evaluation.getTaskId(),
+                evaluation.getPestId(),
+                evaluation.getEvaluatedArea(),
+                toEpochSecond(evaluation.getEvaluationTime()),
+                evaluation.getEvaluatedBy(),
+                evaluation.getEffectivenessRate(),
+                evaluation.getEvaluationMethod(),
+                evaluation.getWeather(),
+                evaluation.getStatus(),
+                evaluation.getReviewedBy(),
+                toEpochSecond(evaluation.getReviewTime()),
+                before != null ? before.getAffectedArea() : null,
+                before != null ? before.getSeverityLevel() : null,
+                before != null ? before.getPestPopulation() : null,
+                before != null ? before.getDamageRate() : null,
+                after != null ? after.getAffectedArea() : null,
+                after != null ? after.getSeverityLevel() : null,
+                after != null ? after.getPestPopulation() : null,
+                after != null ? after.getDamageRate() : null,
+                evaluation.getCreatedBy(),
+                toEpochSecond(evaluation.getCreatedTime())
+            );
+        }
+        writer.finish();
+    }
+
+    public static List<EffectEvaluation> readEvaluations(InputStream in) throws IOException {
+        return readAll(in, (rows, row) -> {
+            EffectEvaluation evaluation = new EffectEvaluation();
+            evaluation.setId(rows.getString(row, "id"));
+            evaluation.setTaskId(rows.getString(row, "taskId"));
+            evaluation.setPestId(rows.getString(row, "pestId"));
+            evaluation.setEvaluatedArea(rows.getString(row, "evaluatedArea"));
+            evaluation.setEvaluationTime(fromEpochSecond(rows.getLong(row, "evaluationTime")));
+            evaluation.setEvaluatedBy(rows.getString(row, "evaluatedBy"));
+            evaluation.setEffectivenessRate(rows.getDouble(row, "effectivenessRate"));
+            evaluation.setEvaluationMethod(rows.getString(row, "evaluationMethod"));
+            evaluation.setWeather(rows.getString(row, "weather"));
+            evaluation.setStatus(rows.getString(row, "status"));
+            evaluation.setReviewedBy(rows.getString(row, "reviewedBy"));
+            evaluation.setReviewTime(fromEpochSecond(rows.getLong(row, "reviewTime")));
+            evaluation.setBeforeTreatment(readEvaluationData(rows, row, "before"));
+            evaluation.setAfterTreatment(readEvaluationData(rows, row, "after"));
+            evaluation.setCreatedBy(rows.getString(row, "createdBy"));
+            evaluation.setCreatedTime(fromEpochSecond(rows.getLong(row, "createdTime")));
+            return evaluation;
+        });
+    }
+
+    private static EvaluationData readEvaluationData(ColumnarReader.RowGroup rows, int row, String prefix) {
+        Double affectedArea = rows.getDouble(row, prefix + "AffectedArea");
+        String severityLevel = rows.getString(row, prefix + "SeverityLevel");
+        Long pestPopulation = rows.getLong(row, prefix + "PestPopulation");
+        Double damageRate = rows.getDouble(row, prefix + "DamageRate");
+        if (affectedArea == null && severityLevel == null && pestPopulation == null && damageRate == null) {
+            return null;
+        }
+        EvaluationData data = new EvaluationData();
+        data.setAffectedArea(affectedArea);
+        data.setSeverityLevel(severityLevel);
+        data.setPestPopulation(toInteger(pestPopulation));
+        data.setDamageRate(damageRate);
+        return data;
+    }
+
+    // ========== 公共方法 ==========
+
+    /**
+     * 逐个行组读取整个文件并转换为实体
+     */
+    public static <T> List<T> readAll(InputStream in, BiFunction<ColumnarReader.RowGroup, Integer, T> mapper) throws IOException {
+        ColumnarReader reader = new ColumnarReader(in);
+        List<T> result = new ArrayList<>();
+        ColumnarReader.RowGroup rows;
+        while ((rows = reader.nextRowGroup()) != null) {
+            for (int row = 0; row < rows.size(); row++) {
+                result.add(mapper.apply(rows, row));
+            }
+        }
+        return result;
+    }
+
+    public static Long toEpochSecond(LocalDateTime time) {
+        return time != null ? time.toEpochSecond(ZoneOffset.UTC) : null;
+    }
+
+    public static LocalDateTime fromEpochSecond(Long seconds) {
+        return seconds != null ? LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC) : null;
+    }
+
+    private static Long toEpochDay(LocalDate date) {
+        return date != null ? date.toEpochDay() : null;
+    }
+
+    private static LocalDate fromEpochDay(Long day) {
+        return day != null ? LocalDate.ofEpochDay(day) : null;
+    }
+
+    private static Integer toInteger(Long value) {
+        return value != null ? Math.toIntExact(value) : null;
+    }
+}
@@ -0,0 +1,194 @@
+package com.forestpest.util;
+
+import com.forestpest.util.ColumnarWriter.ColumnType;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 列式二进制文件读取器
+ * 按行组读取 {@link ColumnarWriter} 写出的文件，可只解码查询需要的列。
+ */
+public class ColumnarReader implements Closeable {
+
+    private final DataInputStream in;
+    private final String[] names;
+    private final ColumnType[] types;
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    private boolean finished;
+
+    public ColumnarReader(InputStream inputStream) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != ColumnarWriter.MAGIC) {
+            throw new IOException("列式文件格式不正确");
+        }
+        short version = in.readShort();
+        if (version != ColumnarWriter.FORMAT_VERSION) {
+            throw new IOException("不支持的列式文件版本: " + version);
+        }
+
+        int columnCount = in.readShort();
+        names = new String[columnCount];
+        types = new ColumnType[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            names[c] = in.readUTF();
+            types[c] = ColumnType.values()[in.readByte()];
+            columnIndex.put(names[c], c);
+        }
+    }
+
+    public List<String> getColumnNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    public ColumnType getColumnType(String name) {
+        Integer c = columnIndex.get(name);
+        return c != null ? types[c] : null;
+    }
+
+    /**
+     * 读取下一个行组的全部列，没有更多数据时返回null
+     */
+    public RowGroup nextRowGroup() throws IOException {
+        return nextRowGroup(null);
+    }
+
+    /**
+     * 读取下一个行组，只解码projection中的列（为null时解码全部列）；没有更多数据时返回null
+     */
+    public RowGroup nextRowGroup(Set<String> projection) throws IOException {
+        if (finished) {
+            return null;
+        }
+        int rows = in.readInt();
+        if (rows == 0) {
+            finished = true;
+            return null;
+        }
+
+        Object[][] columns = new Object[names.length][];
+        for (int c = 0; c < names.length; c++) {
+            boolean decode = projection == null || projection.contains(names[c]);
+            columns[c] = readColumn(rows, types[c], decode);
+        }
+        return new RowGroup(rows, columns);
+    }
+
+    private Object[] readColumn(int rows, ColumnType type, boolean decode) throws IOException {
+        byte[] presence = new byte[(rows + 7) / 8];
+        in.readFully(presence);
+
+        switch (type) {
+            case STRING:
+                return readDictionaryColumn(rows, presence, decode);
+            case LONG:
+            case DOUBLE:
+                if (!decode) {
+                    in.skipNBytes(8L * rows);
+                    return null;
+                }
+                Object[] values = new Object[rows];
+                for (int i = 0; i < rows; i++) {
+                    if (type == ColumnType.LONG) {
+                        long value = in.readLong();
+                        values[i] = isPresent(presence, i) ? value : null;
+                    } else {
+                        double value = in.readDouble();
+                        values[i] = isPresent(presence, i) ? value : null;
+                    }
+                }
+                return values;
+            default:
+                throw new IOException("未知的列类型: " + type);
+        }
+    }
+
+    private Object[] readDictionaryColumn(int rows, byte[] presence, boolean decode) throws IOException {
+        int dictionarySize = in.readInt();
+        int width = ColumnarWriter.codeWidth(dictionarySize);
+
+        if (!decode) {
+            for (int i = 0; i < dictionarySize; i++) {
+                in.skipNBytes(in.readUnsignedShort());
+            }
+            in.skipNBytes((long) width * rows);
+            return null;
+        }
+
+        String[] dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            dictionary[i] = in.readUTF();
+        }
+
+        Object[] values = new Object[rows];
+        for (int i = 0; i < rows; i++) {
+            int code;
+            if (width == 1) {
+                code = in.readUnsignedByte();
+            } else if (width == 2) {
+                code = in.readUnsignedShort();
+            } else {
+                code = in.readInt();
+            }
+            values[i] = isPresent(presence, i) ? dictionary[code] : null;
+        }
+        return values;
+    }
+
+    private static boolean isPresent(byte[] presence, int row) {
+        return (presence[row >> 3] & (1 << (row & 7))) != 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * 行组数据
+     */
+    public class RowGroup {
+
+        private final int size;
+        private final Object[][] columns;
+
+        private RowGroup(int size, Object[][] columns) {
+            this.size = size;
+            this.columns = columns;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Object get(int row, String column) {
+            Integer c = columnIndex.get(column);
+            if (c == null || columns[c] == null) {
+                return null;
+            }
+            return columns[c][row];
+        }
+
+        public String getString(int row, String column) {
+            Object value = get(row, column);
+            return value != null ? value.toString() : null;
+        }
+
+        public Long getLong(int row, String column) {
+            return (Long) get(row, column);
+        }
+
+        public Double getDouble(int row, String column) {
+            return (Double) get(row, column);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.forestpest.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列式二进制文件写入器
+ * 行数据按行组缓存，每满一组按列写出，字符串列在组内做字典编码。
+ * 写入是增量的，内存占用只与行组大小有关。
+ *
+ * 文件格式：文件头（标识、版本、列定义），若干行组（行数、各列的空值位图与数据），以行数0结束。
+ */
+public class ColumnarWriter implements Closeable {
+
+    // 文件标识 "FPCF" 与格式版本
+    static final int MAGIC = 0x46504346;
+    static final short FORMAT_VERSION = 1;
+
+    public static final int DEFAULT_ROW_GROUP_SIZE = 4096;
+
+    /**
+     * 列类型
+     */
+    public enum ColumnType {
+        STRING, LONG, DOUBLE
+    }
+
+    private final DataOutputStream out;
+    private final String[] names;
+    private final ColumnType[] types;
+    private final int rowGroupSize;
+    private final Object[][] buffer;
+    private int buffered;
+    private long rowCount;
+    private boolean closed;
+
+    public ColumnarWriter(OutputStream outputStream, LinkedHashMap<String, ColumnType> schema) throws IOException {
+        this(outputStream, schema, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    public ColumnarWriter(OutputStream outputStream, LinkedHashMap<String, ColumnType> schema, int rowGroupSize) throws IOException {
+        if (schema == null || schema.isEmpty()) {
+            throw new IllegalArgumentException("列定义不能为空");
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        this.names = schema.keySet().toArray(new String[0]);
+        this.types = schema.values().toArray(new ColumnType[0]);
+        this.rowGroupSize = Math.max(1, rowGroupSize);
+        this.buffer = new Object[names.length][this.rowGroupSize];
+
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+        out.writeShort(names.length);
+        for (int c = 0; c < names.length; c++) {
+            out.writeUTF(names[c]);
+            out.writeByte(types[c].ordinal());
+        }
+    }
+
+    /**
+     * 写入一行，值的顺序与列定义一致，允许为null
+     */
+    public void writeRow(Object... values) throws IOException {
+        if (values.length != names.length) {
+            throw new IllegalArgumentException("列数不匹配: 期望" + names.length + "，实际" + values.length);
+        }
+        for (int c = 0; c < values.length; c++) {
+            buffer[c][buffered] = values[c];
+        }
+        buffered++;
+        rowCount++;
+        if (buffered == rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (buffered == 0) {
+            return;
+        }
+        out.writeInt(buffered);
+        for (int c = 0; c < names.length; c++) {
+            writeColumn(buffer[c], types[c]);
+            Arrays.fill(buffer[c], 0, buffered, null);
+        }
+        buffered = 0;
+    }
+
+    private void writeColumn(Object[] values, ColumnType type) throws IOException {
+        // 空值位图，1表示有值
+        byte[] presence = new byte[(buffered + 7) / 8];
+        for (int i = 0; i < buffered; i++) {
+            if (values[i] != null) {
+                presence[i >> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        out.write(presence);
+
+        switch (type) {
+            case STRING:
+                writeDictionaryColumn(values);
+                break;
+            case LONG:
+                for (int i = 0; i < buffered; i++) {
+                    out.writeLong(values[i] != null ? ((Number) values[i]).longValue() : 0L);
+                }
+                break;
+            case DOUBLE:
+                for (int i = 0; i < buffered; i++) {
+                    out.writeDouble(values[i] != null ? ((Number) values[i]).doubleValue() : 0.0);
+                }
+                break;
+            default:
+                throw new IllegalStateException("未知的列类型: " + type);
+        }
+    }
+
+    private void writeDictionaryColumn(Object[] values) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        int[] codes = new int[buffered];
+        for (int i = 0; i < buffered; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+            String value = values[i].toString();
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = entries.size();
+                dictionary.put(value, code);
+                entries.add(value);
+            }
+            codes[i] = code;
+        }
+
+        out.writeInt(entries.size());
+        for (String entry : entries) {
+            out.writeUTF(entry);
+        }
+
+        // 字典较小时使用单字节或双字节编码
+        int width = codeWidth(entries.size());
+        for (int i = 0; i < buffered; i++) {
+            if (width == 1) {
+                out.writeByte(codes[i]);
+            } else if (width == 2) {
+                out.writeShort(codes[i]);
+            } else {
+                out.writeInt(codes[i]);
+            }
+        }
+    }
+
+    static int codeWidth(int dictionarySize) {
+        if (dictionarySize <= 0xFF) {
+            return 1;
+        }
+        return dictionarySize <= 0xFFFF ? 2 : 4;
+    }
+
+    /**
+     * 写出剩余行组和结束标记，不关闭底层流
+     */
+    public void finish() throws IOException {
+        if (closed) {
+            return;
+        }
+        flushRowGroup();
+        out.writeInt(0);
+        out.flush();
+        closed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.forestpest.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 分块CSV写出器
+ * 逐行写入缓冲区，每写满一块刷新到底层输出流，导出内容不在内存中整体拼接。
+ */
+public class CsvWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_ROWS_PER_CHUNK = 1000;
+
+    private final Writer writer;
+    private final int rowsPerChunk;
+    private long rowCount;
+
+    public CsvWriter(OutputStream out) {
+        this(out, DEFAULT_ROWS_PER_CHUNK);
+    }
+
+    public CsvWriter(OutputStream out, int rowsPerChunk) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.rowsPerChunk = Math.max(1, rowsPerChunk);
+    }
+
+    /**
+     * 写入一行，null写为空字段，含逗号、引号或换行的字段加引号转义
+     */
+    public void writeRow(Object... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeField(fields[i]);
+        }
+        writer.write('\n');
+        if (++rowCount % rowsPerChunk == 0) {
+            writer.flush();
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void writeField(Object field) throws IOException {
+        if (field == null) {
+            return;
+        }
+        String value = field.toString();
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
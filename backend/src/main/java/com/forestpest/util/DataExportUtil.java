@@ -2,6 +2,7 @@ package com.forestpest.util;
 
 import com.forestpest.data.storage.DataStorage;
 import com.forestpest.entity.*;
+import com.forestpest.service.PesticideManagementService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -10,10 +11,18 @@ import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 数据导出工具类
@@ -25,6 +34,9 @@ public class DataExportUtil {
     @Autowired
     private DataStorage dataStorage;
     
+    @Autowired(required = false)
+    private PesticideManagementService pesticideManagementService;
+    
     private final ObjectMapper objectMapper;
     
     public DataExportUtil() {
@@ -167,27 +179,83 @@ public class DataExportUtil {
         }
     }
     
+    /**
+     * 导出分析用数据为gzip压缩的列式文件（预测、药剂使用记录、效果评估）
+     */
+    public void exportAnalyticsToColumnar(String outputDir) throws IOException {
+        Path dir = Paths.get(outputDir);
+        Files.createDirectories(dir);
+        for (String dataType : new String[]{"predictions", "pesticide_usage", "effect_evaluations"}) {
+            StreamingExportUtil.ExportWriter writer = streamDataAsColumnar(dataType);
+            Path target = dir.resolve(dataType + ".fpc.gz");
+            Path temp = Files.createTempFile(dir, dataType + "-", ".tmp");
+            try {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                    writer.writeTo(out);
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+    
+    /**
+     * 列式导出指定类型的分析数据，数据类型在调用时校验，数据在写出时才读取
+     */
+    public StreamingExportUtil.ExportWriter streamDataAsColumnar(String dataType) {
+        switch (dataType.toLowerCase()) {
+            case "predictions":
+                return out -> ColumnarEntityFormat.writePredictions(out,
+                        dataStorage.getPredictionStorage().findAllPredictions());
+            case "pesticide_usage":
+                return out -> ColumnarEntityFormat.writeUsageRecords(out, pesticideManagementService != null
+                        ? pesticideManagementService.getAllUsageRecords() : Collections.emptyList());
+            case "effect_evaluations":
+                return out -> ColumnarEntityFormat.writeEvaluations(out,
+                        dataStorage.getEvaluationStorage().findAll());
+            default:
+                throw new IllegalArgumentException("不支持列式导出的数据类型: " + dataType);
+        }
+    }
+    
     /**
      * 获取数据的JSON字符串表示
      */
     public String getDataAsJsonString(String dataType) throws IOException {
+        return StreamingExportUtil.asString(streamDataAsJson(dataType));
+    }
+    
+    /**
+     * 流式导出指定类型的数据，数据类型在调用时校验，写出时直接遍历存储，不复制整个集合
+     */
+    public StreamingExportUtil.ExportWriter streamDataAsJson(String dataType) {
+        Supplier<? extends Iterable<?>> source;
         switch (dataType.toLowerCase()) {
             case "users":
-                return objectMapper.writeValueAsString(dataStorage.getUserStorage().findAll());
+                source = () -> dataStorage.getUserStorage().iterateAll();
+                break;
             case "pests":
-                return objectMapper.writeValueAsString(dataStorage.getPestStorage().findAll());
+                source = () -> dataStorage.getPestStorage().iterateAll();
+                break;
             case "pesticides":
-                return objectMapper.writeValueAsString(dataStorage.getPesticideStorage().findAll());
+                source = () -> dataStorage.getPesticideStorage().iterateAll();
+                break;
             case "treatment_plans":
-                return objectMapper.writeValueAsString(dataStorage.getTreatmentStorage().findAllPlans());
+                source = () -> dataStorage.getTreatmentStorage().iterateAllPlans();
+                break;
             case "treatment_tasks":
-                return objectMapper.writeValueAsString(dataStorage.getTreatmentStorage().findAllTasks());
+                source = () -> dataStorage.getTreatmentStorage().iterateAllTasks();
+                break;
             case "forest_resources":
-                return objectMapper.writeValueAsString(dataStorage.getForestResourceStorage().findAll());
+                source = () -> dataStorage.getForestResourceStorage().iterateAll();
+                break;
             case "knowledge_base":
-                return objectMapper.writeValueAsString(dataStorage.getKnowledgeStorage().findAll());
+                source = () -> dataStorage.getKnowledgeStorage().iterateAll();
+                break;
             default:
                 throw new IllegalArgumentException("不支持的数据类型: " + dataType);
         }
+        return out -> StreamingExportUtil.json(source.get()).writeTo(out);
     }
 }
\ No newline at end of file
@@ -4,12 +4,20 @@ import com.forestpest.exception.BusinessException;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -29,6 +37,13 @@ public class ImageProcessingUtil {
     private static final int THUMBNAIL_WIDTH = 200;
     private static final int THUMBNAIL_HEIGHT = 200;
     
+    // 线程内复用的绘制画布和编码缓冲区，超过上限的按需分配不复用
+    private static final int MAX_POOLED_CANVAS_PIXELS = 512 * 512;
+    private static final int MAX_POOLED_BUFFER_BYTES = 1024 * 1024;
+    private static final ThreadLocal<BufferedImage> CANVASES = new ThreadLocal<>();
+    private static final ThreadLocal<ByteArrayOutputStream> ENCODE_BUFFERS =
+            ThreadLocal.withInitial(() -> new ByteArrayOutputStream(64 * 1024));
+    
     /**
      * 验证图片文件
      */
@@ -36,20 +51,28 @@ public class ImageProcessingUtil {
         if (file == null || file.isEmpty()) {
             throw new BusinessException("图片文件不能为空");
         }
+        validateImage(file.getContentType(), file.getOriginalFilename(), file.getSize());
+    }
+    
+    /**
+     * 按内容类型、文件名和大小验证图片，供批量识别提交时使用
+     */
+    public static void validateImage(String contentType, String originalFilename, long size) {
+        if (size <= 0) {
+            throw new BusinessException("图片文件不能为空");
+        }
         
         // 验证文件大小
-        if (file.getSize() > MAX_FILE_SIZE) {
+        if (size > MAX_FILE_SIZE) {
             throw new BusinessException("图片文件大小不能超过10MB");
         }
         
         // 验证文件格式
-        String contentType = file.getContentType();
         if (contentType == null || !SUPPORTED_FORMATS.contains(contentType.toLowerCase())) {
             throw new BusinessException("不支持的图片格式，支持的格式：JPEG, PNG, GIF, BMP");
         }
         
         // 验证文件扩展名
-        String originalFilename = file.getOriginalFilename();
         if (originalFilename != null) {
             String extension = getFileExtension(originalFilename).toLowerCase();
             if (!isValidImageExtension(extension)) {
@@ -86,55 +109,57 @@ public class ImageProcessingUtil {
      * 生成缩略图
      */
     public static byte[] generateThumbnail(MultipartFile file) throws IOException {
-        BufferedImage originalImage = ImageIO.read(file.getInputStream());
-        if (originalImage == null) {
-            throw new BusinessException("无法读取图片文件");
+        try (InputStream in = file.getInputStream()) {
+            return generateThumbnail(readForThumbnail(in).getImage());
         }
-        
+    }
+    
+    /**
+     * 由已解码的图片生成缩略图
+     */
+    public static byte[] generateThumbnail(BufferedImage originalImage) throws IOException {
+        return generateThumbnail(originalImage, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+    }
+    
+    /**
+     * 由已解码的图片生成指定最大边长的缩略图
+     */
+    public static byte[] generateThumbnail(BufferedImage originalImage, int maxSize) throws IOException {
+        return generateThumbnail(originalImage, maxSize, maxSize);
+    }
+    
+    private static byte[] generateThumbnail(BufferedImage originalImage, int maxWidth, int maxHeight) throws IOException {
         // 计算缩略图尺寸，保持宽高比
-        int originalWidth = originalImage.getWidth();
-        int originalHeight = originalImage.getHeight();
-        
-        double aspectRatio = (double) originalWidth / originalHeight;
-        int thumbnailWidth, thumbnailHeight;
-        
-        if (aspectRatio > 1) {
-            // 宽图
-            thumbnailWidth = THUMBNAIL_WIDTH;
-            thumbnailHeight = (int) (THUMBNAIL_WIDTH / aspectRatio);
-        } else {
-            // 高图
-            thumbnailHeight = THUMBNAIL_HEIGHT;
-            thumbnailWidth = (int) (THUMBNAIL_HEIGHT * aspectRatio);
-        }
-        
-        // 创建缩略图
-        BufferedImage thumbnailImage = new BufferedImage(
-            thumbnailWidth, thumbnailHeight, BufferedImage.TYPE_INT_RGB);
-        
-        Graphics2D g2d = thumbnailImage.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g2d.drawImage(originalImage, 0, 0, thumbnailWidth, thumbnailHeight, null);
-        g2d.dispose();
-        
-        // 转换为字节数组
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(thumbnailImage, "jpg", baos);
-        return baos.toByteArray();
+        int[] size = fitWithin(originalImage.getWidth(), originalImage.getHeight(), maxWidth, maxHeight);
+        return drawScaled(originalImage, size[0], size[1]);
     }
     
     /**
-     * 获取图片信息
+     * 按缩略图尺寸读取图片，解码时跳过多余的行列，不生成全尺寸像素
+     */
+    public static SampledImage readForThumbnail(InputStream in) throws IOException {
+        return read(new MemoryCacheImageInputStream(in), reader -> readSampled(reader, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, true));
+    }
+    
+    /**
+     * 按指定最大边长读取图片文件，解码时跳过多余的行列
+     */
+    public static SampledImage readForThumbnail(Path file, int maxSize) throws IOException {
+        return read(new FileImageInputStream(file.toFile()), reader -> readSampled(reader, maxSize, maxSize, true));
+    }
+    
+    /**
+     * 获取图片信息，只读取文件头中的尺寸
      */
     public static ImageInfo getImageInfo(MultipartFile file) throws IOException {
-        BufferedImage image = ImageIO.read(file.getInputStream());
-        if (image == null) {
-            throw new BusinessException("无法读取图片文件");
+        int[] size;
+        try (InputStream in = file.getInputStream()) {
+            size = read(new MemoryCacheImageInputStream(in), reader -> new int[]{reader.getWidth(0), reader.getHeight(0)});
         }
         
         ImageInfo info = new ImageInfo();
-        info.setWidth(image.getWidth());
-        info.setHeight(image.getHeight());
+        info.setWidth(size[0]);
+        info.setHeight(size[1]);
         info.setFileSize(file.getSize());
         info.setFormat(getImageFormat(file.getContentType()));
         info.setFileName(file.getOriginalFilename());
@@ -188,22 +213,109 @@ public class ImageProcessingUtil {
      * 调整图片尺寸
      */
     public static byte[] resizeImage(MultipartFile file, int targetWidth, int targetHeight) throws IOException {
-        BufferedImage originalImage = ImageIO.read(file.getInputStream());
-        if (originalImage == null) {
-            throw new BusinessException("无法读取图片文件");
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            throw new IllegalArgumentException("目标尺寸必须大于0");
         }
         
-        BufferedImage resizedImage = new BufferedImage(
-            targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        BufferedImage originalImage;
+        try (InputStream in = file.getInputStream()) {
+            originalImage = read(new MemoryCacheImageInputStream(in),
+                    reader -> readSampled(reader, targetWidth, targetHeight, false)).getImage();
+        }
+        return drawScaled(originalImage, targetWidth, targetHeight);
+    }
+    
+    /**
+     * 计算保持宽高比并放入指定范围的尺寸
+     */
+    private static int[] fitWithin(int width, int height, int maxWidth, int maxHeight) {
+        double aspectRatio = (double) width / height;
+        if (aspectRatio > 1) {
+            // 宽图
+            return new int[]{maxWidth, Math.max(1, (int) (maxWidth / aspectRatio))};
+        }
+        // 高图
+        return new int[]{Math.max(1, (int) (maxHeight * aspectRatio)), maxHeight};
+    }
+    
+    /**
+     * 按目标尺寸采样解码：每隔若干行列读取一个像素，采样结果不小于目标尺寸
+     */
+    private static SampledImage readSampled(ImageReader reader, int maxWidth, int maxHeight, boolean keepAspect)
+            throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        int[] target = keepAspect ? fitWithin(width, height, maxWidth, maxHeight) : new int[]{maxWidth, maxHeight};
+        
+        ImageReadParam param = reader.getDefaultReadParam();
+        int stepX = Math.max(1, width / target[0]);
+        int stepY = Math.max(1, height / target[1]);
+        if (stepX > 1 || stepY > 1) {
+            param.setSourceSubsampling(stepX, stepY, 0, 0);
+        }
+        return new SampledImage(reader.read(0, param), width, height);
+    }
+    
+    /**
+     * 将图片缩放到目标尺寸并编码为JPEG，画布和输出缓冲区在线程内复用
+     */
+    private static byte[] drawScaled(BufferedImage source, int width, int height) throws IOException {
+        BufferedImage target = null;
+        BufferedImage canvas = CANVASES.get();
+        if (canvas != null && canvas.getWidth() >= width && canvas.getHeight() >= height) {
+            target = canvas.getSubimage(0, 0, width, height);
+        } else {
+            int canvasWidth = Math.max(width, canvas != null ? canvas.getWidth() : 0);
+            int canvasHeight = Math.max(height, canvas != null ? canvas.getHeight() : 0);
+            if ((long) canvasWidth * canvasHeight <= MAX_POOLED_CANVAS_PIXELS) {
+                canvas = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_RGB);
+                CANVASES.set(canvas);
+                target = canvas.getSubimage(0, 0, width, height);
+            }
+        }
+        if (target == null) {
+            target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
         
-        Graphics2D g2d = resizedImage.createGraphics();
+        Graphics2D g2d = target.createGraphics();
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect(0, 0, width, height);
         g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g2d.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
+        g2d.drawImage(source, 0, 0, width, height, null);
         g2d.dispose();
         
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(resizedImage, "jpg", baos);
-        return baos.toByteArray();
+        ByteArrayOutputStream baos = ENCODE_BUFFERS.get();
+        baos.reset();
+        ImageIO.write(target, "jpg", baos);
+        byte[] bytes = baos.toByteArray();
+        if (baos.size() > MAX_POOLED_BUFFER_BYTES) {
+            ENCODE_BUFFERS.remove();
+        }
+        return bytes;
+    }
+    
+    /**
+     * 使用匹配格式的ImageReader读取图片，读取结束后释放解码器
+     */
+    private static <T> T read(ImageInputStream input, ReaderAction<T> action) throws IOException {
+        try (ImageInputStream stream = input) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new BusinessException("无法读取图片文件");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                return action.apply(reader);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    @FunctionalInterface
+    private interface ReaderAction<T> {
+        T apply(ImageReader reader) throws IOException;
     }
     
     /**
@@ -224,6 +336,33 @@ public class ImageProcessingUtil {
         return nameWithoutExt + "_" + System.currentTimeMillis() + "." + extension;
     }
     
+    /**
+     * 采样解码的图片，同时保留原图尺寸
+     */
+    public static class SampledImage {
+        private final BufferedImage image;
+        private final int sourceWidth;
+        private final int sourceHeight;
+        
+        public SampledImage(BufferedImage image, int sourceWidth, int sourceHeight) {
+            this.image = image;
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+        }
+        
+        public BufferedImage getImage() {
+            return image;
+        }
+        
+        public int getSourceWidth() {
+            return sourceWidth;
+        }
+        
+        public int getSourceHeight() {
+            return sourceHeight;
+        }
+    }
+    
     /**
      * 图片信息类
      */
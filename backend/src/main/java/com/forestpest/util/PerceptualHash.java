@@ -0,0 +1,59 @@
+package com.forestpest.util;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * 图片感知哈希
+ * 使用差值哈希（dHash）：将图片按区域平均缩为9x8灰度，比较每行相邻像素的亮度得到64位指纹。
+ * 缩放、重新压缩和轻微调色后指纹基本不变，两张图片的相似度用汉明距离衡量。
+ */
+public final class PerceptualHash {
+
+    private static final int COLUMNS = 9;
+    private static final int ROWS = 8;
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * 计算图片的64位差值哈希
+     */
+    public static long dHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        // 按区域累加亮度，每个像素只归入一个格子
+        double[] sums = new double[COLUMNS * ROWS];
+        int[] counts = new int[COLUMNS * ROWS];
+        for (int y = 0; y < height; y++) {
+            int row = (int) ((long) y * ROWS / height);
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int column = (int) ((long) x * COLUMNS / width);
+                int rgb = pixels[offset + x];
+                int cell = row * COLUMNS + column;
+                sums[cell] += 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+                counts[cell]++;
+            }
+        }
+
+        long hash = 0L;
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS - 1; column++) {
+                int cell = row * COLUMNS + column;
+                double left = counts[cell] > 0 ? sums[cell] / counts[cell] : 0.0;
+                double right = counts[cell + 1] > 0 ? sums[cell + 1] / counts[cell + 1] : 0.0;
+                hash = (hash << 1) | (left > right ? 1L : 0L);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 两个哈希之间的汉明距离，0表示视觉上几乎相同
+     */
+    public static int distance(long first, long second) {
+        return Long.bitCount(first ^ second);
+    }
+}
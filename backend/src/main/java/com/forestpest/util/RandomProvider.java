@@ -0,0 +1,113 @@
+package com.forestpest.util;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机数提供者
+ * 模拟计算中使用的随机数统一从这里获取。默认实现使用线程本地随机数，各请求线程互不竞争；
+ * 指定种子时每个线程从同一个根种子派生独立的序列，便于压测时重放相同的负载。
+ */
+public interface RandomProvider {
+
+    /**
+     * 返回[0, 1)之间的随机小数
+     */
+    double nextDouble();
+
+    /**
+     * 返回[0, bound)之间的随机整数
+     */
+    int nextInt(int bound);
+
+    /**
+     * 返回随机布尔值
+     */
+    boolean nextBoolean();
+
+    /**
+     * 返回[origin, bound)之间的随机小数
+     */
+    default double nextDouble(double origin, double bound) {
+        return origin + nextDouble() * (bound - origin);
+    }
+
+    /**
+     * 基于ThreadLocalRandom的非确定性实现
+     */
+    static RandomProvider threadLocal() {
+        return ThreadLocalRandomProvider.INSTANCE;
+    }
+
+    /**
+     * 基于种子的确定性实现
+     */
+    static RandomProvider seeded(long seed) {
+        return new SeededRandomProvider(seed);
+    }
+
+    final class ThreadLocalRandomProvider implements RandomProvider {
+
+        private static final ThreadLocalRandomProvider INSTANCE = new ThreadLocalRandomProvider();
+
+        private ThreadLocalRandomProvider() {
+        }
+
+        @Override
+        public double nextDouble() {
+            return ThreadLocalRandom.current().nextDouble();
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return ThreadLocalRandom.current().nextInt(bound);
+        }
+
+        @Override
+        public boolean nextBoolean() {
+            return ThreadLocalRandom.current().nextBoolean();
+        }
+    }
+
+    /**
+     * 每个线程首次使用时从根生成器拆分出自己的SplittableRandom，之后无锁访问。
+     * 同一种子、同样的线程使用顺序下产生完全相同的序列。
+     */
+    final class SeededRandomProvider implements RandomProvider {
+
+        private final long seed;
+        private final SplittableRandom root;
+        private final ThreadLocal<SplittableRandom> perThread;
+
+        private SeededRandomProvider(long seed) {
+            this.seed = seed;
+            this.root = new SplittableRandom(seed);
+            this.perThread = ThreadLocal.withInitial(this::split);
+        }
+
+        private SplittableRandom split() {
+            synchronized (root) {
+                return root.split();
+            }
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        @Override
+        public double nextDouble() {
+            return perThread.get().nextDouble();
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return perThread.get().nextInt(bound);
+        }
+
+        @Override
+        public boolean nextBoolean() {
+            return perThread.get().nextBoolean();
+        }
+    }
+}
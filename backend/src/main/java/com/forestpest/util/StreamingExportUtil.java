@@ -0,0 +1,148 @@
+package com.forestpest.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 流式导出工具类
+ * JSON使用Jackson流式生成器逐条写出，CSV使用分块写出器，可选gzip压缩；
+ * 数据源按需迭代，导出内存占用与数据量无关。
+ */
+public final class StreamingExportUtil {
+
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_CSV = "csv";
+    // 列式二进制格式，见ColumnarWriter
+    public static final String FORMAT_COLUMNAR = "fpc";
+
+    // 每写出若干条JSON记录刷新一次，客户端可以尽早收到数据
+    private static final int JSON_ITEMS_PER_CHUNK = 500;
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType APPLICATION_GZIP = new MediaType("application", "gzip");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private StreamingExportUtil() {
+    }
+
+    /**
+     * 写出到输出流的导出内容
+     */
+    @FunctionalInterface
+    public interface ExportWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 将一条记录转换为CSV行
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        Object[] toRow(T item);
+    }
+
+    public static boolean isJson(String format) {
+        return FORMAT_JSON.equalsIgnoreCase(format);
+    }
+
+    public static boolean isCsv(String format) {
+        return FORMAT_CSV.equalsIgnoreCase(format);
+    }
+
+    /**
+     * JSON数组导出，数据源在写出时才迭代
+     */
+    public static <T> ExportWriter json(Iterable<T> items) {
+        return out -> {
+            JsonGenerator generator = MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            int written = 0;
+            for (T item : items) {
+                generator.writePOJO(item);
+                if (++written % JSON_ITEMS_PER_CHUNK == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+            generator.close();
+        };
+    }
+
+    /**
+     * CSV导出，先写表头再逐行写出
+     */
+    public static <T> ExportWriter csv(String[] header, Iterable<T> items, RowMapper<T> mapper) {
+        return out -> {
+            CsvWriter csv = new CsvWriter(out);
+            csv.writeRow((Object[]) header);
+            for (T item : items) {
+                csv.writeRow(mapper.toRow(item));
+            }
+            csv.flush();
+        };
+    }
+
+    /**
+     * 将导出内容写为字符串，供仍返回完整内容的接口使用
+     */
+    public static String asString(ExportWriter writer) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            writer.writeTo(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 包装为流式下载响应，gzip为true时以.gz附件输出
+     */
+    public static ResponseEntity<StreamingResponseBody> response(String baseName, String format,
+                                                                  boolean gzip, ExportWriter writer) {
+        String extension = isCsv(format) ? FORMAT_CSV
+                : FORMAT_COLUMNAR.equalsIgnoreCase(format) ? FORMAT_COLUMNAR : FORMAT_JSON;
+        String fileName = baseName + "." + extension + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? APPLICATION_GZIP
+                : isCsv(format) ? TEXT_CSV
+                : FORMAT_COLUMNAR.equals(extension) ? MediaType.APPLICATION_OCTET_STREAM : MediaType.APPLICATION_JSON;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(fileName, StandardCharsets.UTF_8)
+                .build());
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_SIZE, true);
+                writer.writeTo(compressed);
+                compressed.finish();
+            } else {
+                writer.writeTo(out);
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+}
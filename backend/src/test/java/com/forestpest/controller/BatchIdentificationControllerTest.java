@@ -0,0 +1,138 @@
+package com.forestpest.controller;
+
+import com.forestpest.entity.IdentificationResult;
+import com.forestpest.service.PestIdentificationService;
+import com.forestpest.service.identification.BatchIdentificationJob;
+import com.forestpest.service.identification.BatchIdentificationPipeline;
+import com.forestpest.service.identification.BatchImage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * 批量识别接口测试，控制器独立装配，不加载完整的Web上下文
+ */
+class BatchIdentificationControllerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PestIdentificationService pestIdentificationService;
+    private BatchIdentificationPipeline pipeline;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        pestIdentificationService = mock(PestIdentificationService.class);
+        PestIdentificationController controller = new PestIdentificationController();
+        ReflectionTestUtils.setField(controller, "pestIdentificationService", pestIdentificationService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    void testSubmitBatchIdentificationJobIsAccepted() throws Exception {
+        MockMultipartFile image = new MockMultipartFile("images", "test1.jpg", "image/jpeg", "test image 1".getBytes());
+        BatchIdentificationJob job = new BatchIdentificationJob("job-1", "user-1", List.of());
+        when(pestIdentificationService.submitBatchIdentification(anyList(), eq("user-1"))).thenReturn(job);
+
+        mockMvc.perform(multipart("/api/identification/batch/jobs")
+                .file(image)
+                .param("userId", "user-1"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", endsWith("/api/identification/batch/jobs/job-1")))
+                .andExpect(jsonPath("$.data.jobId").value("job-1"));
+
+        verify(pestIdentificationService).submitBatchIdentification(anyList(), eq("user-1"));
+    }
+
+    @Test
+    void testLongPollWaitsAsynchronouslyForProgress() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline = new BatchIdentificationPipeline((image, userId) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            IdentificationResult result = new IdentificationResult();
+            result.setId("result-" + image.getIndex());
+            result.setUserId(userId);
+            result.setPestName("松毛虫");
+            result.setConfidence(0.8);
+            return result;
+        }, 1, 1);
+        BatchIdentificationJob job = new BatchIdentificationJob("job-1", "user-1", List.of(image(0)));
+        when(pestIdentificationService.getBatchIdentificationJob("job-1")).thenReturn(job);
+        pipeline.submit(job);
+
+        MvcResult pending = mockMvc.perform(get("/api/identification/batch/jobs/job-1/results")
+                .param("waitSeconds", "10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // 请求线程已返回，结果在图片处理完成后由进度回调写入
+        assertThrows(IllegalStateException.class, () -> pending.getAsyncResult(100));
+
+        release.countDown();
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.status").value(BatchIdentificationJob.STATUS_COMPLETED))
+                .andExpect(jsonPath("$.data.items.length()").value(1))
+                .andExpect(jsonPath("$.data.nextCursor").value(1));
+    }
+
+    @Test
+    void testResultsWithoutWaitReturnImmediately() throws Exception {
+        BatchIdentificationJob job = new BatchIdentificationJob("job-1", "user-1", List.of(image(0)));
+        when(pestIdentificationService.getBatchIdentificationJob("job-1")).thenReturn(job);
+
+        MvcResult result = mockMvc.perform(get("/api/identification/batch/jobs/job-1/results"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.status").value(BatchIdentificationJob.STATUS_QUEUED))
+                .andExpect(jsonPath("$.data.items.length()").value(0))
+                .andExpect(jsonPath("$.data.nextCursor").value(0));
+    }
+
+    private BatchImage image(int index) throws IOException {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0x336633);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        Path file = Files.createTempFile(tempDir, "frame", ".tmp");
+        Files.write(file, out.toByteArray());
+        return new BatchImage(index, "frame-" + index + ".png", "image/png", out.size(), file, null);
+    }
+}
@@ -0,0 +1,79 @@
+package com.forestpest.data.factory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 数据加载依赖图测试
+ */
+class DataLoadGraphTest {
+
+    @Test
+    void testDependenciesRunFirstAndIndependentPhasesInParallel() {
+        List<String> finished = new CopyOnWriteArrayList<>();
+        // 两个基础阶段互相等待，只有并行执行才能同时通过
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Runnable base = () -> {
+            bothStarted.countDown();
+            try {
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        DataLoadGraph graph = new DataLoadGraph()
+                .phase("plans", () -> finished.add("plans"), "users", "pests")
+                .phase("users", () -> { base.run(); finished.add("users"); })
+                .phase("pests", () -> { base.run(); finished.add("pests"); })
+                .phase("tasks", () -> finished.add("tasks"), "plans");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Map<String, Long> timings = graph.run(executor);
+            assertEquals(List.of("users", "pests", "plans", "tasks"), List.copyOf(timings.keySet()));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(List.of("plans", "tasks"), finished.subList(2, 4));
+    }
+
+    @Test
+    void testMissingDependencyAndCycleAreRejected() {
+        DataLoadGraph missing = new DataLoadGraph().phase("tasks", () -> { }, "plans");
+        assertThrows(IllegalStateException.class, missing::topologicalOrder);
+
+        DataLoadGraph cyclic = new DataLoadGraph()
+                .phase("a", () -> { }, "b")
+                .phase("b", () -> { }, "a")
+                .phase("c", () -> { });
+        IllegalStateException e = assertThrows(IllegalStateException.class, cyclic::topologicalOrder);
+        assertTrue(e.getMessage().contains("[a, b]"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new DataLoadGraph().phase("a", () -> { }).phase("a", () -> { }));
+    }
+
+    @Test
+    void testFailedPhaseSkipsDependents() {
+        AtomicBoolean dependentRan = new AtomicBoolean();
+        DataLoadGraph graph = new DataLoadGraph()
+                .phase("users", () -> { throw new IllegalArgumentException("用户数据错误"); })
+                .phase("plans", () -> dependentRan.set(true), "users");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> graph.run(Runnable::run));
+        assertTrue(e.getMessage().contains("users"));
+        assertTrue(e.getMessage().contains("用户数据错误"));
+        assertFalse(dependentRan.get());
+    }
+}
@@ -0,0 +1,118 @@
+package com.forestpest.data.index;
+
+import com.forestpest.data.storage.DataStorage;
+import com.forestpest.entity.ForestResource;
+import com.forestpest.entity.PestAlert;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 区域层级树测试
+ */
+class AreaHierarchyTest {
+
+    private AreaHierarchy hierarchy;
+
+    @BeforeEach
+    void setUp() {
+        hierarchy = new AreaHierarchy();
+        hierarchy.upsert("farm", null, 0, false, List.of("farm", "LC01"));
+        hierarchy.upsert("area-1", "farm", 0, false, List.of("area-1"));
+        hierarchy.upsert("area-2", "farm", 0, false, List.of("area-2"));
+        hierarchy.upsert("plot-1", "area-1", 100, true, List.of("plot-1", "XB01"));
+        hierarchy.upsert("plot-2", "area-1", 200, false, List.of("plot-2"));
+        hierarchy.upsert("plot-3", "area-2", 300, true, List.of("plot-3"));
+    }
+
+    @Test
+    void testSubtreeMembershipAndAggregates() {
+        assertTrue(hierarchy.isInSubtree("farm", "plot-3"));
+        assertTrue(hierarchy.isInSubtree("area-1", "area-1"));
+        assertFalse(hierarchy.isInSubtree("area-1", "plot-3"));
+        assertFalse(hierarchy.isInSubtree("plot-1", "area-1"));
+
+        AreaHierarchy.Aggregate farm = hierarchy.aggregate("farm");
+        assertEquals(6, farm.getAreaCount());
+        assertEquals(600.0, farm.getTotalArea(), 1e-9);
+        assertEquals(2, farm.getUnhealthyPlotCount());
+        assertEquals(1, hierarchy.aggregate("area-1").getUnhealthyPlotCount());
+        assertEquals(List.of("farm"), hierarchy.roots());
+    }
+
+    @Test
+    void testIncrementalUpdatesAndReparent() {
+        // 小班好转、面积调整
+        hierarchy.upsert("plot-1", "area-1", 150, false, List.of("plot-1"));
+        assertEquals(650.0, hierarchy.aggregate("farm").getTotalArea(), 1e-9);
+        assertEquals(1, hierarchy.aggregate("farm").getUnhealthyPlotCount());
+
+        // 小班调整到另一个林区
+        hierarchy.upsert("plot-3", "area-1", 300, true, List.of("plot-3"));
+        assertTrue(hierarchy.isInSubtree("area-1", "plot-3"));
+        assertEquals(650.0, hierarchy.aggregate("area-1").getTotalArea(), 1e-9);
+        assertEquals(0.0, hierarchy.aggregate("area-2").getTotalArea(), 1e-9);
+
+        hierarchy.remove("plot-2");
+        assertEquals(450.0, hierarchy.aggregate("farm").getTotalArea(), 1e-9);
+        assertEquals(List.of("area-1", "plot-1", "plot-3"), hierarchy.subtreeIds("area-1").stream().sorted().toList());
+
+        assertThrows(IllegalArgumentException.class, () -> hierarchy.upsert("farm", "plot-1", 0, false, List.of()));
+    }
+
+    @Test
+    void testChildBeforeParentAndAlertCounts() {
+        hierarchy.upsert("plot-9", "area-9", 50, false, List.of("plot-9"));
+        assertTrue(hierarchy.children("area-9").contains("plot-9"));
+        assertFalse(hierarchy.roots().contains("area-9"));
+
+        // 预警先于区域登记，区域出现后自动计入
+        hierarchy.adjustAlerts("XB09", 2);
+        hierarchy.upsert("area-9", "farm", 0, false, List.of("area-9"));
+        hierarchy.upsert("plot-9", "area-9", 50, false, List.of("plot-9", "XB09"));
+        assertEquals(2, hierarchy.aggregate("area-9").getActiveAlertCount());
+        assertEquals(650.0, hierarchy.aggregate("farm").getTotalArea(), 1e-9);
+
+        hierarchy.adjustAlerts("XB01", 1);
+        assertEquals(3, hierarchy.aggregate("farm").getActiveAlertCount());
+        hierarchy.adjustAlerts("XB09", -2);
+        assertEquals(1, hierarchy.aggregate("farm").getActiveAlertCount());
+    }
+
+    @Test
+    void testActiveAlertsFollowPredictionStorage() {
+        DataStorage dataStorage = new DataStorage();
+        dataStorage.getForestResourceStorage().save(resource("farm", null, "一号林场"));
+        dataStorage.getForestResourceStorage().save(resource("plot", "farm", "一号林场第1小班"));
+
+        PestAlert alert = new PestAlert();
+        alert.setId("alert-1");
+        alert.setTargetArea("XB-plot");
+        alert.setStatus("ACTIVE");
+        dataStorage.getPredictionStorage().saveAlert(alert);
+        assertEquals(1, dataStorage.getForestResourceStorage().getSubtreeAggregate("farm").orElseThrow().getActiveAlertCount());
+
+        alert.setStatus("HANDLED");
+        dataStorage.getPredictionStorage().saveAlert(alert);
+        assertEquals(0, dataStorage.getForestResourceStorage().getSubtreeAggregate("farm").orElseThrow().getActiveAlertCount());
+
+        alert.setStatus("ACTIVE");
+        dataStorage.getPredictionStorage().saveAlert(alert);
+        dataStorage.getPredictionStorage().deleteAlertById("alert-1");
+        assertEquals(0, dataStorage.getForestResourceStorage().getSubtreeAggregate("plot").orElseThrow().getActiveAlertCount());
+    }
+
+    private ForestResource resource(String id, String parentId, String name) {
+        ForestResource resource = new ForestResource();
+        resource.setId(id);
+        resource.setAreaName(name);
+        resource.setAreaCode("XB-" + id);
+        resource.setAreaType(parentId == null ? "林场" : "小班");
+        resource.setParentAreaId(parentId);
+        resource.setArea(100.0);
+        return resource;
+    }
+}
@@ -0,0 +1,69 @@
+package com.forestpest.data.index;
+
+import com.forestpest.util.PerceptualHash;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BK树测试
+ */
+class BkTreeTest {
+
+    @Test
+    void testSearchMatchesLinearScan() {
+        Random random = new Random(7);
+        BkTree<Integer> tree = new BkTree<>();
+        List<Long> hashes = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // 一半为已有哈希的少量位翻转，模拟近似图片
+            long hash = i % 2 == 0 || hashes.isEmpty()
+                    ? random.nextLong()
+                    : hashes.get(random.nextInt(hashes.size())) ^ (1L << random.nextInt(64)) ^ (1L << random.nextInt(64));
+            hashes.add(hash);
+            tree.add(hash, i);
+        }
+        assertEquals(5000, tree.size());
+
+        for (int q = 0; q < 50; q++) {
+            long query = hashes.get(random.nextInt(hashes.size())) ^ (1L << random.nextInt(64));
+            for (int maxDistance : new int[]{0, 3, 8}) {
+                Set<Integer> expected = new HashSet<>();
+                for (int i = 0; i < hashes.size(); i++) {
+                    if (PerceptualHash.distance(query, hashes.get(i)) <= maxDistance) {
+                        expected.add(i);
+                    }
+                }
+                List<BkTree.Match<Integer>> matches = tree.search(query, maxDistance);
+                assertEquals(expected, matches.stream().map(BkTree.Match::getValue).collect(Collectors.toSet()));
+                for (int i = 1; i < matches.size(); i++) {
+                    assertTrue(matches.get(i - 1).getDistance() <= matches.get(i).getDistance());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testRemoveKeepsOtherValuesReachable() {
+        BkTree<String> tree = new BkTree<>();
+        tree.add(0b0000L, "a");
+        tree.add(0b0001L, "b");
+        tree.add(0b0011L, "c");
+        tree.add(0b0011L, "d");
+
+        assertTrue(tree.remove(0b0001L, "b"));
+        assertFalse(tree.remove(0b0001L, "b"));
+        assertTrue(tree.remove(0b0011L, "c"));
+
+        List<BkTree.Match<String>> matches = tree.search(0b0000L, 2);
+        assertEquals(List.of("a", "d"), matches.stream().map(BkTree.Match::getValue).collect(Collectors.toList()));
+        assertEquals(2, tree.size());
+    }
+}
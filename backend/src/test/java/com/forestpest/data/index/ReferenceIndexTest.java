@@ -0,0 +1,213 @@
+package com.forestpest.data.index;
+
+import com.forestpest.data.index.ReferenceIndex.EntityRef;
+import com.forestpest.data.index.ReferenceIndex.EntityType;
+import com.forestpest.data.index.ReferenceIndex.Reference;
+import com.forestpest.data.manager.DataRelationshipManager;
+import com.forestpest.data.storage.DataStorage;
+import com.forestpest.data.storage.IdentificationStorage;
+import com.forestpest.entity.IdentificationResult;
+import com.forestpest.entity.KnowledgeBase;
+import com.forestpest.entity.Pest;
+import com.forestpest.entity.PestPrediction;
+import com.forestpest.entity.TreatmentPlan;
+import com.forestpest.entity.TreatmentTask;
+import com.forestpest.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 实体引用反向索引测试
+ */
+class ReferenceIndexTest {
+
+    private final ReferenceIndex index = new ReferenceIndex();
+
+    @Test
+    void testDanglingReferencesFollowTargetLifecycle() {
+        EntityRef plan = new EntityRef(EntityType.TREATMENT_PLAN, "plan-1");
+        EntityRef pest = new EntityRef(EntityType.PEST, "pest-1");
+        EntityRef creator = new EntityRef(EntityType.USER, "system");
+        index.register(plan, List.of(
+                new Reference(plan, "pestId", pest, true),
+                new Reference(plan, "createdBy", creator, false)));
+
+        // 弱引用的目标不存在时不算悬空
+        assertEquals(1, index.danglingCount());
+        index.register(pest, List.of());
+        assertEquals(0, index.danglingCount());
+        assertEquals(1, index.referencesTo(pest).size());
+        assertEquals(1, index.referencesTo(creator, EntityType.TREATMENT_PLAN).size());
+
+        index.unregister(pest);
+        assertEquals(List.of(new Reference(plan, "pestId", pest, true)), index.danglingReferences());
+
+        // 重新登记时替换原有引用
+        index.register(plan, List.of());
+        assertEquals(0, index.danglingCount());
+        assertTrue(index.referencesTo(pest).isEmpty());
+
+        index.unregisterAll(EntityType.TREATMENT_PLAN);
+        assertEquals(0, index.size(EntityType.TREATMENT_PLAN));
+    }
+
+    @Test
+    void testStorageWritesMaintainIndexAndValidation() {
+        DataStorage dataStorage = new DataStorage();
+        DataRelationshipManager manager = manager(dataStorage);
+        dataStorage.getUserStorage().save(user("user-1"));
+        dataStorage.getPestStorage().save(pest("pest-1"));
+        dataStorage.getTreatmentStorage().savePlan(plan("plan-1", "pest-1"));
+        dataStorage.getTreatmentStorage().saveTask(task("task-1", "plan-1", "user-1"));
+        assertFalse(manager.validateAllRelationships().hasErrors());
+
+        dataStorage.getUserStorage().deleteById("user-1");
+        DataRelationshipManager.ValidationResult result = manager.validateAllRelationships();
+        assertEquals(List.of("防治任务 任务task-1 的分配人员ID不存在: user-1"), result.getErrors());
+        assertEquals(List.of(new EntityRef(EntityType.TREATMENT_PLAN, "plan-1")),
+                manager.findEntitiesCreatedBy("user-1"));
+
+        dataStorage.getUserStorage().save(user("user-1"));
+        assertFalse(manager.validateAllRelationships().hasErrors());
+    }
+
+    @Test
+    void testDeletePestCascadesThroughReverseReferences() {
+        DataStorage dataStorage = new DataStorage();
+        DataRelationshipManager manager = manager(dataStorage);
+        dataStorage.getUserStorage().save(user("user-1"));
+        dataStorage.getPestStorage().save(pest("pest-1"));
+        dataStorage.getPestStorage().save(pest("pest-2"));
+        dataStorage.getTreatmentStorage().savePlan(plan("plan-1", "pest-1"));
+        dataStorage.getTreatmentStorage().savePlan(plan("plan-2", "pest-2"));
+        dataStorage.getTreatmentStorage().saveTask(task("task-1", "plan-1", "user-1"));
+        PestPrediction prediction = new PestPrediction();
+        prediction.setId("prediction-1");
+        prediction.setPestId("pest-1");
+        dataStorage.getPredictionStorage().savePrediction(prediction);
+        KnowledgeBase knowledge = new KnowledgeBase();
+        knowledge.setId("knowledge-1");
+        knowledge.setType("病虫害");
+        knowledge.setCategory("防治");
+        knowledge.setRelatedPests(new ArrayList<>(List.of("pest-1", "pest-2")));
+        dataStorage.getKnowledgeStorage().save(knowledge);
+        IdentificationStorage identifications = new IdentificationStorage();
+        ReflectionTestUtils.setField(manager, "identificationStorage", identifications);
+        identifications.save(identification("result-1", "pest-1"));
+        identifications.save(identification("result-2", "pest-2"));
+
+        Map<String, Integer> affected = manager.deletePestCascade("pest-1");
+
+        assertEquals(Map.of("treatmentPlans", 1, "treatmentTasks", 1, "predictions", 1, "knowledge", 1,
+                "identificationResults", 1), affected);
+        assertFalse(identifications.findById("result-1").isPresent());
+        assertTrue(identifications.findById("result-2").isPresent());
+        assertFalse(dataStorage.getTreatmentStorage().findPlanById("plan-1").isPresent());
+        assertFalse(dataStorage.getTreatmentStorage().findTaskById("task-1").isPresent());
+        assertTrue(dataStorage.getTreatmentStorage().findPlanById("plan-2").isPresent());
+        assertEquals(0, dataStorage.getPredictionStorage().predictionCount());
+        assertEquals(List.of("pest-2"), knowledge.getRelatedPests());
+        assertFalse(manager.validateAllRelationships().hasErrors());
+    }
+
+    @Test
+    void testValidationRebuildsIndexAfterDirectModification() {
+        DataStorage dataStorage = new DataStorage();
+        DataRelationshipManager manager = manager(dataStorage);
+        dataStorage.getPestStorage().save(pest("pest-1"));
+        TreatmentPlan plan = plan("plan-1", "pest-1");
+        dataStorage.getTreatmentStorage().savePlan(plan);
+
+        // 直接修改实体而未重新保存，增量维护的索引不知道这次修改
+        plan.setPestId("pest-missing");
+        assertEquals(0, dataStorage.getReferenceIndex().danglingCount());
+        assertEquals(List.of("防治方案 方案plan-1 关联的病虫害ID不存在: pest-missing"),
+                manager.validateAllRelationships().getErrors());
+    }
+
+    @Test
+    void testConcurrentRegistrationKeepsDanglingSetExact() throws InterruptedException {
+        int count = 2000;
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < count; i += threads.length) {
+                    EntityRef plan = new EntityRef(EntityType.TREATMENT_PLAN, "plan-" + i);
+                    EntityRef pest = new EntityRef(EntityType.PEST, "pest-" + i);
+                    // 引用和目标交替先登记
+                    if (i % 2 == 0) {
+                        index.register(plan, List.of(new Reference(plan, "pestId", pest, true)));
+                        index.register(pest, List.of());
+                    } else {
+                        index.register(pest, List.of());
+                        index.register(plan, List.of(new Reference(plan, "pestId", pest, true)));
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, index.danglingCount());
+        assertEquals(count, index.size(EntityType.PEST));
+        index.unregisterAll(EntityType.PEST);
+        assertEquals(count, index.danglingCount());
+    }
+
+    private DataRelationshipManager manager(DataStorage dataStorage) {
+        DataRelationshipManager manager = new DataRelationshipManager();
+        ReflectionTestUtils.setField(manager, "dataStorage", dataStorage);
+        return manager;
+    }
+
+    private User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setEmail(id + "@example.com");
+        return user;
+    }
+
+    private Pest pest(String id) {
+        Pest pest = new Pest();
+        pest.setId(id);
+        pest.setName("病虫害" + id);
+        pest.setCategory("虫害");
+        return pest;
+    }
+
+    private TreatmentPlan plan(String id, String pestId) {
+        TreatmentPlan plan = new TreatmentPlan();
+        plan.setId(id);
+        plan.setPlanName("方案" + id);
+        plan.setPestId(pestId);
+        plan.setCreatedBy("user-1");
+        return plan;
+    }
+
+    private IdentificationResult identification(String id, String pestId) {
+        IdentificationResult result = new IdentificationResult();
+        result.setId(id);
+        result.setUserId("user-1");
+        result.setPestId(pestId);
+        return result;
+    }
+
+    private TreatmentTask task(String id, String planId, String assignedTo) {
+        TreatmentTask task = new TreatmentTask();
+        task.setId(id);
+        task.setTaskName("任务" + id);
+        task.setPlanId(planId);
+        task.setAssignedTo(assignedTo);
+        return task;
+    }
+}
@@ -0,0 +1,99 @@
+package com.forestpest.data.index;
+
+import com.forestpest.data.storage.ForestResourceStorage;
+import com.forestpest.entity.ForestResource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 空间网格索引与森林资源空间查询测试
+ */
+class SpatialGridIndexTest {
+
+    private SpatialGridIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SpatialGridIndex();
+        index.put("center", new GeoPoint(30.0, 120.0));
+        index.put("near", new GeoPoint(30.02, 120.01));
+        index.put("mid", new GeoPoint(30.1, 120.1));
+        index.put("far", new GeoPoint(31.0, 121.0));
+    }
+
+    @Test
+    void testWithinRadiusSortedByDistance() {
+        List<String> ids = index.withinRadius(new GeoPoint(30.0, 120.0), 5.0);
+        assertEquals(List.of("center", "near"), ids);
+
+        List<String> wider = index.withinRadius(new GeoPoint(30.0, 120.0), 20.0);
+        assertEquals(List.of("center", "near", "mid"), wider);
+    }
+
+    @Test
+    void testWithinPolygonAndMove() {
+        GeoPolygon triangle = GeoPolygon.parse("29.9,119.9;29.9,120.2;30.2,119.9");
+        assertNotNull(triangle);
+        List<String> ids = index.withinPolygon(triangle);
+        assertTrue(ids.contains("center"));
+        assertTrue(ids.contains("near"));
+        assertFalse(ids.contains("mid"));
+
+        // 移动后旧网格中不再保留
+        index.put("near", new GeoPoint(35.0, 110.0));
+        assertFalse(index.withinPolygon(triangle).contains("near"));
+        index.remove("center");
+        assertTrue(index.withinPolygon(triangle).isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testInvalidInput() {
+        assertNull(GeoPoint.parse("not a point"));
+        assertNull(GeoPoint.parse("95.0,120.0"));
+        assertNull(GeoPolygon.parse("30.0,120.0;30.1,120.1"));
+    }
+
+    @Test
+    void testForestResourceRollUp() {
+        ForestResourceStorage storage = new ForestResourceStorage();
+        storage.save(resource("farm", null, null, null));
+        storage.save(resource("area", "farm", null, "30.0,120.0;30.0,120.1;30.1,120.1;30.1,120.0"));
+        storage.save(resource("plot-1", "area", "30.02,120.02", null));
+        storage.save(resource("plot-2", "area", "30.3,120.3", null));
+
+        // 林场自身没有坐标，位置由下级区域汇总范围推出
+        GeoBounds extent = storage.getSpatialExtent("farm").orElseThrow();
+        assertEquals(30.0, extent.getMinLatitude(), 1e-9);
+        assertEquals(120.3, extent.getMaxLongitude(), 1e-9);
+        assertTrue(storage.getLocation("farm").isPresent());
+
+        assertEquals(List.of("area", "farm", "plot-1", "plot-2"),
+                storage.findSubtreeIds("farm").stream().sorted().collect(Collectors.toList()));
+
+        List<ForestResource> near = storage.findWithinRadius(new GeoPoint(30.02, 120.02), 10.0);
+        assertEquals("plot-1", near.get(0).getId());
+        assertTrue(near.stream().anyMatch(resource -> "area".equals(resource.getId())));
+        assertFalse(near.stream().anyMatch(resource -> "plot-2".equals(resource.getId())));
+
+        storage.deleteById("plot-2");
+        assertEquals(30.1, storage.getSpatialExtent("farm").orElseThrow().getMaxLatitude(), 1e-9);
+    }
+
+    private ForestResource resource(String id, String parentId, String coordinates, String boundary) {
+        ForestResource resource = new ForestResource();
+        resource.setId(id);
+        resource.setAreaName(id + "-name");
+        resource.setAreaType("小班");
+        resource.setParentAreaId(parentId);
+        resource.setCoordinates(coordinates);
+        resource.setBoundary(boundary);
+        resource.setHealthStatus("良好");
+        return resource;
+    }
+}
@@ -0,0 +1,152 @@
+package com.forestpest.data.storage;
+
+import com.forestpest.entity.IdentificationResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 识别结果存储测试
+ */
+class IdentificationStorageTest {
+
+    private final IdentificationStorage storage = new IdentificationStorage();
+
+    @Test
+    void testUserHistoryIsNewestFirstAndPaged() {
+        LocalDateTime base = LocalDateTime.of(2024, 5, 1, 8, 0);
+        for (int i = 0; i < 5; i++) {
+            storage.save(result("r" + i, "user-1", "pest-1", "IMAGE", base.plusHours(i), 0.8));
+        }
+        storage.save(result("other", "user-2", "pest-1", "IMAGE", base, 0.8));
+
+        List<String> history = storage.findByUserId("user-1").stream()
+                .map(IdentificationResult::getId)
+                .collect(Collectors.toList());
+        assertEquals(List.of("r4", "r3", "r2", "r1", "r0"), history);
+
+        List<String> secondPage = storage.findByUserId("user-1", 1, 2).stream()
+                .map(IdentificationResult::getId)
+                .collect(Collectors.toList());
+        assertEquals(List.of("r2", "r1"), secondPage);
+        assertTrue(storage.findByUserId("user-1", 3, 2).isEmpty());
+        assertEquals(2, storage.countUsers());
+        assertEquals(6, storage.findByPestId("pest-1").size());
+    }
+
+    @Test
+    void testFeedbackUpdatesAccuracy() {
+        LocalDateTime time = LocalDateTime.of(2024, 5, 1, 8, 0);
+        IdentificationResult first = result("r1", "user-1", "pest-1", "IMAGE", time, 0.9);
+        IdentificationResult second = result("r2", "user-1", "pest-2", "SYMPTOM", time, 0.6);
+        storage.save(first);
+        storage.save(second);
+        assertTrue(storage.getAccuracy().isEmpty());
+
+        first.setVerificationStatus("VERIFIED");
+        first.setUpdatedTime(time.plusDays(1));
+        storage.save(first);
+        second.setVerificationStatus("REJECTED");
+        second.setUpdatedTime(time.plusDays(1));
+        storage.save(second);
+
+        Map<String, Double> accuracy = storage.getAccuracy();
+        assertEquals(0.5, accuracy.get("overall"));
+        assertEquals(1.0, accuracy.get("IMAGE"));
+        assertEquals(0.0, accuracy.get("SYMPTOM"));
+
+        // 修改反馈后按旧快照回退再重新计数
+        second.setVerificationStatus("VERIFIED");
+        storage.save(second);
+        assertEquals(1.0, storage.getAccuracy().get("overall"));
+        assertEquals(2, storage.count());
+    }
+
+    @Test
+    void testDeleteRollsBackCounters() {
+        LocalDateTime time = LocalDateTime.of(2024, 5, 1, 8, 0);
+        storage.save(result("r1", "user-1", "pest-1", "IMAGE", time, 0.9));
+        storage.save(result("r2", "user-1", "pest-2", "IMAGE", time.plusMonths(1), 0.5));
+
+        Map<String, Object> statistics = storage.getUserStatistics("user-1");
+        assertEquals(2, statistics.get("totalIdentifications"));
+        assertEquals(0.7, (Double) statistics.get("averageConfidence"), 1e-9);
+        assertEquals(Map.of("2024-05", 1L, "2024-06", 1L), statistics.get("byMonth"));
+
+        assertTrue(storage.deleteById("r2").isPresent());
+        assertFalse(storage.deleteById("r2").isPresent());
+
+        statistics = storage.getUserStatistics("user-1");
+        assertEquals(1, statistics.get("totalIdentifications"));
+        assertEquals(0.9, (Double) statistics.get("averageConfidence"), 1e-9);
+        assertEquals(Map.of("pest-1", 1L), storage.getPestCounts());
+        assertEquals(Map.of("IMAGE", 1L), storage.getMethodCounts());
+        assertEquals(Map.of(LocalDate.of(2024, 5, 1), 1L), storage.getDailyCounts());
+        assertTrue(storage.findByPestId("pest-2").isEmpty());
+
+        storage.deleteById("r1");
+        assertEquals(0, storage.countUsers());
+        assertEquals(0, storage.getUserStatistics("user-1").get("totalIdentifications"));
+    }
+
+    @Test
+    void testBulkLoadMatchesIncrementalSaves() {
+        LocalDateTime base = LocalDateTime.of(2024, 5, 1, 8, 0);
+        List<IdentificationResult> batch = new java.util.ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            IdentificationResult result = result("r" + i, "user-" + (i % 3), "pest-" + (i % 4),
+                    i % 2 == 0 ? "IMAGE" : "SYMPTOM", base.plusHours(i * 7L), 0.5 + i * 0.01);
+            result.setVerificationStatus(i % 5 == 0 ? "VERIFIED" : (i % 5 == 1 ? "REJECTED" : "PENDING"));
+            batch.add(result);
+        }
+        IdentificationStorage incremental = new IdentificationStorage();
+        batch.forEach(incremental::save);
+
+        storage.save(result("stale", "user-9", "pest-9", "IMAGE", base, 0.9));
+        storage.bulkLoad(batch);
+
+        assertEquals(incremental.count(), storage.count());
+        assertEquals(incremental.countUsers(), storage.countUsers());
+        assertEquals(incremental.getMethodCounts(), storage.getMethodCounts());
+        assertEquals(incremental.getPestCounts(), storage.getPestCounts());
+        assertEquals(incremental.getDailyCounts(), storage.getDailyCounts());
+        assertEquals(incremental.getAccuracy(), storage.getAccuracy());
+        for (String userId : List.of("user-0", "user-1", "user-2")) {
+            assertEquals(incremental.findByUserId(userId), storage.findByUserId(userId));
+            assertSameStatistics(incremental.getUserStatistics(userId), storage.getUserStatistics(userId));
+        }
+        assertFalse(storage.findById("stale").isPresent());
+
+        // 装载后删除仍能按快照回退计数
+        storage.deleteById("r0");
+        incremental.deleteById("r0");
+        assertEquals(incremental.getAccuracy(), storage.getAccuracy());
+        assertSameStatistics(incremental.getUserStatistics("user-0"), storage.getUserStatistics("user-0"));
+    }
+
+    private void assertSameStatistics(Map<String, Object> expected, Map<String, Object> actual) {
+        assertEquals(expected.get("totalIdentifications"), actual.get("totalIdentifications"));
+        assertEquals(expected.get("byMethod"), actual.get("byMethod"));
+        assertEquals(expected.get("byMonth"), actual.get("byMonth"));
+        // 累加顺序不同，置信度均值只比较到精度范围内
+        assertEquals((Double) expected.get("averageConfidence"), (Double) actual.get("averageConfidence"), 1e-9);
+    }
+
+    private IdentificationResult result(String id, String userId, String pestId, String method,
+                                        LocalDateTime time, double confidence) {
+        IdentificationResult result = new IdentificationResult();
+        result.setId(id);
+        result.setUserId(userId);
+        result.setPestId(pestId);
+        result.setIdentificationMethod(method);
+        result.setIdentificationTime(time);
+        result.setConfidence(confidence);
+        return result;
+    }
+}
@@ -0,0 +1,129 @@
+package com.forestpest.data.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 内容寻址图片存储测试
+ */
+class ImageStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ImageStorage imageStorage;
+
+    @BeforeEach
+    void setUp() {
+        imageStorage = new ImageStorage();
+        imageStorage.setRootDirectory(tempDir.toString());
+    }
+
+    @Test
+    void testRepeatedUploadIsStoredOnce() throws IOException {
+        byte[] data = png(120, 80);
+        ImageStorage.StoredImage first = imageStorage.store(new MockMultipartFile("file", "a.png", "image/png", data));
+        ImageStorage.StoredImage second = imageStorage.store(new MockMultipartFile("file", "b.PNG", "image/png", data));
+        ImageStorage.StoredImage third = imageStorage.store(data, "c.png");
+
+        assertFalse(first.isDuplicate());
+        assertTrue(second.isDuplicate());
+        assertTrue(third.isDuplicate());
+        assertEquals(first.getHash(), second.getHash());
+        assertEquals(first.getPath(), third.getPath());
+
+        // 按摘要前缀分两级目录
+        String hash = first.getHash();
+        assertEquals(tempDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".png"),
+                first.getPath());
+        assertArrayEquals(data, Files.readAllBytes(first.getPath()));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void testUploadIsReadOnce() throws IOException {
+        byte[] data = png(300, 200);
+        AtomicInteger reads = new AtomicInteger();
+        MockMultipartFile upload = new MockMultipartFile("file", "a.png", "image/png", data) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                reads.incrementAndGet();
+                return super.getInputStream();
+            }
+        };
+
+        ImageStorage.StoredImage stored = imageStorage.store(upload);
+        imageStorage.store(upload);
+
+        assertEquals(2, reads.get());
+        assertArrayEquals(data, Files.readAllBytes(stored.getPath()));
+        // 重复内容的临时文件已删除
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void testDifferentContentGetsDifferentFile() throws IOException {
+        ImageStorage.StoredImage first = imageStorage.store(png(10, 10), "a.png");
+        ImageStorage.StoredImage second = imageStorage.store(png(11, 10), "a.png");
+
+        assertNotEquals(first.getHash(), second.getHash());
+        assertEquals(2, countFiles());
+        assertTrue(imageStorage.find(first.getHash()).isPresent());
+        assertTrue(imageStorage.find("../" + first.getHash()).isEmpty());
+    }
+
+    @Test
+    void testThumbnailIsGeneratedOnceAndCached() throws IOException {
+        String hash = imageStorage.store(png(400, 200), "a.png").getHash();
+
+        Path thumbnail = imageStorage.findThumbnail(hash, 128).orElseThrow();
+        BufferedImage image = ImageIO.read(thumbnail.toFile());
+        assertEquals(128, image.getWidth());
+        assertEquals(64, image.getHeight());
+
+        long modified = Files.getLastModifiedTime(thumbnail).toMillis();
+        assertEquals(thumbnail, imageStorage.findThumbnail(hash, 128).orElseThrow());
+        assertEquals(modified, Files.getLastModifiedTime(thumbnail).toMillis());
+
+        assertThrows(IllegalArgumentException.class, () -> imageStorage.findThumbnail(hash, 333));
+        assertTrue(imageStorage.findThumbnail("0".repeat(64), 128).isEmpty());
+    }
+
+    @Test
+    void testStoreSurvivesRestart() throws IOException {
+        String hash = imageStorage.store(png(20, 20), "a.jpeg").getHash();
+
+        ImageStorage restarted = new ImageStorage();
+        restarted.setRootDirectory(tempDir.toString());
+        assertTrue(restarted.find(hash).isPresent());
+        assertTrue(restarted.store(png(20, 20), "b.jpg").isDuplicate());
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0x336633);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
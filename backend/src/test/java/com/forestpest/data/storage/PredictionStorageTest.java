@@ -0,0 +1,216 @@
+package com.forestpest.data.storage;
+
+import com.forestpest.entity.PestAlert;
+import com.forestpest.entity.PestPrediction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PredictionStorage日期索引与归档存储测试
+ */
+class PredictionStorageTest {
+
+    @TempDir
+    Path archiveDir;
+
+    private PredictionStorage storage;
+    private final LocalDate today = LocalDate.of(2024, 6, 30);
+
+    @BeforeEach
+    void setUp() {
+        storage = new PredictionStorage();
+        for (int i = 0; i < 60; i++) {
+            storage.savePrediction(prediction("pred-" + i, today.minusDays(i)));
+        }
+    }
+
+    @Test
+    void testRemovePredictionsBefore() {
+        PestAlert alert = alert("alert-old", "pred-45", today.minusDays(45).atTime(9, 0));
+        storage.saveAlert(alert);
+
+        List<PestPrediction> removed = storage.removePredictionsBefore(today.minusDays(30));
+
+        assertEquals(29, removed.size());
+        assertEquals(31, storage.predictionCount());
+        assertFalse(storage.findAlertById("alert-old").isPresent());
+        assertTrue(storage.findPredictionsBefore(today.minusDays(30)).isEmpty());
+    }
+
+    @Test
+    void testFindPredictionsByDateRangeAfterUpdate() {
+        PestPrediction moved = storage.findPredictionById("pred-10").get();
+        moved.setPredictionDate(today.plusDays(5));
+        storage.savePrediction(moved);
+
+        assertEquals(1, storage.findPredictionsByDateRange(today.plusDays(1), today.plusDays(10)).size());
+        assertEquals(3, storage.findPredictionsByDateRange(today.minusDays(11), today.minusDays(8)).size());
+    }
+
+    @Test
+    void testIterateAllPredictionsIsReadOnlyView() {
+        Iterable<PestPrediction> view = storage.iterateAllPredictions();
+        storage.savePrediction(prediction("pred-new", today));
+
+        // 视图直接遍历存储，不是调用时的副本
+        List<String> ids = new ArrayList<>();
+        view.forEach(prediction -> ids.add(prediction.getId()));
+        assertEquals(61, ids.size());
+        assertTrue(ids.contains("pred-new"));
+        assertThrows(UnsupportedOperationException.class, () -> {
+            Iterator<PestPrediction> iterator = view.iterator();
+            iterator.next();
+            iterator.remove();
+        });
+    }
+
+    @Test
+    void testRemoveAlertsCreatedBefore() {
+        LocalDateTime cutoff = today.atTime(12, 0);
+        storage.saveAlert(alert("a1", "pred-1", cutoff.minusDays(3)));
+        storage.saveAlert(alert("a2", "pred-1", cutoff.minusHours(2)));
+        storage.saveAlert(alert("a3", "pred-2", cutoff.plusHours(1)));
+
+        List<PestAlert> removed = storage.removeAlertsCreatedBefore(cutoff);
+
+        assertEquals(2, removed.size());
+        assertEquals(1, storage.alertCount());
+        assertTrue(storage.findAlertById("a3").isPresent());
+        assertEquals(1, storage.findAlertsByCreatedTimeBetween(cutoff, cutoff.plusDays(1)).size());
+    }
+
+    @Test
+    void testBulkLoadReplacesContentsAndIndexes() {
+        Map<String, Integer> activeByArea = new HashMap<>();
+        storage.setActiveAlertListener((area, delta) -> activeByArea.merge(area, delta, Integer::sum));
+        PestAlert replaced = alert("old-alert", "pred-1", today.atTime(8, 0));
+        replaced.setStatus("ACTIVE");
+        replaced.setTargetArea("区域A");
+        storage.saveAlert(replaced);
+
+        List<PestPrediction> predictions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            predictions.add(prediction("bulk-" + i, today.plusDays(i)));
+        }
+        // ID重复时以后出现的为准
+        PestPrediction duplicate = prediction("bulk-0", today.plusDays(20));
+        duplicate.setPestId("pest-2");
+        predictions.add(duplicate);
+        PestAlert active = alert("bulk-alert", "bulk-3", today.atTime(9, 0));
+        active.setStatus("ACTIVE");
+        active.setTargetArea("区域B");
+
+        storage.bulkLoad(predictions, List.of(active));
+
+        assertEquals(10, storage.predictionCount());
+        assertFalse(storage.findPredictionById("pred-1").isPresent());
+        assertEquals(9, storage.findPredictionsByPestId("pest-1").size());
+        assertEquals(1, storage.findPredictionsByPestId("pest-2").size());
+        assertEquals(1, storage.findPredictionsByDateRange(today.plusDays(15), today.plusDays(25)).size());
+        assertEquals(3, storage.findPredictionsByDateRange(today.plusDays(1), today.plusDays(3)).size());
+        assertEquals(List.of(active), storage.findAlertsByPredictionId("bulk-3"));
+        assertEquals(Map.of("区域A", 0, "区域B", 1), activeByArea);
+
+        // 装载后的索引仍支持逐条维护
+        assertEquals(9, storage.removePredictionsBefore(today.plusDays(15)).size());
+        assertEquals(0, storage.alertCount());
+        assertEquals(0, activeByArea.get("区域B"));
+    }
+
+    @Test
+    void testArchiveRoundTrip() throws Exception {
+        PredictionArchiveStorage archive = new PredictionArchiveStorage();
+        archive.setArchiveDirectory(archiveDir.toString());
+
+        List<PestPrediction> historical = storage.findPredictionsBefore(today.minusDays(30));
+        PestAlert alert = alert("alert-45", "pred-45", today.minusDays(45).atTime(8, 30));
+        archive.archive(today.minusDays(30), historical, Collections.singletonList(alert));
+
+        List<PestPrediction> all = archive.findArchivedPredictions(null, null, null, null);
+        assertEquals(29, all.size());
+
+        List<PestPrediction> ranged = archive.findArchivedPredictions("pest-1", "区域A",
+                today.minusDays(40), today.minusDays(35));
+        assertEquals(6, ranged.size());
+        PestPrediction first = ranged.get(0);
+        assertEquals("pest-1", first.getPestId());
+        assertEquals(0.42, first.getProbability());
+        assertEquals("中风险", first.getRiskLevel());
+
+        List<PestAlert> alerts = archive.findArchivedAlerts("pred-45");
+        assertEquals(1, alerts.size());
+        assertEquals(today.minusDays(45).atTime(8, 30), alerts.get(0).getCreatedTime());
+    }
+
+    @Test
+    void testArchivesForSameCutoffAreNotOverwritten() throws Exception {
+        PredictionArchiveStorage archive = new PredictionArchiveStorage();
+        archive.setArchiveDirectory(archiveDir.toString());
+        LocalDate cutoff = today.minusDays(30);
+
+        // 同一截止日期的归档同时开始，多数落在同一毫秒内
+        int threads = 16;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                PestPrediction prediction = prediction("archived-" + i, cutoff.minusDays(1));
+                PestAlert alert = alert("alert-" + i, prediction.getId(), null);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    archive.archive(cutoff, List.of(prediction), List.of(alert));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads, archive.findArchivedPredictions(null, null, null, null).size());
+        for (int i = 0; i < threads; i++) {
+            assertEquals(1, archive.findArchivedAlerts("archived-" + i).size());
+        }
+    }
+
+    private PestPrediction prediction(String id, LocalDate date) {
+        PestPrediction prediction = new PestPrediction();
+        prediction.setId(id);
+        prediction.setPestId("pest-1");
+        prediction.setTargetArea("区域A");
+        prediction.setPredictionDate(date);
+        prediction.setRiskLevel("中风险");
+        prediction.setProbability(0.42);
+        return prediction;
+    }
+
+    private PestAlert alert(String id, String predictionId, LocalDateTime createdTime) {
+        PestAlert alert = new PestAlert();
+        alert.setId(id);
+        alert.setPredictionId(predictionId);
+        alert.setAlertLevel("中");
+        alert.setCreatedTime(createdTime);
+        return alert;
+    }
+}
@@ -0,0 +1,207 @@
+package com.forestpest.data.storage;
+
+import com.forestpest.entity.TreatmentPlan;
+import com.forestpest.entity.TreatmentTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TreatmentStorage人员与状态索引测试
+ */
+class TreatmentStorageTest {
+
+    private TreatmentStorage storage;
+    private final LocalDateTime base = LocalDateTime.of(2024, 6, 1, 8, 0);
+
+    @BeforeEach
+    void setUp() {
+        storage = new TreatmentStorage();
+        storage.savePlan(plan("plan-1", "pest-1", "admin"));
+        storage.savePlan(plan("plan-2", "pest-2", "admin"));
+        for (int i = 0; i < 10; i++) {
+            storage.saveTask(task("task-" + i, i % 2 == 0 ? "plan-1" : "plan-2", i < 6 ? "worker" : "other", i));
+        }
+    }
+
+    @Test
+    void testAssignedTasksAreNewestFirstAndPaged() {
+        assertEquals(List.of("task-5", "task-4", "task-3", "task-2", "task-1", "task-0"),
+                ids(storage.findTasksByAssignedTo("worker")));
+        assertEquals(List.of("task-3", "task-2"), ids(storage.findTasksByAssignedTo("worker", 1, 2)));
+        assertTrue(storage.findTasksByAssignedTo("worker", 3, 2).isEmpty());
+        assertEquals(10, storage.findTasksByCreatedBy("admin").size());
+        assertEquals(List.of("plan-2", "plan-1"), storage.findPlansByCreatedBy("admin").stream()
+                .map(TreatmentPlan::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testResaveMovesTaskBetweenIndexes() {
+        TreatmentTask task = storage.findTaskById("task-4").get();
+        task.setAssignedTo("other");
+        task.setStatus("COMPLETED");
+        storage.saveTask(task);
+
+        assertEquals(5, storage.findTasksByAssignedTo("worker").size());
+        assertEquals("task-4", storage.findTasksByAssignedTo("other").get(4).getId());
+        assertEquals(List.of("task-4"), ids(storage.findTasksByStatus("COMPLETED")));
+        assertEquals(9, storage.findTasksByStatus("PENDING").size());
+        // 重新保存不会在方案任务索引中重复登记
+        assertEquals(5, storage.findTasksByPlanId("plan-1").size());
+    }
+
+    @Test
+    void testDeletePlanRemovesTasksFromIndexes() {
+        storage.deletePlanById("plan-1");
+
+        assertEquals(List.of("task-5", "task-3", "task-1"), ids(storage.findTasksByAssignedTo("worker")));
+        assertEquals(5, storage.findTasksByStatus("PENDING").size());
+        assertEquals(1, storage.findPlansByCreatedBy("admin").size());
+        assertTrue(storage.findPlansByPestId("pest-1").isEmpty());
+    }
+
+    @Test
+    void testBulkLoadMatchesIncrementalSaves() {
+        List<TreatmentTask> tasks = new ArrayList<>(storage.findAllTasks());
+        TreatmentStorage loaded = new TreatmentStorage();
+        loaded.bulkLoadPlans(storage.findAllPlans());
+        loaded.bulkLoadTasks(tasks);
+
+        assertEquals(ids(storage.findTasksByAssignedTo("worker")), ids(loaded.findTasksByAssignedTo("worker")));
+        assertEquals(ids(storage.findTasksByStatus("PENDING")), ids(loaded.findTasksByStatus("PENDING")));
+        assertEquals(1, loaded.planCreatorCount());
+
+        TreatmentTask task = loaded.findTaskById("task-0").get();
+        task.setAssignedTo("other");
+        loaded.saveTask(task);
+        assertEquals(5, loaded.findTasksByAssignedTo("worker").size());
+    }
+
+    @Test
+    void testProgressCountersFollowTaskWrites() {
+        for (int i = 0; i < 5; i += 2) {
+            TreatmentTask task = storage.findTaskById("task-" + i).get();
+            task.setStatus("COMPLETED");
+            task.setActualCost(100.0);
+            storage.saveTask(task);
+        }
+        TaskProgress plan = storage.getPlanProgress("plan-1");
+        assertEquals(5, plan.getTotalTasks());
+        assertEquals(3, plan.getCompletedTasks());
+        assertEquals(2, plan.getCount(TaskProgress.Status.PENDING));
+        assertEquals(300.0, plan.getActualCost(), 1e-9);
+        assertEquals(Map.of("COMPLETED", 3L, "PENDING", 7L), storage.getSystemProgress().getStatusCounts());
+
+        // 中文状态归并到同一项，方案全部完成后计入用户的完成方案数
+        for (int i = 6; i < 10; i += 2) {
+            TreatmentTask task = storage.findTaskById("task-" + i).get();
+            task.setStatus("已完成");
+            storage.saveTask(task);
+        }
+        TaskProgress user = storage.getUserProgress("admin");
+        assertEquals(2, user.getPlans());
+        assertEquals(1, user.getCompletedPlans());
+        assertEquals(50.0, user.getProgressPercentage(), 1e-9);
+        assertEquals(Map.of("COMPLETED", 3L, "已完成", 2L, "PENDING", 5L), storage.getTaskStatusCounts());
+
+        storage.deleteTaskById("task-8");
+        assertEquals(4, storage.getPlanProgress("plan-1").getTotalTasks());
+        assertEquals(1, storage.getUserProgress("admin").getCompletedPlans());
+        storage.deletePlanById("plan-1");
+        assertEquals(TaskProgress.EMPTY, storage.getPlanProgress("plan-1"));
+        assertEquals(1, storage.getUserProgress("admin").getPlans());
+        assertEquals(0, storage.getUserProgress("admin").getCompletedPlans());
+        assertEquals(5, storage.getSystemProgress().getTotalTasks());
+        assertEquals(0.0, storage.getSystemProgress().getActualCost(), 1e-9);
+    }
+
+    @Test
+    void testBulkLoadRebuildsProgressCounters() {
+        TreatmentTask done = storage.findTaskById("task-1").get();
+        done.setStatus("COMPLETED");
+        done.setActualCost(42.5);
+        storage.saveTask(done);
+
+        TreatmentStorage loaded = new TreatmentStorage();
+        loaded.bulkLoadTasks(storage.findAllTasks());
+        assertEquals(0, loaded.getUserProgress("admin").getPlans());
+        loaded.bulkLoadPlans(storage.findAllPlans());
+
+        for (String planId : List.of("plan-1", "plan-2")) {
+            assertEquals(storage.getPlanProgress(planId).getStatusCounts(),
+                    loaded.getPlanProgress(planId).getStatusCounts());
+        }
+        assertEquals(storage.getUserProgress("admin").getTotalTasks(), loaded.getUserProgress("admin").getTotalTasks());
+        assertEquals(2, loaded.getUserProgress("admin").getPlans());
+        assertEquals(42.5, loaded.getSystemProgress().getActualCost(), 1e-9);
+        assertEquals(Map.of("DRAFT", 2L), loaded.getPlanStatusCounts());
+    }
+
+    @Test
+    void testSaveAllTasksMatchesSingleSaves() {
+        TreatmentStorage single = new TreatmentStorage();
+        single.bulkLoadPlans(storage.findAllPlans());
+        single.bulkLoadTasks(storage.findAllTasks());
+
+        List<TreatmentTask> batch = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            TreatmentTask task = storage.findTaskById("task-" + i).get().copy();
+            task.setStatus("COMPLETED");
+            task.setActualCost(10.0);
+            task.setAssignedTo("other");
+            batch.add(task);
+        }
+        for (int i = 10; i < 14; i++) {
+            batch.add(task("task-" + i, "plan-1", "worker", i));
+        }
+        storage.saveAllTasks(batch);
+        batch.forEach(task -> single.saveTask(task.copy()));
+
+        for (String planId : List.of("plan-1", "plan-2")) {
+            assertEquals(single.getPlanProgress(planId).getStatusCounts(),
+                    storage.getPlanProgress(planId).getStatusCounts());
+            assertEquals(single.findTasksByPlanId(planId).size(), storage.findTasksByPlanId(planId).size());
+        }
+        assertEquals(single.getUserProgress("admin").getStatusCounts(),
+                storage.getUserProgress("admin").getStatusCounts());
+        assertEquals(2, storage.getUserProgress("admin").getPlans());
+        assertEquals(single.getTaskStatusCounts(), storage.getTaskStatusCounts());
+        assertEquals(40.0, storage.getSystemProgress().getActualCost(), 1e-9);
+        assertEquals(ids(single.findTasksByAssignedTo("worker")), ids(storage.findTasksByAssignedTo("worker")));
+        assertEquals(ids(single.findTasksByAssignedTo("other")), ids(storage.findTasksByAssignedTo("other")));
+        assertEquals(1L, storage.findTaskById("task-0").get().getVersion());
+        assertEquals(0L, storage.findTaskById("task-10").get().getVersion());
+    }
+
+    private List<String> ids(List<TreatmentTask> tasks) {
+        return tasks.stream().map(TreatmentTask::getId).collect(Collectors.toList());
+    }
+
+    private TreatmentPlan plan(String id, String pestId, String createdBy) {
+        TreatmentPlan plan = new TreatmentPlan();
+        plan.setId(id);
+        plan.setPestId(pestId);
+        plan.setCreatedBy(createdBy);
+        plan.setStatus("DRAFT");
+        plan.setCreatedTime(base.plusSeconds(Integer.parseInt(id.substring(5))));
+        return plan;
+    }
+
+    private TreatmentTask task(String id, String planId, String assignedTo, int minutes) {
+        TreatmentTask task = new TreatmentTask();
+        task.setId(id);
+        task.setPlanId(planId);
+        task.setAssignedTo(assignedTo);
+        task.setCreatedBy("admin");
+        task.setStatus("PENDING");
+        task.setCreatedTime(base.plusMinutes(minutes));
+        return task;
+    }
+}
@@ -0,0 +1,194 @@
+package com.forestpest.service;
+
+import com.forestpest.entity.PestAlert;
+import com.forestpest.service.prediction.AlertSuppressionIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AlertSuppressionIndex单元测试
+ */
+class AlertSuppressionIndexTest {
+
+    private final Duration window = Duration.ofHours(4);
+    private final LocalDateTime start = LocalDateTime.of(2024, 7, 15, 8, 0);
+
+    private AlertSuppressionIndex index;
+    private Map<String, PestAlert> alerts;
+    private AtomicInteger sequence;
+
+    @BeforeEach
+    void setUp() {
+        index = new AlertSuppressionIndex();
+        alerts = new HashMap<>();
+        sequence = new AtomicInteger();
+    }
+
+    @Test
+    void testRepeatsWithinWindowAreMerged() {
+        PestAlert first = admit("pred-1", start);
+        PestAlert second = admit("pred-2", start.plusHours(1));
+        PestAlert third = admit("pred-3", start.plusHours(3));
+
+        assertSame(first, second);
+        assertSame(first, third);
+        assertEquals(1, alerts.size());
+        assertEquals(3, first.getOccurrenceCount());
+        assertEquals("pred-3", first.getLastPredictionId());
+    }
+
+    @Test
+    void testSamePredictionIsNotCountedTwice() {
+        PestAlert first = admit("pred-1", start);
+        admit("pred-1", start.plusMinutes(10));
+
+        assertEquals(1, first.getOccurrenceCount());
+    }
+
+    @Test
+    void testNewAlertAfterWindowExpires() {
+        PestAlert first = admit("pred-1", start);
+        PestAlert later = admit("pred-2", start.plus(window));
+
+        assertNotSame(first, later);
+        assertEquals(2, alerts.size());
+    }
+
+    @Test
+    void testNewAlertWhenExistingIsHandled() {
+        PestAlert first = admit("pred-1", start);
+        first.setStatus("HANDLED");
+
+        PestAlert next = admit("pred-2", start.plusMinutes(5));
+
+        assertNotSame(first, next);
+    }
+
+    @Test
+    void testConcurrentTriggersCreateOneAlertOutsideIndexUpdate() throws Exception {
+        Map<String, PestAlert> created = new ConcurrentHashMap<>();
+        AtomicInteger merges = new AtomicInteger();
+        int threads = 8;
+        CountDownLatch ready = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<PestAlert>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String predictionId = "pred-" + t;
+            results.add(executor.submit(() -> {
+                ready.countDown();
+                ready.await();
+                return index.admit("pest-1", "区域A", "高级", predictionId, start, window, 5,
+                    repeat -> {
+                        // 回调中再次访问同一个键，在索引更新内执行时会死锁或抛出异常
+                        assertEquals(1, index.size());
+                        merges.incrementAndGet();
+                        return created.get(repeat.getAlertId());
+                    },
+                    () -> {
+                        assertEquals(1, index.size());
+                        PestAlert alert = new PestAlert();
+                        alert.setId("alert-" + sequence.incrementAndGet());
+                        created.put(alert.getId(), alert);
+                        return alert;
+                    });
+            }));
+        }
+        for (Future<PestAlert> result : results) {
+            PestAlert alert = result.get(5, TimeUnit.SECONDS);
+            assertSame(created.get("alert-1"), alert);
+        }
+        executor.shutdown();
+
+        assertEquals(1, created.size());
+        assertEquals(threads - 1, merges.get());
+    }
+
+    @Test
+    void testConcurrentRepeatsAreCountedAndEscalatedOnce() throws Exception {
+        PestAlert first = admit("pred-0", start);
+        AtomicInteger escalations = new AtomicInteger();
+        AtomicInteger merging = new AtomicInteger();
+        int repeats = 32;
+        CountDownLatch ready = new CountDownLatch(repeats);
+        ExecutorService executor = Executors.newFixedThreadPool(repeats);
+        List<Future<PestAlert>> results = new ArrayList<>();
+        for (int t = 1; t <= repeats; t++) {
+            String predictionId = "pred-" + t;
+            results.add(executor.submit(() -> {
+                ready.countDown();
+                ready.await();
+                return index.admit("pest-1", "区域A", "高级", predictionId, start.plusMinutes(1), window, 5,
+                    repeat -> {
+                        // 先读后写，合并未串行时会丢失计数
+                        assertEquals(1, merging.incrementAndGet());
+                        PestAlert existing = alerts.get(repeat.getAlertId());
+                        int before = existing.getOccurrenceCount();
+                        Thread.yield();
+                        assertEquals(before + 1, repeat.getOccurrences());
+                        existing.setOccurrenceCount(repeat.getOccurrences());
+                        if (repeat.isEscalate()) {
+                            escalations.incrementAndGet();
+                        }
+                        merging.decrementAndGet();
+                        return existing;
+                    },
+                    () -> fail("窗口内不应新建预警"));
+            }));
+        }
+        for (Future<PestAlert> result : results) {
+            assertSame(first, result.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(repeats + 1, first.getOccurrenceCount());
+        assertEquals(1, escalations.get());
+    }
+
+    @Test
+    void testPurgeExpired() {
+        admit("pred-1", start);
+        assertEquals(1, index.size());
+
+        assertEquals(1, index.purgeExpired(start.plusHours(5)));
+        assertEquals(0, index.size());
+    }
+
+    private PestAlert admit(String predictionId, LocalDateTime now) {
+        return index.admit("pest-1", "区域A", "高级", predictionId, now, window, 5,
+            repeat -> {
+                PestAlert existing = alerts.get(repeat.getAlertId());
+                if (existing == null || "HANDLED".equals(existing.getStatus())) {
+                    return null;
+                }
+                if (repeat.isCounted()) {
+                    existing.setOccurrenceCount(repeat.getOccurrences());
+                    existing.setLastPredictionId(predictionId);
+                }
+                return existing;
+            },
+            () -> {
+                PestAlert alert = new PestAlert();
+                alert.setId("alert-" + sequence.incrementAndGet());
+                alert.setPredictionId(predictionId);
+                alert.setStatus("ACTIVE");
+                alerts.put(alert.getId(), alert);
+                return alert;
+            });
+    }
+}
@@ -0,0 +1,210 @@
+package com.forestpest.service;
+
+import com.forestpest.entity.IdentificationResult;
+import com.forestpest.service.identification.BatchIdentificationJob;
+import com.forestpest.service.identification.BatchIdentificationPipeline;
+import com.forestpest.service.identification.BatchImage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量图片识别流水线测试
+ */
+class BatchIdentificationPipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BatchIdentificationPipeline pipeline;
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    void testPipelineProcessesAllImagesAndIsolatesFailures() throws Exception {
+        pipeline = new BatchIdentificationPipeline((image, userId) -> result(image, userId), 4, 4);
+
+        List<BatchImage> images = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            images.add(image(i, "frame-" + i + ".png", "image/png", png(64 + i, 48)));
+        }
+        images.add(image(40, "broken.png", "image/png", new byte[]{1, 2, 3}));
+        images.add(new BatchImage(41, "notes.txt", "text/plain", 1, null, null));
+
+        BatchIdentificationJob job = new BatchIdentificationJob("job-1", "user-1", images);
+        pipeline.submit(job);
+        awaitFinished(job);
+
+        Map<String, Object> summary = job.toSummary();
+        assertEquals(BatchIdentificationJob.STATUS_COMPLETED, summary.get("status"));
+        assertEquals(40, summary.get("succeeded"));
+        assertEquals(2, summary.get("failed"));
+
+        BatchImage first = job.getImage(0);
+        assertEquals(BatchImage.STATUS_SUCCEEDED, first.getStatus());
+        assertEquals(64, first.getWidth());
+        assertNotNull(first.getThumbnail());
+        assertNull(first.getSource());
+        assertEquals(BatchImage.STATUS_FAILED, job.getImage(40).getStatus());
+        // 处理结束后临时文件已删除
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+
+        // 游标分页覆盖全部结果且不重复
+        List<Map<String, Object>> page1 = job.getResultsSince(0, 30);
+        List<Map<String, Object>> page2 = job.getResultsSince(30, 30);
+        assertEquals(30, page1.size());
+        assertEquals(12, page2.size());
+    }
+
+    @Test
+    void testBackPressureBoundsInFlightImages() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        pipeline = new BatchIdentificationPipeline((image, userId) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return result(image, userId);
+        }, 2, 2);
+
+        byte[] data = png(32, 32);
+        List<BatchImage> images = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            images.add(image(i, "frame-" + i + ".png", "image/png", data));
+        }
+        BatchIdentificationJob job = new BatchIdentificationJob("job-2", "user-1", images);
+        pipeline.submit(job);
+
+        // 识别阶段阻塞时，已解码但未完成的图片数量受各阶段容量限制
+        Thread.sleep(300);
+        assertTrue(job.getCompletedCount() == 0);
+        long started = job.getImages().stream().filter(image -> image.getSource() == null || image.getThumbnail() != null).count();
+        assertTrue(started < 40, "流水线应在下游阻塞时停止读取新图片: " + started);
+        assertTrue(maxInFlight.get() <= 2);
+
+        release.countDown();
+        awaitFinished(job);
+        assertEquals(200, job.toSummary().get("succeeded"));
+    }
+
+    @Test
+    void testCancelSkipsRemainingImages() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline = new BatchIdentificationPipeline((image, userId) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result(image, userId);
+        }, 1, 1);
+
+        byte[] data = png(16, 16);
+        List<BatchImage> images = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            images.add(image(i, "frame-" + i + ".png", "image/png", data));
+        }
+        BatchIdentificationJob job = new BatchIdentificationJob("job-3", "user-1", images);
+        pipeline.submit(job);
+        Thread.sleep(100);
+        job.requestCancel();
+        release.countDown();
+        awaitFinished(job);
+
+        Map<String, Object> summary = job.toSummary();
+        assertEquals(BatchIdentificationJob.STATUS_CANCELLED, summary.get("status"));
+        assertTrue((Integer) summary.get("cancelled") > 40);
+    }
+
+    @Test
+    void testProgressListenerRunsWhenResultArrives() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline = new BatchIdentificationPipeline((image, userId) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result(image, userId);
+        }, 1, 1);
+
+        BatchIdentificationJob job = new BatchIdentificationJob("job-4", "user-1",
+                List.of(image(0, "frame-0.png", "image/png", png(16, 16))));
+        pipeline.submit(job);
+
+        CountDownLatch notified = new CountDownLatch(1);
+        Runnable removed = () -> fail("已移除的回调不应执行");
+        job.onProgress(0, removed);
+        job.removeProgressListener(removed);
+        job.onProgress(0, notified::countDown);
+        assertEquals(1, notified.getCount());
+
+        release.countDown();
+        assertTrue(notified.await(5, TimeUnit.SECONDS));
+
+        // 已有新结果时立即执行
+        AtomicInteger immediate = new AtomicInteger();
+        job.onProgress(0, immediate::incrementAndGet);
+        assertEquals(1, immediate.get());
+    }
+
+    private void awaitFinished(BatchIdentificationJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            job.awaitProgress(job.getCompletedCount(), 200, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(job.isFinished(), "批量任务未在超时前完成");
+    }
+
+    private IdentificationResult result(BatchImage image, String userId) {
+        IdentificationResult result = new IdentificationResult();
+        result.setId("result-" + image.getIndex());
+        result.setUserId(userId);
+        result.setPestName("松毛虫");
+        result.setConfidence(0.8);
+        return result;
+    }
+
+    private BatchImage image(int index, String fileName, String contentType, byte[] data) throws IOException {
+        Path file = Files.createTempFile(tempDir, "frame", ".tmp");
+        Files.write(file, data);
+        return new BatchImage(index, fileName, contentType, data.length, file, null);
+    }
+
+    private byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0x336633);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,179 @@
+package com.forestpest.service;
+
+import com.forestpest.data.index.GeoPoint;
+import com.forestpest.service.scheduling.CrewScheduler;
+import com.forestpest.service.scheduling.CrewScheduler.Assignment;
+import com.forestpest.service.scheduling.CrewScheduler.Crew;
+import com.forestpest.service.scheduling.CrewScheduler.Job;
+import com.forestpest.service.scheduling.CrewScheduler.Result;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CrewScheduler排程约束与增量插入测试
+ */
+class CrewSchedulerTest {
+
+    private final LocalDateTime origin = LocalDateTime.of(2024, 6, 3, 7, 30);
+    private final GeoPoint east = new GeoPoint(30.0, 120.0);
+    private final GeoPoint west = new GeoPoint(30.0, 119.0);
+
+    @Test
+    void testTasksStayWithinShiftAvailabilityAndNearestCrew() {
+        // 行驶代价高于一天的延误，跨区作业不划算
+        CrewScheduler scheduler = new CrewScheduler(origin, new CrewScheduler.Settings().shift(8, 17).travelWeight(20));
+        scheduler.addCrew(new Crew("east", east, null, origin.plusDays(3)));
+        scheduler.addCrew(new Crew("west", west, origin.plusDays(1), origin.plusDays(3)));
+
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            jobs.add(job("e" + i, near(east, i), origin, 180, 1));
+            jobs.add(job("w" + i, near(west, i), origin, 180, 1));
+        }
+        Result result = scheduler.schedule(jobs);
+
+        assertTrue(result.getUnassigned().isEmpty());
+        assertTrue(result.getFinalCost() <= result.getInitialCost());
+        for (Assignment assignment : result.getAssignments()) {
+            assertEquals(assignment.getTaskId().startsWith("e") ? "east" : "west", assignment.getCrewId());
+            assertFalse(assignment.getStart().toLocalTime().isBefore(LocalTime.of(8, 0)));
+            assertFalse(assignment.getEnd().toLocalTime().isAfter(LocalTime.of(17, 0)));
+        }
+        // 西区班组次日才可用
+        assertTrue(scheduler.route("west").get(0).getStart().isAfter(origin.plusDays(1)));
+        assertNoOverlap(result.getAssignments());
+    }
+
+    @Test
+    void testStockGoesToHigherPriorityAndIsReleasedOnRemove() {
+        CrewScheduler scheduler = new CrewScheduler(origin, new CrewScheduler.Settings());
+        scheduler.addCrew(new Crew("east", east, null, null));
+        scheduler.setStock("p1", 2);
+        Job low = new Job("low", east, origin, 60, 1, Map.of("p1", 2));
+        Job high = new Job("high", east, origin, 60, 8, Map.of("p1", 2));
+
+        Result result = scheduler.schedule(List.of(low, high));
+
+        assertEquals(Map.of("low", CrewScheduler.REASON_STOCK), result.getUnassigned());
+        assertEquals(0, scheduler.getRemainingStock("p1"));
+        assertTrue(scheduler.remove("high"));
+        assertEquals(2, scheduler.getRemainingStock("p1"));
+        assertNotNull(scheduler.insert(low));
+        assertTrue(scheduler.unassignedReasons().isEmpty());
+    }
+
+    @Test
+    void testFixedJobStaysWithItsCrew() {
+        CrewScheduler scheduler = new CrewScheduler(origin, new CrewScheduler.Settings().shift(8, 17).travelWeight(20));
+        scheduler.addCrew(new Crew("east", east, null, null));
+        scheduler.addCrew(new Crew("west", west, null, null));
+        Job fixed = new Job("fixed", near(east, 0), origin, 180, 1, null, "west");
+
+        Result result = scheduler.schedule(List.of(fixed, job("free", near(west, 1), origin, 180, 1)));
+
+        assertEquals("west", scheduler.getAssignment("fixed").getCrewId());
+        assertEquals("west", scheduler.getAssignment("free").getCrewId());
+        assertNoOverlap(result.getAssignments());
+        assertEquals("west", scheduler.insert(fixed).getCrewId());
+    }
+
+    @Test
+    void testTaskLongerThanAvailabilityIsReported() {
+        CrewScheduler scheduler = new CrewScheduler(origin, new CrewScheduler.Settings().shift(8, 12));
+        scheduler.addCrew(new Crew("east", east, null, origin.plusDays(1)));
+
+        assertNull(scheduler.insert(job("long", east, origin, 300, 1)));
+        assertEquals(CrewScheduler.REASON_NO_CREW, scheduler.unassignedReasons().get("long"));
+    }
+
+    @Test
+    void testIncrementalInsertPutsUrgentTaskFirst() {
+        CrewScheduler scheduler = new CrewScheduler(origin, new CrewScheduler.Settings().shift(8, 17));
+        scheduler.addCrew(new Crew("east", east, null, null));
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            jobs.add(job("t" + i, near(east, i), origin, 120, 1));
+        }
+        scheduler.schedule(jobs);
+
+        Assignment urgent = scheduler.insert(job("urgent", near(east, 5), origin, 120, 8));
+
+        assertEquals(0, urgent.getSequence());
+        assertEquals(4, scheduler.route("east").size());
+        assertNoOverlap(scheduler.assignments());
+    }
+
+    @Test
+    void testScheduleTenThousandTasksAcrossFiveHundredCrews() {
+        Random random = new Random(42);
+        CrewScheduler scheduler = new CrewScheduler(origin, new CrewScheduler.Settings().shift(8, 17));
+        for (int i = 0; i < 500; i++) {
+            scheduler.addCrew(new Crew("crew-" + i, randomPoint(random), null, origin.plusDays(30)));
+        }
+        Map<String, Integer> stock = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            stock.put("pesticide-" + i, 400);
+            scheduler.setStock("pesticide-" + i, 400);
+        }
+        List<Job> jobs = new ArrayList<>(10_000);
+        Map<String, Job> byId = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            Job job = new Job("task-" + i, randomPoint(random), origin.plusHours(random.nextInt(24 * 10)),
+                    60 + random.nextInt(4) * 30, 1 << random.nextInt(4),
+                    Map.of("pesticide-" + random.nextInt(20), 1));
+            jobs.add(job);
+            byId.put(job.getTaskId(), job);
+        }
+
+        Result result = assertTimeoutPreemptively(Duration.ofSeconds(60), () -> scheduler.schedule(jobs));
+
+        assertEquals(10_000, result.getAssignments().size() + result.getUnassigned().size());
+        assertTrue(result.getUnassigned().values().stream().allMatch(CrewScheduler.REASON_STOCK::equals));
+        assertTrue(result.getFinalCost() <= result.getInitialCost());
+        assertNoOverlap(result.getAssignments());
+        for (String pesticideId : stock.keySet()) {
+            assertTrue(scheduler.getRemainingStock(pesticideId) >= 0);
+        }
+        for (Assignment assignment : result.getAssignments()) {
+            assertFalse(assignment.getEnd().isAfter(origin.plusDays(30)));
+            assertTrue(assignment.getEnd().toLocalTime().getHour() * 60 + assignment.getEnd().getMinute() <= 17 * 60);
+        }
+    }
+
+    private void assertNoOverlap(List<Assignment> assignments) {
+        Map<String, List<Assignment>> byCrew = assignments.stream()
+                .collect(Collectors.groupingBy(Assignment::getCrewId));
+        for (List<Assignment> route : byCrew.values()) {
+            route.sort(Comparator.comparingInt(Assignment::getSequence));
+            for (int i = 1; i < route.size(); i++) {
+                Assignment previous = route.get(i - 1);
+                Assignment current = route.get(i);
+                assertFalse(current.getStart().isBefore(previous.getEnd().plusMinutes(current.getTravelMinutes())));
+            }
+        }
+    }
+
+    private Job job(String id, GeoPoint location, LocalDateTime earliest, int minutes, int weight) {
+        return new Job(id, location, earliest, minutes, weight, null);
+    }
+
+    private GeoPoint near(GeoPoint point, int offset) {
+        return new GeoPoint(point.getLatitude() + offset * 0.01, point.getLongitude() + offset * 0.01);
+    }
+
+    private GeoPoint randomPoint(Random random) {
+        return new GeoPoint(29.5 + random.nextDouble(), 119.0 + random.nextDouble() * 1.5);
+    }
+}
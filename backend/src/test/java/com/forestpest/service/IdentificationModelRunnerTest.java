@@ -0,0 +1,139 @@
+package com.forestpest.service;
+
+import com.forestpest.service.identification.IdentificationModel;
+import com.forestpest.service.identification.IdentificationModelRunner;
+import com.forestpest.service.identification.LocalIdentificationModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 识别模型运行器测试
+ */
+class IdentificationModelRunnerTest {
+
+    private IdentificationModelRunner runner;
+
+    @AfterEach
+    void tearDown() {
+        if (runner != null) {
+            runner.shutdown();
+        }
+    }
+
+    @Test
+    void testConcurrentRequestsAreMicroBatched() throws Exception {
+        AtomicInteger inferCalls = new AtomicInteger();
+        LocalIdentificationModel local = new LocalIdentificationModel();
+        IdentificationModel model = new IdentificationModel() {
+            @Override
+            public String getName() {
+                return "counting";
+            }
+
+            @Override
+            public float[] preprocess(BufferedImage image) {
+                return local.preprocess(image);
+            }
+
+            @Override
+            public float[][] infer(List<float[]> inputs, List<String> classIds) {
+                inferCalls.incrementAndGet();
+                sleep(20);
+                return local.infer(inputs, classIds);
+            }
+        };
+        runner = new IdentificationModelRunner(model, 1, 16, 5000);
+        runner.updateCatalogue(List.of("pest-1", "pest-2", "pest-3", "pest-4"));
+
+        ExecutorService callers = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<List<IdentificationModelRunner.Candidate>>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                BufferedImage image = image(i);
+                futures.add(callers.submit(() -> runner.identify(image, 3)));
+            }
+            for (Future<List<IdentificationModelRunner.Candidate>> future : futures) {
+                List<IdentificationModelRunner.Candidate> candidates = future.get();
+                assertEquals(3, candidates.size());
+                assertTrue(candidates.get(0).getProbability() >= candidates.get(1).getProbability());
+                assertTrue(candidates.get(0).getProbability() <= 1.0);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        // 单个推理线程处理64个请求，合并后的调用次数明显少于请求数
+        assertTrue(inferCalls.get() < 32, "推理调用次数: " + inferCalls.get());
+        Map<String, Object> statistics = runner.getStatistics();
+        assertTrue((Double) statistics.get("averageBatchSize") > 2.0);
+        assertEquals(64L, ((Map<?, ?>) statistics.get("preprocess")).get("count"));
+        assertEquals(64L, ((Map<?, ?>) statistics.get("queue")).get("count"));
+    }
+
+    @Test
+    void testLocalModelIsDeterministic() {
+        runner = new IdentificationModelRunner(new LocalIdentificationModel(), 2, 8, 0);
+        runner.updateCatalogue(List.of("pest-1", "pest-2", "pest-3"));
+        runner.warmUp();
+
+        BufferedImage image = image(3);
+        String first = runner.identify(image, 1).get(0).getClassId();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(first, runner.identify(image, 1).get(0).getClassId());
+        }
+    }
+
+    @Test
+    void testInferenceFailureIsReportedToCaller() {
+        IdentificationModel failing = new IdentificationModel() {
+            @Override
+            public String getName() {
+                return "failing";
+            }
+
+            @Override
+            public float[] preprocess(BufferedImage image) {
+                return new float[1];
+            }
+
+            @Override
+            public float[][] infer(List<float[]> inputs, List<String> classIds) {
+                throw new IllegalArgumentException("权重缺失");
+            }
+        };
+        runner = new IdentificationModelRunner(failing, 1, 4, 0);
+        runner.updateCatalogue(List.of("pest-1"));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> runner.identify(image(1), 1));
+        assertTrue(error.getMessage().contains("权重缺失"));
+    }
+
+    private BufferedImage image(int seed) {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 48; y++) {
+            for (int x = 0; x < 64; x++) {
+                image.setRGB(x, y, ((x * seed) & 0xFF) << 16 | ((y * 3 + seed) & 0xFF) << 8 | (seed * 40 & 0xFF));
+            }
+        }
+        return image;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
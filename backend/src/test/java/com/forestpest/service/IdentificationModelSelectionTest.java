@@ -0,0 +1,92 @@
+package com.forestpest.service;
+
+import com.forestpest.data.storage.DataStorage;
+import com.forestpest.entity.IdentificationResult;
+import com.forestpest.entity.Pest;
+import com.forestpest.repository.PestRepository;
+import com.forestpest.service.identification.LocalIdentificationModel;
+import com.forestpest.service.impl.PestIdentificationServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 识别模型选用测试
+ */
+class IdentificationModelSelectionTest {
+
+    private PestRepository pestRepository;
+    private PestIdentificationServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        Pest pest = new Pest();
+        pest.setId("pest-001");
+        pest.setName("松毛虫");
+        pestRepository = mock(PestRepository.class);
+        when(pestRepository.findAll()).thenReturn(List.of(pest));
+        DataStorage dataStorage = mock(DataStorage.class);
+        AtomicInteger ids = new AtomicInteger();
+        when(dataStorage.generateId()).thenAnswer(invocation -> "result-" + ids.incrementAndGet());
+
+        service = new PestIdentificationServiceImpl();
+        ReflectionTestUtils.setField(service, "pestRepository", pestRepository);
+        ReflectionTestUtils.setField(service, "dataStorage", dataStorage);
+        ReflectionTestUtils.setField(service, "identificationModels", List.of(new LocalIdentificationModel()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void testSimulationIsDefault() throws IOException {
+        IdentificationResult result = service.identifyByImage(image("a.png", 1), "user-1");
+
+        assertEquals("pest-001", result.getPestId());
+        assertEquals("simulation", service.getModelStatistics().get("model"));
+    }
+
+    @Test
+    void testLocalModelReloadsCatalogueOnlyWhenVersionChanges() throws IOException {
+        service.setModelName(LocalIdentificationModel.NAME);
+        when(pestRepository.getCatalogueVersion()).thenReturn(1L, 1L, 2L);
+
+        service.identifyByImage(image("a.png", 1), "user-1");
+        service.identifyByImage(image("b.png", 2), "user-1");
+        verify(pestRepository, times(1)).findAll();
+
+        IdentificationResult result = service.identifyByImage(image("c.png", 3), "user-1");
+        verify(pestRepository, times(2)).findAll();
+        assertEquals("松毛虫", result.getPestName());
+        assertEquals(LocalIdentificationModel.NAME, service.getModelStatistics().get("model"));
+    }
+
+    private MockMultipartFile image(String fileName, long seed) throws IOException {
+        // 随机噪声图片，不同种子的感知哈希相差较大，不会被当作近似重复
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return new MockMultipartFile("image", fileName, "image/png", out.toByteArray());
+    }
+}
@@ -0,0 +1,103 @@
+package com.forestpest.service;
+
+import com.forestpest.data.storage.DataStorage;
+import com.forestpest.entity.IdentificationResult;
+import com.forestpest.entity.Pest;
+import com.forestpest.repository.PestRepository;
+import com.forestpest.service.impl.PestIdentificationServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 识别评分缓存测试
+ */
+@ExtendWith(MockitoExtension.class)
+class IdentificationRankingCacheTest {
+
+    @Mock
+    private PestRepository pestRepository;
+
+    @Mock
+    private DataStorage dataStorage;
+
+    @InjectMocks
+    private PestIdentificationServiceImpl pestIdentificationService;
+
+    private Pest pineCaterpillar;
+
+    @BeforeEach
+    void setUp() {
+        pineCaterpillar = new Pest();
+        pineCaterpillar.setId("pest-001");
+        pineCaterpillar.setName("松毛虫");
+        pineCaterpillar.setSymptoms(Arrays.asList("叶片被啃食", "有虫粪", "叶片枯萎"));
+        pineCaterpillar.setHostPlants(Arrays.asList("松树", "云杉"));
+
+        AtomicInteger ids = new AtomicInteger();
+        when(dataStorage.generateId()).thenAnswer(invocation -> "result-" + ids.incrementAndGet());
+        when(pestRepository.findAll()).thenReturn(List.of(pineCaterpillar));
+    }
+
+    @Test
+    void testRepeatedSymptomQueryIsServedFromCache() {
+        when(pestRepository.getCatalogueVersion()).thenReturn(1L);
+
+        List<IdentificationResult> first = pestIdentificationService.identifyBySymptoms(
+                Arrays.asList("有虫粪", "叶片被啃食"), "user-1");
+        // 症状顺序不同但内容相同，命中同一缓存条目
+        List<IdentificationResult> second = pestIdentificationService.identifyBySymptoms(
+                Arrays.asList("叶片被啃食", "有虫粪"), "user-2");
+
+        verify(pestRepository, times(1)).findAll();
+        assertEquals(1, first.size());
+        assertEquals(1, second.size());
+        assertEquals(first.get(0).getPestId(), second.get(0).getPestId());
+        assertEquals(first.get(0).getConfidence(), second.get(0).getConfidence());
+        assertNotEquals(first.get(0).getId(), second.get(0).getId());
+        assertEquals("user-2", second.get(0).getUserId());
+        assertEquals(2, pestIdentificationService.getIdentificationHistory("user-1").size()
+                + pestIdentificationService.getIdentificationHistory("user-2").size());
+
+        Map<?, ?> cache = (Map<?, ?>) pestIdentificationService.getSystemIdentificationStatistics().get("rankingCache");
+        assertEquals(1L, cache.get("hits"));
+    }
+
+    @Test
+    void testCatalogueChangeInvalidatesCache() {
+        when(pestRepository.getCatalogueVersion()).thenReturn(1L, 1L, 2L);
+
+        pestIdentificationService.identifyByMultipleConditions(
+                List.of("叶片枯萎"), "松树", null, " ", "user-1");
+        pestIdentificationService.identifyByMultipleConditions(
+                List.of("叶片枯萎"), "松树", "", null, "user-1");
+        verify(pestRepository, times(1)).findAll();
+
+        // 目录版本变化后重新评分
+        pestIdentificationService.identifyByMultipleConditions(
+                List.of("叶片枯萎"), "松树", "", null, "user-1");
+        verify(pestRepository, times(2)).findAll();
+    }
+
+    @Test
+    void testDifferentConditionsAreCachedSeparately() {
+        when(pestRepository.getCatalogueVersion()).thenReturn(1L);
+
+        pestIdentificationService.identifyByMultipleConditions(List.of("叶片枯萎"), "松树", null, null, "user-1");
+        pestIdentificationService.identifyByMultipleConditions(List.of("叶片枯萎"), "云杉", null, null, "user-1");
+        pestIdentificationService.identifyBySymptoms(List.of("叶片枯萎"), "user-1");
+
+        verify(pestRepository, times(3)).findAll();
+    }
+}
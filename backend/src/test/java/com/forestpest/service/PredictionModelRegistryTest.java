@@ -0,0 +1,113 @@
+package com.forestpest.service;
+
+import com.forestpest.service.prediction.LogisticRegressionModel;
+import com.forestpest.service.prediction.PredictionFeatureExtractor;
+import com.forestpest.service.prediction.PredictionModelRegistry;
+import com.forestpest.service.prediction.TrainingSample;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PredictionModelRegistry单元测试
+ */
+class PredictionModelRegistryTest {
+
+    @TempDir
+    Path artifactDir;
+
+    private PredictionModelRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new PredictionModelRegistry();
+        registry.register("weather-model", "天气预测模型", "气象关联", 0.82);
+        registry.setArtifactDirectory(artifactDir);
+    }
+
+    @Test
+    void testTrainAndDeploy() throws Exception {
+        LogisticRegressionModel model = registry.trainAsync("weather-model", () -> samples(200), true)
+                .get(10, TimeUnit.SECONDS);
+
+        assertNotNull(model);
+        assertEquals(1, model.getVersion());
+        assertTrue(Files.exists(artifactDir.resolve("weather-model").resolve("v1.bin")));
+        assertSame(model, registry.getServingModel("weather-model").orElse(null));
+
+        // 高湿度样本的发生概率应高于低湿度样本
+        double high = model.predict(features(95.0));
+        double low = model.predict(features(20.0));
+        assertTrue(high > low);
+
+        Map<String, Object> details = registry.describe("weather-model");
+        assertEquals("TRAINED", details.get("trainingStatus"));
+        assertEquals(1, details.get("servingVersion"));
+    }
+
+    @Test
+    void testInsufficientSamples() throws Exception {
+        LogisticRegressionModel model = registry.trainAsync("weather-model", () -> samples(3), true)
+                .get(10, TimeUnit.SECONDS);
+
+        assertNull(model);
+        assertFalse(registry.getServingModel("weather-model").isPresent());
+        assertEquals("INSUFFICIENT_DATA", registry.describe("weather-model").get("trainingStatus"));
+    }
+
+    @Test
+    void testRollbackAndRestore() throws Exception {
+        registry.trainAsync("weather-model", () -> samples(100), true).get(10, TimeUnit.SECONDS);
+        registry.trainAsync("weather-model", () -> samples(150), true).get(10, TimeUnit.SECONDS);
+        assertEquals(2, registry.getServingModel("weather-model").get().getVersion());
+
+        assertTrue(registry.rollback("weather-model"));
+        assertEquals(1, registry.getServingModel("weather-model").get().getVersion());
+
+        // 重新加载时恢复已部署的版本
+        PredictionModelRegistry reloaded = new PredictionModelRegistry();
+        reloaded.register("weather-model", "天气预测模型", "气象关联", 0.82);
+        reloaded.setArtifactDirectory(artifactDir);
+        LogisticRegressionModel restored = reloaded.getServingModel("weather-model").orElse(null);
+        assertNotNull(restored);
+        assertEquals(1, restored.getVersion());
+        assertEquals(100, restored.getSampleCount());
+    }
+
+    @Test
+    void testTrainUnknownModel() {
+        assertTrue(registry.trainAsync("unknown-model", () -> samples(100), false).isCompletedExceptionally());
+    }
+
+    private List<TrainingSample> samples(int count) {
+        Random random = new Random(42);
+        List<TrainingSample> samples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double humidity = 20 + random.nextDouble() * 80;
+            samples.add(new TrainingSample(features(humidity), humidity > 60));
+        }
+        return samples;
+    }
+
+    private double[] features(double humidity) {
+        double[] features = new double[PredictionFeatureExtractor.FEATURE_NAMES.length];
+        features[0] = 25.0;
+        features[1] = humidity;
+        features[2] = 10.0;
+        features[3] = 3.0;
+        features[4] = 0.5;
+        features[5] = 0.5;
+        features[6] = 0.5;
+        return features;
+    }
+}
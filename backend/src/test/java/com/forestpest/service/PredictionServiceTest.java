@@ -1,9 +1,14 @@
 package com.forestpest.service;
 
+import com.forestpest.data.storage.DataStorage;
+import com.forestpest.entity.ForestResource;
 import com.forestpest.entity.PestPrediction;
 import com.forestpest.entity.PestAlert;
 import com.forestpest.repository.PredictionRepository;
+import com.forestpest.repository.impl.ForestResourceRepositoryImpl;
+import com.forestpest.repository.impl.PredictionRepositoryImpl;
 import com.forestpest.service.impl.PredictionServiceImpl;
+import com.forestpest.service.prediction.StreamingModelMetrics;
 import com.forestpest.exception.ForestPestSystemException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +16,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -543,6 +549,33 @@ class PredictionServiceTest {
         assertTrue(result.containsKey("accuracyLevel"));
     }
     
+    @Test
+    void testReportedOutcomesKeepOnlyLatestSamples() {
+        predictionService.setMaxReportedOutcomes(2);
+        when(predictionRepository.findPredictionById(anyString())).thenReturn(Optional.of(testPrediction));
+        
+        for (String id : Arrays.asList("pred-1", "pred-2", "pred-3")) {
+            predictionService.evaluatePredictionAccuracy(id, Map.of("occurred", true));
+        }
+        
+        Map<?, ?> outcomes = (Map<?, ?>) ReflectionTestUtils.getField(predictionService, "reportedOutcomes");
+        assertEquals(Set.of("pred-2", "pred-3"), outcomes.keySet());
+    }
+    
+    @Test
+    void testEvictedOutcomeIsNotScoredAgain() {
+        predictionService.setMaxReportedOutcomes(1);
+        when(predictionRepository.findPredictionById(anyString())).thenReturn(Optional.of(testPrediction));
+        
+        // pred-1的训练样本被pred-2挤出后再次上报，评估指标不重复计数
+        for (String id : Arrays.asList("pred-1", "pred-2", "pred-1")) {
+            predictionService.evaluatePredictionAccuracy(id, Map.of("occurred", true));
+        }
+        
+        StreamingModelMetrics overall = (StreamingModelMetrics) ReflectionTestUtils.getField(predictionService, "overallMetrics");
+        assertEquals(2L, overall.getCount());
+    }
+    
     @Test
     void testEvaluatePredictionAccuracy_PredictionNotFound() {
         // Given
@@ -1009,7 +1042,7 @@ class PredictionServiceTest {
     void testExportPredictionData_JSON() {
         // Given
         List<PestPrediction> predictions = Arrays.asList(testPrediction);
-        when(predictionRepository.findAllPredictions()).thenReturn(predictions);
+        when(predictionRepository.iterateAllPredictions()).thenReturn(predictions);
         
         // When
         String result = predictionService.exportPredictionData("json", new HashMap<>());
@@ -1023,7 +1056,7 @@ class PredictionServiceTest {
     void testExportPredictionData_CSV() {
         // Given
         List<PestPrediction> predictions = Arrays.asList(testPrediction);
-        when(predictionRepository.findAllPredictions()).thenReturn(predictions);
+        when(predictionRepository.iterateAllPredictions()).thenReturn(predictions);
         
         // When
         String result = predictionService.exportPredictionData("csv", new HashMap<>());
@@ -1045,7 +1078,7 @@ class PredictionServiceTest {
     void testExportAlertData_JSON() {
         // Given
         List<PestAlert> alerts = Arrays.asList(testAlert);
-        when(predictionRepository.findAllAlerts()).thenReturn(alerts);
+        when(predictionRepository.iterateAllAlerts()).thenReturn(alerts);
         
         // When
         String result = predictionService.exportAlertData("json", new HashMap<>());
@@ -1198,4 +1231,60 @@ class PredictionServiceTest {
         // Then
         assertTrue(result);
     }
+    
+    // ========== 空间查询测试 ==========
+    
+    @Test
+    void testSubtreeAlertsMatchActiveAlertRollup() {
+        // Given: 使用真实存储，层级汇总和子树查询按同一规则匹配目标区域
+        DataStorage dataStorage = new DataStorage();
+        ForestResourceRepositoryImpl forestResourceRepository = new ForestResourceRepositoryImpl();
+        ReflectionTestUtils.setField(forestResourceRepository, "dataStorage", dataStorage);
+        PredictionRepositoryImpl repository = new PredictionRepositoryImpl();
+        ReflectionTestUtils.setField(repository, "dataStorage", dataStorage);
+        PredictionServiceImpl service = new PredictionServiceImpl();
+        ReflectionTestUtils.setField(service, "predictionRepository", repository);
+        ReflectionTestUtils.setField(service, "forestResourceRepository", forestResourceRepository);
+        
+        dataStorage.getForestResourceStorage().save(area("farm", null, "一号林场", "LC01"));
+        dataStorage.getForestResourceStorage().save(area("plot-1", "farm", "一号小班", "XB01"));
+        dataStorage.getForestResourceStorage().save(area("plot-2", "farm", "二号小班", null));
+        dataStorage.getForestResourceStorage().save(area("other", null, "二号林场", "LC02"));
+        saveAlert(dataStorage, "alert-id", "plot-1", "ACTIVE");
+        saveAlert(dataStorage, "alert-code", "XB01", "ACTIVE");
+        saveAlert(dataStorage, "alert-farm", "LC01", "ACTIVE");
+        saveAlert(dataStorage, "alert-name", "一号小班", "ACTIVE");
+        saveAlert(dataStorage, "alert-handled", "plot-2", "HANDLED");
+        saveAlert(dataStorage, "alert-other", "LC02", "ACTIVE");
+        
+        // When
+        List<PestAlert> alerts = service.getAlertsInArea("farm");
+        
+        // Then
+        long active = alerts.stream().filter(alert -> "ACTIVE".equals(alert.getStatus())).count();
+        int rollup = forestResourceRepository.findSubtreeAggregate("farm").orElseThrow().getActiveAlertCount();
+        assertEquals(3, active);
+        assertEquals(active, rollup);
+        assertTrue(alerts.stream().noneMatch(alert -> "alert-name".equals(alert.getId())));
+        assertTrue(alerts.stream().anyMatch(alert -> "alert-handled".equals(alert.getId())));
+    }
+    
+    private ForestResource area(String id, String parentId, String name, String code) {
+        ForestResource resource = new ForestResource();
+        resource.setId(id);
+        resource.setAreaName(name);
+        resource.setAreaCode(code);
+        resource.setAreaType(parentId == null ? "林场" : "小班");
+        resource.setParentAreaId(parentId);
+        resource.setArea(100.0);
+        return resource;
+    }
+    
+    private void saveAlert(DataStorage dataStorage, String id, String targetArea, String status) {
+        PestAlert alert = new PestAlert();
+        alert.setId(id);
+        alert.setTargetArea(targetArea);
+        alert.setStatus(status);
+        dataStorage.getPredictionStorage().saveAlert(alert);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.forestpest.service;
+
+import com.forestpest.service.scheduling.SprayWindowPlanner;
+import com.forestpest.service.scheduling.SprayWindowPlanner.HourlyForecast;
+import com.forestpest.service.scheduling.SprayWindowPlanner.IngestResult;
+import com.forestpest.service.scheduling.SprayWindowPlanner.TaskWindow;
+import com.forestpest.service.scheduling.SprayWindowPlanner.Window;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SprayWindowPlanner作业窗口与增量评估测试
+ */
+class SprayWindowPlannerTest {
+
+    private final LocalDateTime base = LocalDateTime.of(2024, 6, 3, 0, 0);
+    private final SprayWindowPlanner planner = new SprayWindowPlanner(new SprayWindowPlanner.Settings().rainfastHours(2));
+
+    @Test
+    void testWindowsStopForWindAndLeaveRainfastHours() {
+        // 0-2适宜，3有风，4-9适宜，10降雨
+        planner.ingest(hours("plot-1", 0, "...w......r..."));
+
+        assertEquals(List.of("0-3", "4-8", "11-14"), spans(planner.windows("plot-1", null, null)));
+        assertEquals(List.of("4-8"), spans(planner.windows("plot-1", base.plusHours(5), base.plusHours(9))));
+        assertEquals(List.of("0-3", "4-8"), spans(planner.windows("plot-1", base.plusMinutes(90), base.plusHours(5))));
+
+        planner.track("task-1", "plot-1", base.plusMinutes(30), 4);
+        TaskWindow window = planner.windowFor("task-1");
+        assertEquals(base.plusHours(4), window.getStart());
+        assertEquals(base.plusHours(8), window.getEnd());
+
+        planner.track("task-2", "plot-1", base, 5);
+        assertNull(planner.windowFor("task-2"));
+    }
+
+    @Test
+    void testNewForecastOnlyReevaluatesAffectedTasks() {
+        List<HourlyForecast> initial = new ArrayList<>(hours("plot-1", 0, "....r......"));
+        initial.addAll(hours("plot-2", 0, "..........."));
+        planner.ingest(initial);
+        planner.track("early", "plot-1", base, 2);
+        planner.track("late", "plot-1", base.plusHours(5), 2);
+        planner.track("other", "plot-2", base, 2);
+        assertEquals(base, planner.windowFor("early").getStart());
+
+        // 同样的数据不触发重算
+        assertEquals(0, planner.ingest(hours("plot-2", 0, "...........")).getChangedPlots());
+
+        // 第8小时转为有风：早任务的窗口结束加耐雨时长之后，不受影响
+        IngestResult result = planner.ingest(hours("plot-1", 8, "w"));
+        assertEquals(1, result.getChangedHours());
+        assertEquals(1, result.getEvaluatedTasks());
+        assertEquals(base.plusHours(5), planner.windowFor("late").getStart());
+
+        // 降雨提前到第1小时，早任务改到雨后
+        result = planner.ingest(hours("plot-1", 1, "r..."));
+        assertEquals(2, result.getEvaluatedTasks());
+        assertEquals(base.plusHours(2), planner.windowFor("early").getStart());
+        assertEquals(base, planner.windowFor("other").getStart());
+    }
+
+    @Test
+    void testTrackSkipsReevaluationWhileChosenWindowStillValid() {
+        planner.ingest(hours("plot-1", 0, "..r........"));
+        assertTrue(planner.track("task-1", "plot-1", base, 3));
+        assertEquals(base.plusHours(3), planner.windowFor("task-1").getStart());
+
+        assertFalse(planner.track("task-1", "plot-1", base.plusHours(2), 3));
+        assertTrue(planner.track("task-1", "plot-1", base.plusHours(4), 3));
+        assertEquals(base.plusHours(4), planner.windowFor("task-1").getStart());
+
+        assertTrue(planner.untrack("task-1"));
+        assertNull(planner.windowFor("task-1"));
+        planner.purgeBefore(base.plusHours(3));
+        assertEquals(List.of("3-11"), spans(planner.windows("plot-1", null, null)));
+    }
+
+    /**
+     * '.'适宜作业，'w'风速超限，'r'降雨
+     */
+    private List<HourlyForecast> hours(String plot, int fromHour, String pattern) {
+        List<HourlyForecast> result = new ArrayList<>();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            result.add(new HourlyForecast(plot, base.plusHours(fromHour + i), 20.0, 60.0,
+                    c == 'w' ? 8.0 : 2.0, c == 'r' ? 3.0 : 0.0));
+        }
+        return result;
+    }
+
+    private List<String> spans(List<Window> windows) {
+        return windows.stream()
+                .map(w -> w.getStart().getHour() + "-" + w.getEnd().getHour())
+                .collect(Collectors.toList());
+    }
+}
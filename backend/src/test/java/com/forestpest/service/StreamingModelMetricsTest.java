@@ -0,0 +1,80 @@
+package com.forestpest.service;
+
+import com.forestpest.service.prediction.StreamingModelMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StreamingModelMetrics单元测试
+ */
+class StreamingModelMetricsTest {
+
+    @Test
+    void testEmptySnapshot() {
+        Map<String, Object> snapshot = new StreamingModelMetrics().snapshot();
+
+        assertEquals(0L, snapshot.get("evaluatedCount"));
+        assertNull(snapshot.get("accuracy"));
+        assertNull(snapshot.get("brierScore"));
+        assertNull(snapshot.get("auc"));
+    }
+
+    @Test
+    void testBrierScoreAndLogLoss() {
+        StreamingModelMetrics metrics = new StreamingModelMetrics();
+        metrics.record(0.8, true);
+        metrics.record(0.3, false);
+
+        Map<String, Object> snapshot = metrics.snapshot();
+        assertEquals(2L, snapshot.get("evaluatedCount"));
+        assertEquals(1.0, (Double) snapshot.get("accuracy"), 1e-9);
+        assertEquals((0.04 + 0.09) / 2, (Double) snapshot.get("brierScore"), 1e-9);
+        assertEquals(-(Math.log(0.8) + Math.log(0.7)) / 2, (Double) snapshot.get("logLoss"), 1e-9);
+    }
+
+    @Test
+    void testAucSketch() {
+        StreamingModelMetrics metrics = new StreamingModelMetrics();
+        // 完全可分
+        metrics.record(0.9, true);
+        metrics.record(0.7, true);
+        metrics.record(0.2, false);
+        metrics.record(0.1, false);
+        assertEquals(1.0, (Double) metrics.snapshot().get("auc"), 1e-9);
+
+        // 加入一个排序错误的样本：6个正负对中5个正确
+        metrics.record(0.95, false);
+        assertEquals(4.0 / 6.0, (Double) metrics.snapshot().get("auc"), 1e-9);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCalibrationHistogram() {
+        StreamingModelMetrics metrics = new StreamingModelMetrics();
+        metrics.record(0.82, true);
+        metrics.record(0.88, false);
+        metrics.record(0.15, false);
+
+        List<Map<String, Object>> calibration = (List<Map<String, Object>>) metrics.snapshot().get("calibration");
+        assertEquals(2, calibration.size());
+
+        Map<String, Object> highBin = calibration.get(1);
+        assertEquals(2L, highBin.get("count"));
+        assertEquals(0.85, (Double) highBin.get("meanPredicted"), 1e-9);
+        assertEquals(0.5, (Double) highBin.get("observedRate"), 1e-9);
+    }
+
+    @Test
+    void testReset() {
+        StreamingModelMetrics metrics = new StreamingModelMetrics();
+        metrics.record(0.6, true);
+        metrics.reset();
+
+        assertEquals(0L, metrics.getCount());
+        assertNull(metrics.getAccuracy());
+    }
+}
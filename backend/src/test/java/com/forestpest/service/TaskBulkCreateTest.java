@@ -0,0 +1,232 @@
+package com.forestpest.service;
+
+import com.forestpest.data.storage.DataStorage;
+import com.forestpest.data.storage.TaskProgress;
+import com.forestpest.data.storage.TreatmentStorage;
+import com.forestpest.dto.TaskBatchResultDTO;
+import com.forestpest.entity.TreatmentPlan;
+import com.forestpest.entity.TreatmentTask;
+import com.forestpest.entity.User;
+import com.forestpest.exception.BusinessException;
+import com.forestpest.service.impl.TreatmentPlanServiceImpl;
+import com.forestpest.service.scheduling.SprayWindowService;
+import com.forestpest.service.scheduling.TreatmentScheduleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 防治任务批量创建测试
+ */
+class TaskBulkCreateTest {
+
+    private DataStorage dataStorage;
+    private TreatmentStorage storage;
+    private TreatmentPlanServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        dataStorage = new DataStorage();
+        storage = dataStorage.getTreatmentStorage();
+        service = new TreatmentPlanServiceImpl();
+        ReflectionTestUtils.setField(service, "dataStorage", dataStorage);
+
+        TreatmentPlan plan = new TreatmentPlan();
+        plan.setId("plan-1");
+        plan.setCreatedBy("admin");
+        storage.savePlan(plan);
+        User worker = new User();
+        worker.setId("worker");
+        worker.setUsername("worker");
+        worker.setEmail("worker@example.com");
+        worker.setRole("USER");
+        worker.setStatus("ACTIVE");
+        dataStorage.getUserStorage().save(worker);
+    }
+
+    @Test
+    void testBulkCreateReportsEachItemAndPublishesOnce() {
+        // 预热后计时
+        service.bulkCreateTreatmentTasks("plan-1", tasks(1000), "admin", false);
+        int before = storage.taskCount();
+
+        List<TreatmentTask> batch = tasks(10000);
+        batch.get(3).setTaskName(" ");
+        batch.get(7).setAssignedTo("nobody");
+        batch.set(9, null);
+        TaskBatchResultDTO result = service.bulkCreateTreatmentTasks("plan-1", batch, "admin", false);
+
+        assertTrue(result.getElapsedMs() < 1000, "耗时" + result.getElapsedMs() + "ms");
+        assertEquals(10000, result.getTotal());
+        assertEquals(9997, result.getCreated());
+        assertEquals(3, result.getFailed());
+        assertEquals(10000, result.getStatuses().size());
+        assertEquals(TaskBatchResultDTO.INVALID, result.getStatuses().get(3));
+        assertNull(result.getTaskIds().get(3));
+        assertEquals(TaskBatchResultDTO.CREATED, result.getStatuses().get(4));
+        assertEquals(List.of(3, 7, 9), new ArrayList<>(result.getMessages().keySet()));
+        assertEquals("任务名称不能为空", result.getMessages().get(3));
+
+        assertEquals(before + 9997, storage.taskCount());
+        TreatmentTask created = storage.findTaskById(result.getTaskIds().get(0)).get();
+        assertEquals("PENDING", created.getStatus());
+        assertEquals(0L, created.getVersion());
+        TaskProgress plan = storage.getPlanProgress("plan-1");
+        assertEquals(before + 9997, plan.getTotalTasks());
+        assertEquals(plan.getTotalTasks(), storage.getUserProgress("admin").getTotalTasks());
+        assertEquals(Map.of("PENDING", plan.getTotalTasks()), storage.getTaskStatusCounts());
+        assertEquals(before + 9997, storage.findTasksByPlanId("plan-1").size());
+        assertEquals(created.getCreatedTime(), storage.findTasksByCreatedBy("admin", 0, 1).get(0).getCreatedTime());
+    }
+
+    @Test
+    void testAutoAssignSchedulesUnassignedTasksBeforeSaving() {
+        TreatmentScheduleService scheduler = mock(TreatmentScheduleService.class);
+        ReflectionTestUtils.setField(service, "treatmentScheduleService", scheduler);
+        when(scheduler.canSchedule("admin")).thenReturn(true);
+        doAnswer(invocation -> {
+            List<TreatmentTask> tasks = invocation.getArgument(0);
+            tasks.get(0).setAssignedTo("worker");
+            tasks.get(0).setStatus("ASSIGNED");
+            storage.saveAllTasks(tasks);
+            return Map.of(tasks.get(1).getId(), "药剂库存不足");
+        }).when(scheduler).scheduleNewTasks(anyList(), eq("admin"));
+
+        TaskBatchResultDTO result = service.bulkCreateTreatmentTasks("plan-1", tasks(3), "admin", true);
+
+        assertEquals(List.of(TaskBatchResultDTO.ASSIGNED, TaskBatchResultDTO.UNASSIGNED, TaskBatchResultDTO.CREATED),
+                result.getStatuses());
+        assertEquals(1, result.getAssigned());
+        assertEquals(Map.of(1, "药剂库存不足"), result.getMessages());
+        assertEquals(1, storage.findTasksByAssignedTo("worker").size());
+        assertEquals(Map.of("ASSIGNED", 1L, "PENDING", 2L), storage.getPlanProgress("plan-1").getStatusCounts());
+    }
+
+    @Test
+    void testAutoAssignWithoutPermissionCreatesNothing() {
+        TreatmentPlan plan = new TreatmentPlan();
+        plan.setId("plan-2");
+        plan.setCreatedBy("worker");
+        storage.savePlan(plan);
+        TreatmentScheduleService scheduler = mock(TreatmentScheduleService.class);
+        ReflectionTestUtils.setField(service, "treatmentScheduleService", scheduler);
+        List<TreatmentTask> batch = tasks(3);
+
+        BusinessException error = assertThrows(BusinessException.class,
+                () -> service.bulkCreateTreatmentTasks("plan-2", batch, "worker", true));
+
+        assertEquals("自动分配任务需要管理员权限，请关闭自动分配或由管理员创建", error.getMessage());
+        assertEquals(0, storage.taskCount());
+        assertNull(batch.get(0).getId());
+        verify(scheduler, never()).scheduleNewTasks(anyList(), eq("worker"));
+    }
+
+    @Test
+    void testAutoAssignLeavesStartedScheduledTaskUntouched() {
+        TreatmentScheduleService scheduler = realScheduler();
+
+        String existingId = service.bulkCreateTreatmentTasks("plan-1", tasks(1), "admin", true).getTaskIds().get(0);
+        assertEquals("worker", storage.findTaskById(existingId).get().getAssignedTo());
+        // 未注册状态监听，排程器不知道任务已开始，写回时仍需按当前状态跳过
+        service.updateTaskStatus(existingId, "IN_PROGRESS", "worker");
+        TreatmentTask started = storage.findTaskById(existingId).get();
+        assertEquals(List.of(existingId), taskIds(scheduler.getCrewSchedule("worker")));
+
+        List<TreatmentTask> batch = tasks(5);
+        batch.forEach(task -> task.setPriority("紧急"));
+        TaskBatchResultDTO result = service.bulkCreateTreatmentTasks("plan-1", batch, "admin", true);
+
+        assertEquals(5, result.getAssigned());
+        assertSame(started, storage.findTaskById(existingId).get());
+        assertEquals("IN_PROGRESS", started.getStatus());
+        assertFalse(taskIds(scheduler.getCrewSchedule("worker")).contains(existingId));
+        assertEquals(5, storage.findTasksByStatus("ASSIGNED").size());
+    }
+
+    @Test
+    void testAutoAssignWorksAroundPreassignedTask() {
+        TreatmentScheduleService scheduler = realScheduler();
+        LocalDateTime window = LocalDate.now().plusDays(1).atTime(9, 0);
+        List<TreatmentTask> batch = tasks(2);
+        batch.forEach(task -> task.setScheduledTime(window));
+        batch.get(0).setAssignedTo("worker");
+
+        TaskBatchResultDTO result = service.bulkCreateTreatmentTasks("plan-1", batch, "admin", true);
+
+        assertEquals(2, result.getAssigned());
+        TreatmentTask preassigned = storage.findTaskById(result.getTaskIds().get(0)).get();
+        TreatmentTask scheduled = storage.findTaskById(result.getTaskIds().get(1)).get();
+        assertEquals("worker", preassigned.getAssignedTo());
+        assertEquals("worker", scheduled.getAssignedTo());
+        // 同一班组的两个任务作业时段不重叠
+        List<Map<String, Object>> route = scheduler.getCrewSchedule("worker");
+        assertEquals(2, route.size());
+        LocalDateTime firstEnd = (LocalDateTime) route.get(0).get("end");
+        LocalDateTime secondStart = (LocalDateTime) route.get(1).get("start");
+        assertFalse(secondStart.isBefore(firstEnd));
+        assertNotEquals(preassigned.getScheduledTime(), scheduled.getScheduledTime());
+    }
+
+    @Test
+    void testBatchCreateRejectsWholeBatch() {
+        // 与大批量创建共用数量上限
+        service.setBulkMaxTasks(20);
+        assertEquals("批量创建任务最多支持20个", assertThrows(BusinessException.class,
+                () -> service.batchCreateTreatmentTasks("plan-1", tasks(21), "admin")).getMessage());
+        assertThrows(BusinessException.class, () -> service.bulkCreateTreatmentTasks("plan-1", tasks(2), "worker", false));
+
+        List<TreatmentTask> batch = tasks(5);
+        batch.get(2).setTaskName(null);
+        BusinessException error = assertThrows(BusinessException.class,
+                () -> service.batchCreateTreatmentTasks("plan-1", batch, "admin"));
+        assertEquals("第3个任务: 任务名称不能为空", error.getMessage());
+        assertEquals(0, storage.taskCount());
+
+        List<TreatmentTask> created = service.batchCreateTreatmentTasks("plan-1", tasks(5), "admin");
+        assertEquals(5, created.size());
+        assertEquals(5, storage.getPlanProgress("plan-1").getCount(TaskProgress.Status.PENDING));
+    }
+
+    private TreatmentScheduleService realScheduler() {
+        PermissionService permissionService = mock(PermissionService.class);
+        when(permissionService.isAdmin("admin")).thenReturn(true);
+        TreatmentScheduleService scheduler = new TreatmentScheduleService();
+        ReflectionTestUtils.setField(scheduler, "dataStorage", dataStorage);
+        ReflectionTestUtils.setField(scheduler, "permissionService", permissionService);
+        ReflectionTestUtils.setField(scheduler, "sprayWindowService", mock(SprayWindowService.class));
+        ReflectionTestUtils.setField(service, "treatmentScheduleService", scheduler);
+        return scheduler;
+    }
+
+    private static List<String> taskIds(List<Map<String, Object>> route) {
+        List<String> ids = new ArrayList<>(route.size());
+        route.forEach(item -> ids.add((String) item.get("taskId")));
+        return ids;
+    }
+
+    private List<TreatmentTask> tasks(int count) {
+        List<TreatmentTask> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TreatmentTask task = new TreatmentTask();
+            task.setTaskName("喷药-" + i);
+            task.setTargetArea("area-" + (i % 50));
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
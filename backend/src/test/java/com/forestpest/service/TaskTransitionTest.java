@@ -0,0 +1,149 @@
+package com.forestpest.service;
+
+import com.forestpest.data.storage.DataStorage;
+import com.forestpest.data.storage.TaskProgress;
+import com.forestpest.entity.TreatmentPlan;
+import com.forestpest.entity.TreatmentTask;
+import com.forestpest.exception.BusinessException;
+import com.forestpest.exception.VersionConflictException;
+import com.forestpest.service.impl.TreatmentPlanServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 防治任务状态流转与版本冲突测试
+ */
+class TaskTransitionTest {
+
+    private DataStorage dataStorage;
+    private TreatmentPlanServiceImpl service;
+    private String taskId;
+
+    @BeforeEach
+    void setUp() {
+        dataStorage = new DataStorage();
+        service = new TreatmentPlanServiceImpl();
+        ReflectionTestUtils.setField(service, "dataStorage", dataStorage);
+
+        TreatmentPlan plan = new TreatmentPlan();
+        plan.setId("plan-1");
+        plan.setCreatedBy("admin");
+        dataStorage.getTreatmentStorage().savePlan(plan);
+        TreatmentTask task = new TreatmentTask();
+        task.setTaskName("喷药");
+        taskId = service.createTreatmentTask("plan-1", task, "admin").getId();
+    }
+
+    @Test
+    void testStaleVersionIsRejectedAndSnapshotsStayUnchanged() {
+        TreatmentTask created = dataStorage.getTreatmentStorage().findTaskById(taskId).get();
+        assertEquals(0L, created.getVersion());
+
+        TreatmentTask assigned = service.assignTreatmentTask(taskId, "worker", "admin", 0L);
+        assertEquals(1L, assigned.getVersion());
+        // 已发布的快照不被后续流转修改
+        assertEquals("PENDING", created.getStatus());
+        assertNull(created.getAssignedTo());
+
+        VersionConflictException conflict = assertThrows(VersionConflictException.class,
+                () -> service.updateTaskStatus(taskId, "IN_PROGRESS", "worker", 0L));
+        assertSame(assigned, conflict.getCurrent());
+
+        TreatmentTask started = service.updateTaskStatus(taskId, "IN_PROGRESS", "worker", 1L);
+        assertNotNull(started.getActualStartTime());
+        TreatmentTask completed = service.completeTreatmentTask(taskId, "worker", Map.of("actualCost", 120), 2L);
+        assertEquals(3L, completed.getVersion());
+        assertEquals(120.0, completed.getActualCost());
+        assertEquals(1, dataStorage.getTreatmentStorage().getPlanProgress("plan-1").getCompletedTasks());
+    }
+
+    @Test
+    void testTransitionTableRejectsInvalidMoves() {
+        assertThrows(BusinessException.class, () -> service.completeTreatmentTask(taskId, null, null));
+        TreatmentTask task = dataStorage.getTreatmentStorage().findTaskById(taskId).get();
+        task.setAssignedTo("worker");
+        dataStorage.getTreatmentStorage().saveTask(task);
+
+        // 待执行的任务需要先分配或开始才能完成
+        BusinessException error = assertThrows(BusinessException.class,
+                () -> service.completeTreatmentTask(taskId, "worker", null));
+        assertEquals("INVALID_TRANSITION", error.getCode());
+        assertThrows(BusinessException.class, () -> service.updateTaskStatus(taskId, "DONE", "worker"));
+
+        service.updateTaskStatus(taskId, "已取消", "admin");
+        assertThrows(BusinessException.class, () -> service.updateTaskStatus(taskId, "IN_PROGRESS", "worker"));
+        assertEquals("PENDING", service.updateTaskStatus(taskId, "PENDING", "admin").getStatus());
+        assertTrue(TaskStateMachine.canTransition("执行中", "COMPLETED"));
+        assertFalse(TaskStateMachine.canTransition("已完成", "ASSIGNED"));
+    }
+
+    @Test
+    void testTaskCreatedWithAssigneeCanBeCompleted() {
+        TreatmentTask task = new TreatmentTask();
+        task.setTaskName("补喷");
+        task.setAssignedTo("worker");
+        TreatmentTask created = service.createTreatmentTask("plan-1", task, "admin");
+        assertEquals("ASSIGNED", created.getStatus());
+
+        TreatmentTask completed = service.completeTreatmentTask(created.getId(), "worker", null);
+        assertEquals("COMPLETED", completed.getStatus());
+        assertEquals(1, dataStorage.getTreatmentStorage().getPlanProgress("plan-1").getCompletedTasks());
+    }
+
+    @Test
+    void testChineseStatusAliases() {
+        assertEquals(TaskProgress.Status.IN_PROGRESS, TaskProgress.Status.of("进行中"));
+        assertEquals(TaskProgress.Status.ASSIGNED, TaskProgress.Status.of("已分配"));
+        assertEquals("进行中", service.updateTaskStatus(taskId, "进行中", "admin").getStatus());
+        assertTrue(TaskStateMachine.canTransition("已分配", "进行中"));
+    }
+
+    @Test
+    void testConcurrentReassignmentsNeverLoseUpdates() throws Exception {
+        service.assignTreatmentTask(taskId, "worker-0", "admin");
+        int threads = 8;
+        int attemptsPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String assignee = "worker-" + (t + 1);
+            results.add(executor.submit(() -> {
+                int succeeded = 0;
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    long version = dataStorage.getTreatmentStorage().findTaskById(taskId).get().getVersion();
+                    try {
+                        service.assignTreatmentTask(taskId, assignee, "admin", version);
+                        succeeded++;
+                    } catch (VersionConflictException e) {
+                        // 读取版本后被其他线程抢先写入
+                    }
+                }
+                return succeeded;
+            }));
+        }
+        int succeeded = 0;
+        for (Future<Integer> result : results) {
+            succeeded += result.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        TreatmentTask latest = dataStorage.getTreatmentStorage().findTaskById(taskId).get();
+        // 每次成功的写入恰好使版本加一
+        assertEquals(1L + succeeded, latest.getVersion());
+        assertTrue(succeeded > 0);
+        assertEquals(1, dataStorage.getTreatmentStorage().findTasksByStatus("ASSIGNED").size());
+        assertEquals(1, dataStorage.getTreatmentStorage().findTasksByAssignedTo(latest.getAssignedTo()).size());
+    }
+}
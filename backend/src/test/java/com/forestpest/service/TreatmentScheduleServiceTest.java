@@ -0,0 +1,133 @@
+package com.forestpest.service;
+
+import com.forestpest.data.storage.DataStorage;
+import com.forestpest.data.storage.TreatmentStorage;
+import com.forestpest.entity.Pesticide;
+import com.forestpest.entity.TreatmentPlan;
+import com.forestpest.entity.TreatmentTask;
+import com.forestpest.entity.User;
+import com.forestpest.exception.BusinessException;
+import com.forestpest.service.scheduling.SprayWindowService;
+import com.forestpest.service.scheduling.TreatmentScheduleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 防治任务排程服务测试，使用真实的存储和排程器
+ */
+class TreatmentScheduleServiceTest {
+
+    private DataStorage dataStorage;
+    private TreatmentStorage storage;
+    private TreatmentScheduleService service;
+
+    @BeforeEach
+    void setUp() {
+        dataStorage = new DataStorage();
+        storage = dataStorage.getTreatmentStorage();
+        PermissionService permissionService = mock(PermissionService.class);
+        when(permissionService.isAdmin(anyString())).thenReturn(true);
+        service = new TreatmentScheduleService();
+        ReflectionTestUtils.setField(service, "dataStorage", dataStorage);
+        ReflectionTestUtils.setField(service, "permissionService", permissionService);
+        ReflectionTestUtils.setField(service, "sprayWindowService", mock(SprayWindowService.class));
+        service.init();
+
+        User worker = new User();
+        worker.setId("worker");
+        worker.setUsername("worker");
+        worker.setEmail("worker@example.com");
+        worker.setRole("USER");
+        worker.setStatus("ACTIVE");
+        dataStorage.getUserStorage().save(worker);
+        TreatmentPlan plan = new TreatmentPlan();
+        plan.setId("plan-1");
+        plan.setCreatedBy("admin");
+        storage.savePlan(plan);
+    }
+
+    @Test
+    void testStartedTaskIsNotForcedBackToAssigned() {
+        service.scheduleTask(task("task-1").getId(), "admin");
+        TreatmentTask started = storage.findTaskById("task-1").get().copy();
+        started.setStatus("IN_PROGRESS");
+        storage.saveTask(started);
+
+        service.scheduleTask(task("task-2").getId(), "admin");
+
+        assertEquals("IN_PROGRESS", storage.findTaskById("task-1").get().getStatus());
+        assertEquals("ASSIGNED", storage.findTaskById("task-2").get().getStatus());
+        assertEquals(List.of("task-2"), route());
+    }
+
+    @Test
+    void testDeletedTaskLeavesSchedule() {
+        service.scheduleTask(task("task-1").getId(), "admin");
+        service.scheduleTask(task("task-2").getId(), "admin");
+        assertEquals(2, route().size());
+
+        storage.deleteTaskById("task-1");
+
+        assertEquals(List.of("task-2"), route());
+    }
+
+    @Test
+    void testExpiredSchedulerIsRebuilt() {
+        // 排程器建立于15天前，班组可用时间已超出排程范围
+        ReflectionTestUtils.invokeMethod(service, "resetScheduler",
+                LocalDateTime.now().minusDays(15).truncatedTo(ChronoUnit.MINUTES));
+
+        TreatmentTask scheduled = service.scheduleTask(task("task-1").getId(), "admin");
+
+        assertEquals("worker", scheduled.getAssignedTo());
+        assertTrue(scheduled.getScheduledTime().isAfter(LocalDateTime.now().minusMinutes(1)));
+    }
+
+    @Test
+    void testRestockRebuildsScheduler() {
+        Pesticide pesticide = new Pesticide();
+        pesticide.setId("pesticide-1");
+        pesticide.setSafetyLevel("低毒");
+        pesticide.setStockQuantity(1);
+        dataStorage.getPesticideStorage().save(pesticide);
+        service.scheduleTask(task("task-1", "pesticide-1").getId(), "admin");
+        BusinessException error = assertThrows(BusinessException.class,
+                () -> service.scheduleTask(task("task-2", "pesticide-1").getId(), "admin"));
+        assertEquals("任务无法排程: 药剂库存不足", error.getMessage());
+
+        pesticide.setStockQuantity(5);
+        dataStorage.getPesticideStorage().save(pesticide);
+
+        assertEquals("ASSIGNED", service.scheduleTask("task-2", "admin").getStatus());
+        assertEquals(2, route().size());
+    }
+
+    private List<String> route() {
+        return service.getCrewSchedule("worker").stream()
+                .map(item -> (String) item.get("taskId"))
+                .collect(Collectors.toList());
+    }
+
+    private TreatmentTask task(String id, String... pesticides) {
+        TreatmentTask task = new TreatmentTask();
+        task.setId(id);
+        task.setPlanId("plan-1");
+        task.setTaskName("喷药-" + id);
+        task.setStatus("PENDING");
+        task.setUsedPesticides(List.of(pesticides));
+        task.setCreatedTime(LocalDateTime.now());
+        storage.saveTask(task);
+        return task;
+    }
+}
@@ -0,0 +1,124 @@
+package com.forestpest.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.forestpest.entity.EffectEvaluation;
+import com.forestpest.entity.EvaluationData;
+import com.forestpest.entity.PestPrediction;
+import com.forestpest.entity.PesticideUsageRecord;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 实体列式编码往返测试
+ */
+class ColumnarEntityFormatTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 6, 1, 9, 30, 15);
+    private static final String[] RISK_LEVELS = {"LOW", "MEDIUM", "HIGH", "CRITICAL"};
+    private static final String[] AREAS = {"东山林场", "西山林场", "北坡防护林"};
+
+    @Test
+    void testPredictionRoundTripIsSmallerThanJson() throws IOException {
+        List<PestPrediction> predictions = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            PestPrediction prediction = new PestPrediction();
+            prediction.setId("pred-" + i);
+            prediction.setPestId("pest-" + (i % 20));
+            prediction.setTargetArea(AREAS[i % AREAS.length]);
+            prediction.setPredictionDate(LocalDate.of(2024, 6, 1).plusDays(i % 90));
+            prediction.setRiskLevel(RISK_LEVELS[i % RISK_LEVELS.length]);
+            prediction.setProbability(i % 100 / 100.0);
+            prediction.setStatus(i % 7 == 0 ? null : "ACTIVE");
+            prediction.setCreatedTime(TIME.plusMinutes(i));
+            predictions.add(prediction);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarEntityFormat.writePredictions(out, predictions);
+        List<PestPrediction> read = ColumnarEntityFormat.readPredictions(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(predictions.size(), read.size());
+        for (int i = 0; i < predictions.size(); i += 997) {
+            PestPrediction expected = predictions.get(i);
+            PestPrediction actual = read.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getTargetArea(), actual.getTargetArea());
+            assertEquals(expected.getPredictionDate(), actual.getPredictionDate());
+            assertEquals(expected.getRiskLevel(), actual.getRiskLevel());
+            assertEquals(expected.getProbability(), actual.getProbability());
+            assertEquals(expected.getStatus(), actual.getStatus());
+            assertEquals(expected.getCreatedTime(), actual.getCreatedTime());
+        }
+
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT);
+        int jsonSize = mapper.writeValueAsBytes(predictions).length;
+        assertTrue(out.size() * 4 < jsonSize, "列式: " + out.size() + "，JSON: " + jsonSize);
+    }
+
+    @Test
+    void testUsageRecordRoundTrip() throws IOException {
+        PesticideUsageRecord record = new PesticideUsageRecord("pesticide-1", "task-1", 25, "user-1", "东山林场");
+        record.setId("usage-1");
+        record.setPesticideName("吡虫啉");
+        record.setUsageTime(TIME);
+        record.setApplicationMethod("喷雾");
+        record.setConcentration("1:1000");
+        PesticideUsageRecord empty = new PesticideUsageRecord();
+        empty.setId("usage-2");
+        empty.setCreatedTime(null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarEntityFormat.writeUsageRecords(out, List.of(record, empty));
+        List<PesticideUsageRecord> read = ColumnarEntityFormat.readUsageRecords(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(2, read.size());
+        assertEquals("吡虫啉", read.get(0).getPesticideName());
+        assertEquals(25, read.get(0).getUsedQuantity());
+        assertEquals(TIME, read.get(0).getUsageTime());
+        assertEquals("喷雾", read.get(0).getApplicationMethod());
+        assertEquals("东山林场", read.get(0).getTargetArea());
+        assertNull(read.get(1).getUsedQuantity());
+        assertNull(read.get(1).getCreatedTime());
+    }
+
+    @Test
+    void testEvaluationRoundTrip() throws IOException {
+        EffectEvaluation evaluation = new EffectEvaluation();
+        evaluation.setId("eval-1");
+        evaluation.setTaskId("task-1");
+        evaluation.setEvaluatedArea("西山林场");
+        evaluation.setEvaluationTime(TIME);
+        evaluation.setEffectivenessRate(82.5);
+        evaluation.setBeforeTreatment(new EvaluationData(120.0, "SEVERE", 300, "大面积受害"));
+        EffectEvaluation withoutData = new EffectEvaluation();
+        withoutData.setId("eval-2");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarEntityFormat.writeEvaluations(out, List.of(evaluation, withoutData));
+        List<EffectEvaluation> read = ColumnarEntityFormat.readEvaluations(new ByteArrayInputStream(out.toByteArray()));
+
+        EffectEvaluation first = read.get(0);
+        assertEquals("西山林场", first.getEvaluatedArea());
+        assertEquals(TIME, first.getEvaluationTime());
+        assertEquals(82.5, first.getEffectivenessRate());
+        assertEquals(120.0, first.getBeforeTreatment().getAffectedArea());
+        assertEquals("SEVERE", first.getBeforeTreatment().getSeverityLevel());
+        assertEquals(300, first.getBeforeTreatment().getPestPopulation());
+        assertNull(first.getAfterTreatment());
+        assertNull(read.get(1).getBeforeTreatment());
+    }
+}
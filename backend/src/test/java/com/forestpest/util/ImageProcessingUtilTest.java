@@ -0,0 +1,88 @@
+package com.forestpest.util;
+
+import com.forestpest.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图片处理工具测试
+ */
+class ImageProcessingUtilTest {
+
+    @Test
+    void testImageInfoReadsDimensionsFromHeader() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "large.png", "image/png", png(3000, 2000, Color.GREEN));
+
+        ImageProcessingUtil.ImageInfo info = ImageProcessingUtil.getImageInfo(file);
+
+        assertEquals(3000, info.getWidth());
+        assertEquals(2000, info.getHeight());
+        assertEquals("PNG", info.getFormat());
+        assertThrows(BusinessException.class, () -> ImageProcessingUtil.getImageInfo(
+                new MockMultipartFile("file", "broken.png", "image/png", new byte[]{1, 2, 3})));
+    }
+
+    @Test
+    void testThumbnailReadIsSubsampled() throws IOException {
+        ImageProcessingUtil.SampledImage sampled = ImageProcessingUtil.readForThumbnail(
+                new ByteArrayInputStream(png(3000, 2000, Color.GREEN)));
+
+        // 采样结果不小于缩略图尺寸，但远小于原图
+        assertEquals(3000, sampled.getSourceWidth());
+        assertEquals(2000, sampled.getSourceHeight());
+        assertTrue(sampled.getImage().getWidth() >= 200 && sampled.getImage().getWidth() < 400);
+        assertTrue(sampled.getImage().getHeight() >= 133 && sampled.getImage().getHeight() < 400);
+
+        BufferedImage thumbnail = decode(ImageProcessingUtil.generateThumbnail(sampled.getImage()));
+        assertEquals(200, thumbnail.getWidth());
+        assertEquals(133, thumbnail.getHeight(), 1);
+    }
+
+    @Test
+    void testResizeProducesExactTargetSize() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "a.png", "image/png", png(1600, 900, Color.GREEN));
+
+        BufferedImage resized = decode(ImageProcessingUtil.resizeImage(file, 320, 320));
+
+        assertEquals(320, resized.getWidth());
+        assertEquals(320, resized.getHeight());
+    }
+
+    @Test
+    void testPooledCanvasDoesNotLeakPreviousImage() throws IOException {
+        ImageProcessingUtil.generateThumbnail(new MockMultipartFile("file", "white.png", "image/png",
+                png(400, 400, Color.WHITE)));
+
+        BufferedImage thumbnail = decode(ImageProcessingUtil.generateThumbnail(
+                new MockMultipartFile("file", "black.png", "image/png", png(100, 50, Color.BLACK))));
+
+        assertEquals(200, thumbnail.getWidth());
+        assertEquals(100, thumbnail.getHeight());
+        int rgb = thumbnail.getRGB(thumbnail.getWidth() - 1, thumbnail.getHeight() - 1) & 0xFFFFFF;
+        assertTrue((rgb & 0xFF) < 16, "缩略图不应残留上一次绘制的内容");
+    }
+
+    private BufferedImage decode(byte[] data) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(data));
+    }
+
+    private byte[] png(int width, int height, Color color) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(color);
+        g2d.fillRect(0, 0, width, height);
+        g2d.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,46 @@
+package com.forestpest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LRU缓存测试
+ */
+class LruCacheTest {
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals(1, cache.get("a"));
+        cache.put("c", 3);
+
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.get("a"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(2, cache.size());
+
+        Map<String, Object> snapshot = cache.snapshot();
+        assertEquals(3L, snapshot.get("hits"));
+        assertEquals(1L, snapshot.get("misses"));
+        assertEquals(1L, snapshot.get("evictions"));
+    }
+
+    @Test
+    void testComputeIfAbsentLoadsOnce() {
+        LruCache<String, String> cache = new LruCache<>(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("A", cache.computeIfAbsent("a", key -> { loads.incrementAndGet(); return "A"; }));
+        assertEquals("A", cache.computeIfAbsent("a", key -> { loads.incrementAndGet(); return "B"; }));
+        assertEquals(1, loads.get());
+
+        cache.clear();
+        assertEquals("C", cache.computeIfAbsent("a", key -> "C"));
+    }
+}
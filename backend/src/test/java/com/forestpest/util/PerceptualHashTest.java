@@ -0,0 +1,62 @@
+package com.forestpest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 感知哈希测试
+ */
+class PerceptualHashTest {
+
+    @Test
+    void testResizedAndBrightenedImageKeepsHash() {
+        BufferedImage original = scene(640, 480, 0);
+        BufferedImage resized = scale(original, 213, 160);
+        BufferedImage brighter = scene(640, 480, 30);
+
+        long hash = PerceptualHash.dHash(original);
+        assertTrue(PerceptualHash.distance(hash, PerceptualHash.dHash(resized)) <= 4);
+        assertTrue(PerceptualHash.distance(hash, PerceptualHash.dHash(brighter)) <= 4);
+    }
+
+    @Test
+    void testDifferentImagesAreFarApart() {
+        BufferedImage scene = scene(640, 480, 0);
+        BufferedImage mirrored = scale(scene, 640, 480);
+        Graphics2D g2d = mirrored.createGraphics();
+        g2d.drawImage(scene, 640, 0, -640, 480, null);
+        g2d.dispose();
+
+        assertTrue(PerceptualHash.distance(PerceptualHash.dHash(scene), PerceptualHash.dHash(mirrored)) > 12);
+        assertEquals(0, PerceptualHash.distance(5L, 5L));
+        assertEquals(64, PerceptualHash.distance(0L, -1L));
+    }
+
+    /**
+     * 水平方向亮度起伏的场景，带若干色块
+     */
+    private BufferedImage scene(int width, int height, int brightness) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int value = (int) (100 + 80 * Math.sin(x * 7.0 / width) * Math.cos(y * 5.0 / height)) + brightness;
+                value = Math.max(0, Math.min(255, value + (x > width / 3 && x < width / 2 ? 40 : 0)));
+                image.setRGB(x, y, (value / 2 << 16) | (value << 8) | value / 3);
+            }
+        }
+        return image;
+    }
+
+    private BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = scaled.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return scaled;
+    }
+}
@@ -0,0 +1,51 @@
+package com.forestpest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RandomProvider单元测试
+ */
+class RandomProviderTest {
+
+    @Test
+    void testSeededProviderIsReproducible() {
+        RandomProvider first = RandomProvider.seeded(42L);
+        RandomProvider second = RandomProvider.seeded(42L);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.nextDouble(), second.nextDouble());
+            assertEquals(first.nextInt(1000), second.nextInt(1000));
+        }
+    }
+
+    @Test
+    void testSeededProviderGivesEachThreadItsOwnStream() throws Exception {
+        RandomProvider provider = RandomProvider.seeded(7L);
+        double mainValue = provider.nextDouble();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Double> other = executor.submit(() -> provider.nextDouble());
+            assertNotEquals(mainValue, other.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testRanges() {
+        RandomProvider provider = RandomProvider.threadLocal();
+        for (int i = 0; i < 1000; i++) {
+            double value = provider.nextDouble(0.6, 0.95);
+            assertTrue(value >= 0.6 && value < 0.95);
+            int index = provider.nextInt(5);
+            assertTrue(index >= 0 && index < 5);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.forestpest.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.forestpest.entity.PestAlert;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式导出工具测试
+ */
+class StreamingExportUtilTest {
+
+    @Test
+    void testJsonIsWrittenAsArray() throws IOException {
+        PestAlert alert = new PestAlert();
+        alert.setId("alert-1");
+        alert.setMessage("松毛虫高风险");
+        alert.setAlertTime(LocalDateTime.of(2024, 5, 1, 8, 30));
+
+        String json = StreamingExportUtil.asString(StreamingExportUtil.json(List.of(alert)));
+
+        JsonNode root = new ObjectMapper().readTree(json);
+        assertTrue(root.isArray());
+        assertEquals("alert-1", root.get(0).get("id").asText());
+        assertEquals("松毛虫高风险", root.get(0).get("message").asText());
+    }
+
+    @Test
+    void testCsvEscapesFieldsAndFlushesInChunks() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        CsvWriter csv = new CsvWriter(out, 2);
+        csv.writeRow("名称", "备注");
+        csv.writeRow("a,b", "say \"hi\"");
+        csv.writeRow("c", null);
+        csv.flush();
+
+        String content = out.buffer.toString(StandardCharsets.UTF_8);
+        assertEquals("名称,备注\n\"a,b\",\"say \"\"hi\"\"\"\nc,\n", content);
+        // 每两行刷新一次，再加最后一次显式刷新
+        assertEquals(2, out.flushes);
+        assertEquals(3, csv.getRowCount());
+    }
+
+    @Test
+    void testSourceIsIteratedLazily() {
+        Iterable<Integer> rows = () -> new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < 3;
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return next++;
+            }
+        };
+        String[] header = {"序号", "平方"};
+        StreamingExportUtil.ExportWriter writer = StreamingExportUtil.csv(header, rows, i -> new Object[]{i, i * i});
+
+        assertEquals("序号,平方\n0,0\n1,1\n2,4\n", StreamingExportUtil.asString(writer));
+        // 可迭代对象每次写出都重新迭代
+        assertEquals(StreamingExportUtil.asString(writer), StreamingExportUtil.asString(writer));
+    }
+
+    @Test
+    void testGzipResponse() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = StreamingExportUtil.response("alerts", "csv", true,
+                StreamingExportUtil.csv(new String[]{"ID"}, List.of("a-1", "a-2"), id -> new Object[]{id}));
+
+        assertEquals("application/gzip", response.getHeaders().getContentType().toString());
+        assertTrue(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION).contains("alerts.csv.gz"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("ID\na-1\na-2\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private int flushes;
+
+        @Override
+        public void write(int b) {
+            buffer.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buffer.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}